@@ -0,0 +1,180 @@
+/*
+ * AnalysisBenchmark.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.utils.HistogramTableModel;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * benchmarks of the analysis passes working on parsed dumps: monitor maps,
+ * blocking monitor trees, dump diffs and histogram filtering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+    /**
+     * how often the test logs are repeated.
+     */
+    @Param({"1", "20"})
+    public int scale;
+
+    private String[] monitorLines;
+    private String[] monitorThreads;
+
+    private DumpTreeBuilder builder;
+    private MonitorMap[] monitorMaps;
+    private MonitorMap generatedMonitorMap;
+
+    private AbstractDumpParser diffParser;
+    private Map dumpStore;
+    private TreePath[] dumpPaths;
+
+    private HistogramTableModel histogram;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] log = BenchmarkLogs.load("test.log", scale);
+
+        // lock lines of all threads
+        List dumps = BenchmarkLogs.readDumps(log);
+        List lines = new ArrayList();
+        List threads = new ArrayList();
+        for (int i = 0; i < dumps.size(); i++) {
+            List dumpThreads = ((ThreadDump) dumps.get(i)).getThreads();
+            for (int j = 0; j < dumpThreads.size(); j++) {
+                DumpThread thread = (DumpThread) dumpThreads.get(j);
+                List events = thread.getLockEvents();
+                for (int k = 0; k < events.size(); k++) {
+                    lines.add(((LockEvent) events.get(k)).getLine());
+                    threads.add(thread.getTitle());
+                }
+            }
+        }
+        monitorLines = (String[]) lines.toArray(new String[lines.size()]);
+        monitorThreads = (String[]) threads.toArray(new String[threads.size()]);
+
+        // monitor maps of all dumps
+        diffParser = (AbstractDumpParser) BenchmarkLogs.getParser(log, new HashMap());
+        builder = new DumpTreeBuilder(diffParser);
+        monitorMaps = new MonitorMap[dumps.size()];
+        for (int i = 0; i < dumps.size(); i++) {
+            monitorMaps[i] = builder.createMonitorMap((ThreadDump) dumps.get(i));
+        }
+
+        generatedMonitorMap = builder.createMonitorMap(
+                (ThreadDump) BenchmarkLogs.readDumps(BenchmarkLogs.generate(1000 * scale)).get(0));
+
+        // paths to all dumps
+        dumpStore = new HashMap();
+        List nodes = BenchmarkLogs.parseNodes(log, dumpStore);
+        DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("test.log"));
+        dumpPaths = new TreePath[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            top.add((DefaultMutableTreeNode) nodes.get(i));
+            dumpPaths[i] = new TreePath(((DefaultMutableTreeNode) nodes.get(i)).getPath());
+        }
+
+        // all histogram entries
+        histogram = new HistogramTableModel();
+        List histogramDumps = BenchmarkLogs.readDumps(BenchmarkLogs.load("testwithhistogram.log", scale));
+        for (int i = 0; i < histogramDumps.size(); i++) {
+            ClassHistogram classHistogram = ((ThreadDump) histogramDumps.get(i)).getClassHistogram();
+            if (classHistogram != null) {
+                List entries = classHistogram.getEntries();
+                for (int j = 0; j < entries.size(); j++) {
+                    ClassHistogram.Entry entry = (ClassHistogram.Entry) entries.get(j);
+                    histogram.addEntry(entry.getClassName(), (int) entry.getInstances(), (int) entry.getBytes());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public MonitorMap parseAndAddThread() {
+        MonitorMap mmap = new MonitorMap();
+        for (int i = 0; i < monitorLines.length; i++) {
+            mmap.parseAndAddThread(monitorLines[i], monitorThreads[i], monitorThreads[i]);
+        }
+        return (mmap);
+    }
+
+    @Benchmark
+    public void dumpBlockingMonitors(Blackhole bh) {
+        for (int i = 0; i < monitorMaps.length; i++) {
+            DefaultMutableTreeNode catBlockingMonitors = new DefaultMutableTreeNode(
+                    new TreeCategory("Threads blocked by Monitors", IconFactory.THREADS_LOCKING, false));
+            bh.consume(builder.dumpBlockingMonitors(catBlockingMonitors, monitorMaps[i]));
+        }
+    }
+
+    /**
+     * one dump with 10 lock chains per scale.
+     */
+    @Benchmark
+    public int[] dumpBlockingMonitorsGenerated() {
+        DefaultMutableTreeNode catBlockingMonitors = new DefaultMutableTreeNode(
+                new TreeCategory("Threads blocked by Monitors", IconFactory.THREADS_LOCKING, false));
+        return (builder.dumpBlockingMonitors(catBlockingMonitors, generatedMonitorMap));
+    }
+
+    @Benchmark
+    public DefaultMutableTreeNode diffDumps() {
+        DefaultMutableTreeNode root = new DefaultMutableTreeNode("diff");
+        diffParser.diffDumps("Merge", root, dumpStore, dumpPaths, dumpPaths.length, null);
+        return (root);
+    }
+
+    @Benchmark
+    public int histogramFilter() {
+        histogram.setFilter("java.lang");
+        int rows = histogram.getRowCount();
+        histogram.setFilter("");
+        return (rows + histogram.getRowCount());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * BenchmarkLogs.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ThreadDump;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * input logs of the benchmarks. The logs are taken from the test resources, scaled
+ * versions simply repeat a log, so they contain as many more dumps. Large dumps
+ * are created by the {@link DumpGenerator}.
+ */
+public class BenchmarkLogs {
+    private BenchmarkLogs() {
+    }
+
+    /**
+     * load the given test resource.
+     *
+     * @param resource the name of the log in the test resources.
+     * @param scale    how often the log should be repeated.
+     * @return the bytes of the (scaled) log.
+     */
+    public static byte[] load(String resource, int scale) throws IOException {
+        InputStream in = BenchmarkLogs.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("test resource " + resource + " not found");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        byte[] log = out.toByteArray();
+        byte[] result = new byte[log.length * scale];
+        for (int i = 0; i < scale; i++) {
+            System.arraycopy(log, 0, result, i * log.length, log.length);
+        }
+        return (result);
+    }
+
+    /**
+     * generate a hotspot dump with lock chains and deadlocks.
+     *
+     * @param threads the amount of application threads.
+     */
+    public static byte[] generate(int threads) {
+        DumpGenerator generator = new DumpGenerator(DumpGenerator.SUN_JDK8);
+        generator.setThreadCount(threads);
+        generator.setLockChains(threads / 100, 4);
+        generator.setDeadlocks(2);
+        generator.setHistogramClasses(500);
+        return (generator.generate().getBytes());
+    }
+
+    /**
+     * get a parser for the given log.
+     */
+    public static DumpParser getParser(byte[] log, Map threadStore) {
+        return (DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(log), threadStore, false, 1));
+    }
+
+    /**
+     * parse the dump nodes of the given log.
+     *
+     * @param log         the log to parse.
+     * @param threadStore the map to store the threads of the dumps.
+     * @return the tree nodes of the dumps.
+     */
+    public static List parseNodes(byte[] log, Map threadStore) throws IOException {
+        List result = new ArrayList();
+        DumpParser parser = getParser(log, threadStore);
+        try {
+            while (parser.hasMoreDumps()) {
+                result.add(parser.parseNext());
+            }
+        } finally {
+            parser.close();
+        }
+        return (result);
+    }
+
+    /**
+     * read the dump models of the given log, no tree nodes are created.
+     */
+    public static List readDumps(byte[] log) throws IOException {
+        List result = new ArrayList();
+        DumpParser parser = getParser(log, new HashMap());
+        try {
+            ThreadDump dump;
+            while ((dump = parser.readNextDump()) != null) {
+                result.add(dump);
+            }
+        } finally {
+            parser.close();
+        }
+        return (result);
+    }
+
+    /**
+     * get the titles of all threads of the given log.
+     */
+    public static String[] getThreadTitles(byte[] log) throws IOException {
+        Map threadStore = new HashMap();
+        parseNodes(log, threadStore);
+        List titles = new ArrayList();
+        for (Iterator iter = threadStore.values().iterator(); iter.hasNext(); ) {
+            titles.addAll(((Map) iter.next()).keySet());
+        }
+        return ((String[]) titles.toArray(new String[titles.size()]));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * ParserBenchmark.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * benchmarks of the parser detection and the sun and jrockit parsers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    /**
+     * how often the test logs are repeated.
+     */
+    @Param({"1", "20"})
+    public int scale;
+
+    private byte[] sunLog;
+    private byte[] generatedLog;
+    private byte[] beaLog;
+    private SunJDKParser sunParser;
+    private BeaJDKParser beaParser;
+    private String[] sunTitles;
+    private String[] beaTitles;
+
+    @Setup
+    public void setUp() throws IOException {
+        sunLog = BenchmarkLogs.load("test.log", scale);
+        beaLog = BenchmarkLogs.load("jrockit_15_dump.txt", scale);
+        generatedLog = BenchmarkLogs.generate(1000 * scale);
+        sunParser = (SunJDKParser) BenchmarkLogs.getParser(sunLog, new HashMap());
+        beaParser = (BeaJDKParser) BenchmarkLogs.getParser(beaLog, new HashMap());
+        sunTitles = BenchmarkLogs.getThreadTitles(sunLog);
+        beaTitles = BenchmarkLogs.getThreadTitles(beaLog);
+    }
+
+    @Benchmark
+    public DumpParser detectSunParser() throws IOException {
+        DumpParser parser = BenchmarkLogs.getParser(sunLog, new HashMap());
+        parser.close();
+        return (parser);
+    }
+
+    @Benchmark
+    public DumpParser detectBeaParser() throws IOException {
+        DumpParser parser = BenchmarkLogs.getParser(beaLog, new HashMap());
+        parser.close();
+        return (parser);
+    }
+
+    @Benchmark
+    public void sunParseNext(Blackhole bh) throws IOException {
+        parseAll(sunLog, bh);
+    }
+
+    /**
+     * one dump with 1000 threads per scale.
+     */
+    @Benchmark
+    public void sunParseGenerated(Blackhole bh) throws IOException {
+        parseAll(generatedLog, bh);
+    }
+
+    @Benchmark
+    public void beaParseNext(Blackhole bh) throws IOException {
+        parseAll(beaLog, bh);
+    }
+
+    @Benchmark
+    public void sunThreadTokens(Blackhole bh) {
+        for (int i = 0; i < sunTitles.length; i++) {
+            bh.consume(sunParser.getThreadTokens(sunTitles[i]));
+        }
+    }
+
+    @Benchmark
+    public void beaThreadTokens(Blackhole bh) {
+        for (int i = 0; i < beaTitles.length; i++) {
+            bh.consume(beaParser.getThreadTokens(beaTitles[i]));
+        }
+    }
+
+    private void parseAll(byte[] log, Blackhole bh) throws IOException {
+        DumpParser parser = BenchmarkLogs.getParser(log, new HashMap());
+        try {
+            while (parser.hasMoreDumps()) {
+                bh.consume(parser.parseNext());
+            }
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -20,14 +20,24 @@
 package com.pironet.tda;
 
 import com.pironet.tda.filter.Filter;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.query.Match;
+import com.pironet.tda.query.Query;
 import com.pironet.tda.utils.DateMatcher;
 import com.pironet.tda.utils.IconFactory;
+import com.pironet.tda.utils.MappedLineReader;
 import com.pironet.tda.utils.PrefManager;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import javax.swing.ListModel;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -48,13 +58,15 @@ public abstract class AbstractDumpParser implements DumpParser {
     private int markSize = 16384;
     private int maxCheckLines = 10;
     private boolean millisTimeStamp = false;
+    private int stackHashDepth = 0;
     private DateMatcher dm = null;
-
+    private LogfileState logfileState = new LogfileState();
 
     protected AbstractDumpParser(BufferedReader bis, DateMatcher dm) {
         maxCheckLines = PrefManager.get().getMaxRows();
         markSize = PrefManager.get().getStreamResetBuffer();
         millisTimeStamp = PrefManager.get().getMillisTimeStamp();
+        stackHashDepth = PrefManager.get().getStackHashDepth();
         setBis(bis);
         setDm(dm);
     }
@@ -100,10 +112,141 @@ public abstract class AbstractDumpParser implements DumpParser {
         diffDumps("Merge", root, dumpStore, dumps, minOccurence, regex);
     }
 
-    protected void diffDumps(String prefix, DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence, String regex) {
+    /**
+     * find threads which kept the same stack in consecutive dumps.
+     *
+     * @param root         the root node to use for the result.
+     * @param dumpStore    the dump store to use
+     * @param paths        paths to the dumps to check
+     * @param minOccurence the min amount of consecutive dumps with the same stack
+     * @param regex        regex to be applied to the thread titles.
+     * @param stackDepth   the amount of top frames to compare, 0 for all.
+     */
+    public void findStuckThreads(DefaultMutableTreeNode root, Map dumpStore, TreePath[] paths, int minOccurence, String regex, int stackDepth) {
+        diffDumps("Stuck thread detection", root, dumpStore, paths, minOccurence, regex, stackDepth);
+    }
+
+    /**
+     * aggregate the stacks of the threads of the given dumps into a flame graph. The
+     * threads are added to the graph one by one while going through the dumps.
+     *
+     * @param root      the root node to use for the result.
+     * @param dumpStore the dump store to use
+     * @param dumps     paths to the dumps to aggregate
+     */
+    public void createFlameGraph(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps) {
+        Vector keys = getDumpKeys(dumps);
+        FlameGraph graph = new FlameGraph("Flame Graph");
+        for (int i = 0; i < keys.size(); i++) {
+            Map threads = (Map) dumpStore.get(keys.get(i));
+            if (threads != null) {
+                graph.addDump(threads.values());
+            }
+        }
+        graph.setName("Flame Graph between " + keys.get(0) + " and " + keys.get(keys.size() - 1) + " ("
+                + graph.getSampleCount() + " Threads in " + graph.getDumpCount() + " Dumps)");
+        root.add(new DefaultMutableTreeNode(graph));
+    }
+
+    /**
+     * count the methods, classes and packages in the stacks of the threads of the given
+     * dumps, running threads apart from waiting ones.
+     *
+     * @param root      the root node to use for the result.
+     * @param dumpStore the dump store to use
+     * @param dumps     paths to the dumps to profile
+     */
+    public void createMethodProfile(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps) {
+        Vector keys = getDumpKeys(dumps);
+        MethodProfile profile = new MethodProfile("Method Profile");
+        for (int i = 0; i < keys.size(); i++) {
+            Map threads = (Map) dumpStore.get(keys.get(i));
+            if (threads != null) {
+                profile.addDump(threads.values());
+            }
+        }
+        profile.setName("Method Profile between " + keys.get(0) + " and " + keys.get(keys.size() - 1) + " ("
+                + profile.getRunnableCount() + " of " + profile.getSampleCount() + " Threads running)");
+        DefaultMutableTreeNode profileNode = new DefaultMutableTreeNode(profile);
+        profileNode.add(new DefaultMutableTreeNode(new MethodProfileCategory(profile, MethodProfile.METHOD)));
+        profileNode.add(new DefaultMutableTreeNode(new MethodProfileCategory(profile, MethodProfile.CLASS)));
+        profileNode.add(new DefaultMutableTreeNode(new MethodProfileCategory(profile, MethodProfile.PACKAGE)));
+        root.add(profileNode);
+    }
+
+    /**
+     * run the query on all parsed dumps and add its result to the log file node.
+     * Without group clause the matching threads are listed in one table, otherwise
+     * every group gets its own table.
+     *
+     * @param root  the node of the log file.
+     * @param query the query to run.
+     * @return the amount of matching threads, nothing is added if there are none.
+     */
+    public int createQueryResult(DefaultMutableTreeNode root, Query query) {
+        List matches = query.execute(getFrameIndex());
+        if (matches.isEmpty()) {
+            return (0);
+        }
+        Map groups = query.group(matches);
+        if (query.getGroupBy() == null) {
+            root.add(new DefaultMutableTreeNode(createQueryCategory("Query: " + query, matches)));
+            return (matches.size());
+        }
+
+        StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><font face=System><b>");
+        statData.append(query.toString().replaceAll("<", "&lt;")).append("</b><br><br><table border=0>");
+        statData.append("<tr bgcolor=\"#cccccc\"><td><font face=System><b>").append(query.getGroupBy());
+        statData.append("</b></td><td><font face=System><b>Threads</b></td><td><font face=System><b>Dumps</b></td></tr>\n");
+        DefaultMutableTreeNode queryNode = new DefaultMutableTreeNode();
+        int row = 0;
+        for (Iterator iter = groups.entrySet().iterator(); iter.hasNext(); row++) {
+            Map.Entry group = (Map.Entry) iter.next();
+            List groupMatches = (List) group.getValue();
+            Set dumps = new HashSet();
+            for (int i = 0; i < groupMatches.size(); i++) {
+                dumps.add(((Match) groupMatches.get(i)).getDump());
+            }
+            statData.append(row % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+            statData.append("<td><font face=System>").append(((String) group.getKey()).replaceAll("<", "&lt;"));
+            statData.append("</td><td><font face=System>").append(groupMatches.size());
+            statData.append("</td><td><font face=System>").append(dumps.size()).append("</td></tr>\n");
+            queryNode.add(new DefaultMutableTreeNode(createQueryCategory((String) group.getKey(), groupMatches)));
+        }
+        statData.append("</table>");
+        queryNode.setUserObject(new ThreadInfo("Query: " + query + " (" + matches.size() + " Threads in " + groups.size()
+                + " Groups)", null, statData.toString(), 0, null));
+        root.add(queryNode);
+        return (matches.size());
+    }
+
+    /**
+     * create a table of the matching threads, the dump is prepended to the thread names.
+     */
+    private TableCategory createQueryCategory(String name, List matches) {
+        TableCategory cat = new TableCategory(name + " (" + matches.size() + " Threads)", IconFactory.THREADS, false);
+        for (int i = 0; i < matches.size(); i++) {
+            Match match = (Match) matches.get(i);
+            DumpThread thread = match.getThread();
+            String[] tokens = (String[]) getThreadTokens(thread.getTitle()).clone();
+            tokens[0] = match.getDump().getName() + ": " + tokens[0];
+            cat.addToCatNodes(new DefaultMutableTreeNode(new ThreadInfo(thread.getTitle(), null, thread,
+                    thread.getLineCount(), tokens)));
+        }
+        return (cat);
+    }
+
+    /**
+     * get the keys of the given dumps in the dump store.
+     */
+    private Vector getDumpKeys(TreePath[] dumps) {
         Vector keys = new Vector(dumps.length);
 
         for (int i = 0; i < dumps.length; i++) {
+            if (dumps[i].getLastPathComponent() instanceof LazyDumpNode) {
+                // the threads of not yet parsed dumps aren't in the dump store.
+                ((LazyDumpNode) dumps[i].getLastPathComponent()).load();
+            }
             String dumpName = getDumpStringFromTreePath(dumps[i]);
             if (dumpName.indexOf(" at") > 0) {
                 dumpName = dumpName.substring(0, dumpName.indexOf(" at"));
@@ -112,6 +255,24 @@ public abstract class AbstractDumpParser implements DumpParser {
             }
             keys.add(dumpName);
         }
+        return (keys);
+    }
+
+    protected void diffDumps(String prefix, DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence, String regex) {
+        diffDumps(prefix, root, dumpStore, dumps, minOccurence, regex, -1);
+    }
+
+    /**
+     * diff the given dumps. Without comparing stacks the threads of the first dump
+     * occurring in at least minOccurence dumps are listed, otherwise all threads
+     * which kept their stack in at least minOccurence consecutive dumps.
+     *
+     * @param stackDepth the amount of top frames to compare, 0 for all, -1 if the
+     *                   stacks shouldn't be compared.
+     */
+    protected void diffDumps(String prefix, DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence,
+                             String regex, int stackDepth) {
+        Vector keys = getDumpKeys(dumps);
 
         String info = prefix + " between " + keys.get(0) + " and " + keys.get(keys.size() - 1);
         DefaultMutableTreeNode catMerge = new DefaultMutableTreeNode(new TableCategory(info, IconFactory.DIFF_DUMPS));
@@ -119,44 +280,48 @@ public abstract class AbstractDumpParser implements DumpParser {
         int threadCount = 0;
 
         if (dumpStore.get(keys.get(0)) != null) {
-            Iterator dumpIter = ((Map) dumpStore.get(keys.get(0))).keySet().iterator();
+            ThreadIndex index = new ThreadIndex(this, keys.size());
+            index.setStackDepth(stackDepth);
+            for (int i = 0; i < keys.size(); i++) {
+                if (dumpStore.get(keys.get(i)) != null) {
+                    index.addDump(i, (Map) dumpStore.get(keys.get(i)));
+                }
+            }
 
-            while (dumpIter.hasNext()) {
-                String threadKey = ((String) dumpIter.next()).trim();
-                int occurence = 0;
+            for (int t = 0; t < index.size(); t++) {
+                int first = 0;
+                while (index.getTitle(t, first) == null) {
+                    first++;
+                }
+                if (stackDepth >= 0 ? index.getLongestRun(t) < minOccurence : first > 0 || index.getOccurrence(t) < minOccurence) {
+                    continue;
+                }
 
+                String threadKey = index.getTitle(t, first).trim();
                 if (regex == null || regex.equals("") || threadKey.matches(regex)) {
-                    for (int i = 1; i < dumps.length; i++) {
-                        Map threads = (Map) dumpStore.get(keys.get(i));
-                        if (threads.containsKey(threadKey)) {
-                            occurence++;
-                        }
-                    }
-
-                    if (occurence >= (minOccurence - 1)) {
-                        threadCount++;
-                        StringBuffer content = new StringBuffer("<body bgcolor=\"ffffff\"><b><font size=").append(TDA.getFontSizeModifier(-1)).
-                                append(">").append((String) keys.get(0)).append("</b></font><hr><pre><font size=").
-                                append(TDA.getFontSizeModifier(-1)).append(">").
-                                append(fixMonitorLinks((String) ((Map) dumpStore.get(keys.get(0))).get(threadKey), (String) keys.get(0)));
-
-                        int maxLines = 0;
-                        for (int i = 1; i < dumps.length; i++) {
-                            if (((Map) dumpStore.get(keys.get(i))).containsKey(threadKey)) {
-                                content.append("\n\n</pre><b><font size=");
-                                content.append(TDA.getFontSizeModifier(-1));
-                                content.append(">");
-                                content.append(keys.get(i));
-                                content.append("</font></b><hr><pre><font size=");
-                                content.append(TDA.getFontSizeModifier(-1));
-                                content.append(">");
-                                content.append(fixMonitorLinks((String) ((Map) dumpStore.get(keys.get(i))).get(threadKey), (String) keys.get(i)));
-                                int countLines = countLines(((String) ((Map) dumpStore.get(keys.get(i))).get(threadKey)));
-                                maxLines = maxLines > countLines ? maxLines : countLines;
+                    threadCount++;
+                    StringBuffer content = new StringBuffer("<body bgcolor=\"ffffff\">");
+                    int maxLines = 0;
+                    for (int i = first; i < dumps.length; i++) {
+                        String title = index.getTitle(t, i);
+                        if (title != null) {
+                            if (i > first) {
+                                content.append("\n\n</pre>");
                             }
+                            content.append("<b><font size=");
+                            content.append(TDA.getFontSizeModifier(-1));
+                            content.append(">");
+                            content.append(keys.get(i));
+                            content.append("</font></b><hr><pre><font size=");
+                            content.append(TDA.getFontSizeModifier(-1));
+                            content.append(">");
+                            String threadContent = getStoredContent(((Map) dumpStore.get(keys.get(i))).get(title));
+                            content.append(fixMonitorLinks(threadContent, (String) keys.get(i)));
+                            int countLines = countLines(threadContent);
+                            maxLines = maxLines > countLines ? maxLines : countLines;
                         }
-                        addToCategory(catMerge, threadKey, null, content.toString(), maxLines, true);
                     }
+                    addToCategory(catMerge, threadKey, null, content.toString(), maxLines, true);
                 }
             }
         }
@@ -165,6 +330,38 @@ public abstract class AbstractDumpParser implements DumpParser {
 
     }
 
+    /**
+     * get the key identifying the thread with the given title in all dumps of the log
+     * file. These are its thread and native id, its name if the dump doesn't log them.
+     */
+    protected String getThreadKey(String title) {
+        return (getThreadKey(getThreadTokens(title)));
+    }
+
+    /**
+     * get the key identifying a thread from its already parsed tokens.
+     */
+    static String getThreadKey(String[] tokens) {
+        if (tokens.length == 7 && (isToken(tokens[3]) || isToken(tokens[4]))) {
+            return ("tid=" + tokens[3] + " nid=" + tokens[4]);
+        } else if (tokens.length == 3 && isToken(tokens[1])) {
+            return ("id=" + tokens[1]);
+        }
+        return ("\"" + tokens[0] + "\"");
+    }
+
+    private static boolean isToken(String token) {
+        return (token != null && token.length() > 0);
+    }
+
+    /**
+     * get the html content of a thread from the dump store. Stored are the parsed
+     * threads, sessions saved by older versions contain the html itself.
+     */
+    private String getStoredContent(Object thread) {
+        return (thread instanceof DumpThread ? ThreadRenderer.render((DumpThread) thread) : (String) thread);
+    }
+
     /**
      * count lines of input string.
      *
@@ -253,6 +450,29 @@ public abstract class AbstractDumpParser implements DumpParser {
         top.add(threadInfo);
     }
 
+    /**
+     * create the tree node for the given parsed dump and add the custom categories to it.
+     *
+     * @param dump        the dump read by {@link #readNextDump()}.
+     * @param threadStore the map to store the threads of the dump in.
+     * @return the tree node of the dump.
+     */
+    protected DefaultMutableTreeNode createDumpNode(ThreadDump dump, Map threadStore) {
+        DefaultMutableTreeNode threadDump = new DumpTreeBuilder(this).createDumpNode(dump, threadStore);
+
+        // check custom categories
+        addCustomCategories(threadDump);
+
+        return (threadDump);
+    }
+
+    /**
+     * add the lock event to the current thread and report it to the listener.
+     */
+    protected void addLockEvent(DumpThread thread, LockEvent event, DumpListener listener) {
+        listener.onLockEvent(thread, thread.addLockEvent(event));
+    }
+
     /**
      * create a category entry for a category (categories are "Monitors", "Threads waiting", e.g.). A ThreadInfo
      * instance will be created with the passed information.
@@ -281,6 +501,41 @@ public abstract class AbstractDumpParser implements DumpParser {
         return bis;
     }
 
+    /**
+     * skip to the next line containing the given dump marker. Only possible if
+     * the parser reads from a memory mapped log file, in this case the skipped
+     * lines are never turned into strings. If a date regex is active, the
+     * skipped part is searched backwards for the last logged time stamp, so
+     * the date matcher is in the same state as if all lines had been read.
+     *
+     * @param markers the markers of a dump start.
+     * @return the amount of skipped lines, -1 if skipping isn't possible with the
+     * current stream.
+     */
+    protected int skipToDumpStart(byte[][] markers) {
+        if (!(getBis() instanceof MappedLineReader)) {
+            return (-1);
+        }
+
+        MappedLineReader reader = (MappedLineReader) getBis();
+        long from = reader.getPosition();
+        int skipped = reader.skipToLineContaining(markers);
+        if ((skipped > 0) && (getDm() != null) && !getDm().isPatternError() && (getDm().getRegexPattern() != null)) {
+            reader.findLastDateMatch(from, getDm(), getWrapPrefixLength());
+        }
+        return (skipped);
+    }
+
+    /**
+     * length of a prefix of every log line which isn't part of the dump (used
+     * for wrapped log files).
+     *
+     * @return prefix length, 0 if there is none.
+     */
+    protected int getWrapPrefixLength() {
+        return (0);
+    }
+
     /**
      * parse the thread tokens for table display.
      *
@@ -342,6 +597,65 @@ public abstract class AbstractDumpParser implements DumpParser {
         }
     }
 
+    /**
+     * get the pool, the index, the analyses and the skipped dumps of the log file.
+     */
+    public LogfileState getLogfileState() {
+        return (logfileState);
+    }
+
+    /**
+     * set the state collected over all dumps of the log file, parsers of the same log
+     * file share one state.
+     */
+    public void setLogfileState(LogfileState logfileState) {
+        this.logfileState = logfileState;
+    }
+
+    /**
+     * get the pool for the stack lines of the parsed threads.
+     */
+    public FramePool getFramePool() {
+        return (logfileState.getFramePool());
+    }
+
+    /**
+     * get the index the frames of the parsed dumps are added to.
+     */
+    public FrameIndex getFrameIndex() {
+        return (logfileState.getFrameIndex());
+    }
+
+    /**
+     * get the descriptions of the broken dumps skipped by {@link #readNextDump()}
+     * since the list was cleared last.
+     *
+     * @return synchronized list of Strings.
+     */
+    public List getSkippedDumps() {
+        return (logfileState.getSkippedDumps());
+    }
+
+    public MonitorTimeline getMonitorTimeline() {
+        return (logfileState.getMonitorTimeline());
+    }
+
+    public StackGroups getStackGroups() {
+        return (logfileState.getStackGroups());
+    }
+
+    public ThreadPools getThreadPools() {
+        return (logfileState.getThreadPools());
+    }
+
+    public StateTransitions getStateTransitions() {
+        return (logfileState.getStateTransitions());
+    }
+
+    public RuleFindings getRuleFindings() {
+        return (logfileState.getRuleFindings());
+    }
+
     /**
      * get the maximum size for the mark buffer while reading
      * the log file stream.
@@ -386,6 +700,18 @@ public abstract class AbstractDumpParser implements DumpParser {
         this.millisTimeStamp = millisTimeStamp;
     }
 
+    /**
+     * @return the amount of top frames hashed for comparing the stacks of threads,
+     * 0 for all.
+     */
+    public int getStackHashDepth() {
+        return stackHashDepth;
+    }
+
+    public void setStackHashDepth(int stackHashDepth) {
+        this.stackHashDepth = stackHashDepth;
+    }
+
     public DateMatcher getDm() {
         return dm;
     }
@@ -22,15 +22,24 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.rules.Finding;
+import com.pironet.tda.rules.RuleContext;
+import com.pironet.tda.rules.RuleEngine;
+
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * analyze the given thread dump.
+ * analyze the given thread dump. The checks are done by the rules of the
+ * {@link RuleEngine}, their findings are kept until a rule changes.
  *
  * @author irockel
  */
 public class Analyzer implements Serializable {
     ThreadDumpInfo tdi;
+    private Map results = new HashMap();
 
     /**
      * generate a dump analyzer for the given thread dump.
@@ -41,6 +50,26 @@ public class Analyzer implements Serializable {
         this.tdi = tdi;
     }
 
+    /**
+     * get the findings of the rules, only rules changed since the last call are checked.
+     *
+     * @return list of {@link Finding}.
+     */
+    public synchronized List getFindings() {
+        if (results == null) {
+            // analyzer of a session of an older version.
+            results = new HashMap();
+        }
+        return (RuleEngine.check(new RuleContext(tdi), results));
+    }
+
+    /**
+     * @return true, if rules changed since the findings were computed.
+     */
+    public synchronized boolean isOutdated() {
+        return (results == null || RuleEngine.isOutdated(results));
+    }
+
     /**
      * analyze the given data and generate htmlified hints
      *
@@ -49,59 +78,15 @@ public class Analyzer implements Serializable {
      */
     public String analyzeDump() {
         // check for possible hot spots concerning this thread dump
-
         StringBuffer statData = new StringBuffer();
-        int deadlocks = tdi.getDeadlocks() == null ? 0 : tdi.getDeadlocks().getNodeCount();
-        int threadCount = tdi.getThreads() == null ? 0 : tdi.getThreads().getNodeCount();
-        int waiting = tdi.getWaitingThreads() == null ? 0 : tdi.getWaitingThreads().getNodeCount();
-        int sleeping = tdi.getSleepingThreads() == null ? 0 : tdi.getSleepingThreads().getNodeCount();
-
-        int overallThreadsWaitingWithoutLocks = tdi.getOverallThreadsWaitingWithoutLocksCount();
-        int monitorsWithoutLocksCount = tdi.getMonitorsWithoutLocks() == null ? 0 : tdi.getMonitorsWithoutLocks().getNodeCount();
-
-        // check if a lot of threads are in state "waiting"
-        if ((deadlocks == 0) && (threadCount > 0) && ((waiting / (threadCount / 100.0)) > 10.0)) {
-            statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
-            statData.append("<tr bgcolor=\"#cccccc\"><td colspan=2><font face=System " +
-                    "><p>" + (int) (waiting / (threadCount / 100.0)) + "% of all threads are waiting for a monitor to become available again.</p><br>");
-            statData.append("This might indicate a congestion or even a deadlock. If a monitor doesn't have a locking thread, it might be<br>");
-            statData.append("hold by some external resource or system thread. You should check the <a href=\"wait://\">waiting threads</a>.<br></td></tr>");
-        } else if (deadlocks > 0) {
-            statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
-            statData.append("<tr bgcolor=\"#cccccc\"><td colspan=2><font face=System " +
-                    "><p>The JVM has detected " + deadlocks + " deadlock(s) in the thread dump. You should check the <br><a href=\"dead://\">deadlocks</a> for further information.</p><br>");
-        }
-
-        // check if a lot of threads are in state "waiting"
-        if ((threadCount > 0) && ((sleeping / (threadCount / 100.0)) > 25.0)) {
-            statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
-            statData.append("<tr bgcolor=\"#cccccc\"><td colspan=2><font face=System" +
-                    "><p>" + (int) (sleeping / (threadCount / 100.0)) + "% of all threads are sleeping on a monitor.</p><br>");
-            statData.append("This might indicate they are waiting for some external resource (e.g. database) which is overloaded<br>");
-            statData.append("or not available or are just waiting to get to do something (idle threads).<br>");
-            statData.append("You should check the <a href=\"sleep://\">sleeping threads</a> with a filter excluding all idle threads.</td></tr>");
-        }
-
-        // display an info if there are monitors without locking threads
-        if (monitorsWithoutLocksCount > 0) {
-            statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
-            statData.append("<tr bgcolor=\"#cccccc\"><td colspan=2><font face=System" +
-                    "><p>This thread dump contains monitors without a locking thread information.<br>");
-            statData.append("This means, the monitor is hold by a system thread or some external resource.</p<br>");
-            statData.append("You should check the monitors without locking threads for more information.<br></td></tr>");
-        }
-
-        // check for indications for running garbage collector
-        if ((threadCount > 0) && (overallThreadsWaitingWithoutLocks / (threadCount / 100.0) > 50.0)) {
+        List findings = getFindings();
+        for (int i = 0; i < findings.size(); i++) {
+            Finding finding = (Finding) findings.get(i);
             statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
-            statData.append("<tr bgcolor=\"#cccccc\"><td colspan=2><font face=System " +
-                    "<p>" + (int) (overallThreadsWaitingWithoutLocks / (threadCount / 100.0)) + "% of all threads are waiting for a monitor without a application ");
-            statData.append("thread holding it.<br> This indicates a congestion. It is very likely the garbage collector is running ");
-            statData.append("and is blocking the monitors.</p<br>");
-            statData.append("You should check the monitors without locking threads for more information on the blocked threads.<br>");
-            statData.append("You also should analyze the garbage collector behaviour. Go to the ");
-            statData.append("<a href=\"http://www.tagtraum.com/gcviewer.html\">GCViewer-Homepage</a> for more<br>");
-            statData.append(" information on how to do this.</td></tr>");
+            statData.append(finding.getSeverity() == Finding.CRITICAL ? "<tr bgcolor=\"#ffcccc\">" : "<tr bgcolor=\"#cccccc\">");
+            statData.append("<td colspan=2><font face=System>");
+            statData.append(finding.getMessage());
+            statData.append("</td></tr>");
         }
 
         return statData.toString();
@@ -20,14 +20,18 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.model.ThreadDump;
 import com.pironet.tda.utils.DateMatcher;
-import com.pironet.tda.utils.IconFactory;
+import com.pironet.tda.utils.MappedLogfile;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -39,6 +43,15 @@ import javax.swing.tree.MutableTreeNode;
  * @author irockel
  */
 public class BeaJDKParser extends AbstractDumpParser {
+
+    /**
+     * marker of the beginning of a thread dump, used for scanning mapped log files.
+     */
+    static final byte[][] DUMP_MARKERS = {MappedLogfile.toAscii("===== FULL THREAD DUMP ===============")};
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("^.*\"([^\"]+)\".*id=([^ ]+).*tid=([^ ]+).*" +
+            "prio=([^ ]+) ([^,]+,? ?[^,]+?,? ?[^,]+?,? ?[^,]+?)(, daemon)?$");
+
     private MutableTreeNode nextDump = null;
     private Map threadStore = null;
     private int counter = 1; // Number of the thread dump
@@ -58,6 +71,16 @@ public class BeaJDKParser extends AbstractDumpParser {
         this.lineCounter = lineCounter;
     }
 
+    /**
+     * constructs a new instance of a bea jdk parser numbering the dumps from the given counter.
+     *
+     * @param startCounter the number of the first found dump.
+     */
+    public BeaJDKParser(BufferedReader bis, Map threadStore, int lineCounter, int startCounter, DateMatcher dm) {
+        this(bis, threadStore, lineCounter, dm);
+        this.counter = startCounter;
+    }
+
     /**
      * returns true if at least one more dump available, already loads it
      * (this will be returned on next call of parseNext)
@@ -79,133 +102,128 @@ public class BeaJDKParser extends AbstractDumpParser {
             nextDump = null;
             return (tmpDump);
         }
-        boolean retry = false;
-
-        do {
-            DefaultMutableTreeNode threadDump = null;
-            ThreadDumpInfo overallTDI = null;
-            DefaultMutableTreeNode catMonitors = null;
-            DefaultMutableTreeNode catMonitorsLocks = null;
-            DefaultMutableTreeNode catThreads = null;
-            DefaultMutableTreeNode catLocking = null;
-            DefaultMutableTreeNode catSleeping = null;
-            DefaultMutableTreeNode catWaiting = null;
-
-            try {
-                Map threads = new HashMap();
-                overallTDI = new ThreadDumpInfo("Dump No. " + counter++, 0);
-                threadDump = new DefaultMutableTreeNode(overallTDI);
-                catThreads = new DefaultMutableTreeNode(new TableCategory("Threads", IconFactory.THREADS));
-                threadDump.add(catThreads);
-                catWaiting = new DefaultMutableTreeNode(new TableCategory("Threads waiting for Monitors", IconFactory.THREADS_WAITING));
-
-                catSleeping = new DefaultMutableTreeNode(new TableCategory("Threads sleeping on Monitors", IconFactory.THREADS_SLEEPING));
-
-                catLocking = new DefaultMutableTreeNode(new TableCategory("Threads locking Monitors", IconFactory.THREADS_LOCKING));
-
-                // create category for monitors with disabled filtering.
-                catMonitors = new DefaultMutableTreeNode(new TreeCategory("Monitors", IconFactory.MONITORS, false));
-                catMonitorsLocks = new DefaultMutableTreeNode(new TreeCategory("Monitors without locking thread", IconFactory.MONITORS_NOLOCKS, false));
-
-                String title = null;
-                StringBuffer content = null;
-                StringBuffer lContent = null;
-                StringBuffer sContent = null;
-                StringBuffer wContent = null;
-                int threadCount = 0;
-                int waiting = 0;
-                int locking = 0;
-                int sleeping = 0;
-                boolean locked = true; // true means we haven't hit the beggining of a thread dump yet
-                boolean finished = false;
-                MonitorMap mmap = new MonitorMap();
-                Stack monitorStack = new Stack();
-                long startTime = 0;
-                int singleLineCounter = 0;
-                Matcher matched = getDm().getLastMatch();
-
-                while (getBis().ready() && !finished) {
-                    String line = getBis().readLine();
-                    lineCounter++;
-                    singleLineCounter++;
-                    if (locked) {  // Are we outside of a thread dump ?
-                        if (line.indexOf("===== FULL THREAD DUMP ===============") >= 0) {
-                            locked = false;
-                        }
-                    } else {  // Alright we're already inside a dump
-                        if (line.indexOf("-- end of trace") >= 0) {
-                            System.out.print("x");
-                        }
-                        if (line.startsWith("\"")) { // Did we hit a new thread ?
-                            String stringContent = content != null ? content.toString() : null;
-                            if (title != null) { // Let's store the previous thread
-                                threads.put(title, content.toString());
-                                content.append("</pre></pre>");
-                                addToCategory(catThreads, title, null, stringContent, singleLineCounter, true);
-                                threadCount++;
-                            }
-                            if (wContent != null) {
-                                wContent.append("</b><hr>");
-                                addToCategory(catWaiting, title, null, stringContent, singleLineCounter, true);
-                                wContent = null;
-                                waiting++;
-                            }
-                            if (sContent != null) {
-                                sContent.append("</b><hr>");
-                                addToCategory(catSleeping, title, null, stringContent, singleLineCounter, true);
-                                sContent = null;
-                                sleeping++;
-                            }
-                            if (lContent != null) {
-                                lContent.append("</b><hr>");
-                                addToCategory(catLocking, title, null, stringContent, singleLineCounter, true);
-                                lContent = null;
-                                locking++;
-                            }
-                            singleLineCounter = 0;
-                            while (!monitorStack.empty()) {
-                                mmap.parseAndAddThread((String) monitorStack.pop(), title, content.toString());
-                            }
-
-                            title = line;
-                            content = new StringBuffer("<body bgcolor=\"ffffff\"><pre><font size=" + TDA.getFontSizeModifier(-1) + ">");
-                            content.append(line);
-                            content.append("\n");
-                        } else if (line.indexOf("at ") >= 0) { // enganado por [fat lock] 
-                            content.append(line);
-                            content.append("\n");
-                        } else if (line.indexOf("-- Waiting for notification") >= 0) {
-                            String newLine = linkifyMonitor(line);
-                            content.append(newLine);
-                            if (sContent == null) {
-                                sContent = new StringBuffer("<body bgcolor=\"ffffff\"><font size=" + TDA.getFontSizeModifier(-1) + "><b>");
-                            }
-                            sContent.append(newLine);
-                            monitorStack.push(line);
-                            sContent.append("\n");
-                            content.append("\n");
+        ThreadDump dump = readNextDump();
+        return (dump != null ? createDumpNode(dump, threadStore) : null);
+    }
+
+    /**
+     * read the next thread dump from the stream passed with the constructor into
+     * the dump model.
+     *
+     * @returns null if no more thread dumps were found.
+     */
+    public ThreadDump readNextDump() {
+        return (readDump(new DumpCollector(getSkippedDumps()), getFramePool()));
+    }
+
+    /**
+     * read all remaining thread dumps and report them to the passed listener.
+     *
+     * @param listener the listener to report to.
+     */
+    public void parse(DumpListener listener) {
+        // the shared pool would keep the lines of all dumps, every streamed dump
+        // gets its own pool instead.
+        while (readDump(listener, new FramePool()) != null) {
+            // next dump
+        }
+    }
+
+    /**
+     * read the next thread dump and report its content to the passed listener.
+     *
+     * @param listener the listener to report to.
+     * @param pool     the pool for the lines of the threads.
+     * @returns null if no more thread dumps were found.
+     */
+    private ThreadDump readDump(DumpListener listener, FramePool pool) {
+        try {
+            ThreadDump dump = new ThreadDump("Dump No. " + counter++, 0);
+            DumpThread thread = null;
+            int threadCount = 0;
+            boolean locked = true; // true means we haven't hit the beggining of a thread dump yet
+            boolean finished = false;
+            int singleLineCounter = 0;
+
+            while (getBis().ready() && !finished) {
+                if (locked) {
+                    int skipped = skipToDumpStart(DUMP_MARKERS);
+                    if (skipped >= 0) {
+                        lineCounter += skipped;
+                        if (!getBis().ready()) {
+                            break;
                         }
                     }
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                String line = getBis().readLine();
+                lineCounter++;
+                singleLineCounter++;
+                if (locked) {  // Are we outside of a thread dump ?
+                    if (line.indexOf("===== FULL THREAD DUMP ===============") >= 0) {
+                        locked = false;
+                        dump.setLogLine(lineCounter);
+                        listener.onDumpStart(dump);
+                    }
+                } else if (line.indexOf("===== END OF THREAD DUMP") >= 0) {
+                    finished = true;
+                } else if (line.startsWith("\"")) { // Did we hit a new thread ?
+                    if (thread != null) { // Let's store the previous thread
+                        thread.setLineCount(singleLineCounter);
+                        thread.trimToSize();
+                        thread.hashStack(getStackHashDepth());
+                    }
+                    singleLineCounter = 0;
+                    thread = new DumpThread(line, pool);
+                    threadCount++;
+                    listener.onThread(dump, thread);
+                } else if (thread == null || line.trim().length() == 0) {
+                    // nothing to store.
+                } else if (line.indexOf("-- Waiting for notification on:") >= 0) {
+                    addLockEvent(thread, createLockEvent(LockEvent.WAITING_ON, line), listener);
+                } else if (line.indexOf("-- Blocked trying to get lock:") >= 0) {
+                    addLockEvent(thread, createLockEvent(LockEvent.WAITING_TO_LOCK, line), listener);
+                } else if (line.indexOf("^-- Holding lock:") >= 0 || line.indexOf("^-- Lock released while waiting:") >= 0) {
+                    // same as with sun dumps, a released lock is reported as locked by the waiting thread.
+                    addLockEvent(thread, createLockEvent(LockEvent.LOCKED, line), listener);
+                } else if (line.indexOf("at ") >= 0) { // enganado por [fat lock]
+                    StackFrame frame = thread.addFrame(new StackFrame(line));
+                    listener.onFrame(thread, frame);
+                } else {
+                    thread.addLine(line);
+                }
+            }
+            if (thread != null) {
+                thread.setLineCount(singleLineCounter);
+                thread.trimToSize();
+                thread.hashStack(getStackHashDepth());
+            }
+            if (!locked) {
+                listener.onDumpEnd(dump);
             }
-        } while (retry); // Keep parsing until we get a full thread dump, or the file ends 
+
+            return (threadCount > 0 ? dump : null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         return (null);
-        // throw new UnsupportedOperationException("Not supported yet.");
     }
 
-    private String linkifyMonitor(String line) {
-        if (line != null && line.indexOf('@') >= 0) {
-            String begin = line.substring(0, line.indexOf('@'));
-            String monitor = line.substring(line.indexOf('@'), line.indexOf('[') + 1);
-            String end = line.substring(line.indexOf('>') + 1);
-            monitor = monitor.replaceAll("@", "<a href=\"monitor://" + monitor + "\">&lt;");
-            monitor = monitor.substring(0, monitor.length() - 1) + "&gt;</a>";
-            return (begin + monitor + end);
-        } else {
-            return (line);
+    /**
+     * create the lock event for the given line, jrockit logs monitors as
+     * "class@address[lock type]", the monitor key is build the same way
+     * as for sun dumps.
+     */
+    private LockEvent createLockEvent(int type, String line) {
+        String address = null;
+        String monitor = null;
+        int at = line.lastIndexOf('@');
+        if (at > 0) {
+            int end = line.indexOf('[', at);
+            address = line.substring(at + 1, end > 0 ? end : line.length());
+            String className = line.substring(line.indexOf(": ") + 2, at).replace('/', '.');
+            monitor = "<" + address + "> (a " + className + ")";
         }
+        return (new LockEvent(type, line, address, monitor));
     }
 
     public boolean isFoundClassHistograms() {
@@ -233,22 +251,42 @@ public class BeaJDKParser extends AbstractDumpParser {
     }
 
     protected String[] getThreadTokens(String name) {
-        String patternMask = "^.*\"([^\"]+)\".*id=([^ ]+).*tid=([^ ]+).*" +
-                "prio=([^ ]+) ([^,]+,? ?[^,]+?,? ?[^,]+?,? ?[^,]+?)(, daemon)?$";
-        Pattern p = Pattern.compile(patternMask);
-        Matcher m = p.matcher(name);
-        System.out.println(m.matches());
-        for (int iLoop = 1; iLoop < m.groupCount(); iLoop++) {
-            System.out.println(iLoop + ": " + m.group(iLoop));
-        }
-
         String[] tokens = new String[7];
-        tokens[0] = m.group(1); // name
-        tokens[2] = m.group(4); // prio
-        tokens[3] = m.group(3); // tid
-        tokens[4] = m.group(2); // nid
-        tokens[5] = m.group(5); // State
+        Matcher m = TOKEN_PATTERN.matcher(name);
+        if (m.matches()) {
+            tokens[0] = m.group(1); // name
+            tokens[2] = m.group(4); // prio
+            tokens[3] = m.group(3); // tid
+            tokens[4] = m.group(2); // nid
+            tokens[5] = m.group(5); // State
+        } else {
+            // jrockit 1.4 dumps log the attributes in a different order.
+            tokens[0] = name.substring(name.indexOf('"') + 1, name.lastIndexOf('"'));
+            tokens[2] = getAttribute(name, "prio=");
+            tokens[3] = getAttribute(name, "tid=");
+            tokens[4] = getAttribute(name, " id=");
+            String tid = "tid=" + tokens[3];
+            tokens[5] = name.indexOf(tid) > 0 ? name.substring(name.indexOf(tid) + tid.length()).trim() : "";
+            if (tokens[5].endsWith(", daemon")) {
+                tokens[5] = tokens[5].substring(0, tokens[5].length() - 8);
+            }
+        }
+        tokens[1] = name.endsWith(", daemon") ? "Daemon" : "Task";
+        tokens[6] = "<no address range>";
 
         return (tokens);
     }
+
+    /**
+     * get the value of the given attribute of the thread title.
+     */
+    private String getAttribute(String name, String key) {
+        int pos = name.indexOf(key, name.lastIndexOf('"'));
+        if (pos < 0) {
+            return ("");
+        }
+        pos += key.length();
+        int end = name.indexOf(' ', pos);
+        return (end > 0 ? name.substring(pos, end) : name.substring(pos));
+    }
 }
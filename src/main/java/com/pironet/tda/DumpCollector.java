@@ -0,0 +1,65 @@
+/*
+ * DumpCollector.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.ThreadDump;
+
+import java.util.List;
+
+/**
+ * listener which adds everything reported to the dump itself, used for reading
+ * complete dumps with {@link DumpParser#readNextDump()}. Skipped dumps are
+ * collected for the gui to report them.
+ */
+class DumpCollector extends DumpListenerAdapter {
+    private final List skippedDumps;
+
+    /**
+     * Creates a new instance of DumpCollector
+     *
+     * @param skippedDumps the list to add the descriptions of skipped dumps to.
+     */
+    DumpCollector(List skippedDumps) {
+        this.skippedDumps = skippedDumps;
+    }
+
+    public void onThread(ThreadDump dump, DumpThread thread) {
+        dump.addThread(thread);
+    }
+
+    public void onDeadlock(ThreadDump dump, Deadlock deadlock) {
+        dump.addDeadlock(deadlock);
+    }
+
+    public void onHistogramEntry(ThreadDump dump, ClassHistogram histogram, ClassHistogram.Entry entry) {
+        if (dump.getClassHistogram() != histogram) {
+            dump.setClassHistogram(histogram);
+        }
+        histogram.addEntry(entry);
+    }
+
+    public void onDumpSkipped(ThreadDump dump, String message, String lastLine) {
+        skippedDumps.add(dump.getName() + ": Error Message is \"" + message + "\"."
+                + (lastLine != null ? " Last line read was \"" + lastLine + "\"." : ""));
+    }
+}
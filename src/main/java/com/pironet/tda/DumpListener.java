@@ -0,0 +1,95 @@
+/*
+ * DumpListener.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.model.ThreadDump;
+
+/**
+ * receives the content of the parsed thread dumps while they are read, see
+ * {@link DumpParser#parse(DumpListener)}. The parser doesn't keep anything of
+ * the reported dumps, so everything a listener doesn't store itself is gone after
+ * the callback returns. This allows processing log files with any number of dumps
+ * in constant memory.
+ * <p>
+ * The reported model objects are only filled as far as they are read, e.g. a
+ * thread passed to {@link #onThread(ThreadDump, DumpThread)} gets its stack lines
+ * afterwards. The threads and deadlocks are never added to the dump, this is up
+ * to the listener.
+ */
+public interface DumpListener {
+    /**
+     * a new dump has been found.
+     *
+     * @param dump the dump with name, log line and start time set.
+     */
+    public void onDumpStart(ThreadDump dump);
+
+    /**
+     * the header of a new thread has been read.
+     *
+     * @param dump   the dump the thread belongs to.
+     * @param thread the thread, its stack lines follow.
+     */
+    public void onThread(ThreadDump dump, DumpThread thread);
+
+    /**
+     * a stack frame of the current thread has been read.
+     */
+    public void onFrame(DumpThread thread, StackFrame frame);
+
+    /**
+     * a monitor line of the current thread has been read.
+     */
+    public void onLockEvent(DumpThread thread, LockEvent event);
+
+    /**
+     * a deadlock reported by the vm has been read.
+     */
+    public void onDeadlock(ThreadDump dump, Deadlock deadlock);
+
+    /**
+     * a line of a class histogram following the dump has been read.
+     *
+     * @param dump      the dump the histogram belongs to.
+     * @param histogram the histogram, its totals are set after the last entry.
+     * @param entry     the read entry.
+     */
+    public void onHistogramEntry(ThreadDump dump, ClassHistogram histogram, ClassHistogram.Entry entry);
+
+    /**
+     * the dump has been read completely, heap information is set on the dump now.
+     */
+    public void onDumpEnd(ThreadDump dump);
+
+    /**
+     * a found dump is broken (e.g. stream flushing mixed the logged data), it is
+     * skipped and parsing goes on with the next dump.
+     *
+     * @param dump     the skipped dump.
+     * @param message  the error message.
+     * @param lastLine the last line read, may be null.
+     */
+    public void onDumpSkipped(ThreadDump dump, String message, String lastLine);
+}
@@ -0,0 +1,57 @@
+/*
+ * DumpListenerAdapter.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.model.ThreadDump;
+
+/**
+ * empty implementation of {@link DumpListener}, so listeners only need to
+ * override the callbacks they are interested in.
+ */
+public class DumpListenerAdapter implements DumpListener {
+    public void onDumpStart(ThreadDump dump) {
+    }
+
+    public void onThread(ThreadDump dump, DumpThread thread) {
+    }
+
+    public void onFrame(DumpThread thread, StackFrame frame) {
+    }
+
+    public void onLockEvent(DumpThread thread, LockEvent event) {
+    }
+
+    public void onDeadlock(ThreadDump dump, Deadlock deadlock) {
+    }
+
+    public void onHistogramEntry(ThreadDump dump, ClassHistogram histogram, ClassHistogram.Entry entry) {
+    }
+
+    public void onDumpEnd(ThreadDump dump) {
+    }
+
+    public void onDumpSkipped(ThreadDump dump, String message, String lastLine) {
+    }
+}
@@ -22,6 +22,8 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.model.ThreadDump;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
@@ -39,12 +41,44 @@ public interface DumpParser {
 
     public MutableTreeNode parseNext();
 
+    /**
+     * read the next dump into the dump model without creating any tree nodes.
+     *
+     * @return the next dump or null if no more dumps were found.
+     */
+    public ThreadDump readNextDump();
+
+    /**
+     * read all remaining dumps and report their content to the given listener. Nothing
+     * is kept by the parser, neither tree nodes are created nor the thread store is filled.
+     *
+     * @param listener the listener to report the dumps to.
+     */
+    public void parse(DumpListener listener);
+
     public void close() throws IOException;
 
     public void findLongRunningThreads(DefaultMutableTreeNode root, Map dumpStore, TreePath[] paths, int minOccurence, String regex);
 
+    /**
+     * find threads which kept the same stack in consecutive dumps.
+     *
+     * @param stackDepth the amount of top frames to compare, 0 for all.
+     */
+    public void findStuckThreads(DefaultMutableTreeNode root, Map dumpStore, TreePath[] paths, int minOccurence, String regex, int stackDepth);
+
     public void mergeDumps(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence, String regex);
 
+    /**
+     * aggregate the stacks of the threads of the given dumps into a flame graph.
+     */
+    public void createFlameGraph(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps);
+
+    /**
+     * count the methods, classes and packages in the stacks of the threads of the given dumps.
+     */
+    public void createMethodProfile(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps);
+
     public boolean isFoundClassHistograms();
 
     public void parseLoggcFile(InputStream loggcFileStream, DefaultMutableTreeNode root);
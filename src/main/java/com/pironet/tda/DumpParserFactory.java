@@ -23,9 +23,13 @@
 package com.pironet.tda;
 
 import com.pironet.tda.utils.DateMatcher;
+import com.pironet.tda.utils.MappedLineReader;
+import com.pironet.tda.utils.MappedLogfile;
 import com.pironet.tda.utils.PrefManager;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -101,4 +105,64 @@ public class DumpParserFactory {
         }
         return currentDumpParser;
     }
+
+    /**
+     * parses the given logfile for thread dumps and return a proper jdk parser. Regular files
+     * are memory mapped, so the parts of the log file in front of and between the thread dumps
+     * are only scanned as bytes and never turned into strings. Falls back to stream reading, if
+     * the file can't be mapped.
+     *
+     * @param dumpFile             the file to use for dump parsing.
+     * @param threadStore          the map to store the found thread dumps.
+     * @param withCurrentTimeStamp only used by SunJDKParser for running in JConsole-Plugin-Mode,  it then uses
+     *                             the current time stamp instead of a parsed one.
+     * @return a proper dump parser for the given log file, null if no proper parser was found.
+     * @throws IOException if the file couldn't be opened.
+     */
+    public DumpParser getDumpParserForLogfile(File dumpFile, Map threadStore, boolean withCurrentTimeStamp, int startCounter)
+            throws IOException {
+        if (!PrefManager.get().getUseMappedFiles() || !MappedLogfile.isMappable(dumpFile)) {
+            return (getDumpParserForLogfile(new FileInputStream(dumpFile), threadStore, withCurrentTimeStamp, startCounter));
+        }
+
+        return (getDumpParserForReader(new MappedLineReader(dumpFile), threadStore, withCurrentTimeStamp, startCounter));
+    }
+
+    /**
+     * scans the given mapped reader for the first thread dump and returns a proper jdk parser
+     * positioned at the start of this dump.
+     *
+     * @param reader               the reader to use for dump parsing.
+     * @param threadStore          the map to store the found thread dumps.
+     * @param withCurrentTimeStamp see {@link #getDumpParserForLogfile(InputStream, Map, boolean, int)}.
+     * @return a proper dump parser for the given reader, null if no proper parser was found.
+     */
+    public DumpParser getDumpParserForReader(MappedLineReader reader, Map threadStore, boolean withCurrentTimeStamp, int startCounter) {
+        byte[][] markers = {SunJDKParser.DUMP_MARKERS[0], BeaJDKParser.DUMP_MARKERS[0]};
+        DumpParser currentDumpParser = null;
+        DateMatcher dm = new DateMatcher();
+        long from = reader.getPosition();
+        int lineCounter = reader.skipToLineContaining(markers);
+
+        try {
+            if (reader.ready()) {
+                reader.mark(0);
+                String line = reader.readLine();
+                reader.reset();
+                // same as the stream based detection, which checks every line for a time stamp.
+                reader.findLastDateMatch(from, dm, 0);
+
+                if (WrappedSunJDKParser.checkForSupportedThreadDump(line)) {
+                    currentDumpParser = new WrappedSunJDKParser(reader, threadStore, lineCounter, withCurrentTimeStamp, startCounter, dm);
+                } else if (SunJDKParser.checkForSupportedThreadDump(line)) {
+                    currentDumpParser = new SunJDKParser(reader, threadStore, lineCounter, withCurrentTimeStamp, startCounter, dm);
+                } else if (BeaJDKParser.checkForSupportedThreadDump(line)) {
+                    currentDumpParser = new BeaJDKParser(reader, threadStore, lineCounter, dm);
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        return currentDumpParser;
+    }
 }
@@ -0,0 +1,685 @@
+/*
+ * DumpTreeBuilder.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.Monitor;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.utils.HistogramTableModel;
+import com.pironet.tda.utils.IconFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * builds the tree nodes for the display of a parsed {@link ThreadDump}. The parsers
+ * only fill the model, everything which is needed for the gui (categories, monitor
+ * trees, html content) is created here.
+ */
+public class DumpTreeBuilder {
+    private final AbstractDumpParser parser;
+
+    /**
+     * Creates a new instance of DumpTreeBuilder
+     *
+     * @param parser the parser of the dumps, used for parsing the thread tokens.
+     */
+    public DumpTreeBuilder(AbstractDumpParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * create the tree node of the given dump.
+     *
+     * @param dump        the parsed dump.
+     * @param threadStore the map to store the threads of the dump in.
+     * @return the tree node of the dump.
+     */
+    public DefaultMutableTreeNode createDumpNode(ThreadDump dump, Map threadStore) {
+        ThreadDumpInfo overallTDI = new ThreadDumpInfo(dump.getName(), dump.getLogLine());
+        overallTDI.setStartTime(dump.getStartTime());
+        overallTDI.setDump(dump);
+        DefaultMutableTreeNode threadDump = new DefaultMutableTreeNode(overallTDI);
+
+        DefaultMutableTreeNode catThreads = new DefaultMutableTreeNode(new TableCategory("Threads", IconFactory.THREADS));
+        threadDump.add(catThreads);
+
+        DefaultMutableTreeNode catWaiting = new DefaultMutableTreeNode(new TableCategory("Threads waiting for Monitors", IconFactory.THREADS_WAITING));
+
+        DefaultMutableTreeNode catSleeping = new DefaultMutableTreeNode(new TableCategory("Threads sleeping on Monitors", IconFactory.THREADS_SLEEPING));
+
+        DefaultMutableTreeNode catLocking = new DefaultMutableTreeNode(new TableCategory("Threads locking Monitors", IconFactory.THREADS_LOCKING));
+
+        // create category for monitors with disabled filtering.
+        // NOTE:  These strings are "magic" in that the methods
+        // TDA#displayCategory and TreeCategory#getCatComponent both
+        // checks these literal strings and the behavior differs.
+        DefaultMutableTreeNode catMonitors = new DefaultMutableTreeNode(new TreeCategory("Monitors", IconFactory.MONITORS, false));
+        DefaultMutableTreeNode catMonitorsLocks = new DefaultMutableTreeNode(new TreeCategory("Monitors without locking thread", IconFactory.MONITORS_NOLOCKS, false));
+        DefaultMutableTreeNode catBlockingMonitors = new DefaultMutableTreeNode(new TreeCategory("Threads blocked by Monitors", IconFactory.THREADS_LOCKING, false));
+
+        Map threads = new HashMap();
+        Map infos = new HashMap();
+        Map pools = new HashMap();
+        Map states = new HashMap();
+        int waiting = 0;
+        int sleeping = 0;
+        int locking = 0;
+
+        List dumpThreads = dump.getThreads();
+        for (int i = 0; i < dumpThreads.size(); i++) {
+            DumpThread thread = (DumpThread) dumpThreads.get(i);
+            String title = thread.getTitle();
+            threads.put(title, thread);
+
+            // all categories share the same info, so the thread tokens are only parsed once.
+            // the html content is rendered on display.
+            String[] tokens = getThreadTokens(title);
+            ThreadInfo ti = new ThreadInfo(title, null, thread, thread.getLineCount(), tokens);
+            ((Category) catThreads.getUserObject()).addToCatNodes(new DefaultMutableTreeNode(ti));
+            infos.put(thread, ti);
+            ThreadPools.addThread(pools, thread, ti);
+            StateTransitions.addThread(states, AbstractDumpParser.getThreadKey(tokens), thread);
+            if (thread.isWaiting()) {
+                ((Category) catWaiting.getUserObject()).addToCatNodes(new DefaultMutableTreeNode(ti));
+                waiting++;
+            }
+            if (thread.isSleeping()) {
+                ((Category) catSleeping.getUserObject()).addToCatNodes(new DefaultMutableTreeNode(ti));
+                sleeping++;
+            }
+            if (thread.isLocking()) {
+                ((Category) catLocking.getUserObject()).addToCatNodes(new DefaultMutableTreeNode(ti));
+                locking++;
+            }
+        }
+
+        MonitorMap mmap = createMonitorMap(dump);
+        WaitForGraph graph = new WaitForGraph(mmap);
+        parser.getMonitorTimeline().addDump(dump.getName(), dump.getLogLine(), mmap);
+        addStackGroups(threadDump, parser.getStackGroups().addDump(dump.getName(), dump.getLogLine(), dumpThreads), infos);
+        addThreadPools(threadDump, parser.getThreadPools().addDump(dump.getName(), dump.getLogLine(), pools));
+        parser.getStateTransitions().addDump(dump.getName(), dump.getLogLine(), states);
+        parser.getFrameIndex().addDump(dump.getName(), dump.getLogLine(), dumpThreads);
+
+        List deadlocks = findDeadlocks(dump, graph);
+        if (!deadlocks.isEmpty()) {
+            addDeadlocks(threadDump, deadlocks);
+        }
+        if (dump.getHeapInfo() != null) {
+            overallTDI.setHeapInfo(new HeapInfo(dump.getHeapInfo()));
+        }
+        if (dump.getClassHistogram() != null) {
+            addHistogramToDump(threadDump, dump.getClassHistogram());
+        }
+
+        int monitorCount = mmap.size();
+
+        int monitorsWithoutLocksCount = 0;
+        int contendedMonitors = 0;
+        int blockedThreads = 0;
+        // dump monitors
+        if (mmap.size() > 0) {
+            int[] result = dumpMonitors(catMonitors, catMonitorsLocks, mmap);
+            monitorsWithoutLocksCount = result[0];
+            overallTDI.setOverallThreadsWaitingWithoutLocksCount(result[1]);
+
+            result = dumpBlockingMonitors(catBlockingMonitors, graph);
+            contendedMonitors = result[0];
+            blockedThreads = result[1];
+        }
+
+        // display nodes with stuff to display
+        if (waiting > 0) {
+            overallTDI.setWaitingThreads((Category) catWaiting.getUserObject());
+            threadDump.add(catWaiting);
+        }
+
+        if (sleeping > 0) {
+            overallTDI.setSleepingThreads((Category) catSleeping.getUserObject());
+            threadDump.add(catSleeping);
+        }
+
+        if (locking > 0) {
+            overallTDI.setLockingThreads((Category) catLocking.getUserObject());
+            threadDump.add(catLocking);
+        }
+
+        if (monitorCount > 0) {
+            overallTDI.setMonitors((Category) catMonitors.getUserObject());
+            threadDump.add(catMonitors);
+        }
+
+        if (contendedMonitors > 0) {
+            overallTDI.setBlockingMonitors((Category) catBlockingMonitors.getUserObject());
+            threadDump.add(catBlockingMonitors);
+        }
+
+        if (monitorsWithoutLocksCount > 0) {
+            overallTDI.setMonitorsWithoutLocks((Category) catMonitorsLocks.getUserObject());
+            threadDump.add(catMonitorsLocks);
+        }
+        overallTDI.setThreads((Category) catThreads.getUserObject());
+
+        int threadCount = dumpThreads.size();
+        ((Category) catThreads.getUserObject()).setName(((Category) catThreads.getUserObject()) + " (" + threadCount + " Threads overall)");
+        ((Category) catWaiting.getUserObject()).setName(((Category) catWaiting.getUserObject()) + " (" + waiting + " Threads waiting)");
+        ((Category) catSleeping.getUserObject()).setName(((Category) catSleeping.getUserObject()) + " (" + sleeping + " Threads sleeping)");
+        ((Category) catLocking.getUserObject()).setName(((Category) catLocking.getUserObject()) + " (" + locking + " Threads locking)");
+        ((Category) catMonitors.getUserObject()).setName(((Category) catMonitors.getUserObject()) + " (" + monitorCount + " Monitors)");
+        ((Category) catBlockingMonitors.getUserObject()).setName(((Category) catBlockingMonitors.getUserObject()) + " (" + blockedThreads
+                + " Threads blocked by " + contendedMonitors + " Monitors)");
+        ((Category) catMonitorsLocks.getUserObject()).setName(((Category) catMonitorsLocks.getUserObject()) + " (" + monitorsWithoutLocksCount
+                + " Monitors)");
+
+        parser.getRuleFindings().addDump(dump.getName(), dump.getLogLine(), overallTDI.getFindings());
+
+        // add thread dump to passed dump store.
+        if (threadCount > 0) {
+            threadStore.put(dump.getName().trim(), threads);
+        }
+
+        return (threadDump);
+    }
+
+    /**
+     * create the monitor map of the given dump.
+     */
+    MonitorMap createMonitorMap(ThreadDump dump) {
+        MonitorMap mmap = new MonitorMap();
+        for (Iterator iter = dump.getMonitors().values().iterator(); iter.hasNext(); ) {
+            Monitor monitor = (Monitor) iter.next();
+            addToMonitorMap(mmap, monitor.getName(), MonitorMap.LOCK_THREAD_POS, monitor.getLockingThreads());
+            addToMonitorMap(mmap, monitor.getName(), MonitorMap.WAIT_THREAD_POS, monitor.getWaitingThreads());
+            addToMonitorMap(mmap, monitor.getName(), MonitorMap.SLEEP_THREAD_POS, monitor.getSleepingThreads());
+        }
+        return (mmap);
+    }
+
+    private void addToMonitorMap(MonitorMap mmap, String monitor, int pos, List threads) {
+        for (int i = 0; i < threads.size(); i++) {
+            DumpThread thread = (DumpThread) threads.get(i);
+            switch (pos) {
+                case MonitorMap.LOCK_THREAD_POS:
+                    mmap.addLockToMonitor(monitor, thread.getTitle(), thread);
+                    break;
+                case MonitorMap.WAIT_THREAD_POS:
+                    mmap.addWaitToMonitor(monitor, thread.getTitle(), thread);
+                    break;
+                default:
+                    mmap.addSleepToMonitor(monitor, thread.getTitle(), thread);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * get the deadlocks reported by the vm together with the wait-for cycles of the
+     * dump the vm didn't report, e.g. with dumps of vms not checking for deadlocks
+     * or not knowing about java.util.concurrent locks.
+     */
+    List findDeadlocks(ThreadDump dump, WaitForGraph graph) {
+        List result = new ArrayList(dump.getDeadlocks());
+        List cycles = graph.getCycles();
+        for (int i = 0; i < cycles.size(); i++) {
+            WaitForGraph.Cycle cycle = (WaitForGraph.Cycle) cycles.get(i);
+            if (!isReported(dump.getDeadlocks(), cycle)) {
+                result.add(createDeadlock(cycle, graph));
+            }
+        }
+        return (result);
+    }
+
+    /**
+     * check if the vm reported a deadlock between all threads of the given cycle.
+     */
+    private boolean isReported(List deadlocks, WaitForGraph.Cycle cycle) {
+        Set names = new HashSet();
+        for (Iterator iter = cycle.getThreads().iterator(); iter.hasNext(); ) {
+            names.add(getThreadName((String) iter.next()));
+        }
+        for (int i = 0; i < deadlocks.size(); i++) {
+            Set reported = new HashSet();
+            List lines = ((Deadlock) deadlocks.get(i)).getLines();
+            for (int j = 0; j < lines.size(); j++) {
+                if (((String) lines.get(j)).startsWith("\"")) {
+                    reported.add(getThreadName((String) lines.get(j)));
+                }
+            }
+            if (reported.containsAll(names)) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * create a deadlock report for a wait-for cycle, in the format of the vm reports.
+     */
+    private Deadlock createDeadlock(WaitForGraph.Cycle cycle, WaitForGraph graph) {
+        Deadlock deadlock = new Deadlock();
+        deadlock.setDetected(true);
+        List threads = new ArrayList();
+        for (int i = 0; i < cycle.getEdgeCount(); i++) {
+            DumpThread thread = (DumpThread) graph.getThread(cycle.getThread(i));
+            if (!threads.contains(thread)) {
+                threads.add(thread);
+            }
+            deadlock.addLine("\"" + getThreadName(cycle.getThread(i)) + "\":");
+            deadlock.addLine("  " + getBlockingLine(thread, cycle.getMonitor(i)) + ",");
+            deadlock.addLine("  which is held by \"" + getThreadName(cycle.getOwner(i)) + "\"");
+        }
+
+        deadlock.addLine("");
+        deadlock.addLine("Java stack information for the threads listed above:");
+        deadlock.addLine("===================================================");
+        for (int i = 0; i < threads.size(); i++) {
+            DumpThread thread = (DumpThread) threads.get(i);
+            if (thread != null) {
+                deadlock.addLine("\"" + getThreadName(thread.getTitle()) + "\":");
+                List lines = thread.getLines();
+                for (int j = 0; j < lines.size(); j++) {
+                    deadlock.addLine("\t" + lines.get(j).toString().trim());
+                }
+            }
+        }
+        return (deadlock);
+    }
+
+    private static String getBlockingLine(DumpThread thread, String monitor) {
+        if (thread != null) {
+            List events = thread.getLockEvents();
+            for (int i = 0; i < events.size(); i++) {
+                LockEvent event = (LockEvent) events.get(i);
+                if (event.getType() == LockEvent.PARKING && monitor.equals(event.getMonitor())) {
+                    return ("- parking to wait for " + monitor);
+                }
+            }
+        }
+        return ("- waiting to lock " + monitor);
+    }
+
+    /**
+     * get the quoted thread name from the start of a thread title or deadlock line.
+     */
+    public static String getThreadName(String title) {
+        int end = title.indexOf('"', 1);
+        return (title.startsWith("\"") && end > 0 ? title.substring(1, end) : title);
+    }
+
+    /**
+     * add the threads of the dump grouped by their stacks, the largest group first.
+     * The group nodes share the infos of the threads category.
+     */
+    private void addStackGroups(DefaultMutableTreeNode threadDump, List groups, Map infos) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        TreeCategory groupCat = new TreeCategory("Stack Groups", IconFactory.THREADS, false);
+        int threadCount = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            StackGroups.DumpGroup group = (StackGroups.DumpGroup) groups.get(i);
+            List members = group.getThreads();
+            DumpThread sample = (DumpThread) members.get(0);
+            DefaultMutableTreeNode groupNode = new DefaultMutableTreeNode(new ThreadInfo(members.size() + " Threads: "
+                    + group.getGroup().getTopFrame(), null, sample, sample.getLineCount(), null));
+            for (int j = 0; j < members.size(); j++) {
+                groupNode.add(new DefaultMutableTreeNode(infos.get(members.get(j))));
+            }
+            groupCat.addToCatNodes(groupNode);
+            threadCount += members.size();
+        }
+        groupCat.setName(groupCat + " (" + groups.size() + " Groups of " + threadCount + " Threads)");
+        threadDump.add(new DefaultMutableTreeNode(groupCat));
+    }
+
+    /**
+     * add the pool threads of the dump grouped by their pools, the largest pool first.
+     */
+    private void addThreadPools(DefaultMutableTreeNode threadDump, List pools) {
+        if (pools.isEmpty()) {
+            return;
+        }
+        TreeCategory poolCat = new TreeCategory("Thread Pools", IconFactory.THREADS, false);
+        for (int i = 0; i < pools.size(); i++) {
+            ThreadPools.DumpPool pool = (ThreadPools.DumpPool) pools.get(i);
+            List members = pool.getThreads();
+            ThreadInfo sample = (ThreadInfo) members.get(0);
+            ThreadInfo pi = new ThreadInfo(pool.getName() + ": " + members.size() + " Threads, "
+                    + pool.getCount(ThreadPools.RUNNABLE) + " running, " + pool.getCount(ThreadPools.BLOCKED) + " blocked, "
+                    + pool.getCount(ThreadPools.WAITING) + " waiting, " + pool.getCount(ThreadPools.IDLE) + " idle ("
+                    + pool.getSaturation() + "% busy)", null, sample.getThread(), sample.getStackLines(), null);
+            pi.setALotOfWaiting(pool.getSaturation() == 100);
+            DefaultMutableTreeNode poolNode = new DefaultMutableTreeNode(pi);
+            for (int j = 0; j < members.size(); j++) {
+                poolNode.add(new DefaultMutableTreeNode(members.get(j)));
+            }
+            poolCat.addToCatNodes(poolNode);
+        }
+        poolCat.setName(poolCat + " (" + pools.size() + " Pools)");
+        threadDump.add(new DefaultMutableTreeNode(poolCat));
+    }
+
+    /**
+     * add the deadlocks found for the dump.
+     */
+    private void addDeadlocks(DefaultMutableTreeNode threadDump, List deadlockList) {
+        TreeCategory deadlockCat = new TreeCategory("Deadlocks", IconFactory.DEADLOCKS);
+        DefaultMutableTreeNode catDeadlocks = new DefaultMutableTreeNode(deadlockCat);
+        int deadlocks = 0;
+
+        for (int i = 0; i < deadlockList.size(); i++) {
+            StringBuffer dContent = new StringBuffer();
+            if (i == 0) {
+                dContent.append("<body bgcolor=\"ffffff\"><font size=").append(TDA.getFontSizeModifier(-1)).append("><b>");
+            } else {
+                dContent.append("</pre><b><font size=").append(TDA.getFontSizeModifier(-1)).append(">");
+            }
+            Deadlock deadlock = (Deadlock) deadlockList.get(i);
+            dContent.append(deadlock.isDetected() ? "Found one wait-for cycle in the monitors of the dump" : "Found one Java-level deadlock");
+            dContent.append("</b><hr></font><pre>\n");
+            boolean first = true;
+
+            List lines = deadlock.getLines();
+            for (int j = 0; j < lines.size(); j++) {
+                String line = (String) lines.get(j);
+                if (line.startsWith("=======")) {
+                    // ignore this line
+                } else if (line.indexOf(" monitor 0x") >= 0) {
+                    dContent.append(linkifyDeadlockInfo(line));
+                    dContent.append("\n");
+                } else if (line.indexOf("Java stack information for the threads listed above") >= 0) {
+                    dContent.append("</pre><br><font size=").append(TDA.getFontSizeModifier(-1)).append("><b>");
+                    dContent.append("Java stack information for the threads listed above");
+                    dContent.append("</b><hr></font><pre>");
+                    first = true;
+                } else if ((line.indexOf("- waiting on") >= 0)
+                        || (line.indexOf("- waiting to") >= 0)
+                        || (line.indexOf("- locked") >= 0)
+                        || (line.indexOf("- parking to wait") >= 0)) {
+
+                    dContent.append(ThreadRenderer.linkifyMonitor(line));
+                    dContent.append("\n");
+
+                } else if (line.trim().startsWith("\"")) {
+                    dContent.append("</pre>");
+                    if (first) {
+                        first = false;
+                    } else {
+                        dContent.append("<br>");
+                    }
+                    dContent.append("<b><font size=").append(TDA.getFontSizeModifier(-1)).append("><code>");
+                    dContent.append(line);
+                    dContent.append("</font></code></b><pre>");
+                } else {
+                    dContent.append(line);
+                    dContent.append("\n");
+                }
+            }
+            deadlocks++;
+            parser.addToCategory(catDeadlocks, "Deadlock No. " + (deadlocks), null, dContent.toString(), 0, false);
+        }
+
+        threadDump.add(catDeadlocks);
+        ((ThreadDumpInfo) threadDump.getUserObject()).setDeadlocks((TreeCategory) catDeadlocks.getUserObject());
+        deadlockCat.setName("Deadlocks (" + deadlocks + (deadlocks == 1 ? " deadlock)" : " deadlocks)"));
+    }
+
+    /**
+     * add the given class histogram to the dump node.
+     *
+     * @param threadDump     the dump node.
+     * @param classHistogram the histogram to add.
+     */
+    public static void addHistogramToDump(DefaultMutableTreeNode threadDump, ClassHistogram classHistogram) {
+        HistogramTableModel histogramModel = new HistogramTableModel();
+        List entries = classHistogram.getEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            ClassHistogram.Entry entry = (ClassHistogram.Entry) entries.get(i);
+            histogramModel.addEntry(entry.getClassName(), (int) entry.getBytes(), (int) entry.getInstances());
+        }
+        histogramModel.setBytes(classHistogram.getBytes());
+        histogramModel.setInstances(classHistogram.getInstances());
+        histogramModel.setIncomplete(classHistogram.isIncomplete());
+
+        HistogramInfo hi = new HistogramInfo("Class Histogram of Dump", histogramModel);
+        threadDump.add(new DefaultMutableTreeNode(hi));
+    }
+
+    /**
+     * add a monitor link for monitor navigation
+     *
+     * @param line containing monitor
+     */
+    private String linkifyDeadlockInfo(String line) {
+        if (line != null && line.indexOf("Ox") >= 0) {
+            String begin = line.substring(0, line.indexOf("0x"));
+            int objectBegin = line.lastIndexOf("0x");
+            int monitorBegin = line.indexOf("0x");
+            String monitorHex = line.substring(monitorBegin, monitorBegin + 10);
+
+            String monitor = line.substring(objectBegin, objectBegin + 10);
+            String end = line.substring(line.indexOf("0x") + 10);
+
+            monitor = "<a href=\"monitor://<" + monitor + ">\">" + monitorHex + "</a>";
+            return (begin + monitor + end);
+        } else {
+            return (line);
+        }
+    }
+
+    /**
+     * dump the monitor information
+     *
+     * @param catMonitors
+     * @param catMonitorsLocks
+     * @param mmap
+     * @return
+     */
+    private int[] dumpMonitors(DefaultMutableTreeNode catMonitors, DefaultMutableTreeNode catMonitorsLocks, MonitorMap mmap) {
+        int monitorsWithoutLocksCount = 0;
+        int overallThreadsWaiting = 0;
+        for (int m = 0; m < mmap.size(); m++) {
+            String monitor = mmap.getMonitor(m);
+            ThreadInfo mi = new ThreadInfo(monitor, null, "", 0, null);
+            DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mi);
+
+            // first the locks
+            int[] lockThreads = mmap.getThreads(m, MonitorMap.LOCK_THREAD_POS);
+            int locks = 0;
+            int sleeps = 0;
+            int waits = 0;
+            for (int i = 0; i < lockThreads.length; i++) {
+                String thread = mmap.getThreadTitle(lockThreads[i]);
+                DumpThread stackTrace = (DumpThread) mmap.getThread(lockThreads[i]);
+                if (mmap.hasThread(m, MonitorMap.SLEEP_THREAD_POS, lockThreads[i])) {
+                    createThreadNode(monitorNode, "locks and sleeps on monitor: " + thread, stackTrace);
+                    sleeps++;
+                } else if (mmap.hasThread(m, MonitorMap.WAIT_THREAD_POS, lockThreads[i])) {
+                    createThreadNode(monitorNode, "locks and waits on monitor: " + thread, stackTrace);
+                    sleeps++;
+                } else {
+                    createThreadNode(monitorNode, "locked by " + thread, stackTrace);
+                }
+                locks++;
+            }
+
+            int[] waitThreads = mmap.getThreads(m, MonitorMap.WAIT_THREAD_POS);
+            for (int i = 0; i < waitThreads.length; i++) {
+                if (!mmap.hasThread(m, MonitorMap.LOCK_THREAD_POS, waitThreads[i])) {
+                    createThreadNode(monitorNode, "waits on monitor: " + mmap.getThreadTitle(waitThreads[i]),
+                            (DumpThread) mmap.getThread(waitThreads[i]));
+                    waits++;
+                }
+            }
+
+            // the same monitors show up in every dump, so the texts are pooled.
+            FramePool pool = parser.getFramePool();
+            mi.setContent(pool.intern(ThreadDumpInfo.getMonitorInfo(locks, waits, sleeps)));
+            mi.setName(pool.intern(mi.getName() + ":    " + (sleeps) + " Thread(s) sleeping, " + (waits) + " Thread(s) waiting, " + (locks) + " Thread(s) locking"));
+            if (ThreadDumpInfo.areALotOfWaiting(waits)) {
+                mi.setALotOfWaiting(true);
+            }
+            mi.setChildCount(monitorNode.getChildCount());
+
+            ((Category) catMonitors.getUserObject()).addToCatNodes(monitorNode);
+            if (locks == 0) {
+                monitorsWithoutLocksCount++;
+                overallThreadsWaiting += waits;
+                ((Category) catMonitorsLocks.getUserObject()).addToCatNodes(monitorNode);
+            }
+        }
+        return new int[]{monitorsWithoutLocksCount, overallThreadsWaiting};
+    }
+
+    int[] dumpBlockingMonitors(DefaultMutableTreeNode catLockingTree, MonitorMap mmap) {
+        return (dumpBlockingMonitors(catLockingTree, new WaitForGraph(mmap)));
+    }
+
+    private int[] dumpBlockingMonitors(DefaultMutableTreeNode catLockingTree, WaitForGraph graph) {
+        List monitors = graph.getMonitors();
+
+        // the monitors not blocked by another monitor make the top level.
+        List topLevel = new ArrayList();
+        for (int i = 0; i < monitors.size(); i++) {
+            if (graph.getBlockingMonitor((String) monitors.get(i)) == null) {
+                topLevel.add(monitors.get(i));
+            }
+        }
+
+        List threadNodes = createOwnerNodes(graph, topLevel);
+        for (int i = 0; i < threadNodes.size(); i++) {
+            DefaultMutableTreeNode threadNode = (DefaultMutableTreeNode) threadNodes.get(i);
+
+            updateChildCount(threadNode, true);
+            ((Category) catLockingTree.getUserObject()).addToCatNodes(threadNode);
+        }
+
+        return new int[]{monitors.size(), graph.getBlockedThreadCount()};
+    }
+
+    /**
+     * create the nodes of the owners of the given monitors, one node per owner
+     * holding the nodes of all its monitors.
+     */
+    private List createOwnerNodes(WaitForGraph graph, List monitors) {
+        List result = new ArrayList();
+        Map ownerNodes = new HashMap();
+        for (int i = 0; i < monitors.size(); i++) {
+            String monitor = (String) monitors.get(i);
+            String owner = graph.getOwner(monitor);
+            DefaultMutableTreeNode threadNode = (DefaultMutableTreeNode) ownerNodes.get(owner);
+            if (threadNode == null) {
+                DumpThread blockingThread = (DumpThread) graph.getOwnerThread(monitor);
+                threadNode = new DefaultMutableTreeNode(new ThreadInfo("Thread - " + owner, null, blockingThread, 0, null));
+                ownerNodes.put(owner, threadNode);
+                result.add(threadNode);
+            }
+            threadNode.add(createBlockingMonitorNode(graph, monitor));
+        }
+        return (result);
+    }
+
+    /**
+     * create the node of a contended monitor. The owners of the monitors blocked by it
+     * come first (the latest monitor in front), followed by the other blocked threads.
+     */
+    private DefaultMutableTreeNode createBlockingMonitorNode(WaitForGraph graph, String monitor) {
+        DumpThread blockingThread = (DumpThread) graph.getOwnerThread(monitor);
+        ThreadInfo mmi = new ThreadInfo("Monitor - " + monitor, null, "", 0, null);
+        mmi.setContent("This monitor (" + ThreadRenderer.linkifyMonitor(monitor)
+                + ") is held in the following stack frame:\n\n"
+                + (blockingThread != null ? ThreadRenderer.render(blockingThread) : null));
+        DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mmi);
+
+        List blockedMonitors = new ArrayList(graph.getBlockedMonitors(monitor));
+        Collections.reverse(blockedMonitors);
+        List threadNodes = createOwnerNodes(graph, blockedMonitors);
+        for (int i = 0; i < threadNodes.size(); i++) {
+            monitorNode.add((DefaultMutableTreeNode) threadNodes.get(i));
+        }
+
+        Set owners = new HashSet();
+        for (int i = 0; i < blockedMonitors.size(); i++) {
+            owners.add(graph.getOwner((String) blockedMonitors.get(i)));
+        }
+        List blockedThreads = graph.getBlockedThreads(monitor);
+        for (int i = 0; i < blockedThreads.size(); i++) {
+            String thread = (String) blockedThreads.get(i);
+            if (!owners.contains(thread)) {
+                createThreadNode(monitorNode, "Thread - " + thread, (DumpThread) graph.getThread(thread));
+            }
+        }
+        return (monitorNode);
+    }
+
+    /**
+     * add a node for the given thread below a monitor node, the content is rendered on display.
+     */
+    private void createThreadNode(DefaultMutableTreeNode top, String title, DumpThread thread) {
+        title = parser.getFramePool().intern(title);
+        top.add(new DefaultMutableTreeNode(new ThreadInfo(title, null, thread, 0, getThreadTokens(title))));
+    }
+
+    /**
+     * get the pooled table tokens of the given thread title.
+     */
+    private String[] getThreadTokens(String title) {
+        return (parser.getFramePool().intern(parser.getThreadTokens(title)));
+    }
+
+    /**
+     * set the amount of blocked threads below the given node and its children.
+     *
+     * @return the amount of thread nodes in the subtree of the node.
+     */
+    private int updateChildCount(DefaultMutableTreeNode threadOrMonitorNode, boolean isThreadNode) {
+        int count = isThreadNode ? 1 : 0;
+        for (Enumeration e = threadOrMonitorNode.children(); e.hasMoreElements(); ) {
+            count += updateChildCount((DefaultMutableTreeNode) e.nextElement(), !isThreadNode);
+        }
+
+        ThreadInfo mi = (ThreadInfo) threadOrMonitorNode.getUserObject();
+        if (ThreadDumpInfo.areALotOfWaiting(count)) {
+            mi.setALotOfWaiting(true);
+        }
+        int blocked = isThreadNode ? count - 1 : count;
+
+        mi.setChildCount(blocked);
+        if (blocked > 1) {
+            mi.setName(mi.getName() + ":    " + blocked + " Blocked threads");
+        } else if (blocked == 1) {
+            mi.setName(mi.getName() + ":    " + blocked + " Blocked thread");
+        }
+        return (count);
+    }
+}
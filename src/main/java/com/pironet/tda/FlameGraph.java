@@ -0,0 +1,246 @@
+/*
+ * FlameGraph.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the stacks of the threads of several dumps, every thread is a sample. The frames are
+ * merged into a trie starting with the bottom frame, so every distinct call path is
+ * stored only once no matter in how many threads and dumps it shows up. The frames
+ * are the pooled frames of the log file.
+ */
+public class FlameGraph implements Serializable {
+    private String name;
+    private Node root = new Node(null);
+    private int dumpCount = 0;
+    private int nodeCount = 1;
+
+    /**
+     * Creates a new instance of FlameGraph
+     *
+     * @param name the name displayed in the tree.
+     */
+    public FlameGraph(String name) {
+        this.name = name;
+    }
+
+    /**
+     * add the threads of a dump.
+     *
+     * @param threads the {@link DumpThread}s of the dump, other values (from sessions
+     *                of older versions) are skipped.
+     */
+    public void addDump(Collection threads) {
+        for (Iterator iter = threads.iterator(); iter.hasNext(); ) {
+            Object thread = iter.next();
+            if (thread instanceof DumpThread) {
+                addThread((DumpThread) thread);
+            }
+        }
+        dumpCount++;
+    }
+
+    /**
+     * add the stack of a thread, threads without frames are skipped.
+     */
+    public void addThread(DumpThread thread) {
+        List frames = thread.getFrames();
+        if (frames.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        node.count++;
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            node = node.getOrAddChild((StackFrame) frames.get(i));
+            if (node.count++ == 0) {
+                nodeCount++;
+            }
+        }
+        node.self++;
+    }
+
+    public Node getRoot() {
+        return (root);
+    }
+
+    /**
+     * @return the amount of threads added.
+     */
+    public int getSampleCount() {
+        return (root.count);
+    }
+
+    public int getDumpCount() {
+        return (dumpCount);
+    }
+
+    /**
+     * @return the amount of nodes of the trie, the root included.
+     */
+    public int getNodeCount() {
+        return (nodeCount);
+    }
+
+    /**
+     * write the stacks in collapsed format, one line per distinct stack with its frames
+     * from the bottom separated by semicolons, followed by the amount of threads having
+     * this stack. This is the input format of the common flame graph tools.
+     */
+    public void writeCollapsed(Writer out) throws IOException {
+        List path = new ArrayList();
+        List nodes = new ArrayList();
+        List next = new ArrayList();
+        nodes.add(root);
+        next.add(new int[1]);
+        while (!nodes.isEmpty()) {
+            Node node = (Node) nodes.get(nodes.size() - 1);
+            int[] child = (int[]) next.get(next.size() - 1);
+            if (child[0] == 0 && node.self > 0) {
+                for (int i = 0; i < path.size(); i++) {
+                    if (i > 0) {
+                        out.write(';');
+                    }
+                    out.write((String) path.get(i));
+                }
+                out.write(' ');
+                out.write(String.valueOf(node.self));
+                out.write('\n');
+            }
+            if (child[0] < node.size) {
+                Node childNode = node.children[child[0]++];
+                nodes.add(childNode);
+                next.add(new int[1]);
+                path.add(childNode.getName());
+            } else {
+                nodes.remove(nodes.size() - 1);
+                next.remove(next.size() - 1);
+                if (!path.isEmpty()) {
+                    path.remove(path.size() - 1);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String toString() {
+        return (name);
+    }
+
+    /**
+     * a call path, the frame called by the path of the parent node.
+     */
+    public static class Node implements Serializable {
+        private StackFrame frame;
+        private int count;
+        private int self;
+        private Node[] children;
+        private int size = 0;
+        private Map index;
+
+        private Node(StackFrame frame) {
+            this.frame = frame;
+        }
+
+        private Node getOrAddChild(StackFrame childFrame) {
+            Node child = null;
+            if (index != null) {
+                child = (Node) index.get(childFrame);
+            } else {
+                // few callees are checked one by one, the frames are pooled.
+                for (int i = 0; i < size && child == null; i++) {
+                    if (children[i].frame == childFrame || children[i].frame.equals(childFrame)) {
+                        child = children[i];
+                    }
+                }
+            }
+            if (child != null) {
+                return (child);
+            }
+
+            child = new Node(childFrame);
+            if (children == null) {
+                children = new Node[2];
+            } else if (size == children.length) {
+                Node[] newChildren = new Node[size * 2];
+                System.arraycopy(children, 0, newChildren, 0, size);
+                children = newChildren;
+            }
+            children[size++] = child;
+            if (index != null) {
+                index.put(childFrame, child);
+            } else if (size > 8) {
+                index = new HashMap();
+                for (int i = 0; i < size; i++) {
+                    index.put(children[i].frame, children[i]);
+                }
+            }
+            return (child);
+        }
+
+        /**
+         * @return the frame without the leading "at ", "all" for the root.
+         */
+        public String getName() {
+            if (frame == null) {
+                return ("all");
+            }
+            String line = frame.getLine().trim();
+            return (line.startsWith("at ") ? line.substring(3) : line);
+        }
+
+        /**
+         * @return the amount of threads running through this call path.
+         */
+        public int getCount() {
+            return (count);
+        }
+
+        /**
+         * @return the amount of threads having this frame as top frame.
+         */
+        public int getSelf() {
+            return (self);
+        }
+
+        public int getChildCount() {
+            return (size);
+        }
+
+        public Node getChild(int i) {
+            return (children[i]);
+        }
+    }
+}
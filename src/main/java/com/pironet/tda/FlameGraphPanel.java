@@ -0,0 +1,195 @@
+/*
+ * FlameGraphPanel.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JComponent;
+
+/**
+ * displays a {@link FlameGraph}, the bottom frames at the bottom and the width of a
+ * frame proportional to the threads running through it. Clicking a frame zooms into
+ * it, clicking one of the frames below zooms out again.
+ */
+public class FlameGraphPanel extends JComponent {
+    private static final int ROW_HEIGHT = 16;
+
+    private FlameGraph graph;
+    private List zoomPath = new ArrayList();
+    private int depth;
+
+    /**
+     * Creates a new instance of FlameGraphPanel
+     *
+     * @param graph the graph to display.
+     */
+    public FlameGraphPanel(FlameGraph graph) {
+        this.graph = graph;
+        zoomPath.add(graph.getRoot());
+        depth = getDepth(graph.getRoot());
+        setFont(new Font("SansSerif", Font.PLAIN, 10));
+        setToolTipText("");
+        setPreferredSize(new Dimension(800, depth * ROW_HEIGHT));
+
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                List path = findPath(e.getX(), e.getY());
+                if (path != null) {
+                    zoomPath = path;
+                    repaint();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the amount of frames of the deepest stack, the root included.
+     */
+    private static int getDepth(FlameGraph.Node root) {
+        int result = 0;
+        List nodes = new ArrayList();
+        List depths = new ArrayList();
+        nodes.add(root);
+        depths.add(new Integer(1));
+        while (!nodes.isEmpty()) {
+            FlameGraph.Node node = (FlameGraph.Node) nodes.remove(nodes.size() - 1);
+            int nodeDepth = ((Integer) depths.remove(depths.size() - 1)).intValue();
+            result = Math.max(result, nodeDepth);
+            for (int i = 0; i < node.getChildCount(); i++) {
+                nodes.add(node.getChild(i));
+                depths.add(new Integer(nodeDepth + 1));
+            }
+        }
+        return (result);
+    }
+
+    private FlameGraph.Node getZoom() {
+        return ((FlameGraph.Node) zoomPath.get(zoomPath.size() - 1));
+    }
+
+    private int getRowY(int level) {
+        return (Math.max(getHeight(), depth * ROW_HEIGHT) - (level + 1) * ROW_HEIGHT);
+    }
+
+    protected void paintComponent(Graphics g) {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (graph.getSampleCount() == 0) {
+            return;
+        }
+        // the frames below the zoomed one are drawn in full width.
+        for (int i = 0; i < zoomPath.size() - 1; i++) {
+            paintFrame(g, (FlameGraph.Node) zoomPath.get(i), i, 0, getWidth(), true);
+        }
+        paintNode(g, getZoom(), zoomPath.size() - 1, 0, getWidth());
+    }
+
+    private void paintNode(Graphics g, FlameGraph.Node node, int level, double x, double width) {
+        paintFrame(g, node, level, x, width, false);
+        double childX = x;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            FlameGraph.Node child = node.getChild(i);
+            double childWidth = width * child.getCount() / node.getCount();
+            // frames too narrow to be seen are skipped with their callees.
+            if (childWidth >= 1) {
+                paintNode(g, child, level + 1, childX, childWidth);
+            }
+            childX += childWidth;
+        }
+    }
+
+    private void paintFrame(Graphics g, FlameGraph.Node node, int level, double x, double width, boolean zoomedOut) {
+        int left = (int) x;
+        int frameWidth = Math.max((int) (x + width) - left - 1, 1);
+        int y = getRowY(level);
+        g.setColor(zoomedOut ? Color.LIGHT_GRAY : getColor(node.getName()));
+        g.fillRect(left, y, frameWidth, ROW_HEIGHT - 1);
+        if (frameWidth > 20) {
+            Graphics text = g.create(left + 2, y, frameWidth - 4, ROW_HEIGHT - 1);
+            text.setColor(Color.BLACK);
+            text.drawString(node.getName(), 0, ROW_HEIGHT - 4);
+            text.dispose();
+        }
+    }
+
+    /**
+     * a warm color depending on the frame, so the same frame has the same color
+     * everywhere.
+     */
+    private static Color getColor(String name) {
+        int hash = name.hashCode();
+        return (new Color(205 + (hash & 0x3f) % 50, 80 + ((hash >> 8) & 0xff) % 150, 40 + ((hash >> 16) & 0x3f) % 50));
+    }
+
+    /**
+     * find the frame at the given position.
+     *
+     * @return the path of nodes from the root to the frame, null if there is no frame.
+     */
+    private List findPath(int px, int py) {
+        int level = (Math.max(getHeight(), depth * ROW_HEIGHT) - py) / ROW_HEIGHT;
+        if (py > Math.max(getHeight(), depth * ROW_HEIGHT) || level < 0 || graph.getSampleCount() == 0) {
+            return (null);
+        }
+        if (level < zoomPath.size()) {
+            return (new ArrayList(zoomPath.subList(0, level + 1)));
+        }
+
+        List path = new ArrayList(zoomPath);
+        FlameGraph.Node node = getZoom();
+        double x = 0;
+        double width = getWidth();
+        for (int l = zoomPath.size(); l <= level; l++) {
+            FlameGraph.Node found = null;
+            double childX = x;
+            for (int i = 0; i < node.getChildCount() && found == null; i++) {
+                double childWidth = width * node.getChild(i).getCount() / node.getCount();
+                if (px >= childX && px < childX + childWidth) {
+                    found = node.getChild(i);
+                    x = childX;
+                    width = childWidth;
+                }
+                childX += childWidth;
+            }
+            if (found == null) {
+                return (null);
+            }
+            node = found;
+            path.add(node);
+        }
+        return (path);
+    }
+
+    public String getToolTipText(MouseEvent e) {
+        List path = findPath(e.getX(), e.getY());
+        if (path == null) {
+            return (null);
+        }
+        FlameGraph.Node node = (FlameGraph.Node) path.get(path.size() - 1);
+        return ("<html>" + node.getName().replaceAll("<", "&lt;") + "<br>" + node.getCount() + " of " + graph.getSampleCount() + " Threads ("
+                + (node.getCount() * 1000L / graph.getSampleCount()) / 10.0 + "%), " + node.getSelf() + " on top");
+    }
+}
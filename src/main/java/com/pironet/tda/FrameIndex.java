@@ -0,0 +1,374 @@
+/*
+ * FrameIndex.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * inverted index of the stack frames of all dumps of a log file, finds the threads
+ * having a method, class or package on their stack without scanning the dumps.
+ * Threads mostly share their stacks, so the frames point to the distinct stacks
+ * and only the stacks point to the threads of the dumps.
+ */
+public class FrameIndex implements Serializable {
+    /**
+     * the frames are pooled, so they are indexed by identity.
+     */
+    private Map frameIds = new IdentityHashMap();
+    private List frames = new ArrayList();
+    private List frameStacks = new ArrayList();
+    private Map stackIds = new HashMap();
+    private List stacks = new ArrayList();
+    private List stackThreads = new ArrayList();
+    private TreeMap names = new TreeMap();
+    private List dumps = new ArrayList();
+
+    /**
+     * add the threads of a parsed dump.
+     *
+     * @param name    the name of the dump.
+     * @param logLine the line of the dump in the log file.
+     * @param threads the {@link DumpThread}s of the dump.
+     */
+    public void addDump(String name, int logLine, List threads) {
+        DumpThread[] dumpThreads = new DumpThread[threads.size()];
+        List[] threadFrames = new List[threads.size()];
+        for (int i = 0; i < dumpThreads.length; i++) {
+            dumpThreads[i] = (DumpThread) threads.get(i);
+            threadFrames[i] = dumpThreads[i].getFrames();
+        }
+
+        synchronized (this) {
+            int dump = dumps.size();
+            dumps.add(new Dump(name, logLine, dumpThreads));
+            for (int i = 0; i < dumpThreads.length; i++) {
+                Postings postings = (Postings) stackThreads.get(getStackId(threadFrames[i]));
+                postings.add(dump);
+                postings.add(i);
+            }
+        }
+    }
+
+    private int getStackId(List stackFrames) {
+        int[] ids = new int[stackFrames.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getFrameId((StackFrame) stackFrames.get(i));
+        }
+        Stack stack = new Stack(ids);
+        Integer id = (Integer) stackIds.get(stack);
+        if (id == null) {
+            id = new Integer(stacks.size());
+            stackIds.put(stack, id);
+            stacks.add(ids);
+            stackThreads.add(new Postings());
+            for (int i = 0; i < ids.length; i++) {
+                // recursive frames are only added once as the stack ids are ascending.
+                ((Postings) frameStacks.get(ids[i])).addOnce(id.intValue());
+            }
+        }
+        return (id.intValue());
+    }
+
+    private int getFrameId(StackFrame frame) {
+        Integer id = (Integer) frameIds.get(frame);
+        if (id == null) {
+            id = new Integer(frames.size());
+            frameIds.put(frame, id);
+            frames.add(frame);
+            frameStacks.add(new Postings());
+
+            String line = frame.getLine().trim();
+            String method = MethodProfile.getMethod(line);
+            int classEnd = method.lastIndexOf('.');
+            String className = classEnd > 0 ? method.substring(0, classEnd) : method;
+            int packageEnd = className.lastIndexOf('.');
+            addName(line.startsWith("at ") ? line.substring(3) : line, id.intValue());
+            addName(method, id.intValue());
+            addName(className, id.intValue());
+            if (packageEnd > 0) {
+                addName(className.substring(0, packageEnd), id.intValue());
+            }
+        }
+        return (id.intValue());
+    }
+
+    private void addName(String name, int frame) {
+        Postings postings = (Postings) names.get(name);
+        if (postings == null) {
+            postings = new Postings();
+            names.put(name, postings);
+        }
+        postings.addOnce(frame);
+    }
+
+    public synchronized int getDumpCount() {
+        return (dumps.size());
+    }
+
+    public synchronized int getFrameCount() {
+        return (frames.size());
+    }
+
+    public synchronized int getStackCount() {
+        return (stacks.size());
+    }
+
+    /**
+     * search the threads having the given frame, method, class or package on their
+     * stack.
+     *
+     * @param query the qualified name, e.g. "com.acme.OrderDao.save", a trailing "*"
+     *              matches all names starting with the given one, e.g. "com.acme.*".
+     * @return list of {@link Hit} in log order.
+     */
+    public synchronized List search(String query) {
+        BitSet matchedFrames = getFrames(query.trim());
+        BitSet matchedStacks = getStacks(matchedFrames);
+        List hits = new ArrayList();
+        for (int stack = matchedStacks.nextSetBit(0); stack >= 0; stack = matchedStacks.nextSetBit(stack + 1)) {
+            StackFrame frame = getFirstFrame((int[]) stacks.get(stack), matchedFrames);
+            Postings postings = (Postings) stackThreads.get(stack);
+            for (int i = 0; i < postings.size; i += 2) {
+                hits.add(new Hit((Dump) dumps.get(postings.ids[i]), postings.ids[i], postings.ids[i + 1], frame));
+            }
+        }
+        Collections.sort(hits, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Hit h1 = (Hit) o1;
+                Hit h2 = (Hit) o2;
+                if (h1.dump.logLine != h2.dump.logLine) {
+                    return (h1.dump.logLine < h2.dump.logLine ? -1 : 1);
+                }
+                if (h1.dumpId != h2.dumpId) {
+                    return (h1.dumpId - h2.dumpId);
+                }
+                return (h1.thread - h2.thread);
+            }
+        });
+        return (hits);
+    }
+
+    /**
+     * get the threads having a frame matching the given pattern on their stack. Every
+     * distinct frame is only matched once.
+     *
+     * @param pattern the pattern searched in the frame lines.
+     * @return set of {@link DumpThread}.
+     */
+    public synchronized Set getThreads(Pattern pattern) {
+        BitSet matchedFrames = new BitSet(frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            if (pattern.matcher(((StackFrame) frames.get(i)).getLine()).find()) {
+                matchedFrames.set(i);
+            }
+        }
+        BitSet matchedStacks = getStacks(matchedFrames);
+        Set threads = new HashSet();
+        for (int stack = matchedStacks.nextSetBit(0); stack >= 0; stack = matchedStacks.nextSetBit(stack + 1)) {
+            Postings postings = (Postings) stackThreads.get(stack);
+            for (int i = 0; i < postings.size; i += 2) {
+                threads.add(((Dump) dumps.get(postings.ids[i])).threads[postings.ids[i + 1]]);
+            }
+        }
+        return (threads);
+    }
+
+    /**
+     * @return the indexed {@link Dump}s in log order.
+     */
+    public synchronized List getDumps() {
+        List result = new ArrayList(dumps);
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                int line1 = ((Dump) o1).logLine;
+                int line2 = ((Dump) o2).logLine;
+                return (line1 < line2 ? -1 : (line1 == line2 ? 0 : 1));
+            }
+        });
+        return (result);
+    }
+
+    private BitSet getStacks(BitSet matchedFrames) {
+        BitSet matchedStacks = new BitSet(stacks.size());
+        for (int frame = matchedFrames.nextSetBit(0); frame >= 0; frame = matchedFrames.nextSetBit(frame + 1)) {
+            Postings postings = (Postings) frameStacks.get(frame);
+            for (int i = 0; i < postings.size; i++) {
+                matchedStacks.set(postings.ids[i]);
+            }
+        }
+        return (matchedStacks);
+    }
+
+    private BitSet getFrames(String query) {
+        BitSet result = new BitSet(frames.size());
+        Iterator iter;
+        if (query.endsWith("*")) {
+            String prefix = query.substring(0, query.length() - 1);
+            iter = names.subMap(prefix, prefix + Character.MAX_VALUE).values().iterator();
+        } else {
+            iter = names.containsKey(query) ? Collections.singletonList(names.get(query)).iterator()
+                    : Collections.EMPTY_LIST.iterator();
+        }
+        while (iter.hasNext()) {
+            Postings postings = (Postings) iter.next();
+            for (int i = 0; i < postings.size; i++) {
+                result.set(postings.ids[i]);
+            }
+        }
+        return (result);
+    }
+
+    private StackFrame getFirstFrame(int[] stack, BitSet matchedFrames) {
+        for (int i = 0; i < stack.length; i++) {
+            if (matchedFrames.get(stack[i])) {
+                return ((StackFrame) frames.get(stack[i]));
+            }
+        }
+        return (null);
+    }
+
+    /**
+     * growable list of ids.
+     */
+    private static class Postings implements Serializable {
+        private int[] ids = new int[2];
+        private int size;
+
+        /**
+         * add the id unless it is the last one, enough for ascending ids.
+         */
+        void addOnce(int id) {
+            if (size == 0 || ids[size - 1] != id) {
+                add(id);
+            }
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * the frame ids of a stack as key of the distinct stacks.
+     */
+    private static class Stack implements Serializable {
+        private int[] ids;
+        private int hash;
+
+        Stack(int[] ids) {
+            this.ids = ids;
+            hash = Arrays.hashCode(ids);
+        }
+
+        public boolean equals(Object o) {
+            return (o instanceof Stack && Arrays.equals(ids, ((Stack) o).ids));
+        }
+
+        public int hashCode() {
+            return (hash);
+        }
+    }
+
+    /**
+     * a dump with its threads in logged order.
+     */
+    public static class Dump implements Serializable {
+        private String name;
+        private int logLine;
+        private DumpThread[] threads;
+
+        Dump(String name, int logLine, DumpThread[] threads) {
+            this.name = name;
+            this.logLine = logLine;
+            this.threads = threads;
+        }
+
+        public String getName() {
+            return (name);
+        }
+
+        public int getLogLine() {
+            return (logLine);
+        }
+
+        /**
+         * @return the {@link DumpThread}s of the dump.
+         */
+        public List getThreads() {
+            return (Arrays.asList(threads));
+        }
+    }
+
+    /**
+     * a thread found by a search.
+     */
+    public static class Hit {
+        private Dump dump;
+        private int dumpId;
+        private int thread;
+        private StackFrame frame;
+
+        Hit(Dump dump, int dumpId, int thread, StackFrame frame) {
+            this.dump = dump;
+            this.dumpId = dumpId;
+            this.thread = thread;
+            this.frame = frame;
+        }
+
+        public String getDumpName() {
+            return (dump.name);
+        }
+
+        public int getLogLine() {
+            return (dump.logLine);
+        }
+
+        public DumpThread getThread() {
+            return (dump.threads[thread]);
+        }
+
+        /**
+         * @return the top most frame of the thread matching the query.
+         */
+        public StackFrame getFrame() {
+            return (frame);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * FrameSearchDialog.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JEditorPane;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * searches the {@link FrameIndex} of every loaded log file for threads having a
+ * method, class or package on their stack. Dumps of reopened log files which
+ * weren't parsed yet are parsed before searching, as they aren't indexed otherwise.
+ */
+public class FrameSearchDialog extends JDialog implements ActionListener {
+    private List logfileNodes;
+    private JTextField searchField;
+    private JLabel statusLabel;
+    private HitsTableModel hitsModel;
+    private JTable hitsTable;
+    private JEditorPane threadPane;
+
+    /**
+     * Creates a new instance of FrameSearchDialog
+     *
+     * @param owner        the frame of the dialog.
+     * @param logfileNodes the tree nodes of the loaded {@link Logfile}s.
+     */
+    public FrameSearchDialog(JFrame owner, List logfileNodes) {
+        super(owner, "Find in Stacks of all Dumps");
+        this.logfileNodes = logfileNodes;
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        getContentPane().setLayout(new BorderLayout());
+
+        searchField = new JTextField(40);
+        searchField.addActionListener(this);
+        JButton searchButton = new JButton("Search");
+        searchButton.addActionListener(this);
+        JLabel label = new JLabel("Method, class or package (a trailing * matches prefixes): ");
+        label.setLabelFor(searchField);
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(label);
+        searchPanel.add(searchField);
+        searchPanel.add(searchButton);
+        getContentPane().add(searchPanel, BorderLayout.NORTH);
+
+        hitsModel = new HitsTableModel();
+        hitsTable = new JTable(hitsModel);
+        hitsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitsTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            public void valueChanged(ListSelectionEvent e) {
+                displayThread();
+            }
+        });
+        threadPane = new JEditorPane();
+        threadPane.setContentType("text/html");
+        threadPane.setEditable(false);
+        JScrollPane hitsPane = new JScrollPane(hitsTable);
+        hitsPane.setPreferredSize(new Dimension(800, 250));
+        JScrollPane contentPane = new JScrollPane(threadPane);
+        contentPane.setPreferredSize(new Dimension(800, 250));
+        getContentPane().add(new JSplitPane(JSplitPane.VERTICAL_SPLIT, hitsPane, contentPane), BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ");
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        statusPanel.add(statusLabel);
+        getContentPane().add(statusPanel, BorderLayout.SOUTH);
+        getRootPane().setDefaultButton(searchButton);
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        String query = searchField.getText().trim();
+        if (query.length() == 0) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        List rows = new ArrayList();
+        int dumpCount = 0;
+        int parsedCount = 0;
+        for (int i = 0; i < logfileNodes.size(); i++) {
+            DefaultMutableTreeNode top = (DefaultMutableTreeNode) logfileNodes.get(i);
+            Logfile logfile = (Logfile) top.getUserObject();
+            if (logfile.getUsedParser() instanceof AbstractDumpParser) {
+                parsedCount += LazyDumpNode.loadAll(top);
+                FrameIndex index = ((AbstractDumpParser) logfile.getUsedParser()).getFrameIndex();
+                List hits = index.search(query);
+                for (int j = 0; j < hits.size(); j++) {
+                    rows.add(new Object[]{logfile.getName(), hits.get(j)});
+                }
+                dumpCount += index.getDumpCount();
+            }
+        }
+        hitsModel.setRows(rows);
+        threadPane.setText("");
+        statusLabel.setText(rows.size() + " Threads found in " + dumpCount + " Dumps of " + logfileNodes.size()
+                + " Log Files (" + (System.currentTimeMillis() - start) + " ms"
+                + (parsedCount > 0 ? ", " + parsedCount + " Dumps parsed first" : "") + ")");
+    }
+
+    private void displayThread() {
+        int row = hitsTable.getSelectedRow();
+        if (row >= 0) {
+            threadPane.setText(ThreadRenderer.render(hitsModel.getHit(row).getThread()));
+            threadPane.setCaretPosition(0);
+        }
+    }
+
+    /**
+     * the found threads, every row holds the name of the log file and the hit.
+     */
+    private static class HitsTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Log File", "Dump", "Thread", "Frame"};
+        private List rows = new ArrayList();
+
+        void setRows(List rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        FrameIndex.Hit getHit(int row) {
+            return ((FrameIndex.Hit) ((Object[]) rows.get(row))[1]);
+        }
+
+        public String getColumnName(int col) {
+            return (COLUMNS[col]);
+        }
+
+        public int getColumnCount() {
+            return (COLUMNS.length);
+        }
+
+        public int getRowCount() {
+            return (rows.size());
+        }
+
+        public Object getValueAt(int row, int col) {
+            FrameIndex.Hit hit = getHit(row);
+            switch (col) {
+                case 0:
+                    return (((Object[]) rows.get(row))[0]);
+                case 1:
+                    return (hit.getDumpName());
+                case 2:
+                    return (hit.getThread().getTitle());
+                default:
+                    return (hit.getFrame() != null ? hit.getFrame().getLine().trim() : "");
+            }
+        }
+    }
+}
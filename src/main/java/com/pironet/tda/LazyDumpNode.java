@@ -0,0 +1,120 @@
+/*
+ * LazyDumpNode.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.util.Enumeration;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+/**
+ * tree node of a dump known from a {@link com.pironet.tda.utils.DumpIndex}, the dump
+ * is only parsed as soon as the node is expanded, selected or its children are
+ * accessed otherwise.
+ */
+public class LazyDumpNode extends DefaultMutableTreeNode {
+    private transient ParallelDumpLoader loader;
+    private int region;
+
+    /**
+     * Creates a new instance of LazyDumpNode
+     *
+     * @param info   the info to display until the dump is parsed.
+     * @param loader the loader to parse the dump with.
+     * @param region the region of the dump in the loader.
+     */
+    LazyDumpNode(ThreadDumpInfo info, ParallelDumpLoader loader, int region) {
+        super(info);
+        this.loader = loader;
+        this.region = region;
+    }
+
+    /**
+     * @return true, if the dump was parsed already.
+     */
+    public boolean isLoaded() {
+        return (loader == null);
+    }
+
+    /**
+     * parse all not yet parsed dumps of a log file. The analyses of a log file and
+     * its frame index only know the parsed dumps.
+     *
+     * @param top the log file node.
+     * @return the amount of dumps parsed.
+     */
+    public static int loadAll(DefaultMutableTreeNode top) {
+        int loaded = 0;
+        for (int i = 0; i < top.getChildCount(); i++) {
+            if (top.getChildAt(i) instanceof LazyDumpNode && !((LazyDumpNode) top.getChildAt(i)).isLoaded()) {
+                ((LazyDumpNode) top.getChildAt(i)).load();
+                loaded++;
+            }
+        }
+        return (loaded);
+    }
+
+    /**
+     * parse the dump and add its nodes, does nothing if the dump was parsed already.
+     */
+    public synchronized void load() {
+        if (loader != null) {
+            ParallelDumpLoader dumpLoader = loader;
+            // the children are added by the loader, which accesses this node again.
+            loader = null;
+            DefaultMutableTreeNode dumpNode = dumpLoader.loadDump(region);
+            if (dumpNode != null) {
+                setUserObject(dumpNode.getUserObject());
+                while (dumpNode.getChildCount() > 0) {
+                    add((DefaultMutableTreeNode) dumpNode.getChildAt(0));
+                }
+            }
+        }
+    }
+
+    /**
+     * the dump isn't parsed for deciding if the node can be expanded.
+     */
+    public boolean isLeaf() {
+        return (loader == null && super.isLeaf());
+    }
+
+    public int getChildCount() {
+        load();
+        return (super.getChildCount());
+    }
+
+    public TreeNode getChildAt(int index) {
+        load();
+        return (super.getChildAt(index));
+    }
+
+    public Enumeration children() {
+        load();
+        return (super.children());
+    }
+
+    /**
+     * sessions are saved with the parsed dump.
+     */
+    private Object writeReplace() {
+        load();
+        return (this);
+    }
+}
@@ -30,6 +30,8 @@ package com.pironet.tda;
 public class Logfile extends AbstractInfo {
     private String content;
     private DumpParser usedParser;
+    private transient long parsedLength;
+    private transient LogfileFollower follower;
 
     /**
      * Creates a new instance of Logfile
@@ -70,4 +72,42 @@ public class Logfile extends AbstractInfo {
             usedParser = parser;
         }
     }
+
+    /**
+     * use the given parser for the further dumps of this log file, e.g. the dumps
+     * requested from a running vm. It shares the {@link LogfileState} of the parser
+     * used before, so searching and analysing the log file covers all of its dumps.
+     * The first parser stays the used parser.
+     *
+     * @param parser the parser of the further dumps.
+     */
+    public void addParser(DumpParser parser) {
+        if (usedParser instanceof AbstractDumpParser && parser instanceof AbstractDumpParser && usedParser != parser) {
+            ((AbstractDumpParser) parser).setLogfileState(((AbstractDumpParser) usedParser).getLogfileState());
+        }
+        setUsedParser(parser);
+    }
+
+    /**
+     * @return the amount of bytes parsed from the log file, 0 if unknown.
+     */
+    public long getParsedLength() {
+        return (parsedLength);
+    }
+
+    public void setParsedLength(long parsedLength) {
+        this.parsedLength = parsedLength;
+    }
+
+    /**
+     * @return the follower parsing new dumps of this log file, null if the
+     * log file isn't followed.
+     */
+    public LogfileFollower getFollower() {
+        return (follower);
+    }
+
+    public void setFollower(LogfileFollower follower) {
+        this.follower = follower;
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * LogfileAnalysis.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.io.Serializable;
+
+/**
+ * analysis over all dumps of a log file, the dumps are added while they are parsed.
+ * The parsers of a log file share their analyses through their {@link LogfileState}.
+ */
+public interface LogfileAnalysis extends Serializable {
+
+    /**
+     * @return a counter increased with every added dump.
+     */
+    public int getModCount();
+
+    /**
+     * create the category displaying the current result.
+     */
+    public TreeCategory createCategory();
+}
@@ -0,0 +1,63 @@
+/*
+ * LogfileAnalysisNode.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * tree node of a log file displaying a {@link LogfileAnalysis} of its dumps. Dumps
+ * are still added after the node was created (followed log files, dumps parsed on
+ * access), so its category is recreated if needed as soon as it is selected. Not
+ * yet parsed dumps of the log file are parsed before, see {@link LazyDumpNode#loadAll(DefaultMutableTreeNode)}.
+ */
+public class LogfileAnalysisNode extends DefaultMutableTreeNode {
+    private LogfileAnalysis analysis;
+    private int modCount;
+
+    /**
+     * Creates a new instance of LogfileAnalysisNode
+     *
+     * @param analysis the analysis of the dumps of the log file.
+     */
+    public LogfileAnalysisNode(LogfileAnalysis analysis) {
+        super(null, false);
+        this.analysis = analysis;
+        modCount = analysis.getModCount();
+        setUserObject(analysis.createCategory());
+    }
+
+    public LogfileAnalysis getAnalysis() {
+        return (analysis);
+    }
+
+    /**
+     * recreate the category if dumps were added since it was created.
+     *
+     * @return true, if the category was recreated.
+     */
+    public boolean update() {
+        if (modCount == analysis.getModCount()) {
+            return (false);
+        }
+        modCount = analysis.getModCount();
+        setUserObject(analysis.createCategory());
+        return (true);
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * LogfileFollower.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.utils.DateMatcher;
+import com.pironet.tda.utils.MappedLineReader;
+import com.pironet.tda.utils.MappedLogfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import javax.swing.tree.MutableTreeNode;
+
+/**
+ * follows a log file a vm is still writing to and parses the thread dumps
+ * appended to it. Only the bytes behind the already parsed part are read, the
+ * parser state (dump counter, line counter, date matching and frame pool) is
+ * kept between the polls, so the new dumps continue the existing ones.
+ * <p>
+ * A dump is only parsed if it is complete, which is the case if another dump
+ * started behind it, if the end of the dump was written followed by some more
+ * lines, or if the file didn't grow since the last poll.
+ * <p>
+ * The directory of the log file is watched for changes, so appended dumps are
+ * parsed right away. As the last dump is only complete once the file stopped
+ * growing, and network shares might not report changes at all, the file is
+ * polled at least once per poll interval, whatever changes are reported. If the
+ * file system can't be watched, the file is only polled. The part of the file
+ * mapped for parsing before is kept, only the grown end is mapped again.
+ */
+public class LogfileFollower {
+    /**
+     * poll interval in milliseconds, also the time without changes after which the
+     * watched file is polled.
+     */
+    static final long POLL_INTERVAL = 2000;
+
+    private static final byte[][] END_MARKERS = {MappedLogfile.toAscii("JNI global references")};
+
+    private final File file;
+    private final Map threadStore;
+    private final SunJDKParser usedParser;
+    private SunJDKParser parser;
+    private MappedLogfile logfile;
+    private long offset;
+    private long lastLength;
+    private int startCounter;
+
+    private Timer timer;
+    private WatchService watcher;
+
+    /**
+     * Creates a new instance of LogfileFollower
+     *
+     * @param file         the log file to follow.
+     * @param offset       the amount of bytes already parsed.
+     * @param startCounter the number of the next dump.
+     * @param threadStore  the map to store the threads of new dumps.
+     * @param usedParser   the parser used for the already parsed dumps.
+     */
+    public LogfileFollower(File file, long offset, int startCounter, Map threadStore, SunJDKParser usedParser) {
+        this.file = file;
+        this.offset = offset;
+        this.lastLength = offset;
+        this.startCounter = startCounter;
+        this.threadStore = threadStore;
+        this.usedParser = usedParser;
+    }
+
+    /**
+     * check if the given parser can be used for following a log file.
+     */
+    public static boolean canFollow(DumpParser parser) {
+        return (parser instanceof SunJDKParser);
+    }
+
+    /**
+     * @return the amount of bytes parsed so far.
+     */
+    public long getOffset() {
+        return (offset);
+    }
+
+    /**
+     * parse the complete dumps appended since the last poll.
+     *
+     * @return the tree nodes of the new dumps, empty if none were found.
+     * @throws IOException if the log file couldn't be read, e.g. because it was
+     *                     truncated or rotated.
+     */
+    public synchronized List poll() throws IOException {
+        List result = new ArrayList();
+        if (file.length() < offset) {
+            throw new IOException("log file " + file + " was truncated");
+        }
+        if (file.length() == offset) {
+            lastLength = offset;
+            return (result);
+        }
+
+        // the already parsed part of the log file doesn't need to be mapped again.
+        logfile = logfile == null ? new MappedLogfile(file) : logfile.remap();
+        long length = logfile.length();
+        if (parser == null) {
+            // a line written only partially while parsing the file is parsed again.
+            offset = logfile.findLineStart(offset, 0);
+        }
+        long limit = findCompleteLimit(logfile, length);
+        lastLength = length;
+        if (limit <= offset) {
+            return (result);
+        }
+
+        MappedLineReader reader = new MappedLineReader(logfile, offset, limit);
+        if (parser == null) {
+            parser = createParser(reader, logfile.countLines(0, offset));
+        } else {
+            parser.setBis(reader);
+        }
+        MutableTreeNode dumpNode;
+        while ((dumpNode = parser.parseNext()) != null) {
+            result.add(dumpNode);
+        }
+        offset = limit;
+        return (result);
+    }
+
+    /**
+     * find the end of the complete part of the appended bytes.
+     */
+    private long findCompleteLimit(MappedLogfile logfile, long length) {
+        if (length == lastLength) {
+            // nothing was written since the last poll.
+            return (length);
+        }
+
+        long lastDump = -1;
+        long pos = offset;
+        long found;
+        while ((found = logfile.indexOf(SunJDKParser.DUMP_MARKERS, pos, length)) >= 0) {
+            lastDump = logfile.findLineStart(found, offset);
+            pos = found + 1;
+        }
+        long lineLimit = logfile.findLineStart(length, offset);
+        if (lastDump < 0) {
+            // no dump started, the complete lines can be skipped already.
+            return (lineLimit);
+        }
+
+        long end = logfile.indexOf(END_MARKERS, lastDump, lineLimit);
+        if (end >= 0 && logfile.countLines(end, lineLimit) > usedParser.getMaxCheckLines()) {
+            // the heap data following the dump was written as well.
+            return (lineLimit);
+        }
+        return (lastDump);
+    }
+
+    private SunJDKParser createParser(MappedLineReader reader, int lineCounter) {
+        DateMatcher dm = new DateMatcher(usedParser.getDm());
+        SunJDKParser result;
+        if (usedParser instanceof WrappedSunJDKParser) {
+            result = new WrappedSunJDKParser(reader, threadStore, lineCounter, false, startCounter, dm);
+        } else {
+            result = new SunJDKParser(reader, threadStore, lineCounter, false, startCounter, dm);
+        }
+        result.setLogfileState(usedParser.getLogfileState());
+        result.setMillisTimeStamp(usedParser.isMillisTimeStamp());
+        result.setMaxCheckLines(usedParser.getMaxCheckLines());
+        return (result);
+    }
+
+    /**
+     * start following the log file in the background.
+     *
+     * @param listener the listener to report the new dumps to, called from the
+     *                 following thread.
+     */
+    public synchronized void start(final FollowListener listener) {
+        if (isRunning()) {
+            return;
+        }
+        try {
+            watcher = file.getAbsoluteFile().toPath().getFileSystem().newWatchService();
+            file.getAbsoluteFile().getParentFile().toPath().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            startPolling(listener);
+            return;
+        } catch (UnsupportedOperationException e) {
+            startPolling(listener);
+            return;
+        }
+
+        final WatchService watchService = watcher;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                Path fileName = file.toPath().getFileName();
+                long lastCheck = System.currentTimeMillis();
+                try {
+                    while (true) {
+                        long wait = lastCheck + POLL_INTERVAL - System.currentTimeMillis();
+                        WatchKey key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                        if (key != null) {
+                            List events = key.pollEvents();
+                            key.reset();
+                            if (!isChanged(events, fileName) && System.currentTimeMillis() - lastCheck < POLL_INTERVAL) {
+                                // another file of the directory changed, the log file is polled anyway
+                                // if the poll interval passed.
+                                continue;
+                            }
+                        }
+                        lastCheck = System.currentTimeMillis();
+                        if (!check(listener)) {
+                            return;
+                        }
+                    }
+                } catch (ClosedWatchServiceException e) {
+                    // following was stopped.
+                } catch (InterruptedException e) {
+                    // following was stopped.
+                }
+            }
+        }, "TDA follow " + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * check if the given watch events concern the log file.
+     */
+    private static boolean isChanged(List events, Path fileName) {
+        for (int i = 0; i < events.size(); i++) {
+            WatchEvent event = (WatchEvent) events.get(i);
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * poll the log file with a timer, used if the file system can't be watched.
+     */
+    private void startPolling(final FollowListener listener) {
+        timer = new Timer("TDA follow " + file.getName(), true);
+        timer.schedule(new TimerTask() {
+            public void run() {
+                check(listener);
+            }
+        }, POLL_INTERVAL, POLL_INTERVAL);
+    }
+
+    /**
+     * poll the log file and report the result.
+     *
+     * @return false, if following failed and was stopped.
+     */
+    private boolean check(FollowListener listener) {
+        try {
+            List dumps = poll();
+            if (!dumps.isEmpty()) {
+                listener.dumpsFound(LogfileFollower.this, dumps);
+            }
+            return (true);
+        } catch (IOException e) {
+            stop();
+            listener.followingFailed(LogfileFollower.this, e);
+            return (false);
+        }
+    }
+
+    /**
+     * stop following the log file.
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        if (watcher != null) {
+            try {
+                // the following thread ends as soon as the watcher is closed.
+                watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watcher = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return (timer != null || watcher != null);
+    }
+
+    /**
+     * gets the dumps found while following a log file.
+     */
+    public interface FollowListener {
+        /**
+         * new dumps were appended to the log file.
+         *
+         * @param follower the follower which found the dumps.
+         * @param dumps    the tree nodes of the new dumps.
+         */
+        void dumpsFound(LogfileFollower follower, List dumps);
+
+        /**
+         * the log file couldn't be read anymore, following stopped.
+         */
+        void followingFailed(LogfileFollower follower, IOException e);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * LogfileState.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.FramePool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * everything collected over all dumps of a log file: the pool for the stack lines,
+ * the frame index, the analyses and the skipped dumps. All parsers of a log file,
+ * e.g. the parsers of the regions of a parallel parsed file or of appended dumps,
+ * share one instance.
+ */
+public class LogfileState {
+    private final FramePool framePool = new FramePool();
+    private final FrameIndex frameIndex = new FrameIndex();
+    private final MonitorTimeline monitorTimeline = new MonitorTimeline();
+    private final StackGroups stackGroups = new StackGroups();
+    private final ThreadPools threadPools = new ThreadPools();
+    private final StateTransitions stateTransitions = new StateTransitions();
+    private final RuleFindings ruleFindings = new RuleFindings();
+    private final List skippedDumps = new Vector();
+
+    /**
+     * get the pool for the stack lines of the parsed threads.
+     */
+    public FramePool getFramePool() {
+        return (framePool);
+    }
+
+    /**
+     * get the index the frames of the parsed dumps are added to.
+     */
+    public FrameIndex getFrameIndex() {
+        return (frameIndex);
+    }
+
+    public MonitorTimeline getMonitorTimeline() {
+        return (monitorTimeline);
+    }
+
+    public StackGroups getStackGroups() {
+        return (stackGroups);
+    }
+
+    public ThreadPools getThreadPools() {
+        return (threadPools);
+    }
+
+    public StateTransitions getStateTransitions() {
+        return (stateTransitions);
+    }
+
+    public RuleFindings getRuleFindings() {
+        return (ruleFindings);
+    }
+
+    /**
+     * get the analyses of the log file in the order they are displayed.
+     *
+     * @return list of {@link LogfileAnalysis}.
+     */
+    public List getAnalyses() {
+        List analyses = new ArrayList();
+        analyses.add(monitorTimeline);
+        analyses.add(stackGroups);
+        analyses.add(threadPools);
+        analyses.add(stateTransitions);
+        analyses.add(ruleFindings);
+        return (analyses);
+    }
+
+    /**
+     * get the descriptions of the broken dumps skipped since the list was cleared
+     * last. The parsers don't display anything, the gui reports them.
+     *
+     * @return synchronized list of Strings.
+     */
+    public List getSkippedDumps() {
+        return (skippedDumps);
+    }
+}
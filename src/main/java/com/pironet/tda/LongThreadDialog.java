@@ -22,13 +22,17 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.utils.PrefManager;
+
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Font;
+import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Map;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -90,7 +94,15 @@ public class LongThreadDialog extends JDialog {
                 if (TDA.frame != null) {
                     TDA.frame.setEnabled(true);
                 }
-                ((Logfile) top.getUserObject()).getUsedParser().findLongRunningThreads(top, threadDumps, dumps, Integer.parseInt(settingsPanel.minOccurenceField.getText()), settingsPanel.threadRegExField.getText());
+                DumpParser parser = ((Logfile) top.getUserObject()).getUsedParser();
+                if (settingsPanel.stuckCheckBox.isSelected()) {
+                    int stackDepth = Integer.parseInt(settingsPanel.stackDepthField.getText());
+                    PrefManager.get().setStackHashDepth(stackDepth);
+                    parser.findStuckThreads(top, threadDumps, dumps, Integer.parseInt(settingsPanel.minOccurenceField.getText()),
+                            settingsPanel.threadRegExField.getText(), stackDepth);
+                } else {
+                    parser.findLongRunningThreads(top, threadDumps, dumps, Integer.parseInt(settingsPanel.minOccurenceField.getText()), settingsPanel.threadRegExField.getText());
+                }
                 backRef.createTree();
                 backRef.tree.expandRow(1);
 
@@ -120,16 +132,29 @@ public class LongThreadDialog extends JDialog {
     class SettingsPanel extends JPanel {
         JTextField minOccurenceField;
         JTextField threadRegExField;
+        JCheckBox stuckCheckBox;
+        JTextField stackDepthField;
 
         public SettingsPanel() {
             setLayout(new BorderLayout());
 
+            JPanel northPanel = new JPanel(new GridLayout(2, 1));
             JPanel layoutPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
             layoutPanel.add(new JLabel("Minimum occurence of a thread"));
             minOccurenceField = new JTextField(3);
             minOccurenceField.setText(String.valueOf(dumps.length));
             layoutPanel.add(minOccurenceField);
-            add(layoutPanel, BorderLayout.NORTH);
+            northPanel.add(layoutPanel);
+
+            // stuck threads need to keep their stack in the minimum amount of consecutive dumps.
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            stuckCheckBox = new JCheckBox("Only threads with unchanged stack, compare top frames (0 for all)");
+            layoutPanel.add(stuckCheckBox);
+            stackDepthField = new JTextField(3);
+            stackDepthField.setText(String.valueOf(PrefManager.get().getStackHashDepth()));
+            layoutPanel.add(stackDepthField);
+            northPanel.add(layoutPanel);
+            add(northPanel, BorderLayout.NORTH);
 
             layoutPanel = new JPanel(new BorderLayout());
             layoutPanel.add(new JLabel("Regular Expression thread identifier matches"), BorderLayout.NORTH);
@@ -44,6 +44,8 @@ public class MainMenu extends JMenuBar {
 
     private JMenuItem closeMenuItem;
     private JMenuItem longMenuItem;
+    private JMenuItem findInStacksMenuItem;
+    private JMenuItem queryMenuItem;
     private JMenuItem recentFilesMenu;
     private JMenuItem recentSessionsMenu;
     private JMenuItem closeAllMenuItem;
@@ -113,6 +115,14 @@ public class MainMenu extends JMenuBar {
         return (longMenuItem);
     }
 
+    public JMenuItem getFindInStacksMenuItem() {
+        return (findInStacksMenuItem);
+    }
+
+    public JMenuItem getQueryMenuItem() {
+        return (queryMenuItem);
+    }
+
     /**
      * get the close all file menu item
      */
@@ -286,6 +296,22 @@ public class MainMenu extends JMenuBar {
         longMenuItem.addActionListener(listener);
         longMenuItem.setEnabled(false);
         menu.add(longMenuItem);
+
+        findInStacksMenuItem = new JMenuItem(ResourceManager.translate("tools.findinstacks"),
+                KeyStroke.getKeyStroke(ResourceManager.translate("tools.findinstacks.mnem")).getKeyCode());
+        findInStacksMenuItem.getAccessibleContext().setAccessibleDescription(
+                ResourceManager.translate("tools.findinstacks.description"));
+        findInStacksMenuItem.addActionListener(listener);
+        findInStacksMenuItem.setEnabled(false);
+        menu.add(findInStacksMenuItem);
+
+        queryMenuItem = new JMenuItem(ResourceManager.translate("tools.query"),
+                KeyStroke.getKeyStroke(ResourceManager.translate("tools.query.mnem")).getKeyCode());
+        queryMenuItem.getAccessibleContext().setAccessibleDescription(
+                ResourceManager.translate("tools.query.description"));
+        queryMenuItem.addActionListener(listener);
+        queryMenuItem.setEnabled(false);
+        menu.add(queryMenuItem);
         menu.addSeparator();
 
         menuItem = new JMenuItem("Filters",
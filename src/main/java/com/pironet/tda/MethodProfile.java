@@ -0,0 +1,281 @@
+/*
+ * MethodProfile.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sample counts of the methods, classes and packages in the stacks of several dumps,
+ * every thread is a sample. A method counts "self" if it is the top frame of a
+ * thread and "total" if it is anywhere in the stack, running threads are counted
+ * apart from the waiting ones. The counters of a frame are looked up once per
+ * distinct (pooled) frame, afterwards a sample only increments them.
+ */
+public class MethodProfile implements Serializable {
+    public static final int METHOD = 0;
+    public static final int CLASS = 1;
+    public static final int PACKAGE = 2;
+
+    private static final String[] LEVEL_NAMES = {"Method", "Class", "Package"};
+
+    private String name;
+    private Map frames = new HashMap();
+    private Map[] counters = {new HashMap(), new HashMap(), new HashMap()};
+    private int sampleCount = 0;
+    private int runnableCount = 0;
+    private int dumpCount = 0;
+
+    /**
+     * Creates a new instance of MethodProfile
+     *
+     * @param name the name displayed in the tree.
+     */
+    public MethodProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * add the threads of a dump.
+     *
+     * @param threads the {@link DumpThread}s of the dump, other values (from sessions
+     *                of older versions) are skipped.
+     */
+    public void addDump(Collection threads) {
+        for (Iterator iter = threads.iterator(); iter.hasNext(); ) {
+            Object thread = iter.next();
+            if (thread instanceof DumpThread) {
+                addThread((DumpThread) thread);
+            }
+        }
+        dumpCount++;
+    }
+
+    /**
+     * add the stack of a thread, threads without frames are skipped.
+     */
+    public void addThread(DumpThread thread) {
+        List stack = thread.getFrames();
+        if (stack.isEmpty()) {
+            return;
+        }
+        boolean runnable = thread.isRunnable();
+        sampleCount++;
+        if (runnable) {
+            runnableCount++;
+        }
+        for (int i = 0; i < stack.size(); i++) {
+            Counter[] frameCounters = getCounters((StackFrame) stack.get(i));
+            for (int level = 0; level < frameCounters.length; level++) {
+                Counter counter = frameCounters[level];
+                // recursive calls count once per sample.
+                if (counter.lastSample != sampleCount) {
+                    counter.lastSample = sampleCount;
+                    if (runnable) {
+                        counter.totalRunnable++;
+                    } else {
+                        counter.totalWaiting++;
+                    }
+                }
+                if (i == 0) {
+                    if (runnable) {
+                        counter.selfRunnable++;
+                    } else {
+                        counter.selfWaiting++;
+                    }
+                }
+            }
+        }
+    }
+
+    private Counter[] getCounters(StackFrame frame) {
+        Counter[] result = (Counter[]) frames.get(frame);
+        if (result == null) {
+            String method = getMethod(frame.getLine());
+            int classEnd = method.lastIndexOf('.');
+            String className = classEnd > 0 ? method.substring(0, classEnd) : method;
+            int packageEnd = className.lastIndexOf('.');
+            String packageName = packageEnd > 0 ? className.substring(0, packageEnd) : "(default package)";
+
+            result = new Counter[]{getCounter(METHOD, method), getCounter(CLASS, className), getCounter(PACKAGE, packageName)};
+            frames.put(frame, result);
+        }
+        return (result);
+    }
+
+    private Counter getCounter(int level, String key) {
+        Counter counter = (Counter) counters[level].get(key);
+        if (counter == null) {
+            counter = new Counter(key);
+            counters[level].put(key, counter);
+        }
+        return (counter);
+    }
+
+    /**
+     * get the qualified method name of a frame. The module of newer vms is left out,
+     * the slashes of jrockit 1.4 frames are replaced by dots.
+     *
+     * @param line the frame as logged, e.g. "at java.base/java.lang.Thread.run(Thread.java:829)".
+     * @return the method, e.g. "java.lang.Thread.run".
+     */
+    static String getMethod(String line) {
+        String method = line.trim();
+        if (method.startsWith("at ")) {
+            method = method.substring(3);
+        }
+        if (method.indexOf('(') > 0) {
+            method = method.substring(0, method.indexOf('('));
+        }
+        int slash = method.lastIndexOf("//");
+        if (slash >= 0) {
+            // class loader without module
+            method = method.substring(slash + 2);
+        }
+        slash = method.indexOf('/');
+        if (slash > 0 && method.substring(0, slash).indexOf('$') < 0) {
+            method = method.substring(0, slash).indexOf('.') >= 0 || method.substring(0, slash).indexOf('@') >= 0
+                    ? method.substring(slash + 1) : method.replace('/', '.');
+        }
+        return (method);
+    }
+
+    /**
+     * get the counters of the given level, the ones with the most running samples first.
+     *
+     * @param level {@link #METHOD}, {@link #CLASS} or {@link #PACKAGE}.
+     * @return list of {@link Counter}.
+     */
+    public List getCounters(int level) {
+        List result = new ArrayList(counters[level].values());
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Counter c1 = (Counter) o1;
+                Counter c2 = (Counter) o2;
+                if (c1.selfRunnable != c2.selfRunnable) {
+                    return (c2.selfRunnable - c1.selfRunnable);
+                }
+                if (c1.totalRunnable != c2.totalRunnable) {
+                    return (c2.totalRunnable - c1.totalRunnable);
+                }
+                return (c1.name.compareTo(c2.name));
+            }
+        });
+        return (result);
+    }
+
+    /**
+     * @return the name of the given level, e.g. "Method".
+     */
+    public static String getLevelName(int level) {
+        return (LEVEL_NAMES[level]);
+    }
+
+    /**
+     * @return the amount of threads with a stack added.
+     */
+    public int getSampleCount() {
+        return (sampleCount);
+    }
+
+    /**
+     * @return the amount of running threads added.
+     */
+    public int getRunnableCount() {
+        return (runnableCount);
+    }
+
+    public int getDumpCount() {
+        return (dumpCount);
+    }
+
+    /**
+     * render the overview of the profile.
+     */
+    public String getInfo() {
+        StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><font face=System><table border=0>");
+        statData.append("<tr bgcolor=\"#dddddd\"><td><font face=System>Dumps</td><td><b><font face=System>");
+        statData.append(dumpCount);
+        statData.append("</b></td></tr>\n<tr bgcolor=\"#eeeeee\"><td><font face=System>Threads with stack</td><td><b><font face=System>");
+        statData.append(sampleCount);
+        statData.append("</b></td></tr>\n<tr bgcolor=\"#dddddd\"><td><font face=System>Running threads</td><td><b><font face=System>");
+        statData.append(runnableCount);
+        statData.append("</b></td></tr>\n<tr bgcolor=\"#eeeeee\"><td><font face=System>Waiting, blocked or parked threads</td><td><b><font face=System>");
+        statData.append(sampleCount - runnableCount);
+        statData.append("</b></td></tr>\n</table><br>A method counts <i>self</i> if it is the top frame of a thread, ");
+        statData.append("<i>total</i> if it is anywhere in the stack. The methods where running threads spend their time ");
+        statData.append("have the most running self samples.");
+        return (statData.toString());
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String toString() {
+        return (name);
+    }
+
+    /**
+     * the sample counts of a method, class or package.
+     */
+    public static class Counter implements Serializable {
+        private String name;
+        private int selfRunnable;
+        private int selfWaiting;
+        private int totalRunnable;
+        private int totalWaiting;
+        private int lastSample;
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return (name);
+        }
+
+        public int getSelfRunnable() {
+            return (selfRunnable);
+        }
+
+        public int getSelfWaiting() {
+            return (selfWaiting);
+        }
+
+        public int getTotalRunnable() {
+            return (totalRunnable);
+        }
+
+        public int getTotalWaiting() {
+            return (totalWaiting);
+        }
+    }
+}
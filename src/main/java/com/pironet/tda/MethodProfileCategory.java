@@ -0,0 +1,85 @@
+/*
+ * MethodProfileCategory.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.utils.IconFactory;
+import com.pironet.tda.utils.MethodProfileTableModel;
+import com.pironet.tda.utils.TableSorter;
+
+import java.util.EventListener;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * category displaying the methods, classes or packages of a method profile in a
+ * sortable table. The rows aren't threads, so nothing can be filtered or selected.
+ */
+public class MethodProfileCategory extends AbstractCategory {
+    private static final String[] TITLES = {"Methods", "Classes", "Packages"};
+
+    private MethodProfile profile;
+    private int level;
+    private int rowCount;
+    private transient JTable table;
+
+    /**
+     * Creates a new instance of MethodProfileCategory
+     *
+     * @param profile the profile to display.
+     * @param level   {@link MethodProfile#METHOD}, {@link MethodProfile#CLASS} or
+     *                {@link MethodProfile#PACKAGE}.
+     */
+    public MethodProfileCategory(MethodProfile profile, int level) {
+        this.profile = profile;
+        this.level = level;
+        rowCount = profile.getCounters(level).size();
+        setName(TITLES[level] + " (" + rowCount + " " + TITLES[level] + ")");
+        setFilterEnabled(false);
+        setIconID(IconFactory.THREADS);
+        setInfo(profile.getInfo());
+    }
+
+    public JComponent getCatComponent(EventListener listener) {
+        if (table == null) {
+            TableSorter ts = new TableSorter(new MethodProfileTableModel(MethodProfile.getLevelName(level), profile.getCounters(level)));
+            table = new JTable(ts);
+            ts.setTableHeader(table.getTableHeader());
+
+            DefaultTableCellRenderer renderer = new DefaultTableCellRenderer();
+            renderer.setHorizontalAlignment(JLabel.RIGHT);
+            table.getColumnModel().getColumn(0).setPreferredWidth(400);
+            for (int i = 1; i < table.getColumnCount(); i++) {
+                table.getColumnModel().getColumn(i).setPreferredWidth(40);
+                table.getColumnModel().getColumn(i).setCellRenderer(renderer);
+            }
+        }
+        return (table);
+    }
+
+    public ThreadInfo getCurrentlySelectedUserObject() {
+        return (null);
+    }
+
+    public int getNodeCount() {
+        return (rowCount);
+    }
+}
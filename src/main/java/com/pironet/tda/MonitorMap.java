@@ -22,13 +22,21 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.utils.LongIntMap;
+
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * map for saving monitor-thread relation in a thread dump.
+ * <p>
+ * Monitors are identified by their parsed address (the monitor key string is only
+ * kept once per monitor), threads by an index into the thread table of the map, so
+ * adding a lock event doesn't need any substrings or maps of its own. Monitors and
+ * threads are kept in the order they were added first.
  *
  * @author irockel
  */
@@ -50,7 +58,16 @@ public class MonitorMap implements Serializable {
      */
     public static final int SLEEP_THREAD_POS = 2;
 
-    private Map monitorMap = null;
+    private static final int[] NO_THREADS = new int[0];
+
+    private final List monitors = new ArrayList();
+    private final LongIntMap monitorsByAddress = new LongIntMap();
+    private final Map monitorsByKey = new HashMap();
+    private final Map classNames = new HashMap();
+
+    private final List threadTitles = new ArrayList();
+    private final List threads = new ArrayList();
+    private final Map threadsByTitle = new HashMap();
 
     /**
      * Creates a new instance of MonitorMap
@@ -58,83 +75,293 @@ public class MonitorMap implements Serializable {
     public MonitorMap() {
     }
 
-    public void addToMonitorMap(String key, Map[] objectSet) {
-        if (monitorMap == null) {
-            monitorMap = new HashMap();
-        }
-
-        monitorMap.put(key, objectSet);
+    public void addWaitToMonitor(String key, String waitThread, Object thread) {
+        addToMonitorValue(key, 0, key.length(), WAIT_THREAD_POS, waitThread, thread);
     }
 
-    public boolean hasInMonitorMap(String key) {
-        return (monitorMap != null && monitorMap.containsKey(key));
+    public void addLockToMonitor(String key, String lockThread, Object thread) {
+        addToMonitorValue(key, 0, key.length(), LOCK_THREAD_POS, lockThread, thread);
     }
 
-    public Map[] getFromMonitorMap(String key) {
-        return (monitorMap != null && hasInMonitorMap(key) ? (Map[]) monitorMap.get(key) : null);
+    public void addSleepToMonitor(String key, String sleepThread, Object thread) {
+        addToMonitorValue(key, 0, key.length(), SLEEP_THREAD_POS, sleepThread, thread);
     }
 
-    public void addWaitToMonitor(String key, String waitThread, String threadContent) {
-        addToMonitorValue(key, WAIT_THREAD_POS, waitThread, threadContent);
-    }
+    /**
+     * add a thread to the monitor with the key found in the given region of the source.
+     *
+     * @param thread either the parsed thread or its html content.
+     */
+    private void addToMonitorValue(String source, int start, int end, int pos, String threadTitle, Object thread) {
+        int monitor = findMonitor(source, start, end);
+        if (monitor < 0) {
+            String key = source.substring(start, end);
+            monitor = addMonitor(key, parseAddress(key, 0, key.length()));
+        }
 
-    public void addLockToMonitor(String key, String lockThread, String threadContent) {
-        addToMonitorValue(key, LOCK_THREAD_POS, lockThread, threadContent);
-    }
+        Integer threadIndex = (Integer) threadsByTitle.get(threadTitle);
+        if (threadIndex == null) {
+            threadIndex = new Integer(threadTitles.size());
+            threadTitles.add(threadTitle);
+            threads.add(thread);
+            threadsByTitle.put(threadTitle, threadIndex);
+        } else if (threads.get(threadIndex.intValue()) == null) {
+            threads.set(threadIndex.intValue(), thread);
+        }
 
-    public void addSleepToMonitor(String key, String sleepThread, String threadContent) {
-        addToMonitorValue(key, SLEEP_THREAD_POS, sleepThread, threadContent);
+        ((Entry) monitors.get(monitor)).add(pos, threadIndex.intValue());
     }
 
-    private void addToMonitorValue(String key, int pos, String threadTitle, String thread) {
-        Map[] objectSet = null;
+    /**
+     * find the monitor with the key in the given region of the source.
+     *
+     * @return the index of the monitor, -1 if not known yet.
+     */
+    private int findMonitor(String source, int start, int end) {
+        long address = parseAddress(source, start, end);
+        if (address != -1) {
+            return (monitorsByAddress.get(address));
+        }
+        Integer monitor = (Integer) monitorsByKey.get(source.substring(start, end));
+        return (monitor != null ? monitor.intValue() : -1);
+    }
 
-        if (hasInMonitorMap(key)) {
-            objectSet = getFromMonitorMap(key);
+    private int addMonitor(String key, long address) {
+        int monitor = monitors.size();
+        String className = null;
+        int classStart = key.indexOf("(a ");
+        if (classStart >= 0) {
+            int classEnd = key.lastIndexOf(')');
+            className = key.substring(classStart + 3, classEnd > classStart ? classEnd : key.length()).trim();
+            String pooled = (String) classNames.get(className);
+            if (pooled == null) {
+                classNames.put(className, className);
+            } else {
+                className = pooled;
+            }
+        }
+        monitors.add(new Entry(key, address, className));
+        if (address != -1) {
+            monitorsByAddress.put(address, monitor);
         } else {
-            objectSet = new HashMap[3];
-            objectSet[0] = new HashMap();
-            objectSet[1] = new HashMap();
-            objectSet[2] = new HashMap();
-            addToMonitorMap(key, objectSet);
+            monitorsByKey.put(key, new Integer(monitor));
         }
+        return (monitor);
+    }
 
-        objectSet[pos].put(threadTitle, thread);
+    /**
+     * parse the hex address between the angle brackets of a monitor key, like
+     * "&lt;0x00000000e1a2b3c4&gt; (a java.lang.Object)".
+     *
+     * @return the address, -1 if the key doesn't contain a hex address.
+     */
+    static long parseAddress(String source, int start, int end) {
+        int open = source.indexOf('<', start);
+        if (open < 0 || open >= end) {
+            return (-1);
+        }
+        int i = open + 1;
+        if (i + 1 < end && source.charAt(i) == '0' && (source.charAt(i + 1) == 'x' || source.charAt(i + 1) == 'X')) {
+            i += 2;
+        }
+        long address = 0;
+        int digits = 0;
+        for (; i < end && source.charAt(i) != '>'; i++) {
+            int digit = Character.digit(source.charAt(i), 16);
+            if (digit < 0 || ++digits > 16) {
+                return (-1);
+            }
+            address = (address << 4) | digit;
+        }
+        return (digits > 0 && i < end ? address : -1);
     }
 
     public void parseAndAddThread(String line, String threadTitle, String currentThread) {
         if (line == null) {
             return;
         }
+        int pos;
+        int content = 0;
+        while (content < line.length() && Character.isWhitespace(line.charAt(content))) {
+            content++;
+        }
+        if (line.startsWith("- waiting to lock", content) || line.startsWith("- parking to wait", content)) {
+            pos = WAIT_THREAD_POS;
+        } else if (line.startsWith("- waiting on", content)) {
+            pos = SLEEP_THREAD_POS;
+        } else {
+            pos = LOCK_THREAD_POS;
+        }
+
         if ((line.indexOf('<') > 0)) {
-            String monitor = line.substring(line.indexOf('<'));
-            if (line.trim().startsWith("- waiting to lock") || line.trim().startsWith("- parking to wait")) {
-                addWaitToMonitor(monitor, threadTitle, currentThread);
-            } else if (line.trim().startsWith("- waiting on")) {
-                addSleepToMonitor(monitor, threadTitle, currentThread);
-            } else {
-                addLockToMonitor(monitor, threadTitle, currentThread);
-            }
+            addToMonitorValue(line, line.indexOf('<'), line.length(), pos, threadTitle, currentThread);
         } else if (line.indexOf('@') > 0) {
             String monitor = "<" + line.substring(line.indexOf('@') + 1) + "> (a " +
                     line.substring(line.lastIndexOf(' '), line.indexOf('@')) + ")";
-            if (line.trim().startsWith("- waiting to lock") || line.trim().startsWith("- parking to wait")) {
-                addWaitToMonitor(monitor, threadTitle, currentThread);
-            } else if (line.trim().startsWith("- waiting on")) {
-                addSleepToMonitor(monitor, threadTitle, currentThread);
-            } else {
-                addLockToMonitor(monitor, threadTitle, currentThread);
+            addToMonitorValue(monitor, 0, monitor.length(), pos, threadTitle, currentThread);
+        }
+    }
+
+    /**
+     * @return the amount of monitors.
+     */
+    public int size() {
+        return (monitors.size());
+    }
+
+    /**
+     * @return the index of the monitor with the given key, -1 if unknown.
+     */
+    public int indexOf(String key) {
+        return (findMonitor(key, 0, key.length()));
+    }
+
+    /**
+     * @return the key of the given monitor, as it was found first.
+     */
+    public String getMonitor(int monitor) {
+        return (((Entry) monitors.get(monitor)).key);
+    }
+
+    /**
+     * @return the address of the given monitor, -1 if it couldn't be parsed.
+     */
+    public long getAddress(int monitor) {
+        return (((Entry) monitors.get(monitor)).address);
+    }
+
+    /**
+     * @return the class name of the given monitor, null if unknown.
+     */
+    public String getClassName(int monitor) {
+        return (((Entry) monitors.get(monitor)).className);
+    }
+
+    /**
+     * get the threads referencing the monitor in the given way.
+     *
+     * @param monitor the index of the monitor.
+     * @param pos     one of LOCK_THREAD_POS, WAIT_THREAD_POS and SLEEP_THREAD_POS.
+     * @return the thread indices in the order they were added.
+     */
+    public int[] getThreads(int monitor, int pos) {
+        return (((Entry) monitors.get(monitor)).get(pos));
+    }
+
+    /**
+     * check if the given thread references the monitor in the given way.
+     */
+    public boolean hasThread(int monitor, int pos, int thread) {
+        return (((Entry) monitors.get(monitor)).contains(pos, thread));
+    }
+
+    /**
+     * get the thread owning the monitor, if more than one thread locks it, the one
+     * not sleeping on it.
+     *
+     * @return the index of the thread, -1 if unknown.
+     */
+    public int getOwner(int monitor) {
+        int[] lockThreads = getThreads(monitor, LOCK_THREAD_POS);
+        if (lockThreads.length == 1) {
+            return (lockThreads[0]);
+        }
+
+        for (int i = 0; i < lockThreads.length; i++) {
+            if (!hasThread(monitor, SLEEP_THREAD_POS, lockThreads[i])) {
+                return (lockThreads[i]);
             }
         }
+
+        return (-1);
+    }
+
+    /**
+     * @return the amount of threads referencing any monitor.
+     */
+    public int getThreadCount() {
+        return (threadTitles.size());
     }
 
-    public Iterator iterOfKeys() {
-        return (monitorMap == null ? null : monitorMap.keySet().iterator());
+    public String getThreadTitle(int thread) {
+        return ((String) threadTitles.get(thread));
     }
 
-    public int size() {
-        return (monitorMap == null ? 0 : monitorMap.size());
+    /**
+     * @return the thread object added for the thread (the parsed thread or its content).
+     */
+    public Object getThread(int thread) {
+        return (threads.get(thread));
     }
 
+    /**
+     * a monitor with the indices of its threads. Most monitors are referenced by a
+     * few threads only, so they are searched linearly, an index is only built for
+     * monitors with a lot of threads.
+     */
+    private static class Entry implements Serializable {
+        private static final int INDEX_THRESHOLD = 16;
+
+        private final String key;
+        private final long address;
+        private final String className;
+        private final int[][] threads = new int[3][];
+        private final int[] counts = new int[3];
+        private LongIntMap index;
+
+        Entry(String key, long address, String className) {
+            this.key = key;
+            this.address = address;
+            this.className = className;
+        }
+
+        void add(int pos, int thread) {
+            if (contains(pos, thread)) {
+                return;
+            }
+            if (threads[pos] == null) {
+                threads[pos] = new int[2];
+            } else if (counts[pos] == threads[pos].length) {
+                int[] newThreads = new int[counts[pos] * 2];
+                System.arraycopy(threads[pos], 0, newThreads, 0, counts[pos]);
+                threads[pos] = newThreads;
+            }
+            threads[pos][counts[pos]++] = thread;
+            if (index != null) {
+                index.put(indexKey(pos, thread), 0);
+            } else if (counts[pos] > INDEX_THRESHOLD) {
+                index = new LongIntMap(counts[0] + counts[1] + counts[2]);
+                for (int i = 0; i < threads.length; i++) {
+                    for (int j = 0; j < counts[i]; j++) {
+                        index.put(indexKey(i, threads[i][j]), 0);
+                    }
+                }
+            }
+        }
+
+        boolean contains(int pos, int thread) {
+            if (index != null) {
+                return (index.containsKey(indexKey(pos, thread)));
+            }
+            for (int i = 0; i < counts[pos]; i++) {
+                if (threads[pos][i] == thread) {
+                    return (true);
+                }
+            }
+            return (false);
+        }
+
+        private static long indexKey(int pos, int thread) {
+            return (((long) thread << 2) | pos);
+        }
 
+        int[] get(int pos) {
+            if (counts[pos] == 0) {
+                return (NO_THREADS);
+            }
+            int[] result = new int[counts[pos]];
+            System.arraycopy(threads[pos], 0, result, 0, counts[pos]);
+            return (result);
+        }
+    }
 }
@@ -0,0 +1,322 @@
+/*
+ * MonitorTimeline.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.utils.IconFactory;
+import com.pironet.tda.utils.LongIntMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * contention of the monitors over all dumps of a log file. Every dump adds the
+ * owner, the waiting and the sleeping threads of its contended monitors when it
+ * is parsed, monitors are identified by their address. The dumps may be added in
+ * any order, they are sorted by their position in the log file.
+ */
+public class MonitorTimeline implements LogfileAnalysis {
+    private List dumps = new ArrayList();
+    private List monitors = new ArrayList();
+    private LongIntMap monitorsByAddress = new LongIntMap();
+    private Map monitorsByKey = new HashMap();
+    private int modCount = 0;
+
+    /**
+     * add the contended monitors of a parsed dump.
+     *
+     * @param name    the name of the dump.
+     * @param logLine the line of the dump in the log file.
+     * @param mmap    the monitors of the dump.
+     */
+    public synchronized void addDump(String name, int logLine, MonitorMap mmap) {
+        Dump dump = new Dump(name, logLine);
+        // dumps of the same line (e.g. requested from a running vm) keep their order.
+        int pos = dumps.size();
+        while (pos > 0 && ((Dump) dumps.get(pos - 1)).logLine > logLine) {
+            pos--;
+        }
+        dumps.add(pos, dump);
+
+        for (int m = 0; m < mmap.size(); m++) {
+            int waits = 0;
+            int[] waitThreads = mmap.getThreads(m, MonitorMap.WAIT_THREAD_POS);
+            for (int i = 0; i < waitThreads.length; i++) {
+                if (!mmap.hasThread(m, MonitorMap.LOCK_THREAD_POS, waitThreads[i])) {
+                    waits++;
+                }
+            }
+            if (waits == 0) {
+                continue;
+            }
+
+            int owner = mmap.getOwner(m);
+            getMonitor(mmap, m).add(dump, owner >= 0 ? DumpTreeBuilder.getThreadName(mmap.getThreadTitle(owner)) : "",
+                    waits, mmap.getThreads(m, MonitorMap.SLEEP_THREAD_POS).length);
+        }
+        modCount++;
+    }
+
+    /**
+     * get the monitor with the address of the given monitor of a dump, monitors without
+     * address are identified by their name.
+     */
+    private Monitor getMonitor(MonitorMap mmap, int m) {
+        long address = mmap.getAddress(m);
+        int index = address >= 0 ? monitorsByAddress.get(address) : -1;
+        if (index < 0 && address < 0) {
+            Integer known = (Integer) monitorsByKey.get(mmap.getMonitor(m));
+            index = known != null ? known.intValue() : -1;
+        }
+        if (index >= 0) {
+            return ((Monitor) monitors.get(index));
+        }
+
+        Monitor monitor = new Monitor(mmap.getMonitor(m));
+        if (address >= 0) {
+            monitorsByAddress.put(address, monitors.size());
+        } else {
+            monitorsByKey.put(mmap.getMonitor(m), new Integer(monitors.size()));
+        }
+        monitors.add(monitor);
+        return (monitor);
+    }
+
+    /**
+     * @return the amount of dumps added.
+     */
+    public synchronized int getDumpCount() {
+        return (dumps.size());
+    }
+
+    /**
+     * @return the amount of monitors contended in at least one dump.
+     */
+    public synchronized int getMonitorCount() {
+        return (monitors.size());
+    }
+
+    /**
+     * @return a counter increased with every added dump.
+     */
+    public synchronized int getModCount() {
+        return (modCount);
+    }
+
+    /**
+     * get the contended monitors, the ones contended in most consecutive dumps first,
+     * afterwards the ones contended in most dumps and with most waiting threads.
+     *
+     * @return list of {@link Monitor}.
+     */
+    public synchronized List getRanking() {
+        for (int i = 0; i < dumps.size(); i++) {
+            ((Dump) dumps.get(i)).index = i;
+        }
+        List ranking = new ArrayList(monitors);
+        for (int i = 0; i < ranking.size(); i++) {
+            ((Monitor) ranking.get(i)).updateStatistics();
+        }
+        Collections.sort(ranking, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Monitor m1 = (Monitor) o1;
+                Monitor m2 = (Monitor) o2;
+                if (m1.longestRun != m2.longestRun) {
+                    return (m2.longestRun - m1.longestRun);
+                }
+                if (m1.size != m2.size) {
+                    return (m2.size - m1.size);
+                }
+                return (m2.maxWaits - m1.maxWaits);
+            }
+        });
+        return (ranking);
+    }
+
+    /**
+     * create the category displaying the ranked monitors.
+     */
+    public synchronized TreeCategory createCategory() {
+        List ranking = getRanking();
+        TreeCategory cat = new TreeCategory("Monitor Contention", IconFactory.MONITORS, false);
+        for (int i = 0; i < ranking.size(); i++) {
+            Monitor monitor = (Monitor) ranking.get(i);
+            ThreadInfo mi = new ThreadInfo(monitor.getName() + ":    contended in " + monitor.getLongestRun()
+                    + " consecutive Dump(s), " + monitor.getDumpCount() + " Dump(s) overall, " + monitor.getOwnerChanges()
+                    + " Owner change(s), max " + monitor.getMaxWaits() + " Thread(s) waiting", null, monitor.getContent(), 0, null);
+            mi.setALotOfWaiting(ThreadDumpInfo.areALotOfWaiting(monitor.getMaxWaits()));
+            cat.addToCatNodes(new DefaultMutableTreeNode(mi));
+        }
+        cat.setName(cat + " (" + ranking.size() + " Monitors contended in " + getDumpCount() + " Dumps)");
+        return (cat);
+    }
+
+    /**
+     * a dump added to the timeline, the index is its position among all dumps.
+     */
+    private static class Dump implements Serializable {
+        private String name;
+        private int logLine;
+        private int index;
+
+        Dump(String name, int logLine) {
+            this.name = name;
+            this.logLine = logLine;
+        }
+    }
+
+    /**
+     * the dumps a monitor was contended in, sorted by their position in the log file.
+     */
+    public static class Monitor implements Serializable {
+        private String name;
+        private Dump[] dumps = new Dump[2];
+        private String[] owners = new String[2];
+        private int[] waits = new int[2];
+        private int[] sleeps = new int[2];
+        private int size = 0;
+
+        private int longestRun;
+        private int ownerChanges;
+        private int maxWaits;
+
+        Monitor(String name) {
+            this.name = name;
+        }
+
+        void add(Dump dump, String owner, int waitCount, int sleepCount) {
+            if (size == dumps.length) {
+                int length = size * 2;
+                Dump[] newDumps = new Dump[length];
+                String[] newOwners = new String[length];
+                int[] newWaits = new int[length];
+                int[] newSleeps = new int[length];
+                System.arraycopy(dumps, 0, newDumps, 0, size);
+                System.arraycopy(owners, 0, newOwners, 0, size);
+                System.arraycopy(waits, 0, newWaits, 0, size);
+                System.arraycopy(sleeps, 0, newSleeps, 0, size);
+                dumps = newDumps;
+                owners = newOwners;
+                waits = newWaits;
+                sleeps = newSleeps;
+            }
+            int pos = size;
+            while (pos > 0 && dumps[pos - 1].logLine > dump.logLine) {
+                dumps[pos] = dumps[pos - 1];
+                owners[pos] = owners[pos - 1];
+                waits[pos] = waits[pos - 1];
+                sleeps[pos] = sleeps[pos - 1];
+                pos--;
+            }
+            dumps[pos] = dump;
+            owners[pos] = owner;
+            waits[pos] = waitCount;
+            sleeps[pos] = sleepCount;
+            size++;
+        }
+
+        /**
+         * compute the statistics, the indices of the dumps need to be up to date.
+         */
+        void updateStatistics() {
+            longestRun = 0;
+            ownerChanges = 0;
+            maxWaits = 0;
+            int run = 0;
+            for (int i = 0; i < size; i++) {
+                run = i > 0 && dumps[i].index == dumps[i - 1].index + 1 ? run + 1 : 1;
+                longestRun = Math.max(longestRun, run);
+                if (i > 0 && !owners[i].equals(owners[i - 1])) {
+                    ownerChanges++;
+                }
+                maxWaits = Math.max(maxWaits, waits[i]);
+            }
+        }
+
+        /**
+         * @return the name of the monitor in the first dump it was contended in.
+         */
+        public String getName() {
+            return (name);
+        }
+
+        /**
+         * @return the amount of dumps the monitor was contended in.
+         */
+        public int getDumpCount() {
+            return (size);
+        }
+
+        public int getLongestRun() {
+            return (longestRun);
+        }
+
+        public int getOwnerChanges() {
+            return (ownerChanges);
+        }
+
+        public int getMaxWaits() {
+            return (maxWaits);
+        }
+
+        /**
+         * @return the owner of the monitor in the i-th dump it was contended in, empty
+         * if unknown.
+         */
+        public String getOwner(int i) {
+            return (owners[i]);
+        }
+
+        /**
+         * render the timeline of the monitor, a changed owner is highlighted. Gaps
+         * are only known after {@link MonitorTimeline#getRanking()}.
+         */
+        public String getContent() {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><table border=0><tr bgcolor=\"#cccccc\">"
+                    + "<td><font face=System>Dump</td><td><font face=System>Owner</td><td><font face=System>Threads waiting</td>"
+                    + "<td><font face=System>Threads sleeping</td></tr>\n");
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && dumps[i].index != dumps[i - 1].index + 1) {
+                    statData.append("<tr bgcolor=\"#ffffff\"><td><font face=System>...</td><td></td><td></td><td></td></tr>\n");
+                }
+                boolean changed = i > 0 && !owners[i].equals(owners[i - 1]);
+                statData.append(i % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+                statData.append("<td><font face=System>");
+                statData.append(dumps[i].name);
+                statData.append("</td><td><font face=System>");
+                statData.append(changed ? "<b>" : "");
+                statData.append(owners[i].length() > 0 ? owners[i] : "unknown");
+                statData.append(changed ? "</b>" : "");
+                statData.append("</td><td><b><font face=System>");
+                statData.append(waits[i]);
+                statData.append("</b></td><td><b><font face=System>");
+                statData.append(sleeps[i]);
+                statData.append("</b></td></tr>\n");
+            }
+            statData.append("</table>");
+            return (statData.toString());
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * ParallelDumpLoader.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.utils.DateMatcher;
+import com.pironet.tda.utils.DumpIndex;
+import com.pironet.tda.utils.MappedLineReader;
+import com.pironet.tda.utils.MappedLogfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * parses the thread dumps of a memory mapped sun jdk or jrockit log file in parallel.
+ * Loading is done in phases, each one running on a fork/join pool:
+ * <ol>
+ * <li>the file is cut into slices, which are scanned for the "Full thread dump"
+ * or "===== FULL THREAD DUMP" headers (only bytes are compared, nothing is decoded),</li>
+ * <li>every region from one header to the next is parsed by its own parser, the
+ * regions are numbered in advance the same way a sequential parser does, which
+ * keeps the number of a broken dump,</li>
+ * <li>the time stamp logged in front of every dump is searched (jrockit dumps
+ * don't get time stamps, as with sequential parsing),</li>
+ * <li>the tree nodes of the dumps are built.</li>
+ * </ol>
+ * Afterwards {@link #addDumps(DefaultMutableTreeNode, Map)} adds the dumps in
+ * the order of the log file.
+ * <p>
+ * As every region is parsed on its own, a dump lacking its last thread doesn't
+ * swallow the dump following it, unlike with sequential parsing.
+ * <p>
+ * The found dump regions can be saved as {@link DumpIndex}. If the log file is
+ * opened again, {@link #loadIndex(File)} sets up the dumps from the index without
+ * scanning the file, every dump is parsed when its node is accessed first.
+ */
+public class ParallelDumpLoader {
+    /**
+     * size of the slices the file is cut into for the header scan.
+     */
+    private static final long SLICE_SIZE = 8L << 20;
+
+    private static final int SCAN_PHASE = 0;
+    private static final int PARSE_PHASE = 1;
+    private static final int DATE_PHASE = 2;
+    private static final int BUILD_PHASE = 3;
+
+    private static ForkJoinPool pool = null;
+
+    private final MappedLogfile logfile;
+    private final int startCounter;
+
+    private AbstractDumpParser usedParser;
+    private byte[][] dumpMarkers;
+    private boolean wrapped;
+    private boolean jrockit;
+    private DateMatcher dm;
+
+    private long[][] sliceHeaders;
+    private int[][] sliceHeaderLines;
+    private int[] sliceLines;
+
+    private long[] regionStarts;
+    private long[] regionLimits;
+    private int[] regionLines;
+    private long[] regionEnds;
+    private int[] dumpNumbers;
+    private AbstractDumpParser[] parsers;
+    private ThreadDump[] dumps;
+    private DefaultMutableTreeNode[] dumpNodes;
+    private Map[] threadStores;
+
+    private boolean foundClassHistograms = false;
+    private Map threadStore;
+
+    /**
+     * Creates a new instance of ParallelDumpLoader
+     *
+     * @param dumpFile     the log file to parse.
+     * @param startCounter the number of the first found dump.
+     * @throws IOException if the file couldn't be mapped.
+     */
+    public ParallelDumpLoader(File dumpFile, int startCounter) throws IOException {
+        this.logfile = new MappedLogfile(dumpFile);
+        this.startCounter = startCounter;
+    }
+
+    /**
+     * get the shared pool, it uses all available processors. Queries over the parsed
+     * dumps run on it as well.
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return (pool);
+    }
+
+    /**
+     * parse all thread dumps of the log file.
+     *
+     * @return false, if the log file doesn't contain sun jdk or jrockit thread dumps, it
+     * should be parsed sequentially by the parser returned from the {@link DumpParserFactory} then.
+     */
+    public boolean parse() {
+        if (!initParser()) {
+            return (false);
+        }
+
+        int sliceCount = (int) ((logfile.length() + SLICE_SIZE - 1) / SLICE_SIZE);
+        sliceHeaders = new long[sliceCount][];
+        sliceHeaderLines = new int[sliceCount][];
+        sliceLines = new int[sliceCount];
+        getPool().invoke(new LoaderTask(SCAN_PHASE, 0, sliceCount));
+        collectRegions();
+
+        int regionCount = regionStarts.length;
+        regionEnds = new long[regionCount];
+        // like the sequential parser a broken dump keeps its number, so every region gets one.
+        dumpNumbers = new int[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            dumpNumbers[i] = startCounter + i;
+        }
+        parsers = new AbstractDumpParser[regionCount];
+        dumps = new ThreadDump[regionCount];
+        dumpNodes = new DefaultMutableTreeNode[regionCount];
+        threadStores = new Map[regionCount];
+        getPool().invoke(new LoaderTask(PARSE_PHASE, 0, regionCount));
+
+        if (!jrockit && !dm.isPatternError() && (dm.getRegexPattern() != null)) {
+            getPool().invoke(new LoaderTask(DATE_PHASE, 0, regionCount));
+        }
+
+        getPool().invoke(new LoaderTask(BUILD_PHASE, 0, regionCount));
+        return (true);
+    }
+
+    /**
+     * detect the format of the log file.
+     *
+     * @return false, if the log file doesn't contain sun jdk or jrockit thread dumps.
+     */
+    private boolean initParser() {
+        DumpParser dp = DumpParserFactory.get().getDumpParserForReader(new MappedLineReader(logfile), new HashMap(),
+                false, startCounter);
+        if (dp instanceof SunJDKParser) {
+            dumpMarkers = SunJDKParser.DUMP_MARKERS;
+        } else if (dp instanceof BeaJDKParser) {
+            dumpMarkers = BeaJDKParser.DUMP_MARKERS;
+        } else {
+            return (false);
+        }
+        usedParser = (AbstractDumpParser) dp;
+        wrapped = dp instanceof WrappedSunJDKParser;
+        jrockit = dp instanceof BeaJDKParser;
+        dm = usedParser.getDm();
+        return (true);
+    }
+
+    /**
+     * set up the dumps from the given index instead of parsing the log file. The
+     * dumps get parsed as soon as their nodes are accessed.
+     *
+     * @param indexFile the index saved by {@link #saveIndex(File)}.
+     * @return false, if there is no index for the current state of the log file,
+     * it needs to be parsed by {@link #parse()} then.
+     */
+    public boolean loadIndex(File indexFile) {
+        DumpIndex index = DumpIndex.load(indexFile);
+        if (index == null || !initParser() || !index.isValidFor(logfile.getFile(), getDatePattern())
+                || index.isWrapped() != wrapped) {
+            return (false);
+        }
+
+        int count = index.getDumpCount();
+        regionStarts = new long[count];
+        regionLimits = new long[count];
+        regionLines = new int[count];
+        regionEnds = new long[count];
+        dumpNumbers = new int[count];
+        parsers = new AbstractDumpParser[count];
+        dumps = new ThreadDump[count];
+        dumpNodes = new DefaultMutableTreeNode[count];
+        threadStores = new Map[count];
+        for (int i = 0; i < count; i++) {
+            DumpIndex.Entry entry = index.getDump(i);
+            regionStarts[i] = entry.getStart();
+            regionLimits[i] = entry.getLimit();
+            regionLines[i] = entry.getStartLine();
+            dumpNumbers[i] = startCounter + entry.getOffset();
+
+            ThreadDumpInfo info = new ThreadDumpInfo("Dump No. " + dumpNumbers[i], entry.getLogLine());
+            info.setStartTime(entry.getStartTime());
+            dumpNodes[i] = new LazyDumpNode(info, this, i);
+        }
+        foundClassHistograms = index.isFoundClassHistograms();
+        return (true);
+    }
+
+    /**
+     * save the index of the parsed dumps.
+     *
+     * @param indexFile the file to save the index to.
+     * @throws IOException if the index couldn't be written.
+     */
+    public void saveIndex(File indexFile) throws IOException {
+        DumpIndex index = new DumpIndex(logfile.getFile(), getDatePattern());
+        index.setWrapped(wrapped);
+        for (int i = 0; i < dumps.length; i++) {
+            if (dumps[i] != null) {
+                index.addDump(regionStarts[i], regionLimits[i], regionLines[i], dumpNumbers[i] - startCounter, dumps[i].getLogLine(),
+                        dumps[i].getStartTime(), dumps[i].getThreadCount());
+                if (parsers[i].isFoundClassHistograms()) {
+                    index.setFoundClassHistograms(true);
+                }
+            }
+        }
+        index.save(indexFile);
+    }
+
+    /**
+     * @return the date expression used for the start times of the dumps, null if none is used.
+     */
+    private String getDatePattern() {
+        return (jrockit || dm == null || dm.isPatternError() || dm.getRegexPattern() == null ? null : dm.getRegexPattern().pattern());
+    }
+
+    /**
+     * parse the dump of the given region of an index, called by {@link LazyDumpNode}.
+     *
+     * @return the tree node of the dump, null if the region doesn't contain a dump anymore.
+     */
+    synchronized DefaultMutableTreeNode loadDump(int region) {
+        ThreadDumpInfo info = (ThreadDumpInfo) dumpNodes[region].getUserObject();
+        parseRegion(region);
+        DefaultMutableTreeNode dumpNode = null;
+        if (dumps[region] != null) {
+            dumps[region].setName(info.getName());
+            dumps[region].setStartTime(info.getStartTime());
+            dumpNode = parsers[region].createDumpNode(dumps[region], threadStores[region]);
+            if (threadStore != null) {
+                threadStore.putAll(threadStores[region]);
+            }
+        }
+        // the node keeps the dump, the loader doesn't need it anymore.
+        parsers[region] = null;
+        dumps[region] = null;
+        threadStores[region] = null;
+        return (dumpNode);
+    }
+
+    /**
+     * scan the given slice for dump headers. A header belongs to the slice its
+     * marker starts in, its line may begin in a previous slice.
+     */
+    private void scanSlice(int slice) {
+        long sliceStart = slice * SLICE_SIZE;
+        long sliceEnd = Math.min(logfile.length(), sliceStart + SLICE_SIZE);
+        byte[] marker = dumpMarkers[0];
+        long searchLimit = Math.min(logfile.length(), sliceEnd + marker.length - 1);
+
+        long[] headers = new long[4];
+        int[] headerLines = new int[4];
+        int count = 0;
+        int lines = 0;
+        long pos = sliceStart;
+        while (pos < sliceEnd) {
+            long found = logfile.indexOf(dumpMarkers, pos, searchLimit);
+            if (found < 0 || found >= sliceEnd) {
+                break;
+            }
+            long lineStart = logfile.findLineStart(found, 0);
+            if (lineStart > pos) {
+                lines += logfile.countLines(pos, lineStart);
+                pos = lineStart;
+            }
+            if (count == headers.length) {
+                long[] newHeaders = new long[count * 2];
+                int[] newHeaderLines = new int[count * 2];
+                System.arraycopy(headers, 0, newHeaders, 0, count);
+                System.arraycopy(headerLines, 0, newHeaderLines, 0, count);
+                headers = newHeaders;
+                headerLines = newHeaderLines;
+            }
+            headers[count] = lineStart;
+            headerLines[count++] = lines;
+            pos = logfile.findLineEnd(found, sliceEnd);
+        }
+        lines += logfile.countLines(pos, sliceEnd);
+
+        sliceHeaders[slice] = new long[count];
+        sliceHeaderLines[slice] = new int[count];
+        System.arraycopy(headers, 0, sliceHeaders[slice], 0, count);
+        System.arraycopy(headerLines, 0, sliceHeaderLines[slice], 0, count);
+        sliceLines[slice] = lines;
+    }
+
+    /**
+     * merge the headers found in the slices into the dump regions and calculate
+     * the line numbers of the headers.
+     */
+    private void collectRegions() {
+        int count = 0;
+        for (int i = 0; i < sliceHeaders.length; i++) {
+            count += sliceHeaders[i].length;
+        }
+        long[] starts = new long[count];
+        int[] lines = new int[count];
+
+        int regions = 0;
+        int linesBeforeSlice = 0;
+        for (int i = 0; i < sliceHeaders.length; i++) {
+            for (int j = 0; j < sliceHeaders[i].length; j++) {
+                // several markers in one line would give the same region twice.
+                if (regions == 0 || starts[regions - 1] != sliceHeaders[i][j]) {
+                    starts[regions] = sliceHeaders[i][j];
+                    lines[regions++] = linesBeforeSlice + sliceHeaderLines[i][j];
+                }
+            }
+            linesBeforeSlice += sliceLines[i];
+        }
+
+        regionStarts = new long[regions];
+        regionLines = new int[regions];
+        System.arraycopy(starts, 0, regionStarts, 0, regions);
+        System.arraycopy(lines, 0, regionLines, 0, regions);
+
+        // a region reaches up to the next dump header.
+        regionLimits = new long[regions];
+        for (int i = 0; i < regions; i++) {
+            regionLimits[i] = i + 1 < regions ? regionStarts[i + 1] : logfile.length();
+        }
+    }
+
+    /**
+     * parse the dump in the given region.
+     */
+    private void parseRegion(int region) {
+        MappedLineReader reader = new MappedLineReader(logfile, regionStarts[region], regionLimits[region]);
+        threadStores[region] = new HashMap();
+
+        // the time stamp is searched later on, so the parser starts with an empty matcher.
+        DateMatcher regionDm = new DateMatcher(dm);
+        if (jrockit) {
+            parsers[region] = new BeaJDKParser(reader, threadStores[region], regionLines[region], dumpNumbers[region], regionDm);
+        } else if (wrapped) {
+            parsers[region] = new WrappedSunJDKParser(reader, threadStores[region], regionLines[region], false, dumpNumbers[region], regionDm);
+        } else {
+            parsers[region] = new SunJDKParser(reader, threadStores[region], regionLines[region], false, dumpNumbers[region], regionDm);
+        }
+        parsers[region].setLogfileState(usedParser.getLogfileState());
+        dumps[region] = parsers[region].readNextDump();
+        regionEnds[region] = reader.getPosition();
+    }
+
+    /**
+     * search the last time stamp logged between the previous dump and the dump of
+     * the given region. This is the same part of the log file the sequential parser
+     * checks for time stamps.
+     */
+    private void findStartTime(int region) {
+        if (dumps[region] == null) {
+            return;
+        }
+        long floor = region > 0 ? regionEnds[region - 1] : 0;
+        // in front of the first dump the lines are checked as they are, as the dump format isn't known yet.
+        int wrapPrefix = region > 0 ? parsers[region].getWrapPrefixLength() : 0;
+        MappedLineReader reader = new MappedLineReader(logfile, regionStarts[region], regionStarts[region]);
+        Matcher matched = reader.findLastDateMatch(floor, parsers[region].getDm(), wrapPrefix);
+        if (matched != null && matched.matches()) {
+            ((SunJDKParser) parsers[region]).setDumpStartTime(dumps[region], matched);
+        }
+    }
+
+    /**
+     * build the tree node of the dump in the given region.
+     */
+    private void buildDumpNode(int region) {
+        if (dumps[region] != null) {
+            dumpNodes[region] = parsers[region].createDumpNode(dumps[region], threadStores[region]);
+        }
+    }
+
+    /**
+     * add the parsed dumps to the given log file node and store their threads.
+     *
+     * @param top         the log file node.
+     * @param threadStore the map to store the found thread dumps.
+     */
+    public void addDumps(DefaultMutableTreeNode top, Map threadStore) {
+        // dumps loaded from an index store their threads as soon as they are parsed.
+        this.threadStore = threadStore;
+        for (int i = 0; i < dumpNodes.length; i++) {
+            if (dumpNodes[i] != null) {
+                if (threadStores[i] != null) {
+                    threadStore.putAll(threadStores[i]);
+                }
+                top.add(dumpNodes[i]);
+                if (parsers[i] != null && parsers[i].isFoundClassHistograms()) {
+                    foundClassHistograms = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the parser to be used for further operations on the log file, like
+     * long running thread detection.
+     */
+    public DumpParser getUsedParser() {
+        return (usedParser);
+    }
+
+    /**
+     * @return the amount of bytes of the log file covered by the loaded dumps.
+     */
+    public long getParsedLength() {
+        return (logfile.length());
+    }
+
+    /**
+     * @return true, if a class histogram was found in one of the dumps.
+     */
+    public boolean isFoundClassHistograms() {
+        return (foundClassHistograms);
+    }
+
+    /**
+     * fork/join task running one of the loader phases on a range of slices or regions.
+     */
+    private class LoaderTask extends RecursiveAction {
+        private final int phase;
+        private final int from;
+        private final int to;
+
+        LoaderTask(int phase, int from, int to) {
+            this.phase = phase;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LoaderTask(phase, from, middle), new LoaderTask(phase, middle, to));
+            } else if (to > from) {
+                switch (phase) {
+                    case SCAN_PHASE:
+                        scanSlice(from);
+                        break;
+                    case PARSE_PHASE:
+                        parseRegion(from);
+                        break;
+                    case BUILD_PHASE:
+                        buildDumpNode(from);
+                        break;
+                    default:
+                        findStartTime(from);
+                        break;
+                }
+            }
+        }
+    }
+}
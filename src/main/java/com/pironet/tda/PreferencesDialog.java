@@ -22,6 +22,8 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.rules.Finding;
+import com.pironet.tda.rules.StackRule;
 import com.pironet.tda.utils.PrefManager;
 
 import java.awt.BorderLayout;
@@ -29,17 +31,25 @@ import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.regex.PatternSyntaxException;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultCellEditor;
 import javax.swing.DefaultComboBoxModel;
+import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.ListModel;
+import javax.swing.table.DefaultTableModel;
 
 /**
  * @author irockel
@@ -48,6 +58,7 @@ public class PreferencesDialog extends JDialog {
     private JTabbedPane prefsPane;
     private GeneralPanel generalPanel;
     private RegExPanel regExPanel;
+    private RulesPanel rulesPanel;
     private JPanel buttonPanel;
     private JButton okButton;
     private JButton cancelButton;
@@ -73,8 +84,10 @@ public class PreferencesDialog extends JDialog {
         prefsPane = new JTabbedPane();
         generalPanel = new GeneralPanel();
         regExPanel = new RegExPanel();
+        rulesPanel = new RulesPanel();
         prefsPane.addTab("General", generalPanel);
         prefsPane.addTab("Date Parsing", regExPanel);
+        prefsPane.addTab("Rules", rulesPanel);
         getContentPane().add(prefsPane, BorderLayout.CENTER);
 
         // only add buttons if there is an owner frame
@@ -117,6 +130,9 @@ public class PreferencesDialog extends JDialog {
         generalPanel.bufferField.setText(String.valueOf(PrefManager.get().getStreamResetBuffer()));
         generalPanel.showHotspotClasses.setSelected(PrefManager.get().getShowHotspotClasses());
         generalPanel.useGTKLF.setSelected(PrefManager.get().isUseGTKLF());
+        generalPanel.useMappedFiles.setSelected(PrefManager.get().getUseMappedFiles());
+        generalPanel.parallelParsing.setSelected(PrefManager.get().getParallelParsing());
+        generalPanel.useDumpIndex.setSelected(PrefManager.get().getUseDumpIndex());
         generalPanel.maxLogfileSizeField.setText(String.valueOf(PrefManager.get().getMaxLogfileSize()));
 
         DefaultComboBoxModel boxModel = new DefaultComboBoxModel();
@@ -129,6 +145,14 @@ public class PreferencesDialog extends JDialog {
 
         regExPanel.isJDK16DefaultParsing.setSelected(PrefManager.get().getJDK16DefaultParsing());
         regExPanel.isMillisTimeStamp.setSelected(PrefManager.get().getMillisTimeStamp());
+
+        rulesPanel.rulesModel.setRowCount(0);
+        ListModel rules = PrefManager.get().getRules();
+        for (int i = 0; i < rules.getSize(); i++) {
+            StackRule rule = (StackRule) rules.getElementAt(i);
+            rulesPanel.rulesModel.addRow(new Object[]{rule.getName(), rule.getExpression(), Boolean.valueOf(rule.isTopFrameOnly()),
+                    Boolean.valueOf(rule.isWaitingOnly()), new Integer(rule.getThreshold()), Finding.getSeverityName(rule.getSeverity())});
+        }
     }
 
     public void saveSettings() {
@@ -140,11 +164,38 @@ public class PreferencesDialog extends JDialog {
         PrefManager.get().setDateParsingRegexs(regExPanel.dateParsingRegexs.getModel());
         PrefManager.get().setMillisTimeStamp(regExPanel.isMillisTimeStamp.isSelected());
         PrefManager.get().setUseGTKLF(generalPanel.useGTKLF.isSelected());
+        PrefManager.get().setUseMappedFiles(generalPanel.useMappedFiles.isSelected());
+        PrefManager.get().setParallelParsing(generalPanel.parallelParsing.isSelected());
+        PrefManager.get().setUseDumpIndex(generalPanel.useDumpIndex.isSelected());
         PrefManager.get().setJDK16DefaultParsing(regExPanel.isJDK16DefaultParsing.isSelected());
         PrefManager.get().setMaxLogfileSize(Integer.parseInt(generalPanel.maxLogfileSizeField.getText()));
+        saveRules();
         dispose();
     }
 
+    /**
+     * store the rules of the rules panel, rules with an invalid expression are dropped.
+     */
+    private void saveRules() {
+        if (rulesPanel.rulesTable.isEditing()) {
+            rulesPanel.rulesTable.getCellEditor().stopCellEditing();
+        }
+        DefaultListModel rules = new DefaultListModel();
+        DefaultTableModel model = rulesPanel.rulesModel;
+        for (int i = 0; i < model.getRowCount(); i++) {
+            String name = (String) model.getValueAt(i, 0);
+            try {
+                rules.addElement(new StackRule(name, (String) model.getValueAt(i, 1), ((Boolean) model.getValueAt(i, 2)).booleanValue(),
+                        ((Boolean) model.getValueAt(i, 3)).booleanValue(), ((Integer) model.getValueAt(i, 4)).intValue(),
+                        Finding.getSeverity((String) model.getValueAt(i, 5))));
+            } catch (PatternSyntaxException ex) {
+                JOptionPane.showMessageDialog(this, "The expression of rule \"" + name + "\" is invalid, the rule is dropped:\n"
+                        + ex.getMessage(), "Invalid Rule", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        PrefManager.get().setRules(rules);
+    }
+
     class GeneralPanel extends JPanel {
         JTextField maxLinesField;
         JTextField bufferField;
@@ -152,6 +203,9 @@ public class PreferencesDialog extends JDialog {
         JCheckBox forceLoggcLoading;
         JCheckBox showHotspotClasses;
         JCheckBox useGTKLF;
+        JCheckBox useMappedFiles;
+        JCheckBox parallelParsing;
+        JCheckBox useDumpIndex;
 
         public GeneralPanel() {
             setLayout(new FlowLayout(FlowLayout.RIGHT));
@@ -196,6 +250,24 @@ public class PreferencesDialog extends JDialog {
             useGTKLF = new JCheckBox();
             layoutPanel.add(useGTKLF);
             innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Memory map log files for faster scanning of large logs"));
+            useMappedFiles = new JCheckBox();
+            layoutPanel.add(useMappedFiles);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Parse the thread dumps of memory mapped log files in parallel"));
+            parallelParsing = new JCheckBox();
+            layoutPanel.add(parallelParsing);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Keep an index of parsed log files, reopened logs are parsed on demand"));
+            useDumpIndex = new JCheckBox();
+            layoutPanel.add(useDumpIndex);
+            innerPanel.add(layoutPanel);
             add(innerPanel);
         }
     }
@@ -251,6 +323,62 @@ public class PreferencesDialog extends JDialog {
         }
     }
 
+    /**
+     * the rules defined by the user, a dump is reported if more threads than given
+     * have a frame matching the expression.
+     */
+    public class RulesPanel extends JPanel implements ActionListener {
+        DefaultTableModel rulesModel;
+        JTable rulesTable;
+        JButton addButton;
+        JButton removeButton;
+
+        RulesPanel() {
+            setLayout(new BorderLayout());
+            rulesModel = new DefaultTableModel(new Object[]{"Name", "Stack Expression", "Top Frame only", "Waiting only",
+                    "More than", "Severity"}, 0) {
+                public Class getColumnClass(int columnIndex) {
+                    switch (columnIndex) {
+                        case 2:
+                        case 3:
+                            return (Boolean.class);
+                        case 4:
+                            return (Integer.class);
+                        default:
+                            return (String.class);
+                    }
+                }
+            };
+            rulesTable = new JTable(rulesModel);
+            JComboBox severities = new JComboBox(new Object[]{Finding.getSeverityName(Finding.INFO),
+                    Finding.getSeverityName(Finding.WARNING), Finding.getSeverityName(Finding.CRITICAL)});
+            rulesTable.getColumnModel().getColumn(5).setCellEditor(new DefaultCellEditor(severities));
+            add(new JScrollPane(rulesTable), BorderLayout.CENTER);
+
+            JPanel layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Report dumps with more threads than given having a frame matching the expression"));
+            addButton = new JButton("Add");
+            addButton.addActionListener(this);
+            layoutPanel.add(addButton);
+            removeButton = new JButton("Remove");
+            removeButton.addActionListener(this);
+            layoutPanel.add(removeButton);
+            add(layoutPanel, BorderLayout.SOUTH);
+        }
+
+        public void actionPerformed(ActionEvent e) {
+            if (e.getSource() == addButton) {
+                rulesModel.addRow(new Object[]{"New Rule", "", Boolean.TRUE, Boolean.FALSE, new Integer(10),
+                        Finding.getSeverityName(Finding.WARNING)});
+            } else if (e.getSource() == removeButton && rulesTable.getSelectedRow() >= 0) {
+                if (rulesTable.isEditing()) {
+                    rulesTable.getCellEditor().cancelCellEditing();
+                }
+                rulesModel.removeRow(rulesTable.getSelectedRow());
+            }
+        }
+    }
+
     //Must be called from the event-dispatching thread.
     public void resetFocus() {
     }
@@ -0,0 +1,203 @@
+/*
+ * RuleFindings.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.rules.Finding;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * the findings of the rules over all dumps of a log file, so the dumps don't need
+ * to be checked one by one. The dumps are checked while they are parsed, with
+ * parallel parsing every region checks its own dumps.
+ */
+public class RuleFindings implements LogfileAnalysis {
+    private List dumps = new ArrayList();
+    private int modCount = 0;
+
+    /**
+     * add the findings of a parsed dump, a dump parsed again replaces its findings.
+     *
+     * @param name     the name of the dump.
+     * @param logLine  the line of the dump in the log file.
+     * @param findings the {@link Finding}s of the dump.
+     */
+    public synchronized void addDump(String name, int logLine, List findings) {
+        Dump dump = new Dump(name, logLine, new ArrayList(findings));
+        // dumps of the same line (e.g. requested from a running vm) keep their order.
+        int pos = dumps.size();
+        while (pos > 0 && ((Dump) dumps.get(pos - 1)).logLine > logLine) {
+            pos--;
+        }
+        if (pos > 0 && ((Dump) dumps.get(pos - 1)).logLine == logLine && ((Dump) dumps.get(pos - 1)).name.equals(name)) {
+            dumps.set(pos - 1, dump);
+        } else {
+            dumps.add(pos, dump);
+        }
+        modCount++;
+    }
+
+    public synchronized int getDumpCount() {
+        return (dumps.size());
+    }
+
+    public synchronized int getModCount() {
+        return (modCount);
+    }
+
+    /**
+     * get the rules with findings, the most severe ones first, afterwards the ones
+     * found in most dumps.
+     *
+     * @return list of {@link RuleResult}.
+     */
+    public synchronized List getResults() {
+        Map results = new HashMap();
+        List resultList = new ArrayList();
+        for (int i = 0; i < dumps.size(); i++) {
+            Dump dump = (Dump) dumps.get(i);
+            for (int j = 0; j < dump.findings.size(); j++) {
+                Finding finding = (Finding) dump.findings.get(j);
+                RuleResult result = (RuleResult) results.get(finding.getRule());
+                if (result == null) {
+                    result = new RuleResult(finding.getRule());
+                    results.put(finding.getRule(), result);
+                    resultList.add(result);
+                }
+                result.add(dump.name, finding);
+            }
+        }
+        Collections.sort(resultList, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                RuleResult r1 = (RuleResult) o1;
+                RuleResult r2 = (RuleResult) o2;
+                if (r1.severity != r2.severity) {
+                    return (r2.severity - r1.severity);
+                }
+                return (r2.dumpNames.size() - r1.dumpNames.size());
+            }
+        });
+        return (resultList);
+    }
+
+    /**
+     * create the category displaying the rules with findings, every rule lists the
+     * dumps it found something in.
+     */
+    public synchronized TreeCategory createCategory() {
+        List results = getResults();
+        TreeCategory cat = new TreeCategory("Rule Findings", IconFactory.DIFF_DUMPS, false);
+        int findings = 0;
+        for (int i = 0; i < results.size(); i++) {
+            RuleResult result = (RuleResult) results.get(i);
+            ThreadInfo ri = new ThreadInfo(Finding.getSeverityName(result.getSeverity()) + ": " + result.getRule() + ":    found in "
+                    + result.getDumpCount() + " of " + dumps.size() + " Dump(s)", null, result.getContent(dumps.size()), 0, null);
+            ri.setALotOfWaiting(result.getSeverity() == Finding.CRITICAL);
+            DefaultMutableTreeNode node = new DefaultMutableTreeNode(ri);
+            for (int j = 0; j < result.getDumpCount(); j++) {
+                Finding finding = (Finding) result.findings.get(j);
+                node.add(new DefaultMutableTreeNode(new ThreadInfo((String) result.dumpNames.get(j), null,
+                        "<body bgcolor=\"ffffff\"><font face=System>" + finding.getMessage(), 0, null)));
+            }
+            cat.addToCatNodes(node);
+            findings += result.getDumpCount();
+        }
+        cat.setName(cat + " (" + findings + " Findings of " + results.size() + " Rules in " + dumps.size() + " Dumps)");
+        return (cat);
+    }
+
+    /**
+     * a dump with its findings.
+     */
+    private static class Dump implements Serializable {
+        private String name;
+        private int logLine;
+        private List findings;
+
+        Dump(String name, int logLine, List findings) {
+            this.name = name;
+            this.logLine = logLine;
+            this.findings = findings;
+        }
+    }
+
+    /**
+     * the findings of one rule in the dumps of the log file.
+     */
+    public static class RuleResult {
+        private String rule;
+        private int severity = Finding.INFO;
+        private List dumpNames = new ArrayList();
+        private List findings = new ArrayList();
+
+        RuleResult(String rule) {
+            this.rule = rule;
+        }
+
+        void add(String dumpName, Finding finding) {
+            dumpNames.add(dumpName);
+            findings.add(finding);
+            severity = Math.max(severity, finding.getSeverity());
+        }
+
+        public String getRule() {
+            return (rule);
+        }
+
+        /**
+         * @return the highest severity of the findings of the rule.
+         */
+        public int getSeverity() {
+            return (severity);
+        }
+
+        /**
+         * @return the amount of dumps the rule found something in.
+         */
+        public int getDumpCount() {
+            return (dumpNames.size());
+        }
+
+        /**
+         * render the dumps the rule found something in.
+         */
+        String getContent(int dumpCount) {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><font face=System><b>");
+            statData.append(rule.replaceAll("<", "&lt;"));
+            statData.append("</b> found something in ").append(dumpNames.size()).append(" of ").append(dumpCount);
+            statData.append(" Dump(s):<br><br><table border=0>");
+            for (int i = 0; i < dumpNames.size(); i++) {
+                statData.append(i % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+                statData.append("<td><font face=System>").append(dumpNames.get(i)).append("</td><td><font face=System>");
+                statData.append(Finding.getSeverityName(((Finding) findings.get(i)).getSeverity())).append("</td></tr>\n");
+            }
+            statData.append("</table>");
+            return (statData.toString());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * StackGroups.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * groups of threads with the same stack over all dumps of a log file. The stack of a
+ * thread consists of its frames and monitor lines, the monitor addresses are left
+ * out. Every dump is grouped when it is parsed, groups of different dumps having the
+ * same stack are the same group.
+ */
+public class StackGroups implements LogfileAnalysis {
+    private Map groups = new HashMap();
+    private List groupList = new ArrayList();
+    private int dumpCount = 0;
+    private int modCount = 0;
+
+    /**
+     * group the threads of a parsed dump.
+     *
+     * @param name    the name of the dump.
+     * @param logLine the line of the dump in the log file.
+     * @param threads the {@link DumpThread}s of the dump.
+     * @return list of {@link DumpGroup}, the largest group first.
+     */
+    public List addDump(String name, int logLine, List threads) {
+        // the stacks are compared before locking, dumps are built in parallel.
+        Map dumpGroups = new HashMap();
+        List result = new ArrayList();
+        for (int i = 0; i < threads.size(); i++) {
+            DumpThread thread = (DumpThread) threads.get(i);
+            Stack stack = new Stack(thread);
+            DumpGroup dumpGroup = (DumpGroup) dumpGroups.get(stack);
+            if (dumpGroup == null) {
+                dumpGroup = new DumpGroup(stack);
+                dumpGroups.put(stack, dumpGroup);
+                result.add(dumpGroup);
+            }
+            dumpGroup.threads.add(thread);
+        }
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return (((DumpGroup) o2).threads.size() - ((DumpGroup) o1).threads.size());
+            }
+        });
+
+        synchronized (this) {
+            for (int i = 0; i < result.size(); i++) {
+                DumpGroup dumpGroup = (DumpGroup) result.get(i);
+                Group group = (Group) groups.get(dumpGroup.stack);
+                if (group == null) {
+                    group = new Group((DumpThread) dumpGroup.threads.get(0));
+                    groups.put(dumpGroup.stack, group);
+                    groupList.add(group);
+                }
+                group.add(name, logLine, dumpGroup.threads.size());
+                dumpGroup.group = group;
+                dumpGroup.stack = null;
+            }
+            dumpCount++;
+            modCount++;
+        }
+        return (result);
+    }
+
+    /**
+     * @return the amount of distinct stacks of all dumps.
+     */
+    public synchronized int size() {
+        return (groupList.size());
+    }
+
+    public synchronized int getModCount() {
+        return (modCount);
+    }
+
+    /**
+     * get the groups of all dumps, the ones with most threads in a dump first.
+     *
+     * @return list of {@link Group}.
+     */
+    public synchronized List getGroups() {
+        List result = new ArrayList(groupList);
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Group g1 = (Group) o1;
+                Group g2 = (Group) o2;
+                if (g1.getMaxThreads() != g2.getMaxThreads()) {
+                    return (g2.getMaxThreads() - g1.getMaxThreads());
+                }
+                return (g2.getDumpCount() - g1.getDumpCount());
+            }
+        });
+        return (result);
+    }
+
+    /**
+     * create the category displaying the groups of all dumps.
+     */
+    public synchronized TreeCategory createCategory() {
+        List result = getGroups();
+        TreeCategory cat = new TreeCategory("Stack Groups", IconFactory.THREADS, false);
+        for (int i = 0; i < result.size(); i++) {
+            Group group = (Group) result.get(i);
+            cat.addToCatNodes(new DefaultMutableTreeNode(new GroupInfo(group.getMaxThreads() + " Threads max, in "
+                    + group.getDumpCount() + " Dump(s): " + group.getTopFrame(), group)));
+        }
+        cat.setName(cat + " (" + result.size() + " Stacks in " + dumpCount + " Dumps)");
+        return (cat);
+    }
+
+    /**
+     * the stack of a thread, the monitor lines without their addresses.
+     */
+    private static class Stack implements Serializable {
+        private Object[] lines;
+        private int hash = 0;
+
+        Stack(DumpThread thread) {
+            List threadLines = thread.getLines();
+            lines = new Object[threadLines.size()];
+            for (int i = 0; i < lines.length; i++) {
+                Object line = threadLines.get(i);
+                lines[i] = line instanceof LockEvent ? ((LockEvent) line).getNormalizedLine() : line;
+                hash = hash * 31 + lines[i].hashCode();
+            }
+        }
+
+        public boolean equals(Object o) {
+            return ((o instanceof Stack) && hash == ((Stack) o).hash && Arrays.equals(lines, ((Stack) o).lines));
+        }
+
+        public int hashCode() {
+            return (hash);
+        }
+    }
+
+    /**
+     * the threads of one dump having the same stack.
+     */
+    public static class DumpGroup {
+        private Stack stack;
+        private Group group;
+        private List threads = new ArrayList();
+
+        DumpGroup(Stack stack) {
+            this.stack = stack;
+        }
+
+        public Group getGroup() {
+            return (group);
+        }
+
+        /**
+         * @return the {@link DumpThread}s of the group.
+         */
+        public List getThreads() {
+            return (threads);
+        }
+    }
+
+    /**
+     * a stack found in the dumps of the log file with its amount of threads per dump,
+     * sorted by the position of the dumps in the log file.
+     */
+    public static class Group implements Serializable {
+        private DumpThread sample;
+        private String[] dumpNames = new String[2];
+        private int[] logLines = new int[2];
+        private int[] threadCounts = new int[2];
+        private int size = 0;
+
+        Group(DumpThread sample) {
+            this.sample = sample;
+        }
+
+        synchronized void add(String dumpName, int logLine, int threadCount) {
+            if (size == dumpNames.length) {
+                String[] newNames = new String[size * 2];
+                int[] newLines = new int[size * 2];
+                int[] newCounts = new int[size * 2];
+                System.arraycopy(dumpNames, 0, newNames, 0, size);
+                System.arraycopy(logLines, 0, newLines, 0, size);
+                System.arraycopy(threadCounts, 0, newCounts, 0, size);
+                dumpNames = newNames;
+                logLines = newLines;
+                threadCounts = newCounts;
+            }
+            int pos = size;
+            while (pos > 0 && logLines[pos - 1] > logLine) {
+                dumpNames[pos] = dumpNames[pos - 1];
+                logLines[pos] = logLines[pos - 1];
+                threadCounts[pos] = threadCounts[pos - 1];
+                pos--;
+            }
+            dumpNames[pos] = dumpName;
+            logLines[pos] = logLine;
+            threadCounts[pos] = threadCount;
+            size++;
+        }
+
+        /**
+         * @return the first thread found with this stack.
+         */
+        public DumpThread getSample() {
+            return (sample);
+        }
+
+        /**
+         * @return the amount of dumps having threads with this stack.
+         */
+        public synchronized int getDumpCount() {
+            return (size);
+        }
+
+        /**
+         * @return the most threads with this stack in one dump.
+         */
+        public synchronized int getMaxThreads() {
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, threadCounts[i]);
+            }
+            return (max);
+        }
+
+        /**
+         * @return the top frame of the stack, the thread title without stack.
+         */
+        public String getTopFrame() {
+            List frames = sample.getFrames();
+            return (frames.isEmpty() ? sample.getTitle() : ((StackFrame) frames.get(0)).getLine().trim());
+        }
+
+        /**
+         * render the amount of threads with this stack per dump.
+         */
+        public synchronized String getInfo() {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><table border=0><tr bgcolor=\"#cccccc\">"
+                    + "<td><font face=System>Dump</td><td><font face=System>Threads with this stack</td></tr>\n");
+            for (int i = 0; i < size; i++) {
+                statData.append(i % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+                statData.append("<td><font face=System>");
+                statData.append(dumpNames[i]);
+                statData.append("</td><td><b><font face=System>");
+                statData.append(threadCounts[i]);
+                statData.append("</b></td></tr>\n");
+            }
+            statData.append("</table><br>Sample thread:<br>");
+            return (statData.toString());
+        }
+    }
+
+    /**
+     * info of a group node, the sample thread is displayed below the dumps of the
+     * group. The dumps are rendered on display as further dumps might be added.
+     */
+    public static class GroupInfo extends ThreadInfo {
+        private Group group;
+
+        public GroupInfo(String name, Group group) {
+            super(name, null, group.getSample(), group.getSample().getLineCount(), null);
+            this.group = group;
+        }
+
+        public Group getGroup() {
+            return (group);
+        }
+
+        public String getInfo() {
+            return (group.getInfo());
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * StateTransitions.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * the state changes of the threads between consecutive dumps of a log file. Threads
+ * are identified by their thread and native id (see {@link AbstractDumpParser#getThreadKey(String)}),
+ * every pair of neighbouring dumps gets a matrix counting the threads moving from one
+ * state to another. The transitions of a dump are computed as soon as it is added,
+ * dumps added between two others (parsed in parallel) replace the transition of
+ * their neighbours.
+ */
+public class StateTransitions implements LogfileAnalysis {
+    public static final int RUNNABLE = 0;
+    public static final int BLOCKED = 1;
+    public static final int WAITING = 2;
+    public static final int TIMED_WAITING = 3;
+    /**
+     * the thread doesn't exist in the dump, it was started or has ended.
+     */
+    public static final int ABSENT = 4;
+
+    private static final String[] STATE_NAMES = {"RUNNABLE", "BLOCKED", "WAITING", "TIMED_WAITING", "(absent)"};
+
+    private List dumps = new ArrayList();
+    private List transitions = new ArrayList();
+    private int modCount = 0;
+
+    /**
+     * get the state of a thread, the logged thread state if there is one.
+     *
+     * @return {@link #RUNNABLE}, {@link #BLOCKED}, {@link #WAITING} or {@link #TIMED_WAITING}.
+     */
+    public static int getState(DumpThread thread) {
+        List lines = thread.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            Object line = lines.get(i);
+            if ((line instanceof String) && ((String) line).trim().startsWith("java.lang.Thread.State:")) {
+                String state = ((String) line).trim().substring("java.lang.Thread.State:".length()).trim();
+                if (state.startsWith("BLOCKED")) {
+                    return (BLOCKED);
+                } else if (state.startsWith("TIMED_WAITING")) {
+                    return (TIMED_WAITING);
+                } else if (state.startsWith("WAITING")) {
+                    return (WAITING);
+                }
+                return (RUNNABLE);
+            }
+        }
+        if (thread.isWaiting()) {
+            return (BLOCKED);
+        }
+        if (thread.isRunnable()) {
+            return (RUNNABLE);
+        }
+        String header = thread.getHeaderLine().substring(thread.getHeaderLine().lastIndexOf('"') + 1).toLowerCase();
+        return (header.indexOf("sleep") >= 0 ? TIMED_WAITING : WAITING);
+    }
+
+    /**
+     * @return the name of the given state, e.g. "BLOCKED".
+     */
+    public static String getStateName(int state) {
+        return (STATE_NAMES[state]);
+    }
+
+    /**
+     * add a thread of a dump, called for every thread while the dump node is built.
+     *
+     * @param states the states of the dump, keyed by the thread keys.
+     * @param key    the key of the thread.
+     * @param thread the thread.
+     */
+    public static void addThread(Map states, String key, DumpThread thread) {
+        String name = DumpTreeBuilder.getThreadName(thread.getTitle());
+        if (states.containsKey(key)) {
+            // ids aren't unique within the dump. Unlike the title, which contains the
+            // state, the name and its occurrence in the dump stay the same in the next dump.
+            int occurrence = 2;
+            while (states.containsKey(key + " \"" + name + "\" #" + occurrence)) {
+                occurrence++;
+            }
+            key = key + " \"" + name + "\" #" + occurrence;
+        }
+        states.put(key, new Sample(name, getState(thread)));
+    }
+
+    /**
+     * add the thread states of a parsed dump and compute the transitions to its
+     * neighbours.
+     *
+     * @param name    the name of the dump.
+     * @param logLine the line of the dump in the log file.
+     * @param states  the states of the dump as filled by {@link #addThread(Map, String, DumpThread)}.
+     */
+    public synchronized void addDump(String name, int logLine, Map states) {
+        Dump dump = new Dump(name, logLine, states);
+        // dumps of the same line (e.g. requested from a running vm) keep their order.
+        int pos = dumps.size();
+        while (pos > 0 && ((Dump) dumps.get(pos - 1)).logLine > logLine) {
+            pos--;
+        }
+        dumps.add(pos, dump);
+
+        int index = pos > 0 ? pos - 1 : 0;
+        if (pos > 0 && pos < dumps.size() - 1) {
+            // the dump was parsed after its neighbours, it splits their transition.
+            transitions.remove(index);
+        }
+        if (pos < dumps.size() - 1) {
+            transitions.add(index, new Transition(dump, (Dump) dumps.get(pos + 1)));
+        }
+        if (pos > 0) {
+            transitions.add(index, new Transition((Dump) dumps.get(pos - 1), dump));
+        }
+        modCount++;
+    }
+
+    public synchronized int getDumpCount() {
+        return (dumps.size());
+    }
+
+    public synchronized int getModCount() {
+        return (modCount);
+    }
+
+    /**
+     * @return the transitions between consecutive dumps in log file order, list of {@link Transition}.
+     */
+    public synchronized List getTransitions() {
+        return (new ArrayList(transitions));
+    }
+
+    /**
+     * create the category displaying the transitions, one node per pair of dumps with
+     * the threads of every changed cell as children.
+     */
+    public synchronized TreeCategory createCategory() {
+        TreeCategory cat = new TreeCategory("State Transitions", IconFactory.THREADS, false);
+        int changed = 0;
+        for (int i = 0; i < transitions.size(); i++) {
+            Transition transition = (Transition) transitions.get(i);
+            ThreadInfo ti = new ThreadInfo(transition.getFrom() + " to " + transition.getTo() + ":    "
+                    + transition.getChangedCount() + " Thread(s) changed state, " + transition.getBlockedCount()
+                    + " became blocked", null, transition.getContent(), 0, null);
+            ti.setALotOfWaiting(transition.isContentionRising());
+            DefaultMutableTreeNode node = new DefaultMutableTreeNode(ti);
+            for (int from = 0; from < STATE_NAMES.length; from++) {
+                for (int to = 0; to < STATE_NAMES.length; to++) {
+                    if (from != to && transition.getCount(from, to) > 0) {
+                        node.add(new DefaultMutableTreeNode(new ThreadInfo(STATE_NAMES[from] + " to " + STATE_NAMES[to] + ": "
+                                + transition.getCount(from, to) + " Thread(s)", null, transition.getThreadContent(from, to), 0, null)));
+                    }
+                }
+            }
+            cat.addToCatNodes(node);
+            changed += transition.getChangedCount();
+        }
+        cat.setName(cat + " (" + transitions.size() + " Dump Pairs, " + changed + " State Changes)");
+        return (cat);
+    }
+
+    /**
+     * a dump with the states of its threads.
+     */
+    private static class Dump implements Serializable {
+        private String name;
+        private int logLine;
+        private Map states;
+
+        Dump(String name, int logLine, Map states) {
+            this.name = name;
+            this.logLine = logLine;
+            this.states = states;
+        }
+    }
+
+    /**
+     * the name and state of a thread in a dump.
+     */
+    private static class Sample implements Serializable {
+        private String name;
+        private int state;
+
+        Sample(String name, int state) {
+            this.name = name;
+            this.state = state;
+        }
+    }
+
+    /**
+     * the state matrix of two consecutive dumps, rows are the states in the first
+     * dump, columns the ones in the second.
+     */
+    public static class Transition implements Serializable {
+        private String from;
+        private String to;
+        private int[][] counts = new int[STATE_NAMES.length][STATE_NAMES.length];
+        private List[][] threads = new List[STATE_NAMES.length][STATE_NAMES.length];
+
+        Transition(Dump fromDump, Dump toDump) {
+            from = fromDump.name;
+            to = toDump.name;
+            for (Iterator iter = fromDump.states.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                Sample sample = (Sample) entry.getValue();
+                Sample next = (Sample) toDump.states.get(entry.getKey());
+                add(sample.state, next != null ? next.state : ABSENT, sample.name);
+            }
+            for (Iterator iter = toDump.states.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                if (!fromDump.states.containsKey(entry.getKey())) {
+                    Sample sample = (Sample) entry.getValue();
+                    add(ABSENT, sample.state, sample.name);
+                }
+            }
+        }
+
+        private void add(int fromState, int toState, String name) {
+            counts[fromState][toState]++;
+            if (threads[fromState][toState] == null) {
+                threads[fromState][toState] = new ArrayList();
+            }
+            threads[fromState][toState].add(name);
+        }
+
+        public String getFrom() {
+            return (from);
+        }
+
+        public String getTo() {
+            return (to);
+        }
+
+        /**
+         * @return the amount of threads in state fromState in the first dump and in
+         * state toState in the second one.
+         */
+        public int getCount(int fromState, int toState) {
+            return (counts[fromState][toState]);
+        }
+
+        /**
+         * @return the names of the threads behind a cell of the matrix.
+         */
+        public List getThreads(int fromState, int toState) {
+            return (threads[fromState][toState] != null ? threads[fromState][toState] : new ArrayList());
+        }
+
+        /**
+         * @return the amount of threads which changed their state, started and ended
+         * threads included.
+         */
+        public int getChangedCount() {
+            int changed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                for (int j = 0; j < counts.length; j++) {
+                    changed += i != j ? counts[i][j] : 0;
+                }
+            }
+            return (changed);
+        }
+
+        /**
+         * @return the amount of threads which became blocked, started ones included.
+         */
+        public int getBlockedCount() {
+            int blocked = 0;
+            for (int i = 0; i < counts.length; i++) {
+                blocked += i != BLOCKED ? counts[i][BLOCKED] : 0;
+            }
+            return (blocked);
+        }
+
+        /**
+         * @return true, if more threads became blocked than were released.
+         */
+        public boolean isContentionRising() {
+            int released = 0;
+            for (int i = 0; i < counts.length; i++) {
+                released += i != BLOCKED ? counts[BLOCKED][i] : 0;
+            }
+            return (getBlockedCount() > released);
+        }
+
+        /**
+         * render the matrix, changed cells are bold, threads becoming blocked red.
+         */
+        public String getContent() {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><font face=System><b>");
+            statData.append(from).append(" to ").append(to);
+            statData.append("</b><br><br><table border=0><tr bgcolor=\"#cccccc\"><td><font face=System>from \\ to</td>");
+            for (int j = 0; j < STATE_NAMES.length; j++) {
+                statData.append("<td><font face=System>").append(STATE_NAMES[j]).append("</td>");
+            }
+            statData.append("</tr>\n");
+            for (int i = 0; i < STATE_NAMES.length; i++) {
+                statData.append(i % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+                statData.append("<td><font face=System>").append(STATE_NAMES[i]).append("</td>");
+                for (int j = 0; j < STATE_NAMES.length; j++) {
+                    boolean changed = i != j && counts[i][j] > 0;
+                    statData.append("<td align=right><font face=System>");
+                    statData.append(changed ? (j == BLOCKED ? "<b><font color=\"#ff0000\">" : "<b>") : "");
+                    statData.append(counts[i][j]);
+                    statData.append(changed ? (j == BLOCKED ? "</font></b>" : "</b>") : "");
+                    statData.append("</td>");
+                }
+                statData.append("</tr>\n");
+            }
+            statData.append("</table>");
+            return (statData.toString());
+        }
+
+        /**
+         * render the names of the threads behind a cell.
+         */
+        public String getThreadContent(int fromState, int toState) {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><font face=System><b>");
+            statData.append(STATE_NAMES[fromState]).append(" in ").append(from).append(" to ");
+            statData.append(STATE_NAMES[toState]).append(" in ").append(to).append("</b><br><br>");
+            List names = getThreads(fromState, toState);
+            for (int i = 0; i < names.size(); i++) {
+                statData.append(((String) names.get(i)).replaceAll("<", "&lt;")).append("<br>");
+            }
+            return (statData.toString());
+        }
+    }
+}
@@ -21,9 +21,16 @@
  */
 package com.pironet.tda;
 
+import com.pironet.tda.model.ClassHistogram;
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.model.ThreadHeader;
 import com.pironet.tda.utils.DateMatcher;
-import com.pironet.tda.utils.HistogramTableModel;
-import com.pironet.tda.utils.IconFactory;
+import com.pironet.tda.utils.MappedLogfile;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -31,17 +38,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Date;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Stack;
 import java.util.Vector;
 import java.util.regex.Matcher;
-import javax.swing.JOptionPane;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
-import javax.swing.tree.TreeNode;
 
 /**
  * Parses SunJDK Thread Dumps. Also parses SAP and HP Dumps.
@@ -51,6 +52,11 @@ import javax.swing.tree.TreeNode;
  */
 public class SunJDKParser extends AbstractDumpParser {
 
+    /**
+     * marker of the beginning of a thread dump, used for scanning mapped log files.
+     */
+    static final byte[][] DUMP_MARKERS = {MappedLogfile.toAscii("Full thread dump")};
+
     private MutableTreeNode nextDump = null;
     private Map threadStore = null;
     private int counter = 1;
@@ -96,65 +102,72 @@ public class SunJDKParser extends AbstractDumpParser {
             nextDump = null;
             return (tmpDump);
         }
+        ThreadDump dump = readNextDump();
+        return (dump != null ? createDumpNode(dump, threadStore) : null);
+    }
+
+    /**
+     * read the next thread dump from the stream passed with the constructor into
+     * the dump model, no tree nodes are created.
+     *
+     * @returns null if no more thread dumps were found.
+     */
+    public ThreadDump readNextDump() {
+        return (readDump(new DumpCollector(getSkippedDumps()), getFramePool()));
+    }
+
+    /**
+     * read all remaining thread dumps and report them to the passed listener.
+     *
+     * @param listener the listener to report to.
+     */
+    public void parse(DumpListener listener) {
+        // the shared pool would keep the lines of all dumps, every streamed dump
+        // gets its own pool instead.
+        while (readDump(listener, new FramePool()) != null) {
+            // next dump
+        }
+    }
+
+    /**
+     * read the next thread dump and report its content to the passed listener.
+     *
+     * @param listener the listener to report to.
+     * @param pool     the pool for the lines of the threads.
+     * @returns null if no more thread dumps were found.
+     */
+    private ThreadDump readDump(DumpListener listener, FramePool pool) {
         boolean retry = false;
         String line = null;
 
         do {
-            DefaultMutableTreeNode threadDump = null;
-            ThreadDumpInfo overallTDI = null;
-            DefaultMutableTreeNode catMonitors = null;
-            DefaultMutableTreeNode catMonitorsLocks = null;
-            DefaultMutableTreeNode catThreads = null;
-            DefaultMutableTreeNode catLocking = null;
-            DefaultMutableTreeNode catBlockingMonitors = null;
-            DefaultMutableTreeNode catSleeping = null;
-            DefaultMutableTreeNode catWaiting = null;
-
+            ThreadDump dump = new ThreadDump("Dump No. " + counter, 0);
             try {
-                Map threads = new HashMap();
-                overallTDI = new ThreadDumpInfo("Dump No. " + counter++, 0);
                 if (withCurrentTimeStamp) {
-                    overallTDI.setStartTime((new Date(System.currentTimeMillis())).toString());
+                    dump.setStartTime((new Date(System.currentTimeMillis())).toString());
                 }
-                threadDump = new DefaultMutableTreeNode(overallTDI);
-
-                catThreads = new DefaultMutableTreeNode(new TableCategory("Threads", IconFactory.THREADS));
-                threadDump.add(catThreads);
-
-                catWaiting = new DefaultMutableTreeNode(new TableCategory("Threads waiting for Monitors", IconFactory.THREADS_WAITING));
-
-                catSleeping = new DefaultMutableTreeNode(new TableCategory("Threads sleeping on Monitors", IconFactory.THREADS_SLEEPING));
-
-                catLocking = new DefaultMutableTreeNode(new TableCategory("Threads locking Monitors", IconFactory.THREADS_LOCKING));
 
-                // create category for monitors with disabled filtering.
-                // NOTE:  These strings are "magic" in that the methods
-                // TDA#displayCategory and TreeCategory#getCatComponent both
-                // checks these literal strings and the behavior differs.
-                catMonitors = new DefaultMutableTreeNode(new TreeCategory("Monitors", IconFactory.MONITORS, false));
-                catMonitorsLocks = new DefaultMutableTreeNode(new TreeCategory("Monitors without locking thread", IconFactory.MONITORS_NOLOCKS, false));
-                catBlockingMonitors = new DefaultMutableTreeNode(new TreeCategory("Threads blocked by Monitors", IconFactory.THREADS_LOCKING, false));
-
-                String title = null;
-                String dumpKey = null;
-                StringBuffer content = null;
-                boolean inLocking = false;
-                boolean inSleeping = false;
-                boolean inWaiting = false;
+                DumpThread thread = null;
                 int threadCount = 0;
-                int waiting = 0;
-                int locking = 0;
-                int sleeping = 0;
                 boolean locked = true;
                 boolean finished = false;
-                MonitorMap mmap = new MonitorMap();
-                Stack monitorStack = new Stack();
                 long startTime = 0;
                 int singleLineCounter = 0;
                 boolean concurrentSyncsFlag = false;
                 Matcher matched = getDm().getLastMatch();
 
                 while (getBis().ready() && !finished) {
+                    if (locked) {
+                        // outside of a dump, scan the mapped bytes up to the next dump (if possible).
+                        int skipped = skipToDumpStart(DUMP_MARKERS);
+                        if (skipped >= 0) {
+                            lineCounter += skipped;
+                            matched = getDm().getLastMatch();
+                            if (!getBis().ready()) {
+                                break;
+                            }
+                        }
+                    }
                     line = getNextLine();
                     lineCounter++;
                     singleLineCounter++;
@@ -162,37 +175,16 @@ public class SunJDKParser extends AbstractDumpParser {
                         if (line.indexOf("Full thread dump") >= 0) {
                             locked = false;
                             if (!withCurrentTimeStamp) {
-                                overallTDI.setLogLine(lineCounter);
+                                dump.setLogLine(lineCounter);
 
                                 if (startTime != 0) {
                                     startTime = 0;
                                 } else if (matched != null && matched.matches()) {
-
-                                    String parsedStartTime = matched.group(1);
-                                    if (!getDm().isDefaultMatches() && isMillisTimeStamp()) {
-                                        try {
-                                            // the factor is a hack for a bug in oc4j timestamp printing (pattern timeStamp=2342342340)
-                                            if (parsedStartTime.length() < 13) {
-                                                startTime = Long.parseLong(parsedStartTime) * (long) Math.pow(10, 13 - parsedStartTime.length());
-                                            } else {
-                                                startTime = Long.parseLong(parsedStartTime);
-                                            }
-                                        } catch (NumberFormatException nfe) {
-                                            startTime = 0;
-                                            nfe.printStackTrace();
-                                        }
-                                        if (startTime > 0) {
-                                            overallTDI.setStartTime((new Date(startTime)).toString());
-                                        }
-                                    } else {
-                                        overallTDI.setStartTime(parsedStartTime);
-                                    }
-                                    parsedStartTime = null;
+                                    setDumpStartTime(dump, matched);
                                     matched = null;
-                                    getDm().resetLastMatch();
                                 }
                             }
-                            dumpKey = overallTDI.getName();
+                            listener.onDumpStart(dump);
                         } else if (!getDm().isPatternError() && (getDm().getRegexPattern() != null)) {
                             Matcher m = getDm().checkForDateMatch(line);
                             if (m != null) {
@@ -204,85 +196,51 @@ public class SunJDKParser extends AbstractDumpParser {
                             // We are starting a group of lines for a different thread
                             // First, flush state for the previous thread (if any)
                             concurrentSyncsFlag = false;
-                            String stringContent = content != null ? content.toString() : null;
-                            if (title != null) {
-                                threads.put(title, content.toString());
-                                content.append("</pre></pre>");
-                                addToCategory(catThreads, title, null, stringContent, singleLineCounter, true);
-                                threadCount++;
-                            }
-                            if (inWaiting) {
-                                addToCategory(catWaiting, title, null, stringContent, singleLineCounter, true);
-                                inWaiting = false;
-                                waiting++;
-                            }
-                            if (inSleeping) {
-                                addToCategory(catSleeping, title, null, stringContent, singleLineCounter, true);
-                                inSleeping = false;
-                                sleeping++;
-                            }
-                            if (inLocking) {
-                                addToCategory(catLocking, title, null, stringContent, singleLineCounter, true);
-                                inLocking = false;
-                                locking++;
+                            if (thread != null) {
+                                thread.setLineCount(singleLineCounter);
+                                thread.trimToSize();
+                                thread.hashStack(getStackHashDepth());
                             }
                             singleLineCounter = 0;
-                            while (!monitorStack.empty()) {
-                                mmap.parseAndAddThread((String) monitorStack.pop(), title, content.toString());
-                            }
 
                             // Second, initialize state for this new thread
-                            title = line;
-                            content = new StringBuffer("<body bgcolor=\"ffffff\"><pre><font size=" + TDA.getFontSizeModifier(-1) + ">");
-                            content.append(line);
-                            content.append("\n");
+                            thread = new DumpThread(line, pool);
+                            threadCount++;
+                            listener.onThread(dump, thread);
+                        } else if (thread == null) {
+                            // lines in front of the first thread are ignored.
                         } else if (line.indexOf("at ") >= 0) {
-                            content.append(line);
-                            content.append("\n");
+                            StackFrame frame = thread.addFrame(new StackFrame(line));
+                            listener.onFrame(thread, frame);
                         } else if (line.indexOf("java.lang.Thread.State") >= 0) {
-                            content.append(line);
-                            content.append("\n");
-                            if (title.indexOf("t@") > 0) {
+                            thread.addLine(line);
+                            if (thread.getTitle().indexOf("t@") > 0) {
                                 // in this case the title line is missing state informations
                                 String state = line.substring(line.indexOf(':') + 1).trim();
                                 if (state.indexOf(' ') > 0) {
-                                    title += " state=" + state.substring(0, state.indexOf(' '));
+                                    thread.setTitle(thread.getTitle() + " state=" + state.substring(0, state.indexOf(' ')));
                                 } else {
-                                    title += " state=" + state;
+                                    thread.setTitle(thread.getTitle() + " state=" + state);
                                 }
                             }
                         } else if (line.indexOf("Locked ownable synchronizers:") >= 0) {
                             concurrentSyncsFlag = true;
-                            content.append(line);
-                            content.append("\n");
+                            thread.addLine(line);
                         } else if (line.indexOf("- waiting on") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inSleeping = true;
-                            content.append("\n");
+                            addLockEvent(thread, createLockEvent(LockEvent.WAITING_ON, line), listener);
                         } else if (line.indexOf("- parking to wait") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inSleeping = true;
-                            content.append("\n");
+                            addLockEvent(thread, createLockEvent(LockEvent.PARKING, line), listener);
                         } else if (line.indexOf("- waiting to") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inWaiting = true;
-                            content.append("\n");
+                            addLockEvent(thread, createLockEvent(line.trim().startsWith("- waiting to lock")
+                                    ? LockEvent.WAITING_TO_LOCK : LockEvent.WAITING_TO_RELOCK, line), listener);
                         } else if (line.indexOf("- locked") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            inLocking = true;
-                            monitorStack.push(line);
-                            content.append("\n");
+                            addLockEvent(thread, createLockEvent(LockEvent.LOCKED, line), listener);
                         } else if (line.indexOf("- ") >= 0) {
                             if (concurrentSyncsFlag) {
-                                content.append(linkifyMonitor(line));
-                                monitorStack.push(line);
+                                addLockEvent(thread, createLockEvent(LockEvent.OWNABLE_SYNCHRONIZER, line), listener);
                             } else {
-                                content.append(line);
+                                thread.addLine(line);
                             }
-                            content.append("\n");
                         }
 
                         // last thread reached?
@@ -291,127 +249,48 @@ public class SunJDKParser extends AbstractDumpParser {
                                 || (line.indexOf("<EndOfDump>") >= 0)) {
                             finished = true;
                             getBis().mark(getMarkSize());
-                            if ((checkForDeadlocks(threadDump)) == 0) {
+                            if ((checkForDeadlocks(dump, listener)) == 0) {
                                 // no deadlocks found, set back original position.
                                 getBis().reset();
                             }
 
-                            if (!checkThreadDumpStatData(overallTDI)) {
+                            // don't go back in front of found deadlocks if there's no heap data.
+                            getBis().mark(getMarkSize());
+                            if (!checkThreadDumpStatData(dump)) {
                                 // no statistical data found, set back original position.
                                 getBis().reset();
                             }
 
                             getBis().mark(getMarkSize());
-                            if (!(foundClassHistograms = checkForClassHistogram(threadDump))) {
+                            if (!(foundClassHistograms = checkForClassHistogram(dump, listener))) {
                                 getBis().reset();
                             }
                         }
                     }
                 }
                 // last thread
-                String stringContent = content != null ? content.toString() : null;
-                if (title != null) {
-                    threads.put(title, content.toString());
-                    content.append("</pre></pre>");
-                    addToCategory(catThreads, title, null, stringContent, singleLineCounter, true);
-                    threadCount++;
-                }
-                if (inWaiting) {
-                    addToCategory(catWaiting, title, null, stringContent, singleLineCounter, true);
-                    inWaiting = false;
-                    waiting++;
-                }
-                if (inSleeping) {
-                    addToCategory(catSleeping, title, null, stringContent, singleLineCounter, true);
-                    inSleeping = false;
-                    sleeping++;
+                if (thread != null) {
+                    thread.setLineCount(singleLineCounter);
+                    thread.trimToSize();
+                    thread.hashStack(getStackHashDepth());
                 }
-                if (inLocking) {
-                    addToCategory(catLocking, title, null, stringContent, singleLineCounter, true);
-                    inLocking = false;
-                    locking++;
-                }
-                singleLineCounter = 0;
-                while (!monitorStack.empty()) {
-                    mmap.parseAndAddThread((String) monitorStack.pop(), title, content.toString());
-                }
-
-                int monitorCount = mmap.size();
-
-                int monitorsWithoutLocksCount = 0;
-                int contendedMonitors = 0;
-                int blockedThreads = 0;
-                // dump monitors 
-                if (mmap.size() > 0) {
-                    int[] result = dumpMonitors(catMonitors, catMonitorsLocks, mmap);
-                    monitorsWithoutLocksCount = result[0];
-                    overallTDI.setOverallThreadsWaitingWithoutLocksCount(result[1]);
-
-                    result = dumpBlockingMonitors(catBlockingMonitors, mmap);
-                    contendedMonitors = result[0];
-                    blockedThreads = result[1];
-                }
-
-                // display nodes with stuff to display
-                if (waiting > 0) {
-                    overallTDI.setWaitingThreads((Category) catWaiting.getUserObject());
-                    threadDump.add(catWaiting);
-                }
-
-                if (sleeping > 0) {
-                    overallTDI.setSleepingThreads((Category) catSleeping.getUserObject());
-                    threadDump.add(catSleeping);
+                if (!locked) {
+                    listener.onDumpEnd(dump);
                 }
 
-                if (locking > 0) {
-                    overallTDI.setLockingThreads((Category) catLocking.getUserObject());
-                    threadDump.add(catLocking);
+                if (threadCount == 0) {
+                    return (null);
                 }
-
-                if (monitorCount > 0) {
-                    overallTDI.setMonitors((Category) catMonitors.getUserObject());
-                    threadDump.add(catMonitors);
-                }
-
-                if (contendedMonitors > 0) {
-                    overallTDI.setBlockingMonitors((Category) catBlockingMonitors.getUserObject());
-                    threadDump.add(catBlockingMonitors);
-                }
-
-                if (monitorsWithoutLocksCount > 0) {
-                    overallTDI.setMonitorsWithoutLocks((Category) catMonitorsLocks.getUserObject());
-                    threadDump.add(catMonitorsLocks);
-                }
-                overallTDI.setThreads((Category) catThreads.getUserObject());
-
-                ((Category) catThreads.getUserObject()).setName(((Category) catThreads.getUserObject()) + " (" + threadCount + " Threads overall)");
-                ((Category) catWaiting.getUserObject()).setName(((Category) catWaiting.getUserObject()) + " (" + waiting + " Threads waiting)");
-                ((Category) catSleeping.getUserObject()).setName(((Category) catSleeping.getUserObject()) + " (" + sleeping + " Threads sleeping)");
-                ((Category) catLocking.getUserObject()).setName(((Category) catLocking.getUserObject()) + " (" + locking + " Threads locking)");
-                ((Category) catMonitors.getUserObject()).setName(((Category) catMonitors.getUserObject()) + " (" + monitorCount + " Monitors)");
-                ((Category) catBlockingMonitors.getUserObject()).setName(((Category) catBlockingMonitors.getUserObject()) + " (" + blockedThreads
-                        + " Threads blocked by " + contendedMonitors + " Monitors)");
-                ((Category) catMonitorsLocks.getUserObject()).setName(((Category) catMonitorsLocks.getUserObject()) + " (" + monitorsWithoutLocksCount
-                        + " Monitors)");
-                // add thread dump to passed dump store.
-                if ((threadCount > 0) && (dumpKey != null)) {
-                    threadStore.put(dumpKey.trim(), threads);
-                }
-
-                // check custom categories
-                addCustomCategories(threadDump);
-
-                return (threadCount > 0 ? threadDump : null);
+                // only found dumps get a number, so parsing can be resumed later on.
+                counter++;
+                return (dump);
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
             } catch (StringIndexOutOfBoundsException e) {
                 e.printStackTrace();
-                JOptionPane.showMessageDialog(null,
-                        "Error during parsing of a found thread dump, skipping to next one!\n"
-                                + "Check for possible broken dumps, sometimes, stream flushing mixes the logged data.\n"
-                                + "Error Message is \"" + e.getLocalizedMessage() + "\". \n"
-                                + (line != null ? "Last line read was \"" + line + "\". \n" : ""),
-                        "Error during Parsing Thread Dump", JOptionPane.ERROR_MESSAGE);
+                listener.onDumpSkipped(dump, e.getLocalizedMessage(), line);
+                // the broken dump keeps its number.
+                counter++;
                 retry = true;
             } catch (IOException e) {
                 e.printStackTrace();
@@ -422,71 +301,63 @@ public class SunJDKParser extends AbstractDumpParser {
     }
 
     /**
-     * add a monitor link for monitor navigation
-     *
-     * @param line containing monitor
+     * create the lock event for the given monitor line. The monitor key is the same
+     * as used by {@link MonitorMap#parseAndAddThread(String, String, String)}.
      */
-    private String linkifyMonitor(String line) {
-        if (line != null && line.indexOf('<') >= 0) {
-            String begin = line.substring(0, line.indexOf('<'));
-            String monitor = line.substring(line.indexOf('<'), line.indexOf('>') + 1);
-            String end = line.substring(line.indexOf('>') + 1);
-            monitor = monitor.replaceAll("<", "<a href=\"monitor://" + monitor + "\">&lt;");
-            monitor = monitor.substring(0, monitor.length() - 1) + "&gt;</a>";
-            return (begin + monitor + end);
-        } else if (line != null && line.indexOf('@') >= 0) {
-            String begin = line.substring(0, line.indexOf('@') + 1);
-            String monitor = line.substring(line.indexOf('@'));
-            monitor = monitor.replaceAll("@", "@<a href=\"monitor://<" + monitor.substring(1) + ">\">");
-            monitor = monitor.substring(0, monitor.length() - 1) + "</a>";
-            return (begin + monitor);
-        } else {
-            return (line);
+    private LockEvent createLockEvent(int type, String line) {
+        String address = null;
+        String monitor = null;
+        if (line.indexOf('<') > 0) {
+            monitor = line.substring(line.indexOf('<'));
+            if (line.indexOf('>') > line.indexOf('<')) {
+                address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+            }
+        } else if (line.indexOf('@') > 0) {
+            address = line.substring(line.indexOf('@') + 1);
+            monitor = "<" + address + "> (a " + line.substring(line.lastIndexOf(' '), line.indexOf('@')) + ")";
         }
+        return (new LockEvent(type, line, address, monitor));
     }
 
     /**
-     * add a monitor link for monitor navigation
+     * set the start time of the given dump from the matched time stamp and reset
+     * the last match of the date matcher.
      *
-     * @param line containing monitor
+     * @param dump    the dump to set the start time for.
+     * @param matched the time stamp match logged in front of the dump.
      */
-    private String linkifyDeadlockInfo(String line) {
-        if (line != null && line.indexOf("Ox") >= 0) {
-            String begin = line.substring(0, line.indexOf("0x"));
-            int objectBegin = line.lastIndexOf("0x");
-            int monitorBegin = line.indexOf("0x");
-            String monitorHex = line.substring(monitorBegin, monitorBegin + 10);
-
-            String monitor = line.substring(objectBegin, objectBegin + 10);
-            String end = line.substring(line.indexOf("0x") + 10);
-
-            monitor = "<a href=\"monitor://<" + monitor + ">\">" + monitorHex + "</a>";
-            return (begin + monitor + end);
+    void setDumpStartTime(ThreadDump dump, Matcher matched) {
+        long startTime = 0;
+        String parsedStartTime = matched.group(1);
+        if (!getDm().isDefaultMatches() && isMillisTimeStamp()) {
+            try {
+                // the factor is a hack for a bug in oc4j timestamp printing (pattern timeStamp=2342342340)
+                if (parsedStartTime.length() < 13) {
+                    startTime = Long.parseLong(parsedStartTime) * (long) Math.pow(10, 13 - parsedStartTime.length());
+                } else {
+                    startTime = Long.parseLong(parsedStartTime);
+                }
+            } catch (NumberFormatException nfe) {
+                startTime = 0;
+                nfe.printStackTrace();
+            }
+            if (startTime > 0) {
+                dump.setStartTime((new Date(startTime)).toString());
+            }
         } else {
-            return (line);
+            dump.setStartTime(parsedStartTime);
         }
+        getDm().resetLastMatch();
     }
 
     /**
-     * checks for the next class histogram and adds it to the tree node passed
+     * checks for the next class histogram and reports it for the dump passed
      *
-     * @param threadDump which tree node to add the histogram.
+     * @param dump     which dump the histogram belongs to.
+     * @param listener the listener to report the entries to.
      */
-    private boolean checkForClassHistogram(DefaultMutableTreeNode threadDump) throws IOException {
-        HistogramTableModel classHistogram = parseNextClassHistogram(getBis());
-
-        if (classHistogram.getRowCount() > 0) {
-            addHistogramToDump(threadDump, classHistogram);
-        }
-
-        return (classHistogram.getRowCount() > 0);
-    }
-
-    private void addHistogramToDump(DefaultMutableTreeNode threadDump, HistogramTableModel classHistogram) {
-        DefaultMutableTreeNode catHistogram;
-        HistogramInfo hi = new HistogramInfo("Class Histogram of Dump", classHistogram);
-        catHistogram = new DefaultMutableTreeNode(hi);
-        threadDump.add(catHistogram);
+    private boolean checkForClassHistogram(ThreadDump dump, DumpListener listener) throws IOException {
+        return (parseNextClassHistogram(getBis(), new ClassHistogram(), dump, listener) > 0);
     }
 
     /**
@@ -497,12 +368,18 @@ public class SunJDKParser extends AbstractDumpParser {
      * calling stream. Thus, we have to pass in the BufferedReader. However, to
      * handle a WrappedSunJDKParser, we have to use getNextLine() if possible.
      *
-     * @param bis the stream to read.
+     * @param bis            the stream to read.
+     * @param classHistogram the histogram to set the totals in.
+     * @param dump           the dump the histogram belongs to.
+     * @param listener       the listener to report the entries to, if null they are
+     *                       added to the histogram.
+     * @return the amount of entries read.
      */
-    private HistogramTableModel parseNextClassHistogram(BufferedReader bis) throws IOException {
+    private int parseNextClassHistogram(BufferedReader bis, ClassHistogram classHistogram, ThreadDump dump,
+                                        DumpListener listener) throws IOException {
         boolean finished = false;
         boolean found = false;
-        HistogramTableModel classHistogram = new HistogramTableModel();
+        int entries = 0;
         int maxLinesCounter = 0;
 
         boolean isNormalBis = bis == getBis();
@@ -534,8 +411,14 @@ public class SunJDKParser extends AbstractDumpParser {
                     String[] elems = newLine.split(";");
 
                     if (elems.length == 4) {
-                        classHistogram.addEntry(elems[3].trim(), Integer.parseInt(elems[2].trim()),
-                                Integer.parseInt(elems[1].trim()));
+                        ClassHistogram.Entry entry = new ClassHistogram.Entry(elems[3].trim(), Long.parseLong(elems[1].trim()),
+                                Long.parseLong(elems[2].trim()));
+                        if (listener != null) {
+                            listener.onHistogramEntry(dump, classHistogram, entry);
+                        } else {
+                            classHistogram.addEntry(entry);
+                        }
+                        entries++;
                     } else {
                         classHistogram.setIncomplete(true);
                         finished = true;
@@ -545,7 +428,7 @@ public class SunJDKParser extends AbstractDumpParser {
             }
         }
 
-        return (classHistogram);
+        return (entries);
     }
 
     /**
@@ -559,11 +442,11 @@ public class SunJDKParser extends AbstractDumpParser {
      * PSPermGen       total 16384K, used 13145K [0x90130000, 0x91130000, 0x94130000)
      * object space 16384K, 80% used [0x90130000,0x90e06610,0x91130000)
      *
-     * @param threadDump
+     * @param dump
      * @return
      * @throws java.io.IOException
      */
-    private boolean checkThreadDumpStatData(ThreadDumpInfo tdi) throws IOException {
+    private boolean checkThreadDumpStatData(ThreadDump dump) throws IOException {
         boolean finished = false;
         boolean found = false;
         StringBuffer hContent = new StringBuffer();
@@ -590,27 +473,24 @@ public class SunJDKParser extends AbstractDumpParser {
             }
         }
         if (hContent.length() > 0) {
-            tdi.setHeapInfo(new HeapInfo(hContent.toString()));
+            dump.setHeapInfo(hContent.toString());
         }
 
-
         return (found);
     }
 
     /**
      * check if any dead lock information is logged in the stream
      *
-     * @param threadDump which tree node to add the histogram.
+     * @param dump     which dump the deadlocks belong to.
+     * @param listener the listener to report the deadlocks to.
      */
-    private int checkForDeadlocks(DefaultMutableTreeNode threadDump) throws IOException {
+    private int checkForDeadlocks(ThreadDump dump, DumpListener listener) throws IOException {
         boolean finished = false;
         boolean found = false;
         int deadlocks = 0;
         int lineCounter = 0;
-        StringBuffer dContent = new StringBuffer();
-        TreeCategory deadlockCat = new TreeCategory("Deadlocks", IconFactory.DEADLOCKS);
-        DefaultMutableTreeNode catDeadlocks = new DefaultMutableTreeNode(deadlockCat);
-        boolean first = true;
+        Deadlock deadlock = null;
 
         while (getBis().ready() && !finished) {
             String line = getNextLine();
@@ -618,9 +498,7 @@ public class SunJDKParser extends AbstractDumpParser {
             if (!found && !line.equals("")) {
                 if (line.trim().startsWith("Found one Java-level deadlock")) {
                     found = true;
-                    dContent.append("<body bgcolor=\"ffffff\"><font size=").append(TDA.getFontSizeModifier(-1)).append("><b>");
-                    dContent.append("Found one Java-level deadlock");
-                    dContent.append("</b><hr></font><pre>\n");
+                    deadlock = new Deadlock();
                 } else if (lineCounter >= getMaxCheckLines()) {
                     finished = true;
                 } else {
@@ -628,367 +506,24 @@ public class SunJDKParser extends AbstractDumpParser {
                 }
             } else if (found) {
                 if (line.startsWith("Found one Java-level deadlock")) {
-                    if (dContent.length() > 0) {
-                        deadlocks++;
-                        addToCategory(catDeadlocks, "Deadlock No. " + (deadlocks), null, dContent.toString(), 0, false);
-                    }
-                    dContent = new StringBuffer();
-                    dContent.append("</pre><b><font size=").append(TDA.getFontSizeModifier(-1)).append(">");
-                    dContent.append("Found one Java-level deadlock");
-                    dContent.append("</b><hr></font><pre>\n");
-                    first = true;
+                    listener.onDeadlock(dump, deadlock);
+                    deadlocks++;
+                    deadlock = new Deadlock();
                 } else if ((line.indexOf("Found") >= 0) && (line.endsWith("deadlocks.") || line.endsWith("deadlock."))) {
                     finished = true;
-                } else if (line.startsWith("=======")) {
-                    // ignore this line
-                } else if (line.indexOf(" monitor 0x") >= 0) {
-                    dContent.append(linkifyDeadlockInfo(line));
-                    dContent.append("\n");
-                } else if (line.indexOf("Java stack information for the threads listed above") >= 0) {
-                    dContent.append("</pre><br><font size=").append(TDA.getFontSizeModifier(-1)).append("><b>");
-                    dContent.append("Java stack information for the threads listed above");
-                    dContent.append("</b><hr></font><pre>");
-                    first = true;
-                } else if ((line.indexOf("- waiting on") >= 0)
-                        || (line.indexOf("- waiting to") >= 0)
-                        || (line.indexOf("- locked") >= 0)
-                        || (line.indexOf("- parking to wait") >= 0)) {
-
-                    dContent.append(linkifyMonitor(line));
-                    dContent.append("\n");
-
-                } else if (line.trim().startsWith("\"")) {
-                    dContent.append("</pre>");
-                    if (first) {
-                        first = false;
-                    } else {
-                        dContent.append("<br>");
-                    }
-                    dContent.append("<b><font size=").append(TDA.getFontSizeModifier(-1)).append("><code>");
-                    dContent.append(line);
-                    dContent.append("</font></code></b><pre>");
                 } else {
-                    dContent.append(line);
-                    dContent.append("\n");
+                    deadlock.addLine(line);
                 }
             }
         }
-        if (dContent.length() > 0) {
+        if (deadlock != null) {
+            listener.onDeadlock(dump, deadlock);
             deadlocks++;
-            addToCategory(catDeadlocks, "Deadlock No. " + (deadlocks), null, dContent.toString(), 0, false);
-        }
-
-        if (deadlocks > 0) {
-            threadDump.add(catDeadlocks);
-            ((ThreadDumpInfo) threadDump.getUserObject()).setDeadlocks((TreeCategory) catDeadlocks.getUserObject());
-            deadlockCat.setName("Deadlocks (" + deadlocks + (deadlocks == 1 ? " deadlock)" : " deadlocks)"));
         }
 
         return (deadlocks);
     }
 
-    /**
-     * dump the monitor information
-     *
-     * @param catMonitors
-     * @param catMonitorsLocks
-     * @param mmap
-     * @return
-     */
-    private int[] dumpMonitors(DefaultMutableTreeNode catMonitors, DefaultMutableTreeNode catMonitorsLocks, MonitorMap mmap) {
-        Iterator iter = mmap.iterOfKeys();
-        int monitorsWithoutLocksCount = 0;
-        int overallThreadsWaiting = 0;
-        while (iter.hasNext()) {
-            String monitor = (String) iter.next();
-            Map[] threads = mmap.getFromMonitorMap(monitor);
-            ThreadInfo mi = new ThreadInfo(monitor, null, "", 0, null);
-            DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mi);
-
-            // first the locks
-            Iterator iterLocks = threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator();
-            int locks = 0;
-            int sleeps = 0;
-            int waits = 0;
-            while (iterLocks.hasNext()) {
-                String thread = (String) iterLocks.next();
-                String stackTrace = (String) threads[MonitorMap.LOCK_THREAD_POS].get(thread);
-                if (threads[MonitorMap.SLEEP_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "locks and sleeps on monitor: " + thread, null, stackTrace, 0);
-                    sleeps++;
-                } else if (threads[MonitorMap.WAIT_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "locks and waits on monitor: " + thread, null, stackTrace, 0);
-                    sleeps++;
-                } else {
-                    createNode(monitorNode, "locked by " + thread, null, stackTrace, 0);
-                }
-                locks++;
-            }
-
-            Iterator iterWaits = threads[MonitorMap.WAIT_THREAD_POS].keySet().iterator();
-            while (iterWaits.hasNext()) {
-                String thread = (String) iterWaits.next();
-                if (!threads[MonitorMap.LOCK_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "waits on monitor: " + thread, null, (String) threads[MonitorMap.WAIT_THREAD_POS].get(thread), 0);
-                    waits++;
-                }
-            }
-
-            mi.setContent(ThreadDumpInfo.getMonitorInfo(locks, waits, sleeps));
-            mi.setName(mi.getName() + ":    " + (sleeps) + " Thread(s) sleeping, " + (waits) + " Thread(s) waiting, " + (locks) + " Thread(s) locking");
-            if (ThreadDumpInfo.areALotOfWaiting(waits)) {
-                mi.setALotOfWaiting(true);
-            }
-            mi.setChildCount(monitorNode.getChildCount());
-
-            ((Category) catMonitors.getUserObject()).addToCatNodes(monitorNode);
-            if (locks == 0) {
-                monitorsWithoutLocksCount++;
-                overallThreadsWaiting += waits;
-                ((Category) catMonitorsLocks.getUserObject()).addToCatNodes(monitorNode);
-            }
-        }
-        return new int[]{monitorsWithoutLocksCount, overallThreadsWaiting};
-    }
-
-    private int[] dumpBlockingMonitors(DefaultMutableTreeNode catLockingTree, MonitorMap mmap) {
-        Map directChildMap = new HashMap(); // Top level of our display model
-
-        //******************************************************************
-        // Figure out what threads are blocking and what threads are blocked
-        //******************************************************************
-        int blockedThreads = fillBlockingThreadMaps(mmap, directChildMap);
-        int contendedLocks = directChildMap.size();
-
-        //********************************************************************
-        // Renormalize this from a flat tree (depth==1) into a structured tree
-        //********************************************************************
-        renormalizeBlockingThreadTree(mmap, directChildMap);
-
-        //********************************************************************
-        // Recalculate the number of blocked threads and add remaining top-level threads to our display model
-        //********************************************************************
-        for (Iterator iter = directChildMap.entrySet().iterator(); iter.hasNext(); ) {
-            DefaultMutableTreeNode threadNode = (DefaultMutableTreeNode) ((Map.Entry) iter.next()).getValue();
-
-            updateChildCount(threadNode, true);
-            ((Category) catLockingTree.getUserObject()).addToCatNodes(threadNode);
-        }
-
-        directChildMap.clear();
-        return new int[]{contendedLocks, blockedThreads};
-    }
-
-    private void renormalizeBlockingThreadTree(MonitorMap mmap, Map directChildMap) {
-        Map allBlockingThreadsMap = new HashMap(directChildMap); // All threads that are blocking at least one other thread
-
-        // First, renormalize based on monitors to get our unique tree
-        // Tree will be unique as long as there are no deadlocks aka monitor loops
-        for (Iterator iter = mmap.iterOfKeys(); iter.hasNext(); ) {
-            String monitor1 = (String) iter.next();
-            Map[] threads1 = mmap.getFromMonitorMap(monitor1);
-
-            DefaultMutableTreeNode thread1Node = (DefaultMutableTreeNode) allBlockingThreadsMap.get(monitor1);
-            if (thread1Node == null) {
-                continue;
-            }
-
-            // Get information on the one thread holding this lock
-            Iterator it = threads1[MonitorMap.LOCK_THREAD_POS].keySet().iterator();
-            if (!it.hasNext()) {
-                continue;
-            }
-            String threadLine1 = (String) it.next();
-
-            for (Iterator iter2 = mmap.iterOfKeys(); iter2.hasNext(); ) {
-                String monitor2 = (String) iter2.next();
-                if (monitor1 == monitor2) {
-                    continue;
-                }
-
-                Map[] threads2 = mmap.getFromMonitorMap(monitor2);
-                if (threads2[MonitorMap.WAIT_THREAD_POS].containsKey(threadLine1)) {
-                    // Get the node of the thread that is holding this lock
-                    DefaultMutableTreeNode thread2Node = (DefaultMutableTreeNode) allBlockingThreadsMap.get(monitor2);
-                    // Get the node of the monitor itself
-                    DefaultMutableTreeNode monitor2Node = (DefaultMutableTreeNode) thread2Node.getFirstChild();
-
-                    // If a redundant node for thread2 exists with no children, remove it
-                    // To compare, we have to remove "Thread - " from the front of display strings
-                    for (int i = 0; i < monitor2Node.getChildCount(); i++) {
-                        DefaultMutableTreeNode child2 = (DefaultMutableTreeNode) monitor2Node.getChildAt(i);
-                        if (child2.toString().substring(9).equals(threadLine1) && child2.getChildCount() == 0) {
-                            monitor2Node.remove(i);
-                            break;
-                        }
-                    }
-
-                    // Thread1 is blocked by monitor2 held by thread2, so move thread1 under thread2
-                    monitor2Node.insert(thread1Node, 0);
-                    directChildMap.remove(monitor1);
-                    break;
-                }
-            }
-        }
-
-        allBlockingThreadsMap.clear();
-
-        // Second, renormalize top level based on threads for cases where one thread holds multiple monitors
-        boolean changed = false;
-        do {
-            changed = false;
-            for (Iterator iter = directChildMap.entrySet().iterator(); iter.hasNext(); ) {
-                DefaultMutableTreeNode node = (DefaultMutableTreeNode) ((Map.Entry) iter.next()).getValue();
-                if (checkForDuplicateThreadItem(directChildMap, node)) {
-                    changed = true;
-                    break;
-                }
-            }
-        } while (changed);
-
-        // Third, renormalize lower levels of the tree based on threads for cases where one thread holds multiple monitors
-        for (Iterator iter = directChildMap.entrySet().iterator(); iter.hasNext(); ) {
-            renormalizeThreadDepth((DefaultMutableTreeNode) ((Map.Entry) iter.next()).getValue());
-        }
-    }
-
-    private void renormalizeThreadDepth(DefaultMutableTreeNode threadNode1) {
-        for (Enumeration e = threadNode1.children(); e.hasMoreElements(); ) {
-            DefaultMutableTreeNode monitorNode2 = (DefaultMutableTreeNode) e.nextElement();
-            for (int ii = 0; ii < monitorNode2.getChildCount(); ii++) {
-                renormalizeMonitorDepth(monitorNode2, ii);
-            }
-        }
-    }
-
-    private void renormalizeMonitorDepth(DefaultMutableTreeNode monitorNode, int index) {
-        // First, remove all duplicates of the item at index "index"
-        DefaultMutableTreeNode threadNode1 = (DefaultMutableTreeNode) monitorNode.getChildAt(index);
-        ThreadInfo mi1 = (ThreadInfo) threadNode1.getUserObject();
-        int i = index + 1;
-        while (i < monitorNode.getChildCount()) {
-            DefaultMutableTreeNode threadNode2 = (DefaultMutableTreeNode) monitorNode.getChildAt(i);
-            ThreadInfo mi2 = (ThreadInfo) threadNode2.getUserObject();
-            if (mi1.getName().equals(mi2.getName())) {
-                if (threadNode2.getChildCount() > 0) {
-                    threadNode1.add((DefaultMutableTreeNode) threadNode2.getFirstChild());
-                    monitorNode.remove(i);
-                    continue;
-                }
-            }
-            i++;
-        }
-
-        // Second, recurse into item "index"
-        renormalizeThreadDepth(threadNode1);
-    }
-
-    private boolean checkForDuplicateThreadItem(Map directChildMap, DefaultMutableTreeNode node1) {
-        ThreadInfo mi1 = (ThreadInfo) node1.getUserObject();
-        String name1 = mi1.getName();
-
-        for (Iterator iter2 = directChildMap.entrySet().iterator(); iter2.hasNext(); ) {
-            DefaultMutableTreeNode node2 = (DefaultMutableTreeNode) ((Map.Entry) iter2.next()).getValue();
-            if (node1 == node2) {
-                continue;
-            }
-
-            ThreadInfo mi2 = (ThreadInfo) node2.getUserObject();
-            if (name1.equals(mi2.getName()) && node2.getChildCount() > 0) {
-                node1.add((MutableTreeNode) node2.getFirstChild());
-                iter2.remove();
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private int fillBlockingThreadMaps(MonitorMap mmap, Map directChildMap) {
-        int blockedThread = 0;
-        for (Iterator iter = mmap.iterOfKeys(); iter.hasNext(); ) {
-            String monitor = (String) iter.next();
-            Map[] threads = mmap.getFromMonitorMap(monitor);
-
-            // Only one thread can really be holding this monitor, so find the thread
-            String threadLine = getLockingThread(threads);
-            ThreadInfo tmi = new ThreadInfo("Thread - " + threadLine, null, "", 0, null);
-            DefaultMutableTreeNode threadNode = new DefaultMutableTreeNode(tmi);
-
-            ThreadInfo mmi = new ThreadInfo("Monitor - " + monitor, null, "", 0, null);
-            DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mmi);
-            threadNode.add(monitorNode);
-
-            // Look over all threads blocked on this monitor
-            for (Iterator iterWaits = threads[MonitorMap.WAIT_THREAD_POS].keySet().iterator(); iterWaits.hasNext(); ) {
-                String thread = (String) iterWaits.next();
-                // Skip the thread that has this monitor locked
-                if (!threads[MonitorMap.LOCK_THREAD_POS].containsKey(thread)) {
-                    blockedThread++;
-                    createNode(monitorNode, "Thread - " + thread, null, (String) threads[MonitorMap.WAIT_THREAD_POS].get(thread), 0);
-                }
-            }
-
-            String blockingStackFrame = (String) threads[MonitorMap.LOCK_THREAD_POS].get(threadLine);
-            tmi.setContent(blockingStackFrame);
-            mmi.setContent("This monitor (" + linkifyMonitor(monitor)
-                    + ") is held in the following stack frame:\n\n" + blockingStackFrame);
-
-            // If no-one is blocked on or waiting for this monitor, don't show it
-            if (monitorNode.getChildCount() > 0) {
-                directChildMap.put(monitor, threadNode);
-            }
-        }
-        return blockedThread;
-    }
-
-    private String getLockingThread(Map[] threads) {
-        int lockingThreadCount = threads[MonitorMap.LOCK_THREAD_POS].keySet().size();
-        if (lockingThreadCount == 1) {
-            return (String) threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator().next();
-        }
-
-        for (Iterator iterLocks = threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator(); iterLocks.hasNext(); ) {
-            String thread = (String) iterLocks.next();
-            if (!threads[MonitorMap.SLEEP_THREAD_POS].containsKey(thread)) {
-                return thread;
-            }
-        }
-
-        return "";
-    }
-
-    private void updateChildCount(DefaultMutableTreeNode threadOrMonitorNode, boolean isThreadNode) {
-        int count = 0;
-        for (Enumeration e = threadOrMonitorNode.depthFirstEnumeration(); e.hasMoreElements(); ) {
-            Object element = e.nextElement();
-            ThreadInfo mi = (ThreadInfo) (((DefaultMutableTreeNode) element).getUserObject());
-            if (mi.getName().startsWith("Thread")) {
-                count++;
-            }
-        }
-
-        ThreadInfo mi = (ThreadInfo) threadOrMonitorNode.getUserObject();
-        if (ThreadDumpInfo.areALotOfWaiting(count)) {
-            mi.setALotOfWaiting(true);
-        }
-        if (isThreadNode) {
-            count--;
-        }
-
-        mi.setChildCount(count);
-        if (count > 1) {
-            mi.setName(mi.getName() + ":    " + count + " Blocked threads");
-        } else if (count == 1) {
-            mi.setName(mi.getName() + ":    " + count + " Blocked thread");
-        }
-
-        // Recurse
-        for (Enumeration e = threadOrMonitorNode.children(); e.hasMoreElements(); ) {
-            updateChildCount((DefaultMutableTreeNode) e.nextElement(), !isThreadNode);
-        }
-    }
-
     /**
      * parses a loggc file stream and reads any found class histograms and adds the to the dump store
      *
@@ -1005,7 +540,9 @@ public class SunJDKParser extends AbstractDumpParser {
                 String nextLine = bis.readLine();
                 if (nextLine.startsWith("num   #instances    #bytes  class name")) {
                     bis.reset();
-                    histograms.add(parseNextClassHistogram(bis));
+                    ClassHistogram classHistogram = new ClassHistogram();
+                    parseNextClassHistogram(bis, classHistogram, null, null);
+                    histograms.add(classHistogram);
                 }
             }
 
@@ -1013,7 +550,7 @@ public class SunJDKParser extends AbstractDumpParser {
             for (int i = histograms.size() - 1; i >= 0; i--) {
                 DefaultMutableTreeNode dump = getNextDumpForHistogram(root);
                 if (dump != null) {
-                    addHistogramToDump(dump, (HistogramTableModel) histograms.get(i));
+                    DumpTreeBuilder.addHistogramToDump(dump, (ClassHistogram) histograms.get(i));
                 }
             }
         } catch (IOException ex) {
@@ -1028,80 +565,7 @@ public class SunJDKParser extends AbstractDumpParser {
      * @return thread tokens.
      */
     public String[] getThreadTokens(String name) {
-        String[] tokens = null;
-
-        if (name.indexOf("prio") > 0) {
-            tokens = new String[7];
-
-            tokens[0] = name.substring(1, name.lastIndexOf('"'));
-            tokens[1] = name.indexOf("daemon") > 0 ? "Daemon" : "Task";
-
-            String strippedToken = name.substring(name.lastIndexOf('"') + 1);
-
-            if (strippedToken.indexOf("tid=") >= 0) {
-                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5, strippedToken.indexOf("tid=") - 1);
-            } else {
-                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5);
-            }
-
-            if ((strippedToken.indexOf("tid=") >= 0) && (strippedToken.indexOf("nid=") >= 0)) {
-                tokens[3] = String.valueOf(Long.parseLong(strippedToken.substring(strippedToken.indexOf("tid=") + 6,
-                        strippedToken.indexOf("nid=") - 1), 16));
-            } else if (strippedToken.indexOf("tid=") >= 0) {
-                tokens[3] = String.valueOf(Long.parseLong(strippedToken.substring(strippedToken.indexOf("tid=") + 6), 16));
-            }
-
-            // default for token 6 is:
-            tokens[6] = "<no address range>";
-
-            if ((strippedToken.indexOf("nid=") >= 0) && (strippedToken.indexOf(" ", strippedToken.indexOf("nid="))) >= 0) {
-                if (strippedToken.indexOf("nid=0x") > 0) { // is hexadecimal
-                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6,
-                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
-                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
-                } else { // is decimal
-                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 4,
-                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
-                    tokens[4] = nidToken;
-                }
-
-                if (strippedToken.indexOf('[') > 0) {
-                    if (strippedToken.indexOf("lwp_id=") > 0) {
-                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("lwp_id=")) + 1, strippedToken.indexOf('[',
-                                strippedToken.indexOf("lwp_id=")) - 1);
-                    } else {
-                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1, strippedToken.indexOf('[',
-                                strippedToken.indexOf("nid=")) - 1);
-                    }
-                    tokens[6] = strippedToken.substring(strippedToken.indexOf('['));
-                } else {
-                    tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1);
-                }
-            } else if (strippedToken.indexOf("nid=") >= 0) {
-                String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6);
-                // nid is at the end.
-                if (nidToken.indexOf("0x") > 0) { // is hexadecimal
-                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
-                } else {
-                    tokens[4] = nidToken;
-                }
-            }
-        } else {
-            tokens = new String[3];
-            tokens[0] = name.substring(1, name.lastIndexOf('"'));
-            if (name.indexOf("nid=") > 0) {
-                tokens[1] = name.substring(name.indexOf("nid=") + 4, name.indexOf("state=") - 1);
-                tokens[2] = name.substring(name.indexOf("state=") + 6);
-            } else if (name.indexOf("t@") > 0) {
-                tokens[1] = name.substring(name.indexOf("t@") + 2, name.indexOf("state=") - 1);
-                tokens[2] = name.substring(name.indexOf("state=") + 6);
-            } else {
-                tokens[1] = name.substring(name.indexOf("id=") + 3, name.indexOf(" in"));
-                tokens[2] = name.substring(name.indexOf(" in") + 3);
-            }
-        }
-
-        return (tokens);
+        return (new ThreadHeader().parse(name).toTokens());
     }
 
     /**
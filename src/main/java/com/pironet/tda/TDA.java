@@ -22,9 +22,13 @@
 package com.pironet.tda;
 
 import com.pironet.tda.jconsole.MBeanDumper;
+import com.pironet.tda.query.Query;
 import com.pironet.tda.utils.AppInfo;
 import com.pironet.tda.utils.Browser;
+import com.pironet.tda.utils.DumpIndex;
 import com.pironet.tda.utils.HistogramTableModel;
+import com.pironet.tda.utils.MappedLineReader;
+import com.pironet.tda.utils.MappedLogfile;
 import com.pironet.tda.utils.MonitorComparator;
 import com.pironet.tda.utils.PrefManager;
 import com.pironet.tda.utils.ResourceManager;
@@ -83,17 +87,23 @@ import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowAdapter;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 import java.util.zip.GZIPInputStream;
@@ -817,6 +827,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         topNodes = new Vector();
         if (!runningAsJConsolePlugin && !runningAsVisualVMPlugin) {
             getMainMenu().getLongMenuItem().setEnabled(true);
+            getMainMenu().getFindInStacksMenuItem().setEnabled(true);
+            getMainMenu().getQueryMenuItem().setEnabled(true);
             getMainMenu().getSaveSessionMenuItem().setEnabled(true);
             getMainMenu().getExpandButton().setEnabled(true);
             getMainMenu().getCollapseButton().setEnabled(true);
@@ -888,7 +900,13 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         for (int i = 0; i < files.length; i++) {
             try {
                 dumpCounter = 1;
-                addDumpStream(new FileInputStream(files[i]), files[i], true);
+                File dumpFile = new File(files[i]);
+                if (PrefManager.get().getUseMappedFiles() && MappedLogfile.isMappable(dumpFile)) {
+                    // regular files are scanned in place, no need for a (slow) progress stream.
+                    addDumpSource(null, dumpFile, files[i], true);
+                } else {
+                    addDumpStream(new FileInputStream(files[i]), files[i], true);
+                }
             } catch (FileNotFoundException ex) {
                 JOptionPane.showMessageDialog(this.getRootPane(),
                         "Error opening " + ex.getMessage() + ".",
@@ -899,7 +917,19 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     }
 
     private void addDumpStream(InputStream inputStream, String file, boolean withLogfile) {
-        final InputStream parseFileStream = new ProgressMonitorInputStream(this, "Parsing " + file, inputStream);
+        addDumpSource(new ProgressMonitorInputStream(this, "Parsing " + file, inputStream), null, file, withLogfile);
+    }
+
+    /**
+     * add the dumps of the given source to the tree, either the stream or the mapped file
+     * is set.
+     *
+     * @param parseFileStream the stream to parse, null if the file should be mapped
+     * @param mappedFile      the file to map for parsing, null if the stream should be used
+     * @param file            the name of the logfile
+     * @param withLogfile     true, if a log file node should be added
+     */
+    private void addDumpSource(final InputStream parseFileStream, final File mappedFile, String file, boolean withLogfile) {
 
         //Create the nodes.
         if (!runningAsJConsolePlugin || topNodes.size() == 0) {
@@ -918,9 +948,19 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         final SwingWorker worker = new SwingWorker() {
 
             public Object construct() {
+                // the dumps of mapped files are parsed up front, only adding them needs to be synchronized.
+                ParallelDumpLoader loader = null;
+                if (mappedFile != null && PrefManager.get().getParallelParsing()) {
+                    loader = parseParallel(mappedFile);
+                }
+
                 synchronized (syncObject) {
                     int divider = topSplitPane.getDividerLocation();
-                    addThreadDumps(top, parseFileStream);
+                    if (loader != null) {
+                        addThreadDumps(top, loader);
+                    } else {
+                        addThreadDumps(top, parseFileStream, mappedFile);
+                    }
                     createTree();
                     tree.expandRow(1);
 
@@ -1048,6 +1088,21 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
             return;
         }
 
+        if (node instanceof LazyDumpNode) {
+            // the dump of a reopened log file gets parsed when first selected.
+            ((LazyDumpNode) node).load();
+            showSkippedDumps(getSelectedLogfile() != null ? getSelectedLogfile().getUsedParser() : null);
+        } else if (node instanceof LogfileAnalysisNode) {
+            // the analyses only know the parsed dumps, without the dumps of a reopened
+            // log file not accessed yet they would compare dumps which aren't neighbours.
+            LazyDumpNode.loadAll((DefaultMutableTreeNode) node.getParent());
+            showSkippedDumps(getSelectedLogfile() != null ? getSelectedLogfile().getUsedParser() : null);
+            if (((LogfileAnalysisNode) node).update()) {
+                // dumps were added since the analysis was displayed last.
+                ((DefaultTreeModel) tree.getModel()).nodeChanged(node);
+            }
+        }
+
         Object nodeInfo = node.getUserObject();
         if (nodeInfo instanceof ThreadInfo) {
             displayThreadInfo(nodeInfo);
@@ -1058,6 +1113,11 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
             HistogramInfo tdi = (HistogramInfo) nodeInfo;
             displayTable((HistogramTableModel) tdi.content);
             setThreadDisplay(false);
+        } else if (nodeInfo instanceof FlameGraph) {
+            displayFlameGraph((FlameGraph) nodeInfo);
+        } else if (nodeInfo instanceof MethodProfile) {
+            setThreadDisplay(false);
+            displayContent(((MethodProfile) nodeInfo).getInfo());
         } else if (nodeInfo instanceof LogFileContent) {
             displayLogFileContent(nodeInfo);
         } else if (nodeInfo instanceof Logfile && ((String) ((Logfile) nodeInfo).getContent()).startsWith("Thread Dumps")) {
@@ -1282,6 +1342,73 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         splitPane.setBottomComponent(histogramView);
     }
 
+    /**
+     * display the flame graph with its statistics and the export of the collapsed stacks.
+     */
+    private void displayFlameGraph(final FlameGraph graph) {
+        setThreadDisplay(false);
+
+        JPanel graphView = new JPanel(new BorderLayout());
+        graphView.add(new ViewScrollPane(new FlameGraphPanel(graph), runningAsVisualVMPlugin), BorderLayout.CENTER);
+        JPanel graphStatView = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 0));
+        Font font = new Font("SansSerif", Font.PLAIN, 10);
+        JLabel infoLabel = new JLabel(NumberFormat.getInstance().format(graph.getSampleCount()) + " threads of "
+                + graph.getDumpCount() + " dumps, " + NumberFormat.getInstance().format(graph.getNodeCount())
+                + " distinct frames, click on a frame to zoom");
+        infoLabel.setFont(font);
+        graphStatView.add(infoLabel);
+        JButton exportButton = new JButton("Export collapsed stacks...");
+        exportButton.setFont(font);
+        exportButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                exportCollapsedStacks(graph);
+            }
+        });
+        graphStatView.add(exportButton);
+        graphView.add(graphStatView, BorderLayout.SOUTH);
+
+        graphView.setPreferredSize(splitPane.getBottomComponent().getSize());
+        splitPane.setBottomComponent(graphView);
+    }
+
+    /**
+     * write the stacks of the flame graph to a file in collapsed format.
+     */
+    private void exportCollapsedStacks(FlameGraph graph) {
+        JFileChooser exportFc = new JFileChooser();
+        exportFc.setCurrentDirectory(PrefManager.get().getSelectedPath());
+        if (exportFc.showSaveDialog(this.getRootPane()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = exportFc.getSelectedFile();
+        int selectValue = 0;
+        if (file.exists()) {
+            Object[] options = {"Overwrite", "Cancel"};
+            selectValue = JOptionPane.showOptionDialog(null, "<html><body>File exists<br><b>" + file +
+                            "</b></body></html>", "Confirm overwrite",
+                    JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+                    null, options, options[0]);
+        }
+        if (selectValue == 0) {
+            Writer out = null;
+            try {
+                out = new BufferedWriter(new FileWriter(file));
+                graph.writeCollapsed(out);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this.getRootPane(), "Error writing " + file + ":\n" + ex.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            } finally {
+                try {
+                    if (out != null) {
+                        out.close();
+                    }
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
     private class FilterListener implements CaretListener {
         HistogramTableModel htm;
         String currentText = "";
@@ -1312,21 +1439,149 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     }
 
     private void addThreadDumps(DefaultMutableTreeNode top, InputStream dumpFileStream) {
-        DumpParser dp = null;
+        addThreadDumps(top, dumpFileStream, null);
+    }
+
+    /**
+     * parse the thread dumps of the given file in parallel. If the file was parsed
+     * before and is unchanged, the dumps are taken from its index and are only parsed
+     * when accessed.
+     *
+     * @param mappedFile the log file to parse.
+     * @return the loader containing the parsed dumps, null if the file needs to be parsed
+     * sequentially.
+     */
+    private ParallelDumpLoader parseParallel(File mappedFile) {
+        if (!PrefManager.get().getUseMappedFiles() || !MappedLogfile.isMappable(mappedFile)) {
+            return (null);
+        }
         try {
-            String fileName = top.getUserObject().toString();
-            Map dumpMap = null;
-            if (runningAsJConsolePlugin || runningAsVisualVMPlugin) {
-                dumpMap = dumpStore.getFromDumpFiles(fileName);
+            ParallelDumpLoader loader = new ParallelDumpLoader(mappedFile, dumpCounter);
+            if (!PrefManager.get().getUseDumpIndex()) {
+                return (loader.parse() ? loader : null);
+            }
+
+            File indexFile = DumpIndex.getIndexFile(mappedFile);
+            if (loader.loadIndex(indexFile)) {
+                return (loader);
+            }
+            if (!loader.parse()) {
+                return (null);
+            }
+            try {
+                loader.saveIndex(indexFile);
+            } catch (IOException e) {
+                // the dumps are parsed anyway, the next opening just takes longer.
+                e.printStackTrace();
+            }
+            return (loader);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return (null);
+        }
+    }
+
+    /**
+     * add the dumps parsed by the given loader to the log file node.
+     */
+    private void addThreadDumps(DefaultMutableTreeNode top, ParallelDumpLoader loader) {
+        loader.addDumps(top, getDumpMap(top));
+        ((Logfile) top.getUserObject()).setUsedParser(loader.getUsedParser());
+        ((Logfile) top.getUserObject()).setParsedLength(loader.getParsedLength());
+        if (!isFoundClassHistogram) {
+            isFoundClassHistogram = loader.isFoundClassHistograms();
+        }
+        addLogfileAnalyses(top, loader.getUsedParser());
+        showSkippedDumps(loader.getUsedParser());
+    }
+
+    /**
+     * report the broken dumps the given parser skipped, the dialog is shown on the
+     * event dispatch thread as the dumps are parsed in the background.
+     */
+    private void showSkippedDumps(DumpParser dp) {
+        if (!(dp instanceof AbstractDumpParser)) {
+            return;
+        }
+        List skippedDumps = ((AbstractDumpParser) dp).getSkippedDumps();
+        final StringBuffer skipped = new StringBuffer();
+        synchronized (skippedDumps) {
+            for (int i = 0; i < skippedDumps.size(); i++) {
+                skipped.append(skippedDumps.get(i)).append("\n");
+            }
+            skippedDumps.clear();
+        }
+        if (skipped.length() > 0) {
+            javax.swing.SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    JOptionPane.showMessageDialog(getRootPane(),
+                            "Error during parsing of a found thread dump, skipping to next one!\n"
+                                    + "Check for possible broken dumps, sometimes, stream flushing mixes the logged data.\n"
+                                    + skipped,
+                            "Error during Parsing Thread Dump", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+
+    /**
+     * add the nodes for the analyses of all dumps to the log file node, right after
+     * the log file content.
+     */
+    private void addLogfileAnalyses(DefaultMutableTreeNode top, DumpParser dp) {
+        if (!(dp instanceof AbstractDumpParser) || getLogfileAnalysisNodes(top).size() > 0) {
+            return;
+        }
+        int index = top.getChildCount() > 0 && ((DefaultMutableTreeNode) top.getChildAt(0)).getUserObject() instanceof LogFileContent ? 1 : 0;
+        List analyses = ((AbstractDumpParser) dp).getLogfileState().getAnalyses();
+        for (int i = 0; i < analyses.size(); i++) {
+            top.insert(new LogfileAnalysisNode((LogfileAnalysis) analyses.get(i)), index++);
+        }
+    }
+
+    /**
+     * @return the analysis nodes of the given log file node.
+     */
+    private List getLogfileAnalysisNodes(DefaultMutableTreeNode top) {
+        List nodes = new ArrayList();
+        for (int i = 0; i < top.getChildCount(); i++) {
+            if (top.getChildAt(i) instanceof LogfileAnalysisNode) {
+                nodes.add(top.getChildAt(i));
             }
+        }
+        return (nodes);
+    }
+
+    /**
+     * get the map to store the thread dumps of the given log file node in.
+     */
+    private Map getDumpMap(DefaultMutableTreeNode top) {
+        String fileName = top.getUserObject().toString();
+        Map dumpMap = null;
+        if (runningAsJConsolePlugin || runningAsVisualVMPlugin) {
+            dumpMap = dumpStore.getFromDumpFiles(fileName);
+        }
 
-            if (dumpMap == null) {
-                dumpMap = new HashMap();
-                dumpStore.addFileToDumpFiles(fileName, dumpMap);
+        if (dumpMap == null) {
+            dumpMap = new HashMap();
+            dumpStore.addFileToDumpFiles(fileName, dumpMap);
+        }
+        return (dumpMap);
+    }
+
+    private void addThreadDumps(DefaultMutableTreeNode top, InputStream dumpFileStream, File mappedFile) {
+        DumpParser dp = null;
+        try {
+            Map dumpMap = getDumpMap(top);
+            if (mappedFile != null) {
+                dp = DumpParserFactory.get().getDumpParserForLogfile(mappedFile, dumpMap, runningAsJConsolePlugin,
+                        dumpCounter);
+            } else {
+                dp = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, dumpMap, runningAsJConsolePlugin,
+                        dumpCounter);
             }
-            dp = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, dumpMap, runningAsJConsolePlugin,
-                    dumpCounter);
-            ((Logfile) top.getUserObject()).setUsedParser(dp);
+            // further dumps of a running vm are added to the same log file node.
+            ((Logfile) top.getUserObject()).addParser(dp);
 
             while ((dp != null) && dp.hasMoreDumps()) {
                 top.add(dp.parseNext());
@@ -1334,6 +1589,14 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                     isFoundClassHistogram = dp.isFoundClassHistograms();
                 }
             }
+            if (dp instanceof AbstractDumpParser && ((AbstractDumpParser) dp).getBis() instanceof MappedLineReader) {
+                // only mapped files know the parsed length, which is needed to follow them.
+                ((Logfile) top.getUserObject()).setParsedLength(((MappedLineReader) ((AbstractDumpParser) dp).getBis()).getLimit());
+            }
+            addLogfileAnalyses(top, dp);
+            showSkippedDumps(dp);
+        } catch (IOException e) {
+            e.printStackTrace();
         }catch (Exception e){
             e.printStackTrace();
             throw e;
@@ -1494,6 +1757,12 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         menuItem = new JMenuItem("Find long running threads...");
         menuItem.addActionListener(this);
         popup.add(menuItem);
+        menuItem = new JMenuItem("Flame Graph of Selection");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
+        menuItem = new JMenuItem("Method Profile of Selection");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
 
         showDumpMenuItem = new JMenuItem("Show selected Dump in logfile");
         showDumpMenuItem.addActionListener(this);
@@ -1507,6 +1776,10 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
             }
             popup.add(menuItem);
 
+            followMenuItem = new JCheckBoxMenuItem("Follow logfile");
+            followMenuItem.addActionListener(this);
+            popup.add(followMenuItem);
+
             menuItem = new JMenuItem("Close logfile...");
             menuItem.addActionListener(this);
             popup.add(menuItem);
@@ -1549,6 +1822,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         tree.addMouseListener(popupListener);
     }
 
+    private JCheckBoxMenuItem followMenuItem = null;
+
     private PopupListener catPopupListener = null;
 
     /**
@@ -1628,6 +1903,13 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 showDumpMenuItem.setEnabled((tree.getSelectionPath() != null)
                         && ((DefaultMutableTreeNode) tree.getSelectionPath().getLastPathComponent()).
                         getUserObject() instanceof ThreadDumpInfo);
+                if (followMenuItem != null) {
+                    Logfile logfile = getSelectedLogfile();
+                    followMenuItem.setEnabled(logfile != null && logfile.getParsedLength() > 0
+                            && LogfileFollower.canFollow(logfile.getUsedParser()));
+                    followMenuItem.setState(logfile != null && logfile.getFollower() != null
+                            && logfile.getFollower().isRunning());
+                }
             }
         }
     }
@@ -1693,8 +1975,18 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 showSearchDialog();
             } else if ("Parse loggc-logfile...".equals(source.getText())) {
                 parseLoggcLogfile();
+            } else if ("Follow logfile".equals(source.getText())) {
+                followLogfile(((JCheckBoxMenuItem) source).getState());
             } else if ("Find long running threads...".equals(source.getText())) {
                 findLongRunningThreads();
+            } else if ("Find in Stacks of all Dumps...".equals(source.getText())) {
+                showFrameSearchDialog();
+            } else if ("Query Dumps...".equals(source.getText())) {
+                queryDumps();
+            } else if ("Flame Graph of Selection".equals(source.getText())) {
+                createFlameGraph();
+            } else if ("Method Profile of Selection".equals(source.getText())) {
+                createMethodProfile();
             } else if (("Close logfile...".equals(source.getText())) || ("Close...".equals(source.getText()))) {
                 closeCurrentDump();
             } else if ("Close all...".equals(source.getText())) {
@@ -2039,6 +2331,86 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         openLoggcFile();
     }
 
+    /**
+     * get the log file of the current selection.
+     *
+     * @return the log file, null if nothing or something else is selected.
+     */
+    private Logfile getSelectedLogfile() {
+        if (tree.getSelectionPath() == null || tree.getSelectionPath().getPathCount() <= getRootNodeLevel()) {
+            return (null);
+        }
+        Object userObject = fetchTop(tree.getSelectionPath()).getUserObject();
+        return (userObject instanceof Logfile ? (Logfile) userObject : null);
+    }
+
+    /**
+     * start or stop following the currently selected log file. New dumps appended
+     * to the log file are added to its node.
+     *
+     * @param follow true, if the log file should be followed.
+     */
+    private void followLogfile(boolean follow) {
+        final Logfile logfile = getSelectedLogfile();
+        if (logfile == null) {
+            return;
+        }
+        if (!follow) {
+            if (logfile.getFollower() != null) {
+                logfile.getFollower().stop();
+            }
+            return;
+        }
+
+        final DefaultMutableTreeNode top = fetchTop(tree.getSelectionPath());
+        if (logfile.getFollower() == null) {
+            int dumpCount = 0;
+            for (int i = 0; i < top.getChildCount(); i++) {
+                if (((DefaultMutableTreeNode) top.getChildAt(i)).getUserObject() instanceof ThreadDumpInfo) {
+                    dumpCount++;
+                }
+            }
+            logfile.setFollower(new LogfileFollower(new File(logfile.getName()), logfile.getParsedLength(), dumpCount + 1,
+                    dumpStore.getFromDumpFiles(logfile.getName()), (SunJDKParser) logfile.getUsedParser()));
+        }
+        logfile.getFollower().start(new LogfileFollower.FollowListener() {
+            public void dumpsFound(LogfileFollower follower, final List dumps) {
+                javax.swing.SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        int[] indices = new int[dumps.size()];
+                        for (int i = 0; i < dumps.size(); i++) {
+                            indices[i] = top.getChildCount();
+                            top.add((DefaultMutableTreeNode) dumps.get(i));
+                        }
+                        ((DefaultTreeModel) tree.getModel()).nodesWereInserted(top, indices);
+                        showSkippedDumps(logfile.getUsedParser());
+                    }
+                });
+            }
+
+            public void followingFailed(LogfileFollower follower, final IOException e) {
+                e.printStackTrace();
+                javax.swing.SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        JOptionPane.showMessageDialog(getRootPane(),
+                                "Stopped following " + logfile.getName() + "\nError Message is \"" + e.getLocalizedMessage() + "\".",
+                                "Error during following logfile", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * stop following the log file of the given node.
+     */
+    private void stopFollowing(Object node) {
+        Object userObject = ((DefaultMutableTreeNode) node).getUserObject();
+        if (userObject instanceof Logfile && ((Logfile) userObject).getFollower() != null) {
+            ((Logfile) userObject).getFollower().stop();
+        }
+    }
+
     /**
      * close the currently selected dump.
      */
@@ -2063,6 +2435,7 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         // if first option "close file" is selected.
         if (selectValue == 0) {
             // remove stuff from the top nodes
+            stopFollowing(selPath.getLastPathComponent());
             topNodes.remove(selPath.getLastPathComponent());
 
             if (topNodes.size() == 0) {
@@ -2072,6 +2445,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
 
                 init(runningAsJConsolePlugin, runningAsVisualVMPlugin);
                 getMainMenu().getLongMenuItem().setEnabled(false);
+                getMainMenu().getFindInStacksMenuItem().setEnabled(false);
+                getMainMenu().getQueryMenuItem().setEnabled(false);
                 getMainMenu().getCloseMenuItem().setEnabled(false);
                 getMainMenu().getSaveSessionMenuItem().setEnabled(false);
                 getMainMenu().getCloseToolBarButton().setEnabled(false);
@@ -2106,6 +2481,9 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         // if first option "close file" is selected.
         if (selectValue == 0) {
             // remove stuff from the top nodes
+            for (int i = 0; i < topNodes.size(); i++) {
+                stopFollowing(topNodes.get(i));
+            }
             topNodes = new Vector();
 
             // simply do a reinit, as there is anything to display
@@ -2124,6 +2502,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         revalidate();
 
         getMainMenu().getLongMenuItem().setEnabled(false);
+        getMainMenu().getFindInStacksMenuItem().setEnabled(false);
+        getMainMenu().getQueryMenuItem().setEnabled(false);
         getMainMenu().getCloseMenuItem().setEnabled(false);
         getMainMenu().getSaveSessionMenuItem().setEnabled(false);
         getMainMenu().getCloseToolBarButton().setEnabled(false);
@@ -2250,8 +2630,116 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         }
     }
 
+    /**
+     * search the stacks of all loaded log files.
+     */
+    private void showFrameSearchDialog() {
+        List logfileNodes = new ArrayList();
+        for (int i = 0; i < topNodes.size(); i++) {
+            if (((DefaultMutableTreeNode) topNodes.get(i)).getUserObject() instanceof Logfile) {
+                logfileNodes.add(topNodes.get(i));
+            }
+        }
+        FrameSearchDialog frameSearchDialog = new FrameSearchDialog(getFrame(), logfileNodes);
+        frameSearchDialog.pack();
+        frameSearchDialog.setLocationRelativeTo(getFrame());
+        frameSearchDialog.setVisible(true);
+    }
+
+    /**
+     * query the threads of all dumps of the selected log file, the result is added
+     * to the log file.
+     */
+    private void queryDumps() {
+        DefaultMutableTreeNode top = null;
+        if (tree.getSelectionPath() != null) {
+            top = fetchTop(tree.getSelectionPath());
+        } else if (topNodes.size() == 1) {
+            top = (DefaultMutableTreeNode) topNodes.get(0);
+        }
+        if (top == null || !(top.getUserObject() instanceof Logfile)
+                || !(((Logfile) top.getUserObject()).getUsedParser() instanceof AbstractDumpParser)) {
+            JOptionPane.showMessageDialog(this.getRootPane(),
+                    "You must select a log file or one of its dumps for a query!\n",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        String text = (String) JOptionPane.showInputDialog(this.getRootPane(),
+                "Query, e.g. state = BLOCKED and stack contains \"jdbc\" and dump in last 10 group by pool",
+                "Query Dumps", JOptionPane.QUESTION_MESSAGE, null, null, lastQuery);
+        if (text == null || text.trim().length() == 0) {
+            return;
+        }
+        lastQuery = text;
+        Query query;
+        try {
+            query = Query.parse(text);
+        } catch (ParseException ex) {
+            JOptionPane.showMessageDialog(this.getRootPane(),
+                    "Invalid query at position " + (ex.getErrorOffset() + 1) + ": " + ex.getMessage() + "\n",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // the threads of not yet parsed dumps aren't indexed.
+        LazyDumpNode.loadAll(top);
+        AbstractDumpParser parser = (AbstractDumpParser) ((Logfile) top.getUserObject()).getUsedParser();
+        if (parser.createQueryResult(top, query) == 0) {
+            JOptionPane.showMessageDialog(this.getRootPane(), "No threads match the query.",
+                    "Query Dumps", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        createTree();
+        this.getRootPane().revalidate();
+    }
+
+    /**
+     * aggregate the selected dumps into a flame graph added to the log file.
+     */
+    private void createFlameGraph() {
+        DefaultMutableTreeNode mergeRoot = getSelectedDumpsRoot("a flame graph");
+        if (mergeRoot != null) {
+            Map dumpMap = dumpStore.getFromDumpFiles(mergeRoot.getUserObject().toString());
+            ((Logfile) mergeRoot.getUserObject()).getUsedParser().createFlameGraph(mergeRoot, dumpMap, tree.getSelectionPaths());
+            createTree();
+            this.getRootPane().revalidate();
+        }
+    }
+
+    /**
+     * count the methods of the selected dumps, the profile is added to the log file.
+     */
+    private void createMethodProfile() {
+        DefaultMutableTreeNode mergeRoot = getSelectedDumpsRoot("a method profile");
+        if (mergeRoot != null) {
+            Map dumpMap = dumpStore.getFromDumpFiles(mergeRoot.getUserObject().toString());
+            ((Logfile) mergeRoot.getUserObject()).getUsedParser().createMethodProfile(mergeRoot, dumpMap, tree.getSelectionPaths());
+            createTree();
+            this.getRootPane().revalidate();
+        }
+    }
+
+    /**
+     * get the log file node of the selected dumps.
+     *
+     * @param analysis the analysis of the dumps, for the error message.
+     * @return the log file node, null if nothing is selected.
+     */
+    private DefaultMutableTreeNode getSelectedDumpsRoot(String analysis) {
+        if (tree.getSelectionPaths() == null) {
+            JOptionPane.showMessageDialog(this.getRootPane(),
+                    "You must select at least one dump for " + analysis + "!\n",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return (null);
+        }
+        return (fetchTop(tree.getSelectionPath()));
+    }
+
     private int rootNodeLevel = 0;
 
+    private String lastQuery = "state = BLOCKED group by pool";
+
     private int getRootNodeLevel() {
         return (rootNodeLevel);
     }
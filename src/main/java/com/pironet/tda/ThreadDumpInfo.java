@@ -21,6 +21,10 @@
  */
 package com.pironet.tda;
 
+import com.pironet.tda.model.ThreadDump;
+
+import java.util.List;
+
 /**
  * Thread Dump Information Node. It stores structural data about the thread dump
  * and provides methods for generating html information for displaying infos about
@@ -45,7 +49,7 @@ public class ThreadDumpInfo extends AbstractInfo {
     private Category threads;
     private Category deadlocks;
     private HeapInfo heapInfo;
-
+    private ThreadDump dump;
 
     ThreadDumpInfo(String name, int lineCount) {
         setName(name);
@@ -92,12 +96,13 @@ public class ThreadDumpInfo extends AbstractInfo {
     }
 
     /**
-     * get the overview information of this thread dump.
+     * get the overview information of this thread dump, it is recreated if the
+     * rules changed.
      *
      * @return overview information.
      */
     public String getOverview() {
-        if (overview == null) {
+        if (overview == null || getDumpAnalyzer().isOutdated()) {
             createOverview();
         }
         return overview;
@@ -273,6 +278,15 @@ public class ThreadDumpInfo extends AbstractInfo {
         this.deadlocks = deadlocks;
     }
 
+    /**
+     * get the findings of the rules for this dump.
+     *
+     * @return list of {@link com.pironet.tda.rules.Finding}.
+     */
+    public List getFindings() {
+        return (getDumpAnalyzer().getFindings());
+    }
+
     private Analyzer getDumpAnalyzer() {
         if (dumpAnalyzer == null) {
             setDumpAnalyzer(new Analyzer(this));
@@ -320,6 +334,19 @@ public class ThreadDumpInfo extends AbstractInfo {
         heapInfo = value;
     }
 
+    /**
+     * get the parsed dump this node was created from.
+     *
+     * @return the dump model, null if the node wasn't created from a parsed dump.
+     */
+    public ThreadDump getDump() {
+        return (dump);
+    }
+
+    public void setDump(ThreadDump value) {
+        dump = value;
+    }
+
     /**
      * string representation of this node, is used to displayed the node info
      * in the tree.
@@ -0,0 +1,157 @@
+/*
+ * ThreadIndex.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * index of the threads of several dumps. The title of a thread changes with its
+ * state, so threads are matched by their thread and native id as long as the dump
+ * logs them, by their name otherwise. If requested, the stack hashes of the threads
+ * are compared while the dumps are added to find the threads which got stuck.
+ */
+public class ThreadIndex {
+    private AbstractDumpParser parser;
+    private int dumpCount;
+    private int stackDepth = -1;
+    private Map entries = new HashMap();
+    private List threads = new ArrayList();
+
+    /**
+     * Creates a new instance of ThreadIndex
+     *
+     * @param parser    the parser of the dumps, which knows the format of the titles.
+     * @param dumpCount the amount of dumps to index.
+     */
+    public ThreadIndex(AbstractDumpParser parser, int dumpCount) {
+        this.parser = parser;
+        this.dumpCount = dumpCount;
+    }
+
+    /**
+     * compare the stacks of the threads, needs to be set before adding dumps.
+     *
+     * @param stackDepth the amount of top frames to compare, 0 for all, -1 if the
+     *                   stacks shouldn't be compared.
+     */
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+    }
+
+    /**
+     * add the threads of a dump, dumps need to be added in ascending order.
+     *
+     * @param dump    the index of the dump.
+     * @param threads the threads of the dump keyed by their titles.
+     */
+    public void addDump(int dump, Map threads) {
+        for (Iterator iter = threads.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry thread = (Map.Entry) iter.next();
+            String title = (String) thread.getKey();
+            Entry entry = getEntry(parser.getThreadKey(title));
+            if (entry.titles[dump] != null) {
+                // the ids aren't unique within this dump, the title has to do.
+                entry = getEntry(title);
+            }
+            entry.titles[dump] = title;
+            entry.occurrence++;
+
+            if (stackDepth >= 0) {
+                long hash = getStackHash(thread.getValue());
+                // threads without stack don't get stuck somewhere.
+                entry.run = hash == 0 ? 0 : (entry.lastDump == dump - 1 && entry.hash == hash ? entry.run + 1 : 1);
+                entry.longestRun = Math.max(entry.longestRun, entry.run);
+                entry.hash = hash;
+                entry.lastDump = dump;
+            }
+        }
+    }
+
+    /**
+     * get the stack hash of a stored thread, sessions saved by older versions only
+     * contain the html of the threads.
+     */
+    private long getStackHash(Object thread) {
+        return (thread instanceof DumpThread ? ((DumpThread) thread).getStackHash(stackDepth)
+                : (thread != null ? thread.hashCode() : 0));
+    }
+
+    private Entry getEntry(String key) {
+        Entry entry = (Entry) entries.get(key);
+        if (entry == null) {
+            entry = new Entry(dumpCount);
+            entries.put(key, entry);
+            threads.add(entry);
+        }
+        return (entry);
+    }
+
+    /**
+     * @return the amount of distinct threads of all dumps.
+     */
+    public int size() {
+        return (threads.size());
+    }
+
+    /**
+     * get the title of a thread in the given dump.
+     *
+     * @param thread the index of the thread, threads are sorted by their first occurrence.
+     * @param dump   the index of the dump.
+     * @return the title, null if the thread isn't part of the dump.
+     */
+    public String getTitle(int thread, int dump) {
+        return (((Entry) threads.get(thread)).titles[dump]);
+    }
+
+    /**
+     * @return the amount of dumps the thread is part of.
+     */
+    public int getOccurrence(int thread) {
+        return (((Entry) threads.get(thread)).occurrence);
+    }
+
+    /**
+     * @return the most consecutive dumps the thread kept the same stack in, only
+     * known if the stacks are compared.
+     */
+    public int getLongestRun(int thread) {
+        return (((Entry) threads.get(thread)).longestRun);
+    }
+
+    private static class Entry {
+        private String[] titles;
+        private int occurrence = 0;
+        private long hash;
+        private int lastDump = -1;
+        private int run;
+        private int longestRun;
+
+        Entry(int dumpCount) {
+            titles = new String[dumpCount];
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.model.DumpThread;
+
 /**
  * Info (name, content tuple) for thread dump display tree.
  *
@@ -29,6 +31,7 @@ package com.pironet.tda;
  */
 public class ThreadInfo extends AbstractInfo {
     private String content;
+    private DumpThread thread;
     private String info;
     private int stackLines;
     private String[] tokens;
@@ -43,11 +46,23 @@ public class ThreadInfo extends AbstractInfo {
         tokens = tableTokens;
     }
 
+    /**
+     * create an info for a parsed thread, its content is rendered as soon as it is
+     * requested.
+     */
+    public ThreadInfo(String name, String info, DumpThread thread, int stackLines, String[] tableTokens) {
+        this(name, info, (String) null, stackLines, tableTokens);
+        this.thread = thread;
+    }
+
     public String toString() {
         return getName();
     }
 
     public String getContent() {
+        if (content == null && thread != null) {
+            return (ThreadRenderer.render(thread));
+        }
         return content;
     }
 
@@ -55,6 +70,13 @@ public class ThreadInfo extends AbstractInfo {
         this.content = content;
     }
 
+    /**
+     * @return the parsed thread, null if the content was set as html.
+     */
+    public DumpThread getThread() {
+        return (thread);
+    }
+
     public String getInfo() {
         return info;
     }
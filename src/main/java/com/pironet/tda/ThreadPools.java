@@ -0,0 +1,384 @@
+/*
+ * ThreadPools.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * the thread pools over all dumps of a log file. Threads belong to a pool if their
+ * names only differ in a numeric suffix, like "http-nio-8080-exec-137". The threads of
+ * a pool are counted per dump by their state, threads waiting for work in one of the
+ * well-known pool methods are idle. The saturation of a pool is the part of its
+ * threads which aren't idle.
+ */
+public class ThreadPools implements LogfileAnalysis {
+    public static final int RUNNABLE = 0;
+    public static final int BLOCKED = 1;
+    public static final int WAITING = 2;
+    public static final int IDLE = 3;
+
+    /**
+     * methods a pool thread waits for work in.
+     */
+    private static final String[] IDLE_METHODS = {
+            "java.util.concurrent.ThreadPoolExecutor.getTask",
+            "java.util.concurrent.ForkJoinPool.awaitWork",
+            "java.util.concurrent.ScheduledThreadPoolExecutor$DelayedWorkQueue.take",
+            "org.apache.tomcat.util.threads.TaskQueue.take",
+            "org.apache.tomcat.util.threads.TaskQueue.poll",
+            "org.eclipse.jetty.util.thread.QueuedThreadPool.idleJobPoll",
+            "org.eclipse.jetty.util.thread.QueuedThreadPool$Runner.idleJobPoll",
+            "io.netty.channel.nio.NioEventLoop.select",
+            "io.netty.channel.epoll.EpollEventLoop.epollWait",
+            "weblogic.work.ExecuteThread.waitForRequest",
+            "EDU.oswego.cs.dl.util.concurrent.PooledExecutor.getTask"
+    };
+
+    /**
+     * the amount of top frames checked for idle methods.
+     */
+    private static final int IDLE_DEPTH = 8;
+
+    private List dumps = new ArrayList();
+    private Map pools = new HashMap();
+    private List poolList = new ArrayList();
+    private int modCount = 0;
+
+    /**
+     * get the name of the pool of a thread.
+     *
+     * @param threadName the name of the thread.
+     * @return the name without numeric suffix, null if the name doesn't have one.
+     */
+    public static String getPoolName(String threadName) {
+        int end = threadName.length();
+        while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) {
+            end--;
+        }
+        if (end == threadName.length() || end == 0) {
+            return (null);
+        }
+        while (end > 0 && "-_#. ".indexOf(threadName.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return (end > 0 ? threadName.substring(0, end) : null);
+    }
+
+    /**
+     * get the state of a pool thread.
+     *
+     * @return {@link #RUNNABLE}, {@link #BLOCKED}, {@link #WAITING} or {@link #IDLE}.
+     */
+    public static int getState(DumpThread thread) {
+        List frames = thread.getFrames();
+        for (int i = 0; i < frames.size() && i < IDLE_DEPTH; i++) {
+            String method = MethodProfile.getMethod(((StackFrame) frames.get(i)).getLine());
+            for (int j = 0; j < IDLE_METHODS.length; j++) {
+                if (method.equals(IDLE_METHODS[j])) {
+                    return (IDLE);
+                }
+            }
+        }
+        if (thread.isWaiting()) {
+            return (BLOCKED);
+        }
+        return (thread.isRunnable() ? RUNNABLE : WAITING);
+    }
+
+    /**
+     * group the pool threads of a dump, called for every thread while the dump node is built.
+     *
+     * @param dumpPools the pools of the dump, keyed by their names.
+     * @param thread    the thread.
+     * @param info      the info displaying the thread.
+     */
+    public static void addThread(Map dumpPools, DumpThread thread, ThreadInfo info) {
+        String poolName = getPoolName(DumpTreeBuilder.getThreadName(thread.getTitle()));
+        if (poolName == null) {
+            return;
+        }
+        DumpPool pool = (DumpPool) dumpPools.get(poolName);
+        if (pool == null) {
+            pool = new DumpPool(poolName);
+            dumpPools.put(poolName, pool);
+        }
+        pool.counts[getState(thread)]++;
+        pool.threads.add(info);
+    }
+
+    /**
+     * add the pools of a parsed dump.
+     *
+     * @param name      the name of the dump.
+     * @param logLine   the line of the dump in the log file.
+     * @param dumpPools the pools of the dump, keyed by their names.
+     * @return list of {@link DumpPool}, the largest pool first.
+     */
+    public List addDump(String name, int logLine, Map dumpPools) {
+        List result = new ArrayList(dumpPools.values());
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                DumpPool p1 = (DumpPool) o1;
+                DumpPool p2 = (DumpPool) o2;
+                if (p1.threads.size() != p2.threads.size()) {
+                    return (p2.threads.size() - p1.threads.size());
+                }
+                return (p1.name.compareTo(p2.name));
+            }
+        });
+
+        synchronized (this) {
+            Dump dump = new Dump(name, logLine);
+            // dumps of the same line (e.g. requested from a running vm) keep their order.
+            int pos = dumps.size();
+            while (pos > 0 && ((Dump) dumps.get(pos - 1)).logLine > logLine) {
+                pos--;
+            }
+            dumps.add(pos, dump);
+
+            for (int i = 0; i < result.size(); i++) {
+                DumpPool dumpPool = (DumpPool) result.get(i);
+                Pool pool = (Pool) pools.get(dumpPool.name);
+                if (pool == null) {
+                    pool = new Pool(dumpPool.name);
+                    pools.put(dumpPool.name, pool);
+                    poolList.add(pool);
+                }
+                pool.add(dump, dumpPool.counts);
+            }
+            modCount++;
+        }
+        return (result);
+    }
+
+    /**
+     * @return the amount of pools found in all dumps.
+     */
+    public synchronized int size() {
+        return (poolList.size());
+    }
+
+    public synchronized int getModCount() {
+        return (modCount);
+    }
+
+    /**
+     * get the pools, the most saturated ones first, afterwards the largest.
+     *
+     * @return list of {@link Pool}.
+     */
+    public synchronized List getPools() {
+        List result = new ArrayList(poolList);
+        Collections.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Pool p1 = (Pool) o1;
+                Pool p2 = (Pool) o2;
+                if (p1.getMaxSaturation() != p2.getMaxSaturation()) {
+                    return (p2.getMaxSaturation() - p1.getMaxSaturation());
+                }
+                return (p2.getMaxSize() - p1.getMaxSize());
+            }
+        });
+        return (result);
+    }
+
+    /**
+     * create the category displaying the saturation of the pools over all dumps.
+     */
+    public synchronized TreeCategory createCategory() {
+        List result = getPools();
+        TreeCategory cat = new TreeCategory("Thread Pool Saturation", IconFactory.THREADS, false);
+        for (int i = 0; i < result.size(); i++) {
+            Pool pool = (Pool) result.get(i);
+            ThreadInfo pi = new ThreadInfo(pool.getName() + ":    max " + pool.getMaxSaturation() + "% busy, max "
+                    + pool.getMaxSize() + " Thread(s) in " + pool.getDumpCount() + " Dump(s)", null, pool.getContent(), 0, null);
+            pi.setALotOfWaiting(pool.getMaxSaturation() == 100);
+            cat.addToCatNodes(new DefaultMutableTreeNode(pi));
+        }
+        cat.setName(cat + " (" + result.size() + " Pools in " + dumps.size() + " Dumps)");
+        return (cat);
+    }
+
+    /**
+     * @return the part of the threads which aren't idle in percent.
+     */
+    static int getSaturation(int[] counts) {
+        int size = counts[RUNNABLE] + counts[BLOCKED] + counts[WAITING] + counts[IDLE];
+        return (size > 0 ? (size - counts[IDLE]) * 100 / size : 0);
+    }
+
+    /**
+     * a dump added to the pools.
+     */
+    private static class Dump implements Serializable {
+        private String name;
+        private int logLine;
+
+        Dump(String name, int logLine) {
+            this.name = name;
+            this.logLine = logLine;
+        }
+    }
+
+    /**
+     * the threads of a pool in one dump.
+     */
+    public static class DumpPool {
+        private String name;
+        private int[] counts = new int[4];
+        private List threads = new ArrayList();
+
+        DumpPool(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return (name);
+        }
+
+        /**
+         * @return the amount of threads in the given state.
+         */
+        public int getCount(int state) {
+            return (counts[state]);
+        }
+
+        /**
+         * @return the {@link ThreadInfo}s of the threads of the pool.
+         */
+        public List getThreads() {
+            return (threads);
+        }
+
+        public int getSaturation() {
+            return (ThreadPools.getSaturation(counts));
+        }
+    }
+
+    /**
+     * a pool with its thread counts in the dumps it was found in, sorted by the
+     * position of the dumps in the log file.
+     */
+    public static class Pool implements Serializable {
+        private String name;
+        private Dump[] dumps = new Dump[2];
+        private int[][] counts = new int[2][];
+        private int size = 0;
+
+        Pool(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(Dump dump, int[] dumpCounts) {
+            if (size == dumps.length) {
+                Dump[] newDumps = new Dump[size * 2];
+                int[][] newCounts = new int[size * 2][];
+                System.arraycopy(dumps, 0, newDumps, 0, size);
+                System.arraycopy(counts, 0, newCounts, 0, size);
+                dumps = newDumps;
+                counts = newCounts;
+            }
+            int pos = size;
+            while (pos > 0 && dumps[pos - 1].logLine > dump.logLine) {
+                dumps[pos] = dumps[pos - 1];
+                counts[pos] = counts[pos - 1];
+                pos--;
+            }
+            dumps[pos] = dump;
+            counts[pos] = dumpCounts;
+            size++;
+        }
+
+        public String getName() {
+            return (name);
+        }
+
+        /**
+         * @return the amount of dumps the pool was found in.
+         */
+        public synchronized int getDumpCount() {
+            return (size);
+        }
+
+        /**
+         * @return the amount of threads in the given state in the i-th dump of the pool.
+         */
+        public synchronized int getCount(int i, int state) {
+            return (counts[i][state]);
+        }
+
+        public synchronized int getMaxSaturation() {
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, getSaturation(counts[i]));
+            }
+            return (max);
+        }
+
+        public synchronized int getMaxSize() {
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, counts[i][RUNNABLE] + counts[i][BLOCKED] + counts[i][WAITING] + counts[i][IDLE]);
+            }
+            return (max);
+        }
+
+        /**
+         * render the thread counts of the pool per dump.
+         */
+        public synchronized String getContent() {
+            StringBuffer statData = new StringBuffer("<body bgcolor=\"ffffff\"><table border=0><tr bgcolor=\"#cccccc\">"
+                    + "<td><font face=System>Dump</td><td><font face=System>Threads</td><td><font face=System>Running</td>"
+                    + "<td><font face=System>Blocked</td><td><font face=System>Waiting</td><td><font face=System>Idle</td>"
+                    + "<td><font face=System>Busy</td></tr>\n");
+            for (int i = 0; i < size; i++) {
+                int saturation = getSaturation(counts[i]);
+                statData.append(i % 2 == 0 ? "<tr bgcolor=\"#dddddd\">" : "<tr bgcolor=\"#eeeeee\">");
+                statData.append("<td><font face=System>");
+                statData.append(dumps[i].name);
+                statData.append("</td><td><b><font face=System>");
+                statData.append(counts[i][RUNNABLE] + counts[i][BLOCKED] + counts[i][WAITING] + counts[i][IDLE]);
+                for (int state = RUNNABLE; state <= IDLE; state++) {
+                    statData.append("</b></td><td><b><font face=System>");
+                    statData.append(counts[i][state]);
+                }
+                statData.append("</b></td><td><b><font face=System>");
+                statData.append(saturation == 100 ? "<font color=\"#ff0000\">" : "");
+                statData.append(saturation);
+                statData.append("%");
+                statData.append(saturation == 100 ? "</font>" : "");
+                statData.append("</b></td></tr>\n");
+            }
+            statData.append("</table>");
+            return (statData.toString());
+        }
+    }
+}
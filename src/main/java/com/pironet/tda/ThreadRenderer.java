@@ -0,0 +1,141 @@
+/*
+ * ThreadRenderer.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.LockEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * renders the html content of parsed threads. The parsers only keep the raw
+ * stack data, the html is created when a thread is displayed (or filtered) and
+ * kept in a small cache, so large logs don't hold the html of every thread.
+ */
+public class ThreadRenderer {
+    /**
+     * max. amount of rendered threads to keep.
+     */
+    private static final int CACHE_SIZE = 512;
+
+    private static final Map cache = new LinkedHashMap(CACHE_SIZE, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return (size() > CACHE_SIZE);
+        }
+    };
+
+    private static String cachedFontSize = null;
+
+    private ThreadRenderer() {
+    }
+
+    /**
+     * get the html content of the given thread.
+     *
+     * @param thread the thread to render.
+     * @return the html content, the body and pre tags are left open.
+     */
+    public static String render(DumpThread thread) {
+        String fontSize = TDA.getFontSizeModifier(-1);
+        synchronized (cache) {
+            if (!fontSize.equals(cachedFontSize)) {
+                // rendered with another font size, start all over.
+                cache.clear();
+                cachedFontSize = fontSize;
+            }
+            String content = (String) cache.get(thread);
+            if (content == null) {
+                content = renderThread(thread, fontSize);
+                cache.put(thread, content);
+            }
+            return (content);
+        }
+    }
+
+    /**
+     * drop all cached content.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static String renderThread(DumpThread thread, String fontSize) {
+        StringBuffer content = new StringBuffer("<body bgcolor=\"ffffff\"><pre><font size=" + fontSize + ">");
+        content.append(thread.getHeaderLine());
+        content.append("\n");
+        List lines = thread.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            Object line = lines.get(i);
+            if (line instanceof LockEvent) {
+                content.append(linkifyMonitor((LockEvent) line));
+            } else {
+                content.append(line);
+            }
+            content.append("\n");
+        }
+        return (content.toString());
+    }
+
+    /**
+     * add a monitor link for the monitor of the given lock event.
+     */
+    static String linkifyMonitor(LockEvent event) {
+        String line = event.getLine();
+        if (event.getAddress() == null || line.indexOf('<') >= 0) {
+            return (linkifyMonitor(line));
+        }
+
+        // monitor given as class@address
+        int addressPos = line.lastIndexOf(event.getAddress());
+        if (addressPos < 0) {
+            return (line);
+        }
+        return (line.substring(0, addressPos) + "<a href=\"monitor://<" + event.getAddress() + ">\">" + event.getAddress() + "</a>"
+                + line.substring(addressPos + event.getAddress().length()));
+    }
+
+    /**
+     * add a monitor link for monitor navigation
+     *
+     * @param line containing monitor
+     */
+    static String linkifyMonitor(String line) {
+        if (line != null && line.indexOf('<') >= 0) {
+            String begin = line.substring(0, line.indexOf('<'));
+            String monitor = line.substring(line.indexOf('<'), line.indexOf('>') + 1);
+            String end = line.substring(line.indexOf('>') + 1);
+            monitor = monitor.replaceAll("<", "<a href=\"monitor://" + monitor + "\">&lt;");
+            monitor = monitor.substring(0, monitor.length() - 1) + "&gt;</a>";
+            return (begin + monitor + end);
+        } else if (line != null && line.indexOf('@') >= 0) {
+            String begin = line.substring(0, line.indexOf('@') + 1);
+            String monitor = line.substring(line.indexOf('@'));
+            monitor = monitor.replaceAll("@", "@<a href=\"monitor://<" + monitor.substring(1) + ">\">");
+            monitor = monitor.substring(0, monitor.length() - 1) + "</a>";
+            return (begin + monitor);
+        } else {
+            return (line);
+        }
+    }
+}
@@ -68,7 +68,9 @@ public class TreeCategory extends AbstractCategory implements Serializable {
 
             // apply new filter settings.
             filteredCatTree = new JTree(filterNodes(getRootNode()));
-            if (getName().startsWith("Monitors") || getName().startsWith("Threads blocked by Monitors")) {
+            if (getName().startsWith("Monitors") || getName().startsWith("Threads blocked by Monitors") || getName().startsWith("Stack Groups")
+                    || getName().startsWith("Thread Pools") || getName().startsWith("State Transitions")
+                    || getName().startsWith("Rule Findings")) {
                 filteredCatTree.setShowsRootHandles(true);
             }
             filteredCatTree.setCellRenderer(new TreeRenderer());
@@ -77,7 +79,9 @@ public class TreeCategory extends AbstractCategory implements Serializable {
             setLastUpdated();
         } else if (!isFilterEnabled() && (filteredCatTree == null) || (getLastUpdated() < PrefManager.get().getFiltersLastChanged())) {
             filteredCatTree = new JTree(getRootNode());
-            if (getName().startsWith("Monitors") || getName().startsWith("Threads blocked by Monitors")) {
+            if (getName().startsWith("Monitors") || getName().startsWith("Threads blocked by Monitors") || getName().startsWith("Stack Groups")
+                    || getName().startsWith("Thread Pools") || getName().startsWith("State Transitions")
+                    || getName().startsWith("Rule Findings")) {
                 filteredCatTree.setShowsRootHandles(true);
             }
             filteredCatTree.setCellRenderer(new TreeRenderer());
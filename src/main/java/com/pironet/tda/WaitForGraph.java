@@ -0,0 +1,395 @@
+/*
+ * WaitForGraph.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * wait-for graph of the contended monitors of a dump: which thread owns a monitor,
+ * which threads are blocked by it and which monitors a thread is blocked on.
+ * Everything is indexed by hash maps and built in one pass over the monitor map.
+ * <p>
+ * The graph also gives the blocking forest of the monitors: a monitor is placed
+ * below the monitor its owner is blocked on. Owner loops (deadlocks) are left
+ * open at the monitor closing the loop, they are found separately by
+ * {@link #getCycles()}.
+ */
+public class WaitForGraph {
+    /**
+     * contended monitors in the order of the monitor map.
+     */
+    private final List monitors = new ArrayList();
+
+    private final Map owners = new HashMap();
+    private final Map ownerThreads = new HashMap();
+    private final Map blockedThreads = new HashMap();
+    private final Map threads = new HashMap();
+    private final Map waitedFor = new HashMap();
+    private int blockedThreadCount = 0;
+
+    private final Map parents = new HashMap();
+    private final Map children = new HashMap();
+
+    /**
+     * Creates a new instance of WaitForGraph
+     *
+     * @param mmap the monitors of the dump.
+     */
+    public WaitForGraph(MonitorMap mmap) {
+        for (int m = 0; m < mmap.size(); m++) {
+            String monitor = mmap.getMonitor(m);
+            int[] waitThreads = mmap.getThreads(m, MonitorMap.WAIT_THREAD_POS);
+
+            List blocked = new ArrayList();
+            for (int i = 0; i < waitThreads.length; i++) {
+                // a thread locking the monitor itself isn't blocked by it.
+                if (!mmap.hasThread(m, MonitorMap.LOCK_THREAD_POS, waitThreads[i])) {
+                    String title = mmap.getThreadTitle(waitThreads[i]);
+                    blocked.add(title);
+                    threads.put(title, mmap.getThread(waitThreads[i]));
+                }
+            }
+            if (blocked.isEmpty()) {
+                continue;
+            }
+
+            int owner = mmap.getOwner(m);
+            monitors.add(monitor);
+            owners.put(monitor, owner >= 0 ? mmap.getThreadTitle(owner) : "");
+            ownerThreads.put(monitor, owner >= 0 ? mmap.getThread(owner) : null);
+            blockedThreads.put(monitor, blocked);
+            blockedThreadCount += blocked.size();
+            for (int i = 0; i < blocked.size(); i++) {
+                List waits = (List) waitedFor.get(blocked.get(i));
+                if (waits == null) {
+                    waits = new ArrayList(1);
+                    waitedFor.put(blocked.get(i), waits);
+                }
+                waits.add(monitor);
+            }
+        }
+        buildBlockingForest();
+    }
+
+    /**
+     * place every monitor below the first monitor its owner is blocked on. A union
+     * find over the trees built so far tells in near constant time if the new edge
+     * would close a loop.
+     */
+    private void buildBlockingForest() {
+        Map sets = new HashMap();
+        for (int i = 0; i < monitors.size(); i++) {
+            String monitor = (String) monitors.get(i);
+            List waits = (List) waitedFor.get(owners.get(monitor));
+            if (waits == null) {
+                continue;
+            }
+            String parent = null;
+            for (int j = 0; j < waits.size() && parent == null; j++) {
+                if (waits.get(j) != monitor) {
+                    parent = (String) waits.get(j);
+                }
+            }
+            if (parent == null) {
+                continue;
+            }
+
+            // the monitor is still the root of its tree, the edge closes a loop if the
+            // parent belongs to the same tree.
+            Object set = find(sets, monitor);
+            Object parentSet = find(sets, parent);
+            if (set == parentSet) {
+                continue;
+            }
+            sets.put(set, parentSet);
+
+            parents.put(monitor, parent);
+            List blockedMonitors = (List) children.get(parent);
+            if (blockedMonitors == null) {
+                blockedMonitors = new ArrayList(1);
+                children.put(parent, blockedMonitors);
+            }
+            blockedMonitors.add(monitor);
+        }
+    }
+
+    private static Object find(Map sets, Object element) {
+        Object set = element;
+        Object next;
+        while ((next = sets.get(set)) != null) {
+            set = next;
+        }
+        // path compression
+        while ((next = sets.get(element)) != null && next != set) {
+            sets.put(element, set);
+            element = next;
+        }
+        return (set);
+    }
+
+    /**
+     * @return the contended monitors, in the order of the monitor map.
+     */
+    public List getMonitors() {
+        return (Collections.unmodifiableList(monitors));
+    }
+
+    /**
+     * @return the title of the owner of the given monitor, an empty string if unknown.
+     */
+    public String getOwner(String monitor) {
+        return ((String) owners.get(monitor));
+    }
+
+    /**
+     * @return the thread owning the given monitor, null if unknown.
+     */
+    public Object getOwnerThread(String monitor) {
+        return (ownerThreads.get(monitor));
+    }
+
+    /**
+     * @return the titles of the threads blocked by the given monitor.
+     */
+    public List getBlockedThreads(String monitor) {
+        List result = (List) blockedThreads.get(monitor);
+        return (result != null ? Collections.unmodifiableList(result) : Collections.EMPTY_LIST);
+    }
+
+    /**
+     * @return the blocked thread with the given title.
+     */
+    public Object getThread(String title) {
+        return (threads.get(title));
+    }
+
+    /**
+     * @return the contended monitors the given thread is blocked on.
+     */
+    public List getMonitorsWaitedFor(String title) {
+        List result = (List) waitedFor.get(title);
+        return (result != null ? Collections.unmodifiableList(result) : Collections.EMPTY_LIST);
+    }
+
+    /**
+     * @return the amount of blocked threads summed up over all monitors.
+     */
+    public int getBlockedThreadCount() {
+        return (blockedThreadCount);
+    }
+
+    /**
+     * @return the monitor the given monitor is placed below in the blocking forest,
+     * null if it is a root.
+     */
+    public String getBlockingMonitor(String monitor) {
+        return ((String) parents.get(monitor));
+    }
+
+    /**
+     * @return the monitors placed directly below the given monitor in the blocking
+     * forest, in the order of the monitor map.
+     */
+    public List getBlockedMonitors(String monitor) {
+        List result = (List) children.get(monitor);
+        return (result != null ? Collections.unmodifiableList(result) : Collections.EMPTY_LIST);
+    }
+
+    /**
+     * find the wait-for cycles (deadlocks) between the blocked threads. A thread
+     * waits for the owners of the monitors it is blocked on, this includes
+     * java.util.concurrent locks, as parking threads are blocked on the lock and
+     * the owner has it in its locked ownable synchronizers.
+     * <p>
+     * The strongly connected components of the threads are found with Tarjan's
+     * algorithm, so this is linear in the amount of blocked threads and monitors.
+     *
+     * @return the cycles found, an empty list if there are none.
+     */
+    public List getCycles() {
+        List result = new ArrayList();
+        Map indexes = new HashMap();
+        Map lowLinks = new HashMap();
+        List stack = new ArrayList();
+        Set onStack = new HashSet();
+        List frames = new ArrayList();
+
+        for (int i = 0; i < monitors.size(); i++) {
+            List blocked = (List) blockedThreads.get(monitors.get(i));
+            for (int j = 0; j < blocked.size(); j++) {
+                if (indexes.containsKey(blocked.get(j))) {
+                    continue;
+                }
+                frames.add(new Frame((String) blocked.get(j)));
+                while (!frames.isEmpty()) {
+                    Frame frame = (Frame) frames.get(frames.size() - 1);
+                    if (frame.next == 0) {
+                        Integer index = new Integer(indexes.size());
+                        indexes.put(frame.thread, index);
+                        lowLinks.put(frame.thread, index);
+                        stack.add(frame.thread);
+                        onStack.add(frame.thread);
+                    }
+
+                    List waits = (List) waitedFor.get(frame.thread);
+                    if (waits != null && frame.next < waits.size()) {
+                        String owner = (String) owners.get(waits.get(frame.next++));
+                        if (!indexes.containsKey(owner)) {
+                            frames.add(new Frame(owner));
+                        } else if (onStack.contains(owner)) {
+                            lowerLowLink(lowLinks, frame.thread, (Integer) indexes.get(owner));
+                        }
+                        continue;
+                    }
+
+                    // all successors done
+                    frames.remove(frames.size() - 1);
+                    if (!frames.isEmpty()) {
+                        lowerLowLink(lowLinks, ((Frame) frames.get(frames.size() - 1)).thread, (Integer) lowLinks.get(frame.thread));
+                    }
+                    if (lowLinks.get(frame.thread).equals(indexes.get(frame.thread))) {
+                        Set component = new HashSet();
+                        String thread;
+                        do {
+                            thread = (String) stack.remove(stack.size() - 1);
+                            onStack.remove(thread);
+                            component.add(thread);
+                        } while (!thread.equals(frame.thread));
+                        if (component.size() > 1) {
+                            result.add(createCycle(frame.thread, component));
+                        }
+                    }
+                }
+            }
+        }
+        return (result);
+    }
+
+    private static void lowerLowLink(Map lowLinks, String thread, Integer value) {
+        if (value.intValue() < ((Integer) lowLinks.get(thread)).intValue()) {
+            lowLinks.put(thread, value);
+        }
+    }
+
+    /**
+     * collect the edges of a strongly connected component. The path following the
+     * first edge of every thread comes first, for a simple cycle this lists the
+     * threads in the order they wait for each other.
+     */
+    private Cycle createCycle(String start, Set component) {
+        Cycle cycle = new Cycle();
+        Map pathEdges = new HashMap();
+        String thread = start;
+        while (!pathEdges.containsKey(thread)) {
+            List waits = (List) waitedFor.get(thread);
+            for (int i = 0; i < waits.size(); i++) {
+                String owner = (String) owners.get(waits.get(i));
+                if (component.contains(owner)) {
+                    pathEdges.put(thread, waits.get(i));
+                    cycle.addEdge(thread, (String) waits.get(i), owner);
+                    thread = owner;
+                    break;
+                }
+            }
+        }
+
+        for (Iterator iter = component.iterator(); iter.hasNext(); ) {
+            thread = (String) iter.next();
+            List waits = (List) waitedFor.get(thread);
+            for (int i = 0; i < waits.size(); i++) {
+                String owner = (String) owners.get(waits.get(i));
+                if (component.contains(owner) && waits.get(i) != pathEdges.get(thread)) {
+                    cycle.addEdge(thread, (String) waits.get(i), owner);
+                }
+            }
+        }
+        return (cycle);
+    }
+
+    /**
+     * dfs state of a thread for the iterative tarjan algorithm.
+     */
+    private static class Frame {
+        private final String thread;
+        private int next = 0;
+
+        Frame(String thread) {
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * a wait-for cycle, every edge is a thread blocked on a monitor held by another
+     * thread of the cycle.
+     */
+    public static class Cycle {
+        private final List threads = new ArrayList();
+        private final List monitors = new ArrayList();
+        private final List owners = new ArrayList();
+
+        private void addEdge(String thread, String monitor, String owner) {
+            threads.add(thread);
+            monitors.add(monitor);
+            owners.add(owner);
+        }
+
+        /**
+         * @return the amount of edges of the cycle.
+         */
+        public int getEdgeCount() {
+            return (threads.size());
+        }
+
+        /**
+         * @return the title of the blocked thread of the given edge.
+         */
+        public String getThread(int edge) {
+            return ((String) threads.get(edge));
+        }
+
+        /**
+         * @return the monitor the thread of the given edge is blocked on.
+         */
+        public String getMonitor(int edge) {
+            return ((String) monitors.get(edge));
+        }
+
+        /**
+         * @return the title of the thread owning the monitor of the given edge.
+         */
+        public String getOwner(int edge) {
+            return ((String) owners.get(edge));
+        }
+
+        /**
+         * @return the titles of all threads of the cycle.
+         */
+        public Set getThreads() {
+            return (new HashSet(threads));
+        }
+    }
+}
@@ -49,8 +49,17 @@ public class WrappedSunJDKParser extends SunJDKParser {
                 && logLine.trim().indexOf(" | Full thread dump") >= 0;
     }
 
+    /**
+     * length of the wrapper prefix "INFO   | jvm 1    | 2008/01/01 10:00:00 | ".
+     */
+    private static final int WRAPPER_PREFIX_LENGTH = 42;
+
     protected String getNextLine() throws IOException {
-        return getBis().readLine().substring(42);
+        return getBis().readLine().substring(WRAPPER_PREFIX_LENGTH);
+    }
+
+    protected int getWrapPrefixLength() {
+        return (WRAPPER_PREFIX_LENGTH);
     }
 
 
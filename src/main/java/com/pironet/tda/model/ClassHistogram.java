@@ -0,0 +1,109 @@
+/*
+ * ClassHistogram.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * class histogram logged together with a thread dump.
+ */
+public class ClassHistogram implements Serializable {
+    private final List entries = new ArrayList();
+    private long instances;
+    private long bytes;
+    private boolean incomplete;
+
+    public void addEntry(String className, long instances, long bytes) {
+        entries.add(new Entry(className, instances, bytes));
+    }
+
+    public void addEntry(Entry entry) {
+        entries.add(entry);
+    }
+
+    /**
+     * @return the entries of the histogram in logged order.
+     */
+    public List getEntries() {
+        return (entries);
+    }
+
+    /**
+     * @return the overall amount of instances.
+     */
+    public long getInstances() {
+        return (instances);
+    }
+
+    public void setInstances(long instances) {
+        this.instances = instances;
+    }
+
+    /**
+     * @return the overall amount of bytes.
+     */
+    public long getBytes() {
+        return (bytes);
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return true, if the histogram couldn't be read completely.
+     */
+    public boolean isIncomplete() {
+        return (incomplete);
+    }
+
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
+
+    /**
+     * a single line of the histogram.
+     */
+    public static class Entry implements Serializable {
+        private final String className;
+        private final long instances;
+        private final long bytes;
+
+        public Entry(String className, long instances, long bytes) {
+            this.className = className;
+            this.instances = instances;
+            this.bytes = bytes;
+        }
+
+        public String getClassName() {
+            return (className);
+        }
+
+        public long getInstances() {
+            return (instances);
+        }
+
+        public long getBytes() {
+            return (bytes);
+        }
+    }
+}
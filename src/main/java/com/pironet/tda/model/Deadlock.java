@@ -0,0 +1,59 @@
+/*
+ * Deadlock.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a deadlock as reported by the vm after the thread dump, or a wait-for cycle
+ * found in the monitors of the dump.
+ */
+public class Deadlock implements Serializable {
+    private final List lines = new ArrayList();
+    private boolean detected;
+
+    /**
+     * add the next line of the deadlock report.
+     */
+    public void addLine(String line) {
+        lines.add(line);
+    }
+
+    /**
+     * @return the lines of the report (without the "Found one Java-level deadlock" header).
+     */
+    public List getLines() {
+        return (lines);
+    }
+
+    /**
+     * @return true, if the deadlock wasn't reported by the vm but found in the
+     * monitors of the dump.
+     */
+    public boolean isDetected() {
+        return (detected);
+    }
+
+    public void setDetected(boolean detected) {
+        this.detected = detected;
+    }
+}
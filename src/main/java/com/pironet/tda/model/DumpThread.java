@@ -0,0 +1,284 @@
+/*
+ * DumpThread.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a thread of a thread dump with its stack. The lines of the stack are kept in
+ * the {@link FramePool} of the log file, the thread only stores their ids.
+ */
+public class DumpThread implements Serializable {
+    private final FramePool pool;
+    private final String headerLine;
+    private String title;
+    private int[] lineIds = new int[16];
+    private int lineSize = 0;
+    private int lineCount;
+    private long stackHash;
+    private int stackHashDepth = -1;
+
+    /**
+     * Creates a new instance of DumpThread with its own pool.
+     *
+     * @param headerLine the first line of the thread (the one starting with the thread name).
+     */
+    public DumpThread(String headerLine) {
+        this(headerLine, new FramePool());
+    }
+
+    /**
+     * Creates a new instance of DumpThread
+     *
+     * @param headerLine the first line of the thread (the one starting with the thread name).
+     * @param pool       the pool of the log file.
+     */
+    public DumpThread(String headerLine, FramePool pool) {
+        this.pool = pool;
+        this.headerLine = pool.intern(headerLine);
+        this.title = this.headerLine;
+    }
+
+    /**
+     * @return the first line of the thread as logged.
+     */
+    public String getHeaderLine() {
+        return (headerLine);
+    }
+
+    /**
+     * the title identifies the thread in a dump, usually it is the header line. If the
+     * header line lacks the thread state, the parser appends it.
+     *
+     * @return the title of the thread.
+     */
+    public String getTitle() {
+        return (title);
+    }
+
+    public void setTitle(String title) {
+        this.title = pool.intern(title);
+    }
+
+    /**
+     * add a frame to the stack.
+     *
+     * @return the pooled instance of the frame.
+     */
+    public StackFrame addFrame(StackFrame frame) {
+        return ((StackFrame) addToLines(frame));
+    }
+
+    /**
+     * add a monitor related line to the stack.
+     *
+     * @return the pooled instance of the event.
+     */
+    public LockEvent addLockEvent(LockEvent event) {
+        return ((LockEvent) addToLines(event));
+    }
+
+    /**
+     * add any other line belonging to the thread, like the thread state.
+     */
+    public void addLine(String line) {
+        addToLines(line);
+    }
+
+    private Object addToLines(Object line) {
+        int id = pool.add(line);
+        if (lineSize == lineIds.length) {
+            int[] newIds = new int[lineSize * 2];
+            System.arraycopy(lineIds, 0, newIds, 0, lineSize);
+            lineIds = newIds;
+        }
+        lineIds[lineSize++] = id;
+        return (pool.get(id));
+    }
+
+    /**
+     * get the lines following the header line in logged order.
+     *
+     * @return list containing {@link StackFrame}, {@link LockEvent} and String elements.
+     */
+    public List getLines() {
+        List lines = new ArrayList(lineSize);
+        for (int i = 0; i < lineSize; i++) {
+            lines.add(pool.get(lineIds[i]));
+        }
+        return (lines);
+    }
+
+    /**
+     * @return the pool ids of the lines following the header line in logged order.
+     */
+    public int[] getLineIds() {
+        int[] result = new int[lineSize];
+        System.arraycopy(lineIds, 0, result, 0, lineSize);
+        return (result);
+    }
+
+    public FramePool getPool() {
+        return (pool);
+    }
+
+    /**
+     * @return the stack frames of the thread, the top frame first.
+     */
+    public List getFrames() {
+        List frames = new ArrayList();
+        for (int i = 0; i < lineSize; i++) {
+            Object line = pool.get(lineIds[i]);
+            if (line instanceof StackFrame) {
+                frames.add(line);
+            }
+        }
+        return (frames);
+    }
+
+    /**
+     * @return the monitor related lines of the thread in logged order.
+     */
+    public List getLockEvents() {
+        List events = new ArrayList();
+        for (int i = 0; i < lineSize; i++) {
+            Object line = pool.get(lineIds[i]);
+            if (line instanceof LockEvent) {
+                events.add(line);
+            }
+        }
+        return (events);
+    }
+
+    /**
+     * @return true, if the thread waits to enter a monitor.
+     */
+    public boolean isWaiting() {
+        return (hasLockEvent(LockEvent.WAITING_TO_LOCK) || hasLockEvent(LockEvent.WAITING_TO_RELOCK));
+    }
+
+    /**
+     * @return true, if the thread sleeps on a monitor or is parked.
+     */
+    public boolean isSleeping() {
+        return (hasLockEvent(LockEvent.WAITING_ON) || hasLockEvent(LockEvent.PARKING));
+    }
+
+    /**
+     * @return true, if the thread holds at least one monitor.
+     */
+    public boolean isLocking() {
+        return (hasLockEvent(LockEvent.LOCKED));
+    }
+
+    /**
+     * @return true, if the thread was running. This is the logged thread state if
+     * there is one, otherwise the thread is running unless it waits for a monitor or
+     * its header line tells it is waiting, blocked, parked or sleeping.
+     */
+    public boolean isRunnable() {
+        for (int i = 0; i < lineSize; i++) {
+            Object line = pool.get(lineIds[i]);
+            if ((line instanceof String) && ((String) line).trim().startsWith("java.lang.Thread.State:")) {
+                return (((String) line).indexOf("RUNNABLE") > 0);
+            }
+        }
+        if (isWaiting() || isSleeping()) {
+            return (false);
+        }
+        String header = headerLine.substring(headerLine.lastIndexOf('"') + 1).toLowerCase();
+        return (header.indexOf("wait") < 0 && header.indexOf("block") < 0 && header.indexOf("park") < 0
+                && header.indexOf("sleep") < 0 && header.indexOf("suspend") < 0);
+    }
+
+    private boolean hasLockEvent(int type) {
+        for (int i = 0; i < lineSize; i++) {
+            Object line = pool.get(lineIds[i]);
+            if ((line instanceof LockEvent) && ((LockEvent) line).getType() == type) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * release the unused part of the id array, called when the thread is complete.
+     */
+    public void trimToSize() {
+        if (lineSize < lineIds.length) {
+            int[] newIds = new int[lineSize];
+            System.arraycopy(lineIds, 0, newIds, 0, lineSize);
+            lineIds = newIds;
+        }
+    }
+
+    /**
+     * hash the top frames of the stack, called when the thread is complete.
+     *
+     * @param depth the amount of frames to hash, 0 for all.
+     */
+    public void hashStack(int depth) {
+        stackHash = computeStackHash(depth);
+        stackHashDepth = depth;
+    }
+
+    private long computeStackHash(int depth) {
+        long hash = 0xcbf29ce484222325L;
+        int frames = 0;
+        for (int i = 0; i < lineSize && (depth <= 0 || frames < depth); i++) {
+            Object line = pool.get(lineIds[i]);
+            if (line instanceof StackFrame) {
+                hash = (hash ^ line.hashCode()) * 0x100000001b3L;
+                frames++;
+            }
+        }
+        return (frames > 0 ? hash : 0);
+    }
+
+    /**
+     * get the hash of the top frames of the stack, threads with the same hash stayed
+     * at the same place. The hash of the depth used while parsing is cached, other
+     * depths are hashed on every request without changing the cached one.
+     *
+     * @param depth the amount of frames to hash, 0 for all.
+     * @return the hash, 0 if the thread has no stack.
+     */
+    public long getStackHash(int depth) {
+        return (depth == stackHashDepth ? stackHash : computeStackHash(depth));
+    }
+
+    /**
+     * the amount of log lines from the line following the header up to the header
+     * of the next thread.
+     */
+    public int getLineCount() {
+        return (lineCount);
+    }
+
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public String toString() {
+        return (title);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * FramePool.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * pool of the stack lines and strings of a log file. Consecutive dumps of a vm
+ * mostly repeat the same frames, thread names and monitors, so every distinct
+ * line ({@link StackFrame}, {@link LockEvent} or other line) gets an id and is
+ * kept only once, the threads only store the ids of their lines. Strings like
+ * thread titles or monitor names are reduced to one canonical instance.
+ * <p>
+ * One pool is shared by all parsers of a log file, also by the ones parsing
+ * in parallel. Lines are only appended and a line is stored before its id is
+ * published, so looking up lines and known ids doesn't lock, only adding a new
+ * line does.
+ */
+public class FramePool implements Serializable {
+    private final ConcurrentHashMap ids = new ConcurrentHashMap();
+    private volatile Object[] lines = new Object[1024];
+    private int size = 0;
+
+    private final ConcurrentHashMap strings = new ConcurrentHashMap();
+
+    /**
+     * add the given line to the pool.
+     *
+     * @param line a {@link StackFrame}, {@link LockEvent} or String.
+     * @return the id of the line.
+     */
+    public int add(Object line) {
+        Integer id = (Integer) ids.get(line);
+        return (id != null ? id.intValue() : append(line));
+    }
+
+    private synchronized int append(Object line) {
+        Integer id = (Integer) ids.get(line);
+        if (id == null) {
+            Object[] current = lines;
+            if (size == current.length) {
+                Object[] newLines = new Object[size * 2];
+                System.arraycopy(current, 0, newLines, 0, size);
+                current = newLines;
+            }
+            id = new Integer(size);
+            current[size++] = line;
+            lines = current;
+            // the id is published after the line is stored.
+            ids.put(line, id);
+        }
+        return (id.intValue());
+    }
+
+    /**
+     * get the line with the given id.
+     *
+     * @param id id returned by {@link #add(Object)}.
+     * @return the canonical instance of the line.
+     */
+    public Object get(int id) {
+        return (lines[id]);
+    }
+
+    /**
+     * get the canonical instance of the given string.
+     */
+    public String intern(String str) {
+        if (str == null) {
+            return (null);
+        }
+        String result = (String) strings.get(str);
+        if (result == null) {
+            result = (String) strings.putIfAbsent(str, str);
+        }
+        return (result != null ? result : str);
+    }
+
+    /**
+     * replace the elements of the given array by their canonical instances.
+     *
+     * @param tokens the array to intern, may be null.
+     * @return the given array.
+     */
+    public String[] intern(String[] tokens) {
+        if (tokens != null) {
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = intern(tokens[i]);
+            }
+        }
+        return (tokens);
+    }
+
+    /**
+     * @return the amount of distinct lines in the pool.
+     */
+    public synchronized int size() {
+        return (size);
+    }
+}
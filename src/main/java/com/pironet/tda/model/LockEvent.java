@@ -0,0 +1,140 @@
+/*
+ * LockEvent.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+
+/**
+ * a monitor related line of a thread stack, like "- locked &lt;0x...&gt;" or
+ * "- waiting to lock &lt;0x...&gt;".
+ */
+public class LockEvent implements Serializable {
+    /**
+     * the thread holds the monitor.
+     */
+    public static final int LOCKED = 0;
+    /**
+     * the thread is blocked trying to enter the monitor.
+     */
+    public static final int WAITING_TO_LOCK = 1;
+    /**
+     * the thread released the monitor and waits for a notification (Object.wait()).
+     */
+    public static final int WAITING_ON = 2;
+    /**
+     * the thread is parked on a java.util.concurrent synchronizer.
+     */
+    public static final int PARKING = 3;
+    /**
+     * the thread waits to get the monitor back after being notified.
+     */
+    public static final int WAITING_TO_RELOCK = 4;
+    /**
+     * entry of the "Locked ownable synchronizers" list of the thread.
+     */
+    public static final int OWNABLE_SYNCHRONIZER = 5;
+
+    private final int type;
+    private final String line;
+    private final String address;
+    private final String monitor;
+    private transient String normalizedLine;
+
+    /**
+     * Creates a new instance of LockEvent
+     *
+     * @param type    the type of the event, one of the constants of this class.
+     * @param line    the log line of the event.
+     * @param address the address of the monitor as found in the line, null if the line doesn't name a monitor.
+     * @param monitor the key of the monitor, used to identify the monitor in the dump.
+     */
+    public LockEvent(int type, String line, String address, String monitor) {
+        this.type = type;
+        this.line = line;
+        this.address = address;
+        this.monitor = monitor;
+    }
+
+    public int getType() {
+        return (type);
+    }
+
+    /**
+     * @return the event as logged.
+     */
+    public String getLine() {
+        return (line);
+    }
+
+    /**
+     * @return the monitor address, null if the line doesn't name a monitor.
+     */
+    public String getAddress() {
+        return (address);
+    }
+
+    /**
+     * @return the key of the monitor, "&lt;address&gt; (a class)", null if the
+     * line doesn't name a monitor.
+     */
+    public String getMonitor() {
+        return (monitor);
+    }
+
+    /**
+     * @return the event without the monitor address, which is the same for the same
+     * kind of monitor in every thread.
+     */
+    public String getNormalizedLine() {
+        if (normalizedLine == null) {
+            int pos = address != null ? line.indexOf(address) : -1;
+            normalizedLine = pos >= 0 ? line.substring(0, pos) + line.substring(pos + address.length()) : line;
+        }
+        return (normalizedLine);
+    }
+
+    /**
+     * @return true, if the event blocks the thread on the monitor (monitor contention).
+     */
+    public boolean isBlocking() {
+        return (type == WAITING_TO_LOCK || type == PARKING);
+    }
+
+    public boolean equals(Object o) {
+        if (!(o instanceof LockEvent)) {
+            return (false);
+        }
+        LockEvent other = (LockEvent) o;
+        return (type == other.type && line.equals(other.line) && equals(address, other.address)
+                && equals(monitor, other.monitor));
+    }
+
+    private static boolean equals(String a, String b) {
+        return (a == null ? b == null : a.equals(b));
+    }
+
+    public int hashCode() {
+        return (line.hashCode() * 31 + type);
+    }
+
+    public String toString() {
+        return (line);
+    }
+}
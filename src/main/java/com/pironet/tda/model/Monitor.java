@@ -0,0 +1,90 @@
+/*
+ * Monitor.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a monitor of a thread dump together with the threads referencing it.
+ */
+public class Monitor implements Serializable {
+    private final String name;
+    private final List lockingThreads = new ArrayList();
+    private final List waitingThreads = new ArrayList();
+    private final List sleepingThreads = new ArrayList();
+
+    /**
+     * Creates a new instance of Monitor
+     *
+     * @param name the monitor key, see {@link LockEvent#getMonitor()}.
+     */
+    public Monitor(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return (name);
+    }
+
+    /**
+     * add the thread referencing the monitor with the given event.
+     */
+    public void addThread(DumpThread thread, LockEvent event) {
+        List threads;
+        if (event.isBlocking()) {
+            threads = waitingThreads;
+        } else if (event.getType() == LockEvent.WAITING_ON) {
+            threads = sleepingThreads;
+        } else {
+            threads = lockingThreads;
+        }
+        if (!threads.contains(thread)) {
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * @return the threads holding the monitor (including the ones which released it
+     * by waiting on it).
+     */
+    public List getLockingThreads() {
+        return (lockingThreads);
+    }
+
+    /**
+     * @return the threads blocked on the monitor.
+     */
+    public List getWaitingThreads() {
+        return (waitingThreads);
+    }
+
+    /**
+     * @return the threads waiting for a notification on the monitor.
+     */
+    public List getSleepingThreads() {
+        return (sleepingThreads);
+    }
+
+    public String toString() {
+        return (name);
+    }
+}
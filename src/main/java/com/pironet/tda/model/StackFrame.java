@@ -0,0 +1,57 @@
+/*
+ * StackFrame.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+
+/**
+ * a single frame ("at ...") of a thread stack.
+ */
+public class StackFrame implements Serializable {
+    private final String line;
+
+    /**
+     * Creates a new instance of StackFrame
+     *
+     * @param line the log line of the frame.
+     */
+    public StackFrame(String line) {
+        this.line = line;
+    }
+
+    /**
+     * @return the frame as logged.
+     */
+    public String getLine() {
+        return (line);
+    }
+
+    public boolean equals(Object o) {
+        return ((o instanceof StackFrame) && line.equals(((StackFrame) o).line));
+    }
+
+    public int hashCode() {
+        return (line.hashCode());
+    }
+
+    public String toString() {
+        return (line);
+    }
+}
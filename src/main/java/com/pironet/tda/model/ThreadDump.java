@@ -0,0 +1,164 @@
+/*
+ * ThreadDump.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a single thread dump as found in a log file. This is the data the parsers
+ * produce, it doesn't depend on any gui classes.
+ */
+public class ThreadDump implements Serializable {
+    private String name;
+    private int logLine;
+    private String startTime;
+    private final List threads = new ArrayList();
+    private final List deadlocks = new ArrayList();
+    private String heapInfo;
+    private ClassHistogram classHistogram;
+
+    private transient Map monitors;
+
+    /**
+     * Creates a new instance of ThreadDump
+     *
+     * @param name    the name of the dump
+     * @param logLine the line of the dump header in the log file, 0 if not known.
+     */
+    public ThreadDump(String name, int logLine) {
+        this.name = name;
+        this.logLine = logLine;
+    }
+
+    public String getName() {
+        return (name);
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the line of the dump header in the log file, 0 if not known.
+     */
+    public int getLogLine() {
+        return (logLine);
+    }
+
+    public void setLogLine(int logLine) {
+        this.logLine = logLine;
+    }
+
+    /**
+     * @return the start time as found in the log file, null if none was found.
+     */
+    public String getStartTime() {
+        return (startTime);
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public void addThread(DumpThread thread) {
+        threads.add(thread);
+        monitors = null;
+    }
+
+    /**
+     * @return the threads of the dump in logged order.
+     */
+    public List getThreads() {
+        return (threads);
+    }
+
+    public int getThreadCount() {
+        return (threads.size());
+    }
+
+    public void addDeadlock(Deadlock deadlock) {
+        deadlocks.add(deadlock);
+    }
+
+    /**
+     * @return the deadlocks reported for this dump.
+     */
+    public List getDeadlocks() {
+        return (deadlocks);
+    }
+
+    /**
+     * @return the heap information logged after the dump, null if none.
+     */
+    public String getHeapInfo() {
+        return (heapInfo);
+    }
+
+    public void setHeapInfo(String heapInfo) {
+        this.heapInfo = heapInfo;
+    }
+
+    /**
+     * @return the class histogram logged after the dump, null if none.
+     */
+    public ClassHistogram getClassHistogram() {
+        return (classHistogram);
+    }
+
+    public void setClassHistogram(ClassHistogram classHistogram) {
+        this.classHistogram = classHistogram;
+    }
+
+    /**
+     * get the monitors referenced by the threads of this dump.
+     *
+     * @return map of monitor keys to {@link Monitor} in order of first appearance.
+     */
+    public Map getMonitors() {
+        if (monitors == null) {
+            Map result = new LinkedHashMap();
+            for (int i = 0; i < threads.size(); i++) {
+                DumpThread thread = (DumpThread) threads.get(i);
+                List events = thread.getLockEvents();
+                for (int j = 0; j < events.size(); j++) {
+                    LockEvent event = (LockEvent) events.get(j);
+                    if (event.getMonitor() != null) {
+                        Monitor monitor = (Monitor) result.get(event.getMonitor());
+                        if (monitor == null) {
+                            monitor = new Monitor(event.getMonitor());
+                            result.put(event.getMonitor(), monitor);
+                        }
+                        monitor.addThread(thread, event);
+                    }
+                }
+            }
+            monitors = result;
+        }
+        return (monitors);
+    }
+
+    public String toString() {
+        return (name);
+    }
+}
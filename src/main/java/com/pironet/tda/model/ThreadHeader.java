@@ -0,0 +1,276 @@
+/*
+ * ThreadHeader.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.model;
+
+/**
+ * tokenizer for the header lines of threads in sun jdk dumps, like
+ * <pre>
+ * "main" daemon prio=5 tid=0x00007f1c nid=0x1a03 waiting on condition [0x7f1c..0x7f1d]
+ * "RMI TCP Connection(23)-127.0.1.1" id=3149 in RUNNABLE
+ * </pre>
+ * Every attribute is searched only once and only its position is recorded, the
+ * numeric values are parsed in place. Strings are only created if a string
+ * attribute or the table tokens are requested. An instance can be reused
+ * for several lines but must not be shared between threads.
+ */
+public class ThreadHeader {
+    private static final String NO_ADDRESS_RANGE = "<no address range>";
+
+    private String line;
+    private int length;
+    private int lastQuote;
+    private boolean daemon;
+
+    private int prio;
+
+    // first occurrences behind the thread name
+    private int prioValue;
+    private int tidValue;
+    private int nidValue;
+    private int hexNidValue;
+    private int lwpId;
+    private int bracket;
+    private int spaceAfterNid;
+    private int bracketAfterNid;
+    private int spaceAfterLwpId;
+    private int bracketAfterLwpId;
+
+    /**
+     * scan the given header line.
+     *
+     * @param line the header line of a thread, starting with the quoted thread name.
+     * @return this instance.
+     */
+    public ThreadHeader parse(CharSequence line) {
+        this.line = line.toString();
+        length = this.line.length();
+        lastQuote = this.line.lastIndexOf('"');
+        int stripped = lastQuote + 1;
+
+        prio = this.line.indexOf("prio");
+        if (prio > 0) {
+            daemon = this.line.indexOf("daemon") > 0;
+            prioValue = this.line.indexOf("prio=", stripped);
+            tidValue = this.line.indexOf("tid=", stripped);
+            nidValue = this.line.indexOf("nid=", stripped);
+            if (nidValue >= 0) {
+                hexNidValue = this.line.startsWith("0x", nidValue + 4) ? nidValue : this.line.indexOf("nid=0x", nidValue + 1);
+                spaceAfterNid = this.line.indexOf(' ', nidValue);
+                bracketAfterNid = this.line.indexOf('[', nidValue);
+            } else {
+                hexNidValue = spaceAfterNid = bracketAfterNid = -1;
+            }
+            bracket = this.line.indexOf('[', stripped);
+            lwpId = bracket > stripped ? this.line.indexOf("lwp_id=", stripped) : -1;
+            if (lwpId >= 0) {
+                spaceAfterLwpId = this.line.indexOf(' ', lwpId);
+                bracketAfterLwpId = this.line.indexOf('[', lwpId);
+            }
+        } else {
+            daemon = false;
+            prioValue = tidValue = nidValue = hexNidValue = lwpId = bracket = -1;
+        }
+        return (this);
+    }
+
+    /**
+     * parse the hex number in the given range without creating a string.
+     */
+    private long parseHex(int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("no hex number in \"" + line + "\"");
+        }
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                throw new NumberFormatException("invalid hex number in \"" + line + "\"");
+            }
+            result = (result << 4) | digit;
+        }
+        return (result);
+    }
+
+    private String substring(int from, int to) {
+        return (line.substring(from, to));
+    }
+
+    /**
+     * @return true, if the line has the extended format with priority, thread and
+     * native id.
+     */
+    public boolean isExtendedFormat() {
+        return (prio > 0);
+    }
+
+    public String getName() {
+        return (substring(1, lastQuote));
+    }
+
+    public boolean isDaemon() {
+        return (daemon);
+    }
+
+    /**
+     * @return the thread priority or -1 if none is logged.
+     */
+    public int getPriority() {
+        if (prioValue < 0) {
+            return (-1);
+        }
+        int result = 0;
+        int i = prioValue + 5;
+        while (i < length && Character.isDigit(line.charAt(i))) {
+            result = result * 10 + (line.charAt(i++) - '0');
+        }
+        return (i > prioValue + 5 ? result : -1);
+    }
+
+    /**
+     * @return the thread id or -1 if none is logged.
+     */
+    public long getTid() {
+        if (tidValue < 0) {
+            return (-1);
+        }
+        return (parseHex(tidValue + 6, nidValue >= 0 ? nidValue - 1 : length));
+    }
+
+    /**
+     * @return the native id or -1 if none is logged.
+     */
+    public long getNid() {
+        if (nidValue < 0) {
+            return (-1);
+        }
+        int end = spaceAfterNid >= 0 ? spaceAfterNid : length;
+        if (isHexNid()) {
+            return (parseHex(nidValue + 6, end));
+        }
+        long result = 0;
+        for (int i = nidValue + 4; i < end; i++) {
+            result = result * 10 + (line.charAt(i) - '0');
+        }
+        return (result);
+    }
+
+    private boolean isHexNid() {
+        return (hexNidValue > lastQuote + 1);
+    }
+
+    /**
+     * @return the state logged behind the native id (e.g. "waiting on condition"), null if none.
+     */
+    public String getState() {
+        if (nidValue < 0 || spaceAfterNid < 0) {
+            return (null);
+        }
+        if (bracket > lastQuote + 1) {
+            return (lwpId > lastQuote + 1 ? substring(spaceAfterLwpId + 1, bracketAfterLwpId - 1)
+                    : substring(spaceAfterNid + 1, bracketAfterNid - 1));
+        }
+        return (substring(spaceAfterNid + 1, length));
+    }
+
+    /**
+     * @return the address range of the stack, null if none is logged.
+     */
+    public String getAddressRange() {
+        return (nidValue >= 0 && spaceAfterNid >= 0 && bracket > lastQuote + 1 ? substring(bracket, length) : null);
+    }
+
+    /**
+     * create the tokens displayed in the thread table.
+     *
+     * @return seven tokens (name, type, prio, thread id, native id, state, address
+     * range) for the extended format, three tokens (name, id, state) otherwise.
+     */
+    public String[] toTokens() {
+        String[] tokens;
+        if (isExtendedFormat()) {
+            tokens = new String[7];
+
+            tokens[0] = getName();
+            tokens[1] = daemon ? "Daemon" : "Task";
+
+            // the stripped line is the part behind the name.
+            int stripped = lastQuote + 1;
+            int prioStart = (prioValue >= 0 ? prioValue : stripped - 1) + 5;
+            if (tidValue >= 0) {
+                tokens[2] = substring(prioStart, tidValue - 1);
+            } else {
+                tokens[2] = substring(prioStart, length);
+            }
+
+            if (tidValue >= 0) {
+                tokens[3] = String.valueOf(getTid());
+            }
+
+            tokens[6] = NO_ADDRESS_RANGE;
+
+            if (nidValue >= 0 && spaceAfterNid >= 0) {
+                if (isHexNid()) {
+                    tokens[4] = String.valueOf(getNid());
+                } else {
+                    tokens[4] = substring(nidValue + 4, spaceAfterNid);
+                }
+                tokens[5] = getState();
+                if (bracket > stripped) {
+                    tokens[6] = getAddressRange();
+                }
+            } else if (nidValue >= 0) {
+                // nid is at the end.
+                String nidToken = substring(nidValue + 6, length);
+                if (nidToken.indexOf("0x") > 0) {
+                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
+                } else {
+                    tokens[4] = nidToken;
+                }
+            }
+        } else {
+            tokens = new String[3];
+            tokens[0] = getName();
+            int nid = line.indexOf("nid=");
+            int state = line.indexOf("state=");
+            int threadAt = line.indexOf("t@");
+            if (nid > 0) {
+                tokens[1] = substring(nid + 4, state - 1);
+                tokens[2] = substring(state + 6, length);
+            } else if (threadAt > 0) {
+                tokens[1] = substring(threadAt + 2, state - 1);
+                tokens[2] = substring(state + 6, length);
+            } else {
+                int id = line.indexOf("id=");
+                int in = line.indexOf(" in");
+                tokens[1] = substring(id + 3, in);
+                tokens[2] = substring(in + 3, length);
+            }
+        }
+
+        return (tokens);
+    }
+}
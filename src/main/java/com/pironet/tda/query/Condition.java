@@ -0,0 +1,121 @@
+/*
+ * Condition.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+/**
+ * condition of a query. Conditions are first checked for a whole dump, only if
+ * that isn't decided yet, they are checked for every thread of the dump.
+ */
+abstract class Condition {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    /**
+     * check the condition for the dump of the target, the thread isn't set yet.
+     *
+     * @return {@link #TRUE} or {@link #FALSE} if the condition is the same for all
+     *         threads of the dump, {@link #UNKNOWN} otherwise.
+     */
+    abstract int checkDump(Target target);
+
+    /**
+     * check the condition for the thread of the target.
+     */
+    abstract boolean matches(Target target);
+
+    /**
+     * both conditions have to match.
+     */
+    static class And extends Condition {
+        private Condition left;
+        private Condition right;
+
+        And(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        int checkDump(Target target) {
+            int leftResult = left.checkDump(target);
+            if (leftResult == FALSE) {
+                return (FALSE);
+            }
+            int rightResult = right.checkDump(target);
+            if (rightResult == FALSE) {
+                return (FALSE);
+            }
+            return (leftResult == TRUE && rightResult == TRUE ? TRUE : UNKNOWN);
+        }
+
+        boolean matches(Target target) {
+            return (left.matches(target) && right.matches(target));
+        }
+    }
+
+    /**
+     * one of the conditions has to match.
+     */
+    static class Or extends Condition {
+        private Condition left;
+        private Condition right;
+
+        Or(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        int checkDump(Target target) {
+            int leftResult = left.checkDump(target);
+            if (leftResult == TRUE) {
+                return (TRUE);
+            }
+            int rightResult = right.checkDump(target);
+            if (rightResult == TRUE) {
+                return (TRUE);
+            }
+            return (leftResult == FALSE && rightResult == FALSE ? FALSE : UNKNOWN);
+        }
+
+        boolean matches(Target target) {
+            return (left.matches(target) || right.matches(target));
+        }
+    }
+
+    /**
+     * the condition mustn't match.
+     */
+    static class Not extends Condition {
+        private Condition condition;
+
+        Not(Condition condition) {
+            this.condition = condition;
+        }
+
+        int checkDump(Target target) {
+            int result = condition.checkDump(target);
+            return (result == UNKNOWN ? UNKNOWN : (result == TRUE ? FALSE : TRUE));
+        }
+
+        boolean matches(Target target) {
+            return (!condition.matches(target));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Match.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+import com.pironet.tda.FrameIndex;
+import com.pironet.tda.model.DumpThread;
+
+/**
+ * a thread matching a query.
+ */
+public class Match {
+    private FrameIndex.Dump dump;
+    private DumpThread thread;
+
+    Match(FrameIndex.Dump dump, DumpThread thread) {
+        this.dump = dump;
+        this.thread = thread;
+    }
+
+    public FrameIndex.Dump getDump() {
+        return (dump);
+    }
+
+    public DumpThread getThread() {
+        return (thread);
+    }
+}
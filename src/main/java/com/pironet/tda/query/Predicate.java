@@ -0,0 +1,182 @@
+/*
+ * Predicate.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+import com.pironet.tda.DumpTreeBuilder;
+import com.pironet.tda.FrameIndex;
+import com.pironet.tda.StateTransitions;
+import com.pironet.tda.ThreadPools;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * compares a field of the threads with a value, e.g. <code>state = BLOCKED</code>.
+ */
+class Predicate extends Condition {
+    static final int STATE = 0;
+    static final int NAME = 1;
+    static final int POOL = 2;
+    static final int FRAME = 3;
+    static final int DEPTH = 4;
+    static final int DUMP = 5;
+    static final int STACK = 6;
+
+    static final String[] FIELD_NAMES = {"state", "name", "pool", "frame", "depth", "dump", "stack"};
+
+    static final int EQUALS = 0;
+    static final int NOT_EQUALS = 1;
+    static final int CONTAINS = 2;
+    static final int MATCHES = 3;
+    static final int LESS = 4;
+    static final int LESS_EQUAL = 5;
+    static final int GREATER = 6;
+    static final int GREATER_EQUAL = 7;
+    static final int IN_LAST = 8;
+
+    static final String[] OPERATOR_NAMES = {"=", "!=", "contains", "matches", "<", "<=", ">", ">=", "in last"};
+
+    private int field;
+    private int operator;
+    private String value;
+    private int number;
+    private Pattern pattern;
+
+    /**
+     * Creates a new instance of Predicate, the operator needs to be valid for the field.
+     *
+     * @param field    the field of the threads.
+     * @param operator the comparison.
+     * @param value    the value to compare with, a number for numeric comparisons,
+     *                 a regular expression for {@link #MATCHES}.
+     */
+    Predicate(int field, int operator, String value) {
+        this.field = field;
+        this.operator = operator;
+        this.value = value;
+        if (operator == MATCHES) {
+            pattern = Pattern.compile(value);
+        } else if (operator == CONTAINS && field == STACK) {
+            pattern = Pattern.compile(Pattern.quote(value));
+        } else if (operator >= LESS || field == DEPTH) {
+            number = Integer.parseInt(value);
+        }
+    }
+
+    /**
+     * @return true, if the operator can be used with the field.
+     */
+    static boolean isSupported(int field, int operator) {
+        switch (field) {
+            case STACK:
+                return (operator == CONTAINS || operator == MATCHES);
+            case DEPTH:
+                return (operator != CONTAINS && operator != MATCHES && operator != IN_LAST);
+            case DUMP:
+                return (operator < LESS || operator == IN_LAST);
+            default:
+                return (operator < LESS);
+        }
+    }
+
+    /**
+     * @return true, if the field compares numbers with the operator.
+     */
+    static boolean isNumeric(int field, int operator) {
+        return (field == DEPTH || operator == IN_LAST);
+    }
+
+    /**
+     * get the value of a field of a thread, used for grouping as well.
+     *
+     * @return the value, null if the thread doesn't have one (e.g. no pool).
+     */
+    static String getValue(int field, FrameIndex.Dump dump, DumpThread thread) {
+        switch (field) {
+            case STATE:
+                return (StateTransitions.getStateName(StateTransitions.getState(thread)));
+            case NAME:
+                return (DumpTreeBuilder.getThreadName(thread.getTitle()));
+            case POOL:
+                return (ThreadPools.getPoolName(DumpTreeBuilder.getThreadName(thread.getTitle())));
+            case FRAME:
+                List frames = thread.getFrames();
+                if (frames.isEmpty()) {
+                    return (null);
+                }
+                String line = ((StackFrame) frames.get(0)).getLine().trim();
+                return (line.startsWith("at ") ? line.substring(3) : line);
+            case DEPTH:
+                return (String.valueOf(thread.getFrames().size()));
+            default:
+                return (dump.getName());
+        }
+    }
+
+    int checkDump(Target target) {
+        if (field != DUMP) {
+            return (UNKNOWN);
+        }
+        return (matches(target) ? TRUE : FALSE);
+    }
+
+    boolean matches(Target target) {
+        if (operator == IN_LAST) {
+            return (target.getFromEnd() < number);
+        }
+        if (field == STACK) {
+            return (target.getStackMatches(pattern).contains(target.getThread()));
+        }
+        if (field == DEPTH) {
+            return (compare(target.getThread().getFrames().size()));
+        }
+
+        String actual = getValue(field, target.getDump(), target.getThread());
+        switch (operator) {
+            case EQUALS:
+                return (value.equals(actual));
+            case NOT_EQUALS:
+                return (!value.equals(actual));
+            case CONTAINS:
+                return (actual != null && actual.indexOf(value) >= 0);
+            default:
+                return (actual != null && pattern.matcher(actual).find());
+        }
+    }
+
+    private boolean compare(int actual) {
+        switch (operator) {
+            case EQUALS:
+                return (actual == number);
+            case NOT_EQUALS:
+                return (actual != number);
+            case LESS:
+                return (actual < number);
+            case LESS_EQUAL:
+                return (actual <= number);
+            case GREATER:
+                return (actual > number);
+            default:
+                return (actual >= number);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Query.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+import com.pironet.tda.FrameIndex;
+import com.pironet.tda.ParallelDumpLoader;
+import com.pironet.tda.model.DumpThread;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * query over the threads of all parsed dumps of a log file, e.g.
+ * <code>state = BLOCKED and stack contains "jdbc" and dump in last 10 group by pool</code>.
+ * The fields are state, name, pool, frame (the top frame), depth, dump and stack.
+ * <p>
+ * The dumps are queried in parallel. Conditions on the dump are decided once per
+ * dump, so dumps not matching are skipped as a whole. Stack conditions use the
+ * {@link FrameIndex}, which is only searched if a thread needs to be checked.
+ */
+public class Query {
+    private String text;
+    private Condition condition;
+    private int groupBy;
+
+    private Query(String text, Condition condition, int groupBy) {
+        this.text = text;
+        this.condition = condition;
+        this.groupBy = groupBy;
+    }
+
+    /**
+     * parse the given query.
+     *
+     * @param text the query.
+     * @return the parsed query.
+     * @throws ParseException if the query is invalid, the error offset is the
+     *                        position of the invalid part.
+     */
+    public static Query parse(String text) throws ParseException {
+        QueryParser parser = new QueryParser(text);
+        Condition condition = parser.parseCondition();
+        return (new Query(text.trim(), condition, parser.parseGroupBy()));
+    }
+
+    /**
+     * @return the field the matches are grouped by, null if they aren't grouped.
+     */
+    public String getGroupBy() {
+        return (groupBy < 0 ? null : Predicate.FIELD_NAMES[groupBy]);
+    }
+
+    /**
+     * run the query on the dumps of the given index.
+     *
+     * @param index the index of the dumps of a log file.
+     * @return list of {@link Match} in log order.
+     */
+    public List execute(FrameIndex index) {
+        List dumps = index.getDumps();
+        List[] results = new List[dumps.size()];
+        ParallelDumpLoader.getPool().invoke(new QueryTask(index, dumps, results, new IdentityHashMap(), 0, dumps.size()));
+
+        List matches = new ArrayList();
+        for (int i = 0; i < results.length; i++) {
+            matches.addAll(results[i]);
+        }
+        return (matches);
+    }
+
+    /**
+     * group the matches by the field of the group clause, the largest group first.
+     *
+     * @param matches the {@link Match}es of the query.
+     * @return the lists of matches keyed by the values of the field, threads without
+     *         a value are grouped as "(none)". Without group clause all matches are
+     *         in one group named by the query.
+     */
+    public Map group(List matches) {
+        Map groups = new HashMap();
+        List keys = new ArrayList();
+        for (int i = 0; i < matches.size(); i++) {
+            Match match = (Match) matches.get(i);
+            String key = groupBy < 0 ? text : Predicate.getValue(groupBy, match.getDump(), match.getThread());
+            if (key == null) {
+                key = "(none)";
+            }
+            List group = (List) groups.get(key);
+            if (group == null) {
+                group = new ArrayList();
+                groups.put(key, group);
+                keys.add(key);
+            }
+            group.add(match);
+        }
+
+        final Map sizes = groups;
+        Collections.sort(keys, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                int size1 = ((List) sizes.get(o1)).size();
+                int size2 = ((List) sizes.get(o2)).size();
+                return (size1 != size2 ? size2 - size1 : ((String) o1).compareTo((String) o2));
+            }
+        });
+        Map result = new LinkedHashMap();
+        for (Iterator iter = keys.iterator(); iter.hasNext(); ) {
+            Object key = iter.next();
+            result.put(key, groups.get(key));
+        }
+        return (result);
+    }
+
+    public String toString() {
+        return (text);
+    }
+
+    /**
+     * fork/join task querying a range of dumps.
+     */
+    private class QueryTask extends RecursiveAction {
+        private final FrameIndex index;
+        private final List dumps;
+        private final List[] results;
+        private final Map stackMatches;
+        private final int from;
+        private final int to;
+
+        QueryTask(FrameIndex index, List dumps, List[] results, Map stackMatches, int from, int to) {
+            this.index = index;
+            this.dumps = dumps;
+            this.results = results;
+            this.stackMatches = stackMatches;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new QueryTask(index, dumps, results, stackMatches, from, middle),
+                        new QueryTask(index, dumps, results, stackMatches, middle, to));
+            } else if (to > from) {
+                results[from] = queryDump(from);
+            }
+        }
+
+        private List queryDump(int pos) {
+            FrameIndex.Dump dump = (FrameIndex.Dump) dumps.get(pos);
+            Target target = new Target(index, stackMatches);
+            target.setDump(dump, dumps.size() - 1 - pos);
+            int dumpResult = condition == null ? Condition.TRUE : condition.checkDump(target);
+            List matches = new ArrayList();
+            if (dumpResult == Condition.FALSE) {
+                return (matches);
+            }
+
+            List threads = dump.getThreads();
+            for (int i = 0; i < threads.size(); i++) {
+                DumpThread thread = (DumpThread) threads.get(i);
+                target.setThread(thread);
+                if (dumpResult == Condition.TRUE || condition.matches(target)) {
+                    matches.add(new Match(dump, thread));
+                }
+            }
+            return (matches);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * QueryParser.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+import java.text.ParseException;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * parses the text of a query:
+ * <pre>
+ * query     := [condition] ["group" "by" field]
+ * condition := and {"or" and}
+ * and       := not {"and" not}
+ * not       := "not" not | "(" condition ")" | field operator value | "dump" "in" "last" number
+ * operator  := "=" | "!=" | "contains" | "matches" | "&lt;" | "&lt;=" | "&gt;" | "&gt;="
+ * </pre>
+ * Values are words or quoted strings, keywords are case insensitive.
+ */
+class QueryParser {
+    private String text;
+    private int pos = 0;
+    private String token;
+    private int tokenStart;
+    private boolean quoted;
+
+    QueryParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * parse the query text.
+     *
+     * @return the condition, null if the query doesn't have one.
+     */
+    Condition parseCondition() throws ParseException {
+        next();
+        if (token == null || isKeyword("group")) {
+            return (null);
+        }
+        return (parseOr());
+    }
+
+    /**
+     * parse the group clause following the condition.
+     *
+     * @return the field to group by, -1 if the query doesn't group.
+     */
+    int parseGroupBy() throws ParseException {
+        int groupBy = -1;
+        if (isKeyword("group")) {
+            next();
+            expectKeyword("by");
+            groupBy = parseField();
+            if (groupBy == Predicate.STACK) {
+                throw new ParseException("threads can't be grouped by their stack", tokenStart);
+            }
+            next();
+        }
+        if (token != null) {
+            throw new ParseException("unexpected \"" + token + "\"", tokenStart);
+        }
+        return (groupBy);
+    }
+
+    private Condition parseOr() throws ParseException {
+        Condition condition = parseAnd();
+        while (isKeyword("or")) {
+            next();
+            condition = new Condition.Or(condition, parseAnd());
+        }
+        return (condition);
+    }
+
+    private Condition parseAnd() throws ParseException {
+        Condition condition = parseNot();
+        while (isKeyword("and")) {
+            next();
+            condition = new Condition.And(condition, parseNot());
+        }
+        return (condition);
+    }
+
+    private Condition parseNot() throws ParseException {
+        if (isKeyword("not")) {
+            next();
+            return (new Condition.Not(parseNot()));
+        }
+        if (isKeyword("(")) {
+            next();
+            Condition condition = parseOr();
+            expectKeyword(")");
+            return (condition);
+        }
+        return (parsePredicate());
+    }
+
+    private Condition parsePredicate() throws ParseException {
+        int field = parseField();
+        next();
+
+        int operatorStart = tokenStart;
+        int operator = -1;
+        if (isKeyword("in")) {
+            next();
+            expectKeyword("last");
+            operator = Predicate.IN_LAST;
+        } else if (token != null && !quoted) {
+            for (int i = 0; i < Predicate.OPERATOR_NAMES.length; i++) {
+                if (token.equalsIgnoreCase(Predicate.OPERATOR_NAMES[i])) {
+                    operator = i;
+                }
+            }
+            if (operator < 0) {
+                throw new ParseException("expected an operator instead of \"" + token + "\"", tokenStart);
+            }
+            next();
+        } else {
+            throw new ParseException("expected an operator", tokenStart);
+        }
+        if (!Predicate.isSupported(field, operator)) {
+            throw new ParseException("\"" + Predicate.OPERATOR_NAMES[operator] + "\" can't be used with "
+                    + Predicate.FIELD_NAMES[field], operatorStart);
+        }
+
+        if (token == null || (!quoted && (token.equals("(") || token.equals(")")))) {
+            throw new ParseException("expected a value", tokenStart);
+        }
+        String value = field == Predicate.STATE ? token.toUpperCase() : token;
+        int valueStart = tokenStart;
+        next();
+        if (Predicate.isNumeric(field, operator)) {
+            try {
+                Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                throw new ParseException("expected a number instead of \"" + value + "\"", valueStart);
+            }
+        }
+        try {
+            return (new Predicate(field, operator, value));
+        } catch (PatternSyntaxException ex) {
+            throw new ParseException("invalid regular expression \"" + value + "\": " + ex.getDescription(), valueStart);
+        }
+    }
+
+    private int parseField() throws ParseException {
+        if (token != null && !quoted) {
+            for (int i = 0; i < Predicate.FIELD_NAMES.length; i++) {
+                if (token.equalsIgnoreCase(Predicate.FIELD_NAMES[i])) {
+                    return (i);
+                }
+            }
+        }
+        StringBuffer fields = new StringBuffer();
+        for (int i = 0; i < Predicate.FIELD_NAMES.length; i++) {
+            fields.append(i > 0 ? ", " : "").append(Predicate.FIELD_NAMES[i]);
+        }
+        throw new ParseException((token == null ? "expected a field" : "unknown field \"" + token + "\"")
+                + ", fields are " + fields, tokenStart);
+    }
+
+    private boolean isKeyword(String keyword) {
+        return (token != null && !quoted && token.equalsIgnoreCase(keyword));
+    }
+
+    private void expectKeyword(String keyword) throws ParseException {
+        if (!isKeyword(keyword)) {
+            throw new ParseException("expected \"" + keyword + "\"", tokenStart);
+        }
+        next();
+    }
+
+    /**
+     * read the next token, quoted strings may contain escaped quotes and backslashes.
+     */
+    private void next() throws ParseException {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        tokenStart = pos;
+        quoted = false;
+        if (pos >= text.length()) {
+            token = null;
+            return;
+        }
+
+        char c = text.charAt(pos);
+        if (c == '"') {
+            StringBuffer value = new StringBuffer();
+            pos++;
+            while (pos < text.length() && text.charAt(pos) != '"') {
+                if (text.charAt(pos) == '\\' && pos + 1 < text.length()) {
+                    pos++;
+                }
+                value.append(text.charAt(pos++));
+            }
+            if (pos >= text.length()) {
+                throw new ParseException("unterminated string", tokenStart);
+            }
+            pos++;
+            token = value.toString();
+            quoted = true;
+        } else if (c == '(' || c == ')') {
+            token = String.valueOf(c);
+            pos++;
+        } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+            pos++;
+            if (pos < text.length() && text.charAt(pos) == '=' && c != '=') {
+                pos++;
+            } else if (c == '!') {
+                throw new ParseException("expected \"!=\"", tokenStart);
+            }
+            token = text.substring(tokenStart, pos);
+        } else {
+            while (pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && "()=!<>\"".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            token = text.substring(tokenStart, pos);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Target.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.query;
+
+import com.pironet.tda.FrameIndex;
+import com.pironet.tda.model.DumpThread;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * the dump and thread a condition is checked for. Every task of a query has its own
+ * target, the threads found in the frame index are shared by all tasks.
+ */
+class Target {
+    private FrameIndex index;
+    private Map stackMatches;
+    private FrameIndex.Dump dump;
+    private int fromEnd;
+    private DumpThread thread;
+
+    /**
+     * Creates a new instance of Target
+     *
+     * @param index        the index of the queried dumps.
+     * @param stackMatches the threads found in the index keyed by the patterns,
+     *                     shared by all targets of the query.
+     */
+    Target(FrameIndex index, Map stackMatches) {
+        this.index = index;
+        this.stackMatches = stackMatches;
+    }
+
+    void setDump(FrameIndex.Dump dump, int fromEnd) {
+        this.dump = dump;
+        this.fromEnd = fromEnd;
+        thread = null;
+    }
+
+    FrameIndex.Dump getDump() {
+        return (dump);
+    }
+
+    /**
+     * @return the position of the dump counted from the last one, 0 for the last dump.
+     */
+    int getFromEnd() {
+        return (fromEnd);
+    }
+
+    void setThread(DumpThread thread) {
+        this.thread = thread;
+    }
+
+    DumpThread getThread() {
+        return (thread);
+    }
+
+    /**
+     * get the threads having a frame matching the pattern, the index is only searched
+     * as soon as a thread needs to be checked.
+     *
+     * @return set of {@link DumpThread}.
+     */
+    Set getStackMatches(Pattern pattern) {
+        synchronized (stackMatches) {
+            Set threads = (Set) stackMatches.get(pattern);
+            if (threads == null) {
+                threads = index.getThreads(pattern);
+                stackMatches.put(pattern, threads);
+            }
+            return (threads);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * BrokenRule.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * stands in for a rule which couldn't be loaded, it reports the error as finding
+ * of every dump, so it shows up in the rule findings.
+ */
+public class BrokenRule implements Rule {
+    private String name;
+    private String error;
+
+    /**
+     * Creates a new instance of BrokenRule
+     *
+     * @param name  the name of the rule or its definition if the name is unknown.
+     * @param error the reason the rule couldn't be loaded.
+     */
+    public BrokenRule(String name, String error) {
+        this.name = name;
+        this.error = error;
+    }
+
+    public String getName() {
+        return (name);
+    }
+
+    public long getRevision() {
+        return (0);
+    }
+
+    public List check(RuleContext context) {
+        List findings = new ArrayList();
+        findings.add(new Finding(name, Finding.INFO, "<p>The rule <b>" + name + "</b> couldn't be loaded: "
+                + error + "</p><br>"));
+        return (findings);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * DefaultRules.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the checks of the dump overview shipped with TDA. They are registered as services
+ * like any other rule.
+ */
+public class DefaultRules {
+
+    private DefaultRules() {
+    }
+
+    private static List found(Rule rule, int severity, String message) {
+        List findings = new ArrayList(1);
+        findings.add(new Finding(rule.getName(), severity, message));
+        return (findings);
+    }
+
+    /**
+     * a lot of threads are waiting for a monitor, only checked if there are no deadlocks.
+     */
+    public static class WaitingThreads implements Rule {
+        public String getName() {
+            return ("Threads waiting for monitors");
+        }
+
+        public long getRevision() {
+            return (0);
+        }
+
+        public List check(RuleContext context) {
+            double waiting = context.getPercentage(context.getWaitingCount());
+            if (context.getDeadlockCount() > 0 || waiting <= 10.0) {
+                return (new ArrayList());
+            }
+            return (found(this, Finding.WARNING, "<p>" + (int) waiting + "% of all threads are waiting for a monitor to become available again.</p><br>"
+                    + "This might indicate a congestion or even a deadlock. If a monitor doesn't have a locking thread, it might be<br>"
+                    + "hold by some external resource or system thread. You should check the <a href=\"wait://\">waiting threads</a>.<br>"));
+        }
+    }
+
+    /**
+     * the dump contains deadlocks.
+     */
+    public static class Deadlocks implements Rule {
+        public String getName() {
+            return ("Deadlocks");
+        }
+
+        public long getRevision() {
+            return (0);
+        }
+
+        public List check(RuleContext context) {
+            int deadlocks = context.getDeadlockCount();
+            if (deadlocks == 0) {
+                return (new ArrayList());
+            }
+            return (found(this, Finding.CRITICAL, "<p>The JVM has detected " + deadlocks + " deadlock(s) in the thread dump. "
+                    + "You should check the <br><a href=\"dead://\">deadlocks</a> for further information.</p><br>"));
+        }
+    }
+
+    /**
+     * a lot of threads are sleeping on a monitor.
+     */
+    public static class SleepingThreads implements Rule {
+        public String getName() {
+            return ("Threads sleeping on monitors");
+        }
+
+        public long getRevision() {
+            return (0);
+        }
+
+        public List check(RuleContext context) {
+            double sleeping = context.getPercentage(context.getSleepingCount());
+            if (sleeping <= 25.0) {
+                return (new ArrayList());
+            }
+            return (found(this, Finding.INFO, "<p>" + (int) sleeping + "% of all threads are sleeping on a monitor.</p><br>"
+                    + "This might indicate they are waiting for some external resource (e.g. database) which is overloaded<br>"
+                    + "or not available or are just waiting to get to do something (idle threads).<br>"
+                    + "You should check the <a href=\"sleep://\">sleeping threads</a> with a filter excluding all idle threads."));
+        }
+    }
+
+    /**
+     * the dump contains monitors without locking thread.
+     */
+    public static class MonitorsWithoutLocks implements Rule {
+        public String getName() {
+            return ("Monitors without locking thread");
+        }
+
+        public long getRevision() {
+            return (0);
+        }
+
+        public List check(RuleContext context) {
+            if (context.getMonitorsWithoutLocksCount() == 0) {
+                return (new ArrayList());
+            }
+            return (found(this, Finding.INFO, "<p>This thread dump contains monitors without a locking thread information.<br>"
+                    + "This means, the monitor is hold by a system thread or some external resource.</p><br>"
+                    + "You should check the monitors without locking threads for more information.<br>"));
+        }
+    }
+
+    /**
+     * most threads are waiting for monitors without locking thread, usually the
+     * garbage collector is running.
+     */
+    public static class GarbageCollection implements Rule {
+        public String getName() {
+            return ("Garbage collector running");
+        }
+
+        public long getRevision() {
+            return (0);
+        }
+
+        public List check(RuleContext context) {
+            double waiting = context.getPercentage(context.getThreadsWaitingWithoutLocksCount());
+            if (waiting <= 50.0) {
+                return (new ArrayList());
+            }
+            return (found(this, Finding.WARNING, "<p>" + (int) waiting + "% of all threads are waiting for a monitor without a application "
+                    + "thread holding it.<br> This indicates a congestion. It is very likely the garbage collector is running "
+                    + "and is blocking the monitors.</p><br>"
+                    + "You should check the monitors without locking threads for more information on the blocked threads.<br>"
+                    + "You also should analyze the garbage collector behaviour. Go to the "
+                    + "<a href=\"http://www.tagtraum.com/gcviewer.html\">GCViewer-Homepage</a> for more<br>"
+                    + " information on how to do this."));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Finding.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import java.io.Serializable;
+
+/**
+ * a hint a {@link Rule} found in a thread dump.
+ */
+public class Finding implements Serializable {
+    public static final int INFO = 0;
+    public static final int WARNING = 1;
+    public static final int CRITICAL = 2;
+
+    private static final String[] SEVERITY_NAMES = {"Info", "Warning", "Critical"};
+
+    private String rule;
+    private int severity;
+    private String message;
+
+    /**
+     * Creates a new instance of Finding
+     *
+     * @param rule     the name of the rule.
+     * @param severity {@link #INFO}, {@link #WARNING} or {@link #CRITICAL}.
+     * @param message  the message as html, links like "wait://" are handled by the
+     *                 dump overview.
+     */
+    public Finding(String rule, int severity, String message) {
+        this.rule = rule;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    public String getRule() {
+        return (rule);
+    }
+
+    public int getSeverity() {
+        return (severity);
+    }
+
+    public String getMessage() {
+        return (message);
+    }
+
+    /**
+     * @return the name of the given severity, e.g. "Warning".
+     */
+    public static String getSeverityName(int severity) {
+        return (SEVERITY_NAMES[severity]);
+    }
+
+    /**
+     * @return the severity with the given name, {@link #WARNING} if unknown.
+     */
+    public static int getSeverity(String name) {
+        for (int i = 0; i < SEVERITY_NAMES.length; i++) {
+            if (SEVERITY_NAMES[i].equalsIgnoreCase(name)) {
+                return (i);
+            }
+        }
+        return (WARNING);
+    }
+
+    public String toString() {
+        return (getSeverityName(severity) + ": " + rule);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Rule.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import java.util.List;
+
+/**
+ * a check of a thread dump. Rules are loaded by the {@link java.util.ServiceLoader}
+ * (listed in META-INF/services/com.pironet.tda.rules.Rule) or defined in the
+ * preferences. Rules are called concurrently for different dumps, so they shouldn't
+ * keep state between calls.
+ */
+public interface Rule {
+
+    /**
+     * @return the name of the rule, unique among all rules.
+     */
+    public String getName();
+
+    /**
+     * the revision of the definition of the rule. Findings of a dump are kept until
+     * the revision of their rule changes.
+     *
+     * @return the revision, constant for rules without settings.
+     */
+    public long getRevision();
+
+    /**
+     * check the given dump.
+     *
+     * @param context the parsed dump.
+     * @return list of {@link Finding}, empty if the dump is fine.
+     */
+    public List check(RuleContext context);
+}
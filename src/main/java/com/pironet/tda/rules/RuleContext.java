@@ -0,0 +1,114 @@
+/*
+ * RuleContext.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import com.pironet.tda.Category;
+import com.pironet.tda.ThreadDumpInfo;
+import com.pironet.tda.model.ThreadDump;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the dump a {@link Rule} checks: the parsed threads and the counts of the
+ * categories of the dump node.
+ */
+public class RuleContext {
+    private ThreadDumpInfo tdi;
+
+    /**
+     * Creates a new instance of RuleContext
+     *
+     * @param tdi the node of the dump.
+     */
+    public RuleContext(ThreadDumpInfo tdi) {
+        this.tdi = tdi;
+    }
+
+    /**
+     * @return the name of the dump.
+     */
+    public String getName() {
+        return (tdi.getName());
+    }
+
+    /**
+     * @return the parsed dump, null for dumps of sessions of older versions.
+     */
+    public ThreadDump getDump() {
+        return (tdi.getDump());
+    }
+
+    /**
+     * @return the {@link com.pironet.tda.model.DumpThread}s of the dump.
+     */
+    public List getThreads() {
+        return (tdi.getDump() != null ? tdi.getDump().getThreads() : new ArrayList());
+    }
+
+    public int getThreadCount() {
+        return (count(tdi.getThreads()));
+    }
+
+    /**
+     * @return the amount of threads waiting to enter a monitor.
+     */
+    public int getWaitingCount() {
+        return (count(tdi.getWaitingThreads()));
+    }
+
+    /**
+     * @return the amount of threads sleeping on a monitor.
+     */
+    public int getSleepingCount() {
+        return (count(tdi.getSleepingThreads()));
+    }
+
+    public int getLockingCount() {
+        return (count(tdi.getLockingThreads()));
+    }
+
+    public int getDeadlockCount() {
+        return (count(tdi.getDeadlocks()));
+    }
+
+    public int getMonitorsWithoutLocksCount() {
+        return (count(tdi.getMonitorsWithoutLocks()));
+    }
+
+    /**
+     * @return the amount of threads waiting for monitors without locking thread.
+     */
+    public int getThreadsWaitingWithoutLocksCount() {
+        return (tdi.getOverallThreadsWaitingWithoutLocksCount());
+    }
+
+    /**
+     * @return the given count in percent of all threads, 0 if there are no threads.
+     */
+    public double getPercentage(int count) {
+        int threadCount = getThreadCount();
+        return (threadCount > 0 ? count / (threadCount / 100.0) : 0);
+    }
+
+    private static int count(Category cat) {
+        return (cat == null ? 0 : cat.getNodeCount());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * RuleEngine.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import com.pironet.tda.utils.PrefManager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import javax.swing.ListModel;
+
+/**
+ * runs the rules against a dump. The rules are the ones registered as services
+ * followed by the ones defined in the preferences. The findings of every rule are
+ * kept with the revision of the rule, a rule is only checked again if its revision
+ * changed.
+ */
+public class RuleEngine {
+    private static List serviceRules = null;
+    private static List brokenServiceRules = null;
+
+    private RuleEngine() {
+    }
+
+    /**
+     * @return the rules in the order their findings are displayed.
+     */
+    public static List getRules() {
+        List rules = new ArrayList(getServiceRules());
+        ListModel prefRules = PrefManager.get().getRules();
+        for (int i = 0; i < prefRules.getSize(); i++) {
+            rules.add(prefRules.getElementAt(i));
+        }
+        // rules which couldn't be loaded report the error as finding.
+        rules.addAll(brokenServiceRules);
+        rules.addAll(PrefManager.get().getBrokenRules());
+        return (rules);
+    }
+
+    private static synchronized List getServiceRules() {
+        if (serviceRules == null) {
+            serviceRules = new ArrayList();
+            brokenServiceRules = new ArrayList();
+            Iterator iter = ServiceLoader.load(Rule.class, RuleEngine.class.getClassLoader()).iterator();
+            while (true) {
+                try {
+                    if (!iter.hasNext()) {
+                        break;
+                    }
+                    serviceRules.add(iter.next());
+                } catch (ServiceConfigurationError ex) {
+                    // skip broken rules, the others are still usable.
+                    ex.printStackTrace();
+                    brokenServiceRules.add(new BrokenRule("Rule service " + (brokenServiceRules.size() + 1), ex.getMessage()));
+                }
+            }
+        }
+        return (serviceRules);
+    }
+
+    /**
+     * check the given dump with all rules.
+     *
+     * @param context the dump to check.
+     * @param results the results of earlier checks of the dump, updated with the
+     *                current results.
+     * @return list of {@link Finding} in rule order.
+     */
+    public static List check(RuleContext context, Map results) {
+        List rules = getRules();
+        Map current = new HashMap();
+        List findings = new ArrayList();
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = (Rule) rules.get(i);
+            Result result = (Result) results.get(rule.getName());
+            if (result == null || result.revision != rule.getRevision()) {
+                result = new Result(rule.getRevision(), checkRule(rule, context));
+            }
+            current.put(rule.getName(), result);
+            findings.addAll(result.findings);
+        }
+        // forget the results of removed rules.
+        results.clear();
+        results.putAll(current);
+        return (findings);
+    }
+
+    private static List checkRule(Rule rule, RuleContext context) {
+        try {
+            return (rule.check(context));
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            List findings = new ArrayList();
+            findings.add(new Finding(rule.getName(), Finding.INFO, "<p>The rule <b>" + rule.getName()
+                    + "</b> failed on this dump: " + ex + "</p><br>"));
+            return (findings);
+        }
+    }
+
+    /**
+     * @return true, if one of the rules would be checked again by {@link #check(RuleContext, Map)}.
+     */
+    public static boolean isOutdated(Map results) {
+        List rules = getRules();
+        if (rules.size() != results.size()) {
+            return (true);
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = (Rule) rules.get(i);
+            Result result = (Result) results.get(rule.getName());
+            if (result == null || result.revision != rule.getRevision()) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * the findings of a rule in a dump.
+     */
+    private static class Result implements Serializable {
+        private long revision;
+        private List findings;
+
+        Result(long revision, List findings) {
+            this.revision = revision;
+            this.findings = findings;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * StackRule.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.rules;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * rule defined in the preferences: reports a dump if more than the given amount of
+ * threads have a frame matching a regular expression, e.g. more than 50 threads in
+ * SocketInputStream.socketRead0.
+ */
+public class StackRule implements Rule {
+    private String name;
+    private String expression;
+    private boolean topFrameOnly;
+    private boolean waitingOnly;
+    private int threshold;
+    private int severity;
+    private Pattern pattern;
+
+    /**
+     * Creates a new instance of StackRule
+     *
+     * @param name         the name of the rule.
+     * @param expression   the regular expression searched in the frames.
+     * @param topFrameOnly true, if only the top frame of the threads is checked.
+     * @param waitingOnly  true, if only threads which aren't running are counted.
+     * @param threshold    the dump is reported if more threads match.
+     * @param severity     the severity of the finding.
+     */
+    public StackRule(String name, String expression, boolean topFrameOnly, boolean waitingOnly, int threshold, int severity) {
+        this.name = name;
+        this.expression = expression;
+        this.topFrameOnly = topFrameOnly;
+        this.waitingOnly = waitingOnly;
+        this.threshold = threshold;
+        this.severity = severity;
+        pattern = Pattern.compile(expression);
+    }
+
+    public String getName() {
+        return (name);
+    }
+
+    public String getExpression() {
+        return (expression);
+    }
+
+    public boolean isTopFrameOnly() {
+        return (topFrameOnly);
+    }
+
+    public boolean isWaitingOnly() {
+        return (waitingOnly);
+    }
+
+    public int getThreshold() {
+        return (threshold);
+    }
+
+    public int getSeverity() {
+        return (severity);
+    }
+
+    /**
+     * the revision changes with the settings of the rule.
+     */
+    public long getRevision() {
+        return ((expression + topFrameOnly + waitingOnly + threshold + severity).hashCode());
+    }
+
+    public List check(RuleContext context) {
+        List threads = context.getThreads();
+        // frames are pooled, so every distinct frame is only matched once.
+        Map matches = new IdentityHashMap();
+        int count = 0;
+        for (int i = 0; i < threads.size(); i++) {
+            DumpThread thread = (DumpThread) threads.get(i);
+            if (waitingOnly && thread.isRunnable()) {
+                continue;
+            }
+            List frames = thread.getFrames();
+            int depth = topFrameOnly ? Math.min(1, frames.size()) : frames.size();
+            for (int j = 0; j < depth; j++) {
+                StackFrame frame = (StackFrame) frames.get(j);
+                Boolean match = (Boolean) matches.get(frame);
+                if (match == null) {
+                    match = Boolean.valueOf(pattern.matcher(frame.getLine()).find());
+                    matches.put(frame, match);
+                }
+                if (match.booleanValue()) {
+                    count++;
+                    break;
+                }
+            }
+        }
+
+        List findings = new ArrayList();
+        if (count > threshold) {
+            findings.add(new Finding(name, severity, "<p><b>" + name.replaceAll("<", "&lt;") + "</b>: " + count
+                    + (waitingOnly ? " waiting" : "") + " threads have <tt>" + expression.replaceAll("<", "&lt;") + "</tt> "
+                    + (topFrameOnly ? "as top frame" : "in their stack") + " (more than " + threshold + ").</p><br>"));
+        }
+        return (findings);
+    }
+
+    public String toString() {
+        return (name);
+    }
+}
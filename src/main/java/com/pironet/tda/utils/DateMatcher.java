@@ -49,6 +49,19 @@ public class DateMatcher {
         }
     }
 
+    /**
+     * create a matcher using the patterns of the given one, without compiling
+     * (and possibly reporting an error for) the configured regex again. The last
+     * match isn't copied.
+     *
+     * @param template the matcher to copy the patterns from.
+     */
+    public DateMatcher(DateMatcher template) {
+        regexPattern = template.regexPattern;
+        defaultPattern = template.defaultPattern;
+        patternError = template.patternError;
+    }
+
     public Pattern getRegexPattern() {
         return regexPattern;
     }
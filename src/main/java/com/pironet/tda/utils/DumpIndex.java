@@ -0,0 +1,269 @@
+/*
+ * DumpIndex.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * index of the thread dumps found in a log file. It is stored in a cache
+ * directory after a log file has been parsed, so reopening the same (unchanged)
+ * log file doesn't need to scan it again, the dumps can be parsed on demand
+ * from their byte regions.
+ * <p>
+ * An index is only valid for the log file with the same size and modification
+ * time and if it was created with the same date parsing expression.
+ */
+public class DumpIndex {
+    private static final int MAGIC = 0x54444158;
+    private static final int VERSION = 2;
+
+    private final long fileLength;
+    private final long lastModified;
+    private final String datePattern;
+    private boolean wrapped;
+    private boolean foundClassHistograms;
+
+    private final List entries = new ArrayList();
+
+    /**
+     * Creates a new instance of DumpIndex
+     *
+     * @param logFile     the indexed log file.
+     * @param datePattern the date parsing expression used for the start times, null if none.
+     */
+    public DumpIndex(File logFile, String datePattern) {
+        this(logFile.length(), logFile.lastModified(), datePattern);
+    }
+
+    private DumpIndex(long fileLength, long lastModified, String datePattern) {
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.datePattern = datePattern;
+    }
+
+    /**
+     * get the file the index of the given log file is stored in. Index files are kept
+     * in the ".tda/index" directory of the user home.
+     *
+     * @param logFile the log file
+     * @return the index file.
+     */
+    public static File getIndexFile(File logFile) {
+        File dir = new File(System.getProperty("user.home"), ".tda" + File.separator + "index");
+        String path = logFile.getAbsolutePath();
+        return (new File(dir, logFile.getName() + "-" + Integer.toHexString(path.hashCode()) + ".idx"));
+    }
+
+    /**
+     * add the dump region of a dump to the index.
+     *
+     * @param start       start of the region (the line of the dump header).
+     * @param limit       end of the region (exclusive).
+     * @param startLine   number of lines in front of the region.
+     * @param offset      number of the dump relative to the first dump of the log file, broken
+     *                    dumps in front of it keep their numbers.
+     * @param logLine     log line of the dump.
+     * @param startTime   start time of the dump, null if none found.
+     * @param threadCount amount of threads of the dump.
+     */
+    public void addDump(long start, long limit, int startLine, int offset, int logLine, String startTime, int threadCount) {
+        entries.add(new Entry(start, limit, startLine, offset, logLine, startTime, threadCount));
+    }
+
+    public int getDumpCount() {
+        return (entries.size());
+    }
+
+    public Entry getDump(int index) {
+        return ((Entry) entries.get(index));
+    }
+
+    public boolean isWrapped() {
+        return (wrapped);
+    }
+
+    public void setWrapped(boolean wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    public boolean isFoundClassHistograms() {
+        return (foundClassHistograms);
+    }
+
+    public void setFoundClassHistograms(boolean foundClassHistograms) {
+        this.foundClassHistograms = foundClassHistograms;
+    }
+
+    /**
+     * check if this index belongs to the current state of the given log file.
+     *
+     * @param logFile     the log file.
+     * @param datePattern the date parsing expression which would be used now, null if none.
+     * @return true, if the index can be used.
+     */
+    public boolean isValidFor(File logFile, String datePattern) {
+        return (logFile.length() == fileLength && logFile.lastModified() == lastModified
+                && (this.datePattern == null ? datePattern == null : this.datePattern.equals(datePattern)));
+    }
+
+    /**
+     * write the index to the given file, the directory is created if missing.
+     *
+     * @param indexFile the file to write.
+     * @throws IOException if the index couldn't be written.
+     */
+    public void save(File indexFile) throws IOException {
+        if (indexFile.getParentFile() != null) {
+            indexFile.getParentFile().mkdirs();
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            writeString(out, datePattern);
+            out.writeBoolean(wrapped);
+            out.writeBoolean(foundClassHistograms);
+            out.writeInt(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = (Entry) entries.get(i);
+                out.writeLong(entry.start);
+                out.writeLong(entry.limit);
+                out.writeInt(entry.startLine);
+                out.writeInt(entry.offset);
+                out.writeInt(entry.logLine);
+                writeString(out, entry.startTime);
+                out.writeInt(entry.threadCount);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * read the index from the given file.
+     *
+     * @param indexFile the file to read.
+     * @return the index, null if the file doesn't exist or isn't a readable index.
+     */
+    public static DumpIndex load(File indexFile) {
+        if (!indexFile.isFile()) {
+            return (null);
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return (null);
+            }
+            DumpIndex index = new DumpIndex(in.readLong(), in.readLong(), readString(in));
+            index.setWrapped(in.readBoolean());
+            index.setFoundClassHistograms(in.readBoolean());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.addDump(in.readLong(), in.readLong(), in.readInt(), in.readInt(), in.readInt(), readString(in), in.readInt());
+            }
+            return (index);
+        } catch (IOException ex) {
+            // a broken index is simply ignored, the log file gets parsed again.
+            return (null);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return (in.readBoolean() ? in.readUTF() : null);
+    }
+
+    /**
+     * the region and the key data of one dump.
+     */
+    public static class Entry {
+        private final long start;
+        private final long limit;
+        private final int startLine;
+        private final int offset;
+        private final int logLine;
+        private final String startTime;
+        private final int threadCount;
+
+        Entry(long start, long limit, int startLine, int offset, int logLine, String startTime, int threadCount) {
+            this.start = start;
+            this.limit = limit;
+            this.startLine = startLine;
+            this.offset = offset;
+            this.logLine = logLine;
+            this.startTime = startTime;
+            this.threadCount = threadCount;
+        }
+
+        public long getStart() {
+            return (start);
+        }
+
+        public long getLimit() {
+            return (limit);
+        }
+
+        public int getStartLine() {
+            return (startLine);
+        }
+
+        public int getOffset() {
+            return (offset);
+        }
+
+        public int getLogLine() {
+            return (logLine);
+        }
+
+        public String getStartTime() {
+            return (startTime);
+        }
+
+        public int getThreadCount() {
+            return (threadCount);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * LongIntMap.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.utils;
+
+import java.io.Serializable;
+
+/**
+ * hash map from long keys to int values, without boxing. Uses open addressing
+ * with linear probing, entries can't be removed.
+ */
+public class LongIntMap implements Serializable {
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    /**
+     * Creates a new instance of LongIntMap
+     */
+    public LongIntMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a new instance of LongIntMap
+     *
+     * @param expectedSize amount of entries expected, the map grows if needed.
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return (i);
+    }
+
+    /**
+     * @return the value of the given key, -1 if not found.
+     */
+    public int get(long key) {
+        int i = indexOf(key);
+        return (used[i] ? values[i] : -1);
+    }
+
+    public boolean containsKey(long key) {
+        return (used[indexOf(key)]);
+    }
+
+    /**
+     * put the given value, replacing a former value of the key.
+     */
+    public void put(long key, int value) {
+        int i = indexOf(key);
+        if (!used[i]) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                i = indexOf(key);
+            }
+            used[i] = true;
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = indexOf(oldKeys[j]);
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public int size() {
+        return (size);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * MappedLineReader.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+
+/**
+ * line reader on top of a {@link MappedLogfile}. Behaves like a BufferedReader
+ * (so it can be passed to the dump parsers as is), but additionally allows to
+ * skip to the next thread dump by scanning the mapped bytes without creating
+ * any strings for the skipped lines.
+ * <p>
+ * The reader can be restricted to a region of the file, this is used for
+ * parsing several dumps of one file in parallel.
+ */
+public class MappedLineReader extends BufferedReader {
+    private final MappedLogfile logfile;
+    private final ByteBuffer[] views;
+    private final long start;
+    private long limit;
+    private long pos;
+    private long markPos = -1;
+
+    private byte[] lineBuffer = new byte[256];
+    private String pendingChars = null;
+    private int pendingPos = 0;
+
+    /**
+     * create a reader for the whole given file.
+     */
+    public MappedLineReader(File file) throws IOException {
+        this(new MappedLogfile(file));
+    }
+
+    /**
+     * create a reader for the whole mapped file.
+     */
+    public MappedLineReader(MappedLogfile logfile) {
+        this(logfile, 0, logfile.length());
+    }
+
+    /**
+     * create a reader for the given region of the mapped file.
+     *
+     * @param logfile the mapped file
+     * @param start   start position of the region
+     * @param limit   end position of the region (exclusive)
+     */
+    public MappedLineReader(MappedLogfile logfile, long start, long limit) {
+        // the underlying reader is never used, all reading is done on the mapping
+        super(new StringReader(""), 1);
+        this.logfile = logfile;
+        this.views = logfile.createViews();
+        this.start = start;
+        this.limit = limit;
+        this.pos = start;
+    }
+
+    public MappedLogfile getLogfile() {
+        return (logfile);
+    }
+
+    /**
+     * @return the current byte position in the mapped file.
+     */
+    public long getPosition() {
+        return (pos);
+    }
+
+    /**
+     * @return the end of the region this reader is restricted to.
+     */
+    public long getLimit() {
+        return (limit);
+    }
+
+    public boolean ready() {
+        return (pos < limit || pendingChars != null);
+    }
+
+    public String readLine() {
+        if (pendingChars != null) {
+            String rest = pendingChars.substring(pendingPos);
+            pendingChars = null;
+            if (rest.length() > 0 && rest.charAt(rest.length() - 1) == '\n') {
+                return (rest.substring(0, rest.length() - 1));
+            }
+        }
+        if (pos >= limit) {
+            return (null);
+        }
+
+        long lineEnd = logfile.findLineEnd(pos, limit);
+        String line = decode(pos, lineEnd);
+        pos = logfile.skipLineTerminator(lineEnd, limit);
+        return (line);
+    }
+
+    /**
+     * decode the given range into a string using the platform charset.
+     */
+    private String decode(long from, long to) {
+        int len = (int) (to - from);
+        if (len > lineBuffer.length) {
+            lineBuffer = new byte[Math.max(len, lineBuffer.length * 2)];
+        }
+        logfile.copy(views, from, lineBuffer, len);
+        return (new String(lineBuffer, 0, len, logfile.getCharset()));
+    }
+
+    public int read() throws IOException {
+        if (!fillPending()) {
+            return (-1);
+        }
+        return (pendingChars.charAt(pendingPos++));
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return (0);
+        }
+        if (!fillPending()) {
+            return (-1);
+        }
+        int count = Math.min(len, pendingChars.length() - pendingPos);
+        pendingChars.getChars(pendingPos, pendingPos + count, cbuf, off);
+        pendingPos += count;
+        return (count);
+    }
+
+    /**
+     * char based reading is done line by line, so make sure there is a line in the
+     * pending buffer.
+     */
+    private boolean fillPending() {
+        if (pendingChars != null && pendingPos >= pendingChars.length()) {
+            pendingChars = null;
+        }
+        if (pendingChars == null) {
+            if (pos >= limit) {
+                return (false);
+            }
+            String line = readLine();
+            pendingChars = line + "\n";
+            pendingPos = 0;
+        }
+        return (true);
+    }
+
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() >= 0) {
+            skipped++;
+        }
+        return (skipped);
+    }
+
+    public boolean markSupported() {
+        return (true);
+    }
+
+    /**
+     * mark the current position, the read ahead limit is ignored as the whole
+     * region is always accessible.
+     */
+    public void mark(int readAheadLimit) {
+        markPos = pos;
+        pendingChars = null;
+    }
+
+    public void reset() throws IOException {
+        if (markPos < 0) {
+            throw new IOException("Stream not marked");
+        }
+        pos = markPos;
+        pendingChars = null;
+    }
+
+    /**
+     * the mapping itself can't be released explicitly, it is freed as soon as it gets
+     * garbage collected.
+     */
+    public void close() {
+        pos = limit;
+        pendingChars = null;
+    }
+
+    /**
+     * skip to the start of the next line containing one of the given markers.
+     *
+     * @param markers ascii markers to look for.
+     * @return the amount of lines skipped, if no marker was found the reader is
+     * positioned at the end of its region.
+     */
+    public int skipToLineContaining(byte[][] markers) {
+        pendingChars = null;
+        long found = logfile.indexOf(markers, pos, limit);
+        long target = found >= 0 ? logfile.findLineStart(found, pos) : limit;
+        int lines = logfile.countLines(pos, target);
+        pos = target;
+        return (lines);
+    }
+
+    /**
+     * walk backwards from the current position to the given floor and feed the
+     * lines to the date matcher until the first match, which is the last date
+     * logged before the current position. This has the same effect as checking
+     * every line from floor on in forward direction.
+     *
+     * @param floor      the position not to go back beyond.
+     * @param dm         the date matcher to feed.
+     * @param wrapPrefix length of a line prefix to strip (wrapped logs), 0 if none.
+     * @return the match or null if no line matched.
+     */
+    public Matcher findLastDateMatch(long floor, DateMatcher dm, int wrapPrefix) {
+        long lineStart = pos;
+        while (lineStart > floor) {
+            long lineEnd = lineStart - 1;
+            if (lineEnd > floor && logfile.byteAt(lineEnd) == '\n' && logfile.byteAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            lineStart = logfile.findLineStart(lineEnd, floor);
+            String line = decode(lineStart, lineEnd);
+            if (wrapPrefix > 0 && line.length() > wrapPrefix) {
+                line = line.substring(wrapPrefix);
+            }
+            Matcher before = dm.getLastMatch();
+            Matcher m = dm.checkForDateMatch(line);
+            if (m != null && m != before) {
+                return (m);
+            }
+        }
+        return (null);
+    }
+
+    /**
+     * @return the start of the region this reader is restricted to.
+     */
+    public long getStart() {
+        return (start);
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * MappedLogfile.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * read only memory mapping of a (possibly multi gigabyte) log file. The file
+ * is mapped in chunks, as a single mapping is limited to 2GB. All access is done
+ * by absolute positions, so one mapping can be shared by several readers, even
+ * from different threads.
+ * <p>
+ * Searching is done on the raw bytes, nothing is decoded into strings until a
+ * reader asks for a line.
+ */
+public class MappedLogfile {
+    private static final int CHUNK_BITS = 28;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final File file;
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+    private final Charset charset;
+
+    /**
+     * map the given file into memory.
+     *
+     * @param file the file to map.
+     * @throws IOException if the file couldn't be mapped.
+     */
+    public MappedLogfile(File file) throws IOException {
+        this(file, null);
+    }
+
+    /**
+     * map the given file into memory, the complete chunks of the previous mapping
+     * of the file are kept.
+     */
+    private MappedLogfile(File file, MappedLogfile previous) throws IOException {
+        this.file = file;
+        this.charset = Charset.defaultCharset();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            length = channel.size();
+            int chunkCount = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << CHUNK_BITS;
+                if (previous != null && length >= previous.length && i < previous.chunks.length
+                        && previous.chunks[i].capacity() == CHUNK_SIZE) {
+                    chunks[i] = previous.chunks[i];
+                } else {
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, length - start));
+                }
+            }
+        } finally {
+            // the mappings stay valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * map the file again after it grew, e.g. while it is followed. Only the last
+     * (partial) chunk and the appended chunks are mapped, the complete chunks are
+     * shared with this mapping.
+     *
+     * @return the mapping of the current file content, this one if the length didn't change.
+     * @throws IOException if the file couldn't be mapped.
+     */
+    public MappedLogfile remap() throws IOException {
+        if (file.length() == length) {
+            return (this);
+        }
+        return (new MappedLogfile(file, this));
+    }
+
+    /**
+     * check if the given file can be scanned in place. This is only possible for
+     * regular files and if the platform charset encodes the thread dump markers
+     * as plain ascii, otherwise the byte search would miss them.
+     *
+     * @param file the file to check
+     * @return true, if the file can be memory mapped.
+     */
+    public static boolean isMappable(File file) {
+        if (file == null || !file.isFile() || file.length() == 0) {
+            return (false);
+        }
+        String probe = "Full thread dump";
+        return (Arrays.equals(probe.getBytes(Charset.defaultCharset()), toAscii(probe)));
+    }
+
+    /**
+     * convert the given marker to its ascii byte representation.
+     *
+     * @param marker the marker string, must only contain ascii characters.
+     * @return the bytes of the marker.
+     */
+    public static byte[] toAscii(String marker) {
+        byte[] result = new byte[marker.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) marker.charAt(i);
+        }
+        return (result);
+    }
+
+    public File getFile() {
+        return (file);
+    }
+
+    /**
+     * @return the length of the mapped file in bytes.
+     */
+    public long length() {
+        return (length);
+    }
+
+    public Charset getCharset() {
+        return (charset);
+    }
+
+    /**
+     * get the byte at the given absolute position.
+     */
+    public byte byteAt(long pos) {
+        return (chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK)));
+    }
+
+    /**
+     * find the end of the line starting at the given position.
+     *
+     * @param pos   the position to start from
+     * @param limit the position not to read beyond
+     * @return the position of the line terminator or limit if the line isn't terminated.
+     */
+    public long findLineEnd(long pos, long limit) {
+        while (pos < limit) {
+            byte b = byteAt(pos);
+            if (b == '\n' || b == '\r') {
+                return (pos);
+            }
+            pos++;
+        }
+        return (limit);
+    }
+
+    /**
+     * get the position behind the line terminator at the given position.
+     *
+     * @param lineEnd position returned by {@link #findLineEnd(long, long)}
+     * @param limit   the position not to read beyond
+     * @return the start of the next line.
+     */
+    public long skipLineTerminator(long lineEnd, long limit) {
+        if (lineEnd >= limit) {
+            return (limit);
+        }
+        if (byteAt(lineEnd) == '\r' && lineEnd + 1 < limit && byteAt(lineEnd + 1) == '\n') {
+            return (lineEnd + 2);
+        }
+        return (lineEnd + 1);
+    }
+
+    /**
+     * find the start of the line containing the given position.
+     *
+     * @param pos   any position inside the line
+     * @param floor the position not to go back beyond
+     * @return start of the line.
+     */
+    public long findLineStart(long pos, long floor) {
+        while (pos > floor) {
+            byte b = byteAt(pos - 1);
+            if (b == '\n' || b == '\r') {
+                return (pos);
+            }
+            pos--;
+        }
+        return (floor);
+    }
+
+    /**
+     * search the next occurrence of one of the given markers.
+     *
+     * @param markers the ascii markers to look for
+     * @param from    start position of the search
+     * @param limit   end position of the search (exclusive)
+     * @return the position of the first found marker or -1 if none was found.
+     */
+    public long indexOf(byte[][] markers, long from, long limit) {
+        boolean[] firstBytes = new boolean[256];
+        for (int i = 0; i < markers.length; i++) {
+            firstBytes[markers[i][0] & 0xff] = true;
+        }
+
+        long pos = from;
+        while (pos < limit) {
+            // scan chunk wise, this keeps the inner loop tight.
+            MappedByteBuffer chunk = chunks[(int) (pos >>> CHUNK_BITS)];
+            long chunkBase = pos & ~CHUNK_MASK;
+            int end = (int) (Math.min(limit, chunkBase + chunk.limit()) - chunkBase);
+            for (int i = (int) (pos - chunkBase); i < end; i++) {
+                if (firstBytes[chunk.get(i) & 0xff]) {
+                    long found = chunkBase + i;
+                    for (int j = 0; j < markers.length; j++) {
+                        if (matchesAt(markers[j], found, limit)) {
+                            return (found);
+                        }
+                    }
+                }
+            }
+            pos = chunkBase + end;
+        }
+        return (-1);
+    }
+
+    private boolean matchesAt(byte[] marker, long pos, long limit) {
+        if (pos + marker.length > limit) {
+            return (false);
+        }
+        for (int i = 1; i < marker.length; i++) {
+            if (byteAt(pos + i) != marker[i]) {
+                return (false);
+            }
+        }
+        return (true);
+    }
+
+    /**
+     * count the line breaks in the given range, a line break is either "\n",
+     * "\r\n" or a single "\r" (same as {@link java.io.BufferedReader#readLine()}).
+     *
+     * @param from  start position
+     * @param limit end position (exclusive)
+     * @return the amount of lines ending in the given range.
+     */
+    public int countLines(long from, long limit) {
+        int lines = 0;
+        long pos = from;
+        while (pos < limit) {
+            MappedByteBuffer chunk = chunks[(int) (pos >>> CHUNK_BITS)];
+            long chunkBase = pos & ~CHUNK_MASK;
+            int end = (int) (Math.min(limit, chunkBase + chunk.limit()) - chunkBase);
+            for (int i = (int) (pos - chunkBase); i < end; i++) {
+                byte b = chunk.get(i);
+                if (b == '\n') {
+                    lines++;
+                } else if (b == '\r') {
+                    long next = chunkBase + i + 1;
+                    if (next >= length || byteAt(next) != '\n') {
+                        lines++;
+                    }
+                }
+            }
+            pos = chunkBase + end;
+        }
+        return (lines);
+    }
+
+    /**
+     * copy the bytes of the given range into the destination array.
+     *
+     * @param views per reader views of the chunks (see {@link #createViews()}).
+     */
+    void copy(ByteBuffer[] views, long from, byte[] dest, int len) {
+        int done = 0;
+        while (done < len) {
+            long pos = from + done;
+            int chunk = (int) (pos >>> CHUNK_BITS);
+            int offset = (int) (pos & CHUNK_MASK);
+            int count = Math.min(len - done, (int) (chunks[chunk].limit() - offset));
+            ByteBuffer view = views[chunk];
+            view.position(offset);
+            view.get(dest, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * create views of the chunks for relative bulk access, views must not be shared
+     * between threads.
+     */
+    ByteBuffer[] createViews() {
+        ByteBuffer[] views = new ByteBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            views[i] = chunks[i].duplicate();
+        }
+        return (views);
+    }
+}
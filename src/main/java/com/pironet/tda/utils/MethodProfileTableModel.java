@@ -0,0 +1,78 @@
+/*
+ * MethodProfileTableModel.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda.utils;
+
+import com.pironet.tda.MethodProfile;
+
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * table model for displaying the sample counts of a method profile.
+ */
+public class MethodProfileTableModel extends AbstractTableModel {
+    private List counters;
+
+    private String[] columnNames = {"Name", "Self (running)", "Total (running)", "Self (waiting)", "Total (waiting)"};
+
+    /**
+     * Creates a new instance of MethodProfileTableModel
+     *
+     * @param levelName the name of the first column, e.g. "Method".
+     * @param counters  the {@link MethodProfile.Counter}s to display.
+     */
+    public MethodProfileTableModel(String levelName, List counters) {
+        this.counters = counters;
+        columnNames[0] = levelName;
+    }
+
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        MethodProfile.Counter counter = (MethodProfile.Counter) counters.get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return (counter.getName());
+            case 1:
+                return (new Integer(counter.getSelfRunnable()));
+            case 2:
+                return (new Integer(counter.getTotalRunnable()));
+            case 3:
+                return (new Integer(counter.getSelfWaiting()));
+            case 4:
+                return (new Integer(counter.getTotalWaiting()));
+        }
+        return (null);
+    }
+
+    public String getColumnName(int col) {
+        return (columnNames[col]);
+    }
+
+    public int getRowCount() {
+        return (counters.size());
+    }
+
+    public int getColumnCount() {
+        return (columnNames.length);
+    }
+
+    public Class getColumnClass(int c) {
+        return (c == 0 ? String.class : Integer.class);
+    }
+}
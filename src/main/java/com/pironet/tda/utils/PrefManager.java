@@ -26,6 +26,9 @@ package com.pironet.tda.utils;
 import com.pironet.tda.CustomCategory;
 import com.pironet.tda.filter.Filter;
 import com.pironet.tda.filter.FilterChecker;
+import com.pironet.tda.rules.BrokenRule;
+import com.pironet.tda.rules.Finding;
+import com.pironet.tda.rules.StackRule;
 
 import java.awt.Dimension;
 import java.awt.Point;
@@ -33,6 +36,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.prefs.BackingStoreException;
+import java.util.regex.PatternSyntaxException;
 import java.util.prefs.Preferences;
 import javax.swing.DefaultListModel;
 import javax.swing.ListModel;
@@ -144,6 +148,17 @@ public class PrefManager {
         toolPrefs.putInt("dividerPos", pos);
     }
 
+    /**
+     * @return the amount of top frames compared for stuck threads, 0 for all.
+     */
+    public int getStackHashDepth() {
+        return (toolPrefs.getInt("stackHashDepth", 0));
+    }
+
+    public void setStackHashDepth(int depth) {
+        toolPrefs.putInt("stackHashDepth", depth);
+    }
+
     public int getStreamResetBuffer() {
         return (toolPrefs.getInt("streamResetBuffer", 16384));
     }
@@ -274,6 +289,40 @@ public class PrefManager {
         return (toolPrefs.getBoolean("millisTimeStamp", false));
     }
 
+    public void setUseMappedFiles(boolean value) {
+        toolPrefs.putBoolean("useMappedFiles", value);
+    }
+
+    /**
+     * @return true, if log files should be memory mapped for parsing.
+     */
+    public boolean getUseMappedFiles() {
+        return (toolPrefs.getBoolean("useMappedFiles", true));
+    }
+
+    public void setParallelParsing(boolean value) {
+        toolPrefs.putBoolean("parallelParsing", value);
+    }
+
+    /**
+     * @return true, if the thread dumps of a memory mapped log file should be parsed in parallel.
+     */
+    public boolean getParallelParsing() {
+        return (toolPrefs.getBoolean("parallelParsing", true));
+    }
+
+    public void setUseDumpIndex(boolean value) {
+        toolPrefs.putBoolean("useDumpIndex", value);
+    }
+
+    /**
+     * @return true, if an index of the dumps of parsed log files should be kept,
+     * so the log files can be reopened without parsing them again.
+     */
+    public boolean getUseDumpIndex() {
+        return (toolPrefs.getBoolean("useDumpIndex", true));
+    }
+
     public void setShowHotspotClasses(boolean value) {
         toolPrefs.putBoolean("showHotspotClasses", value);
     }
@@ -357,7 +406,7 @@ public class PrefManager {
      *
      * @return list model with custom categories.
      */
-    public ListModel getCategories() {
+    public synchronized ListModel getCategories() {
         DefaultListModel categories = null;
         if (this.cachedCategories.isEmpty()) {
             String categoryString = toolPrefs.get("categories", "");
@@ -507,6 +556,106 @@ public class PrefManager {
         setCategoryCache(categories);
     }
 
+    /**
+     * temporary storage for rules to not to have them be parsed again
+     */
+    private java.util.List cachedRules = null;
+
+    /**
+     * the rules which couldn't be parsed.
+     */
+    private java.util.List brokenRules = new ArrayList();
+
+    /**
+     * get the rules defined by the user, they are checked after the rules registered
+     * as services.
+     *
+     * @return list model with {@link StackRule}s.
+     */
+    public synchronized ListModel getRules() {
+        if (cachedRules == null) {
+            cachedRules = new ArrayList();
+            brokenRules = new ArrayList();
+            String ruleString = toolPrefs.get("rules", null);
+            if (ruleString == null) {
+                cachedRules.addAll(getPredefinedRules());
+            } else if (ruleString.length() > 0) {
+                String[] sRules = ruleString.split(PARAM_DELIM);
+                for (int i = 0; i < sRules.length; i++) {
+                    String[] ruleData = sRules[i].split(FILTER_SEP);
+                    try {
+                        cachedRules.add(new StackRule(ruleData[0], ruleData[1], ruleData[2].equals("true"),
+                                ruleData[3].equals("true"), Integer.parseInt(ruleData[4]), Finding.getSeverity(ruleData[5])));
+                    } catch (ArrayIndexOutOfBoundsException aioob) {
+                        aioob.printStackTrace();
+                        brokenRules.add(new BrokenRule(ruleData[0], "incomplete definition"));
+                    } catch (NumberFormatException nfe) {
+                        nfe.printStackTrace();
+                        brokenRules.add(new BrokenRule(ruleData[0], "invalid threshold " + ruleData[4]));
+                    } catch (PatternSyntaxException pse) {
+                        pse.printStackTrace();
+                        brokenRules.add(new BrokenRule(ruleData[0], "invalid expression " + pse.getPattern()));
+                    }
+                }
+            }
+        }
+        DefaultListModel rules = new DefaultListModel();
+        for (int i = 0; i < cachedRules.size(); i++) {
+            rules.addElement(cachedRules.get(i));
+        }
+        return (rules);
+    }
+
+    /**
+     * get the rules defined by the user which couldn't be parsed, they are reported
+     * as findings.
+     *
+     * @return list of {@link BrokenRule}s.
+     */
+    public synchronized java.util.List getBrokenRules() {
+        getRules();
+        return (new ArrayList(brokenRules));
+    }
+
+    /**
+     * generate the default rules.
+     */
+    private java.util.List getPredefinedRules() {
+        java.util.List rules = new ArrayList();
+        rules.add(new StackRule("Threads reading from sockets", "SocketInputStream\\.socketRead0", true, false, 50, Finding.WARNING));
+        rules.add(new StackRule("Connection pool exhausted", "\\.getConnection\\(", false, true, 20, Finding.WARNING));
+        return (rules);
+    }
+
+    /**
+     * store the rules defined by the user.
+     *
+     * @param rules list model with {@link StackRule}s.
+     */
+    public synchronized void setRules(DefaultListModel rules) {
+        StringBuffer ruleString = new StringBuffer();
+        cachedRules = new ArrayList();
+        brokenRules = new ArrayList();
+        for (int i = 0; i < rules.getSize(); i++) {
+            StackRule rule = (StackRule) rules.getElementAt(i);
+            if (i > 0) {
+                ruleString.append(PARAM_DELIM);
+            }
+            ruleString.append(rule.getName());
+            ruleString.append(FILTER_SEP);
+            ruleString.append(rule.getExpression());
+            ruleString.append(FILTER_SEP);
+            ruleString.append(rule.isTopFrameOnly());
+            ruleString.append(FILTER_SEP);
+            ruleString.append(rule.isWaitingOnly());
+            ruleString.append(FILTER_SEP);
+            ruleString.append(rule.getThreshold());
+            ruleString.append(FILTER_SEP);
+            ruleString.append(Finding.getSeverityName(rule.getSeverity()));
+            cachedRules.add(rule);
+        }
+        toolPrefs.put("rules", ruleString.toString());
+    }
 
     private long filterLastChanged = -1;
 
@@ -23,6 +23,7 @@
 package com.pironet.tda.utils;
 
 import com.pironet.tda.Category;
+import com.pironet.tda.FlameGraph;
 import com.pironet.tda.HistogramInfo;
 import com.pironet.tda.LogFileContent;
 import com.pironet.tda.Logfile;
@@ -55,7 +56,7 @@ public class TreeRenderer extends DefaultTreeCellRenderer {
             setIcon(getIconFromCategory(value));
         } else if (leaf && isThreadInfo(value)) {
             setIcon(TDA.createImageIcon("Thread.gif"));
-        } else if (leaf && isHistogramInfo(value)) {
+        } else if (leaf && (isHistogramInfo(value) || isFlameGraph(value))) {
             setIcon(TDA.createImageIcon("Histogram.gif"));
         } else if (leaf && isLogfile(value)) {
             setIcon(TDA.createImageIcon("Root.gif"));
@@ -96,6 +97,11 @@ public class TreeRenderer extends DefaultTreeCellRenderer {
         return (node.getUserObject() instanceof HistogramInfo);
     }
 
+    private boolean isFlameGraph(Object value) {
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
+        return (node.getUserObject() instanceof FlameGraph);
+    }
+
     private boolean isThreadInfo(Object value) {
         DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
         return ((node.getUserObject() instanceof ThreadInfo));
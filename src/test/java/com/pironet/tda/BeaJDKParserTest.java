@@ -20,6 +20,9 @@
 
 package com.pironet.tda;
 
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.ThreadDump;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -89,4 +92,37 @@ public class BeaJDKParserTest extends TestCase {
         }
     }
 
+    /**
+     * test reading the jrockit dumps into the dump model.
+     */
+    public void testReadNextDump() throws Exception {
+        System.out.println("readNextDump");
+        InputStream fis = null;
+        DumpParser instance = null;
+
+        try {
+            fis = this.getClass().getClassLoader().getResourceAsStream("jrockit_15_dump.txt");
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, new HashMap(), false, 0);
+
+            Vector dumps = new Vector();
+            ThreadDump dump;
+            while ((dump = instance.readNextDump()) != null) {
+                dumps.add(dump);
+            }
+
+            assertEquals(2, dumps.size());
+            dump = (ThreadDump) dumps.get(0);
+            assertEquals(35, dump.getThreadCount());
+            DumpThread mainThread = (DumpThread) dump.getThreads().get(0);
+            assertTrue(mainThread.isSleeping());
+            assertTrue(dump.getMonitors().containsKey("<0x01DB6168> (a weblogic.t3.srvr.T3Srvr)"));
+        } finally {
+            if (instance != null) {
+                instance.close();
+            }
+            if (fis != null) {
+                fis.close();
+            }
+        }
+    }
 }
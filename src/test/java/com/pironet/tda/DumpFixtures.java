@@ -0,0 +1,117 @@
+/*
+ * DumpFixtures.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+import com.pironet.tda.model.StackFrame;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * fixtures shared by the tests of the analyses: threads built in code and parsers
+ * for the logs of the {@link DumpGenerator}.
+ */
+public class DumpFixtures {
+
+    private DumpFixtures() {
+    }
+
+    /**
+     * create a complete thread of a sun jdk dump.
+     *
+     * @param pool   the pool of the thread.
+     * @param name   the name of the thread, the header line is built from it.
+     * @param state  the logged thread state, e.g. "RUNNABLE", null for none.
+     * @param frames the frames without the leading "at", the top frame first.
+     * @return the thread.
+     */
+    public static DumpThread createThread(FramePool pool, String name, String state, String[] frames) {
+        return (createThread(pool, name, state, frames, new LockEvent[0]));
+    }
+
+    /**
+     * create a complete thread of a sun jdk dump with monitor lines following the stack.
+     *
+     * @param pool   the pool of the thread.
+     * @param name   the name of the thread, the header line is built from it.
+     * @param state  the logged thread state, e.g. "RUNNABLE", null for none.
+     * @param frames the frames without the leading "at", the top frame first.
+     * @param events the monitor lines of the thread.
+     * @return the thread.
+     */
+    public static DumpThread createThread(FramePool pool, String name, String state, String[] frames, LockEvent[] events) {
+        DumpThread thread = new DumpThread("\"" + name + "\" #20 prio=5 os_prio=0 tid=0x01 nid=0x01 runnable", pool);
+        if (state != null) {
+            thread.addLine("   java.lang.Thread.State: " + state);
+        }
+        for (int i = 0; i < frames.length; i++) {
+            thread.addFrame(new StackFrame("\tat " + frames[i]));
+        }
+        for (int i = 0; i < events.length; i++) {
+            thread.addLockEvent(events[i]);
+        }
+        thread.trimToSize();
+        return (thread);
+    }
+
+    /**
+     * create a generator for sun jdk 8 dumps.
+     *
+     * @param threadCount the amount of application threads per dump.
+     * @param dumpCount   the amount of dumps.
+     */
+    public static DumpGenerator createGenerator(int threadCount, int dumpCount) {
+        DumpGenerator generator = new DumpGenerator(DumpGenerator.SUN_JDK8);
+        generator.setThreadCount(threadCount);
+        generator.setDumpCount(dumpCount);
+        return (generator);
+    }
+
+    /**
+     * create the parser for the log of the given generator, the first dump is
+     * numbered 1.
+     *
+     * @param generator the generator of the log.
+     * @param dumpStore the map to store the threads of the dumps in.
+     * @return the parser, needs to be closed after use.
+     */
+    public static DumpParser createParser(DumpGenerator generator, Map dumpStore) {
+        return (DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(generator.generate().getBytes()), dumpStore, false, 1));
+    }
+
+    /**
+     * parse all remaining dumps of the given parser.
+     *
+     * @return the tree nodes of the dumps in log file order.
+     */
+    public static List parseDumps(DumpParser parser) {
+        List dumps = new ArrayList();
+        while (parser.hasMoreDumps()) {
+            dumps.add(parser.parseNext());
+        }
+        return (dumps);
+    }
+}
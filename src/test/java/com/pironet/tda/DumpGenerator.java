@@ -0,0 +1,510 @@
+/*
+ * DumpGenerator.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * generates synthetic logs with thread dumps for load tests and benchmarks. The
+ * generated logs only depend on the settings and the seed, so they can be
+ * reproduced.
+ * <p>
+ * Every dump contains the configured amount of application threads (running,
+ * waiting, sleeping or parked), the threads of the lock chains and deadlocks
+ * and a few vm threads. A lock chain is a row of threads each blocked by the
+ * monitor held by the thread in front of it, a deadlock is a pair of threads
+ * each waiting for the monitor held by the other one. Sun dumps additionally
+ * get the deadlock report, heap data and a class histogram if configured.
+ */
+public class DumpGenerator {
+    /**
+     * thread dump of a 1.6-1.8 hotspot vm (kill -3 or jstack).
+     */
+    public static final int SUN_JDK8 = 0;
+
+    /**
+     * jstack output of a 11+ hotspot vm, with cpu times and the smr info.
+     */
+    public static final int SUN_JDK11 = 1;
+
+    /**
+     * thread dump of a jrockit vm.
+     */
+    public static final int JROCKIT = 2;
+
+    /**
+     * 1.8 hotspot dump logged by the tanuki service wrapper.
+     */
+    public static final int WRAPPED = 3;
+
+    /**
+     * the vm threads added to every dump, the last one ends sun dumps.
+     */
+    private static final String[] VM_THREADS = {"VM Thread", "GC task thread#0 (ParallelGC)", "VM Periodic Task Thread"};
+
+    private static final String[] PACKAGES = {"com.example.service", "com.example.dao", "com.example.web",
+            "org.apache.catalina.core", "java.util.concurrent"};
+    private static final String[] METHODS = {"handle", "process", "execute", "invoke", "doFilter", "call", "run", "load"};
+
+    private static final long MONITOR_BASE = 0x000000076ab00000L;
+    private static final long THREAD_BASE = 0x00007f0a3c000000L;
+
+    private final int format;
+    private int threadCount = 100;
+    private int stackDepth = 20;
+    private int lockChains = 0;
+    private int lockChainLength = 3;
+    private int deadlocks = 0;
+    private int histogramClasses = 0;
+    private int dumpCount = 1;
+    private long seed = 42;
+
+    private Random random;
+    private int monitorCounter;
+    private int threadIdCounter;
+
+    /**
+     * Creates a new instance of DumpGenerator
+     *
+     * @param format the format of the dumps, {@link #SUN_JDK8}, {@link #SUN_JDK11},
+     *               {@link #JROCKIT} or {@link #WRAPPED}.
+     */
+    public DumpGenerator(int format) {
+        this.format = format;
+    }
+
+    /**
+     * set the amount of application threads per dump, the threads of lock chains,
+     * deadlocks and the vm threads are added to this.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * set the amount of stack frames of the application threads.
+     */
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+    }
+
+    /**
+     * set the lock chains of every dump.
+     *
+     * @param count  amount of lock chains.
+     * @param length amount of threads per chain, the first one holds the monitor
+     *               the second one is blocked on and so on.
+     */
+    public void setLockChains(int count, int length) {
+        this.lockChains = count;
+        this.lockChainLength = length;
+    }
+
+    /**
+     * set the amount of deadlocked thread pairs of every dump.
+     */
+    public void setDeadlocks(int deadlocks) {
+        this.deadlocks = deadlocks;
+    }
+
+    /**
+     * set the amount of classes of the histogram logged with every dump, 0 if no
+     * histogram should be logged. Jrockit dumps never get a histogram.
+     */
+    public void setHistogramClasses(int histogramClasses) {
+        this.histogramClasses = histogramClasses;
+    }
+
+    public void setDumpCount(int dumpCount) {
+        this.dumpCount = dumpCount;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the amount of threads of every generated dump.
+     */
+    public int getDumpThreadCount() {
+        return (threadCount + lockChains * lockChainLength + deadlocks * 2 + VM_THREADS.length);
+    }
+
+    /**
+     * generate the log.
+     *
+     * @return the generated log.
+     */
+    public String generate() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (IOException ex) {
+            // can't happen with a string writer.
+            throw new IllegalStateException(ex.getMessage());
+        }
+        return (out.toString());
+    }
+
+    /**
+     * generate the log into the given file.
+     */
+    public void write(File file) throws IOException {
+        Writer out = new BufferedWriter(new FileWriter(file));
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * generate the log into the given writer.
+     */
+    public void write(Writer out) throws IOException {
+        random = new Random(seed);
+        for (int i = 0; i < dumpCount; i++) {
+            // the same thread names in every dump, but states, stacks and monitors change.
+            monitorCounter = i * 1000000;
+            threadIdCounter = 0;
+            LogWriter log = new LogWriter(out, i);
+            if (format == JROCKIT) {
+                writeJRockitDump(log, i);
+            } else {
+                writeSunDump(log, i);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeSunDump(LogWriter log, int dump) throws IOException {
+        log.line("2024-05-01 12:" + twoDigits(dump / 6 % 60) + ":" + twoDigits(dump % 6 * 10));
+        if (format == SUN_JDK11) {
+            log.line("Full thread dump OpenJDK 64-Bit Server VM (11.0.22+7 mixed mode, sharing):");
+            log.line("");
+            log.line("Threads class SMR info:");
+            log.line("_java_thread_list=0x00007f0a3c00c000, length=" + getDumpThreadCount() + ", elements={");
+            log.line("}");
+        } else {
+            log.line("Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.392-b08 mixed mode):");
+        }
+        log.line("");
+
+        for (int i = 0; i < threadCount; i++) {
+            writeSunApplicationThread(log, "worker-" + i);
+        }
+
+        for (int i = 0; i < lockChains; i++) {
+            String waitFor = null;
+            for (int j = 0; j < lockChainLength; j++) {
+                String holds = nextMonitor();
+                String[] locks = waitFor == null ? new String[]{holds} : new String[]{waitFor, holds};
+                writeSunThread(log, "chain-" + i + "-" + j, waitFor == null ? "runnable" : "waiting for monitor entry",
+                        waitFor == null ? "RUNNABLE" : "BLOCKED (on object monitor)", waitFor == null ? null : "waiting to lock",
+                        locks, stackDepth);
+                waitFor = holds;
+            }
+        }
+
+        String[][] deadlockMonitors = new String[deadlocks][];
+        for (int i = 0; i < deadlocks; i++) {
+            String first = nextMonitor();
+            String second = nextMonitor();
+            deadlockMonitors[i] = new String[]{first, second};
+            writeSunThread(log, "deadlock-" + i + "-a", "waiting for monitor entry", "BLOCKED (on object monitor)",
+                    "waiting to lock", new String[]{second, first}, stackDepth);
+            writeSunThread(log, "deadlock-" + i + "-b", "waiting for monitor entry", "BLOCKED (on object monitor)",
+                    "waiting to lock", new String[]{first, second}, stackDepth);
+        }
+
+        for (int i = 0; i < VM_THREADS.length; i++) {
+            log.line("\"" + VM_THREADS[i] + "\" os_prio=0 tid=" + hex(THREAD_BASE + 0x1000 * (threadIdCounter++)) + " nid="
+                    + hex(0x100 + threadIdCounter) + " runnable ");
+            log.line("");
+        }
+        log.line(format == SUN_JDK11 ? "JNI global refs: 1234, weak refs: 0" : "JNI global references: 1234");
+        log.line("");
+
+        if (deadlocks > 0) {
+            writeSunDeadlocks(log, deadlockMonitors);
+        }
+        if (format != SUN_JDK11) {
+            writeHeap(log);
+        }
+        if (histogramClasses > 0) {
+            writeHistogram(log);
+        }
+    }
+
+    private void writeSunApplicationThread(LogWriter log, String name) throws IOException {
+        int kind = random.nextInt(10);
+        if (kind < 3) {
+            writeSunThread(log, name, "runnable", "RUNNABLE", null, new String[0], stackDepth);
+        } else if (kind < 6) {
+            String monitor = nextMonitor();
+            writeSunThread(log, name, "in Object.wait()", "WAITING (on object monitor)", "waiting on",
+                    new String[]{monitor, monitor}, stackDepth);
+        } else if (kind < 8) {
+            writeSunThread(log, name, "waiting on condition", "TIMED_WAITING (sleeping)", null, new String[0], stackDepth);
+        } else {
+            writeSunThread(log, name, "waiting on condition", "WAITING (parking)", "parking to wait for ",
+                    new String[]{nextMonitor()}, stackDepth);
+        }
+    }
+
+    /**
+     * write a sun thread.
+     *
+     * @param waitType the kind of the wait for the first monitor, null if all
+     *                 monitors are locked by the thread.
+     * @param monitors the monitors, the first one is waited for if a wait type is given.
+     */
+    private void writeSunThread(LogWriter log, String name, String state, String threadState, String waitType,
+                                String[] monitors, int depth) throws IOException {
+        int id = threadIdCounter++;
+        StringBuffer header = new StringBuffer("\"").append(name).append("\" #").append(id + 10);
+        header.append(id % 2 == 0 ? " daemon" : "").append(" prio=5 os_prio=0");
+        if (format == SUN_JDK11) {
+            header.append(" cpu=").append(id % 1000).append(".25ms elapsed=1234.56s");
+        }
+        header.append(" tid=").append(hex(THREAD_BASE + 0x1000 * id)).append(" nid=").append(hex(0x100 + id));
+        header.append(" ").append(state).append("  [").append(hex(THREAD_BASE - 0x100000 - 0x1000 * id)).append("]");
+        log.line(header.toString());
+        log.line("   java.lang.Thread.State: " + threadState);
+
+        int frames = Math.max(depth, monitors.length + 1);
+        int monitorPos = 0;
+        for (int i = 0; i < frames - 1; i++) {
+            log.line("\tat " + nextFrame());
+            if (monitorPos < monitors.length) {
+                if (monitorPos == 0 && waitType != null) {
+                    String className = waitType.startsWith("parking")
+                            ? "java.util.concurrent.locks.AbstractQueuedSynchronizer$ConditionObject" : "java.lang.Object";
+                    log.line("\t- " + waitType + " <" + monitors[monitorPos] + "> (a " + className + ")");
+                } else {
+                    log.line("\t- locked <" + monitors[monitorPos] + "> (a java.lang.Object)");
+                }
+                monitorPos++;
+            }
+        }
+        log.line("\tat java.lang.Thread.run(Thread.java:748)");
+        log.line("");
+        log.line("   Locked ownable synchronizers:");
+        log.line("\t- None");
+        log.line("");
+    }
+
+    private void writeSunDeadlocks(LogWriter log, String[][] monitors) throws IOException {
+        for (int i = 0; i < monitors.length; i++) {
+            String a = "deadlock-" + i + "-a";
+            String b = "deadlock-" + i + "-b";
+            log.line("Found one Java-level deadlock:");
+            log.line("=============================");
+            log.line("\"" + a + "\":");
+            log.line("  waiting to lock monitor 0x00007f0a20004e28 (object " + monitors[i][1] + ", a java.lang.Object),");
+            log.line("  which is held by \"" + b + "\"");
+            log.line("\"" + b + "\":");
+            log.line("  waiting to lock monitor 0x00007f0a20006358 (object " + monitors[i][0] + ", a java.lang.Object),");
+            log.line("  which is held by \"" + a + "\"");
+            log.line("");
+            log.line("Java stack information for the threads listed above:");
+            log.line("===================================================");
+            log.line("\"" + a + "\":");
+            log.line("\tat com.example.Deadlock.lockBoth(Deadlock.java:42)");
+            log.line("\t- waiting to lock <" + monitors[i][1] + "> (a java.lang.Object)");
+            log.line("\t- locked <" + monitors[i][0] + "> (a java.lang.Object)");
+            log.line("\"" + b + "\":");
+            log.line("\tat com.example.Deadlock.lockBoth(Deadlock.java:42)");
+            log.line("\t- waiting to lock <" + monitors[i][0] + "> (a java.lang.Object)");
+            log.line("\t- locked <" + monitors[i][1] + "> (a java.lang.Object)");
+            log.line("");
+        }
+        log.line("Found " + monitors.length + (monitors.length == 1 ? " deadlock." : " deadlocks."));
+        log.line("");
+    }
+
+    private void writeHeap(LogWriter log) throws IOException {
+        log.line("Heap");
+        log.line(" PSYoungGen      total 76288K, used 19660K [0x000000076ab00000, 0x0000000770000000, 0x00000007c0000000)");
+        log.line("  eden space 65536K, 30% used [0x000000076ab00000,0x000000076be33378,0x000000076eb00000)");
+        log.line("  from space 10752K, 0% used [0x000000076f580000,0x000000076f580000,0x0000000770000000)");
+        log.line("  to   space 10752K, 0% used [0x000000076eb00000,0x000000076eb00000,0x000000076f580000)");
+        log.line(" ParOldGen       total 175104K, used 0K [0x00000006c0000000, 0x00000006cab00000, 0x000000076ab00000)");
+        log.line("  object space 175104K, 0% used [0x00000006c0000000,0x00000006c0000000,0x00000006cab00000)");
+        log.line(" Metaspace       used 3263K, capacity 4496K, committed 4864K, reserved 1056768K");
+        log.line("");
+    }
+
+    private void writeHistogram(LogWriter log) throws IOException {
+        log.line(" num   #instances    #bytes  class name");
+        log.line("--------------------------------------");
+        long instances = 0;
+        long bytes = 0;
+        for (int i = 0; i < histogramClasses; i++) {
+            long count = 100000 / (i + 1) + random.nextInt(100);
+            long size = count * (16 + 8 * (i % 5));
+            instances += count;
+            bytes += size;
+            String className = i == 0 ? "[C" : (i == 1 ? "java.lang.String" : PACKAGES[i % PACKAGES.length] + ".Generated" + i);
+            log.line(pad(i + 1 + ":", 5) + pad(String.valueOf(count), 12) + pad(String.valueOf(size), 12) + "  " + className);
+        }
+        log.line("Total " + pad(String.valueOf(instances), 12) + pad(String.valueOf(bytes), 12));
+        log.line("");
+    }
+
+    private void writeJRockitDump(LogWriter log, int dump) throws IOException {
+        log.line("===== FULL THREAD DUMP ===============");
+        log.line("Wed May 01 12:" + twoDigits(dump / 6 % 60) + ":" + twoDigits(dump % 6 * 10) + " 2024");
+        log.line("BEA JRockit(R) R27.6.5-32_o-121899-1.6.0_14-20091001-2113-linux-x86_64");
+        log.line("");
+
+        for (int i = 0; i < threadCount; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                writeJRockitThread(log, "worker-" + i, "alive, in native", null, new String[0]);
+            } else if (kind < 8) {
+                String monitor = nextJRockitMonitor();
+                writeJRockitThread(log, "worker-" + i, "alive, waiting", "Waiting for notification on",
+                        new String[]{monitor, monitor});
+            } else {
+                writeJRockitThread(log, "worker-" + i, "alive, sleeping", null, new String[0]);
+            }
+        }
+
+        for (int i = 0; i < lockChains; i++) {
+            String waitFor = null;
+            for (int j = 0; j < lockChainLength; j++) {
+                String holds = nextJRockitMonitor();
+                writeJRockitThread(log, "chain-" + i + "-" + j, waitFor == null ? "alive" : "alive, blocked",
+                        waitFor == null ? null : "Blocked trying to get lock",
+                        waitFor == null ? new String[]{holds} : new String[]{waitFor, holds});
+                waitFor = holds;
+            }
+        }
+
+        for (int i = 0; i < deadlocks; i++) {
+            String first = nextJRockitMonitor();
+            String second = nextJRockitMonitor();
+            writeJRockitThread(log, "deadlock-" + i + "-a", "alive, blocked", "Blocked trying to get lock",
+                    new String[]{second, first});
+            writeJRockitThread(log, "deadlock-" + i + "-b", "alive, blocked", "Blocked trying to get lock",
+                    new String[]{first, second});
+        }
+
+        for (int i = 0; i < VM_THREADS.length; i++) {
+            log.line("\"(" + VM_THREADS[i] + ")\" id=" + (threadIdCounter + 1) + " idx=" + hex(2 * (threadIdCounter + 1))
+                    + " tid=" + (4000 + threadIdCounter) + " prio=5 alive, in native, daemon");
+            threadIdCounter++;
+            log.line("");
+        }
+        log.line("===== END OF THREAD DUMP ===============");
+        log.line("");
+    }
+
+    private void writeJRockitThread(LogWriter log, String name, String state, String waitType, String[] monitors)
+            throws IOException {
+        int id = threadIdCounter++;
+        log.line("\"" + name + "\" id=" + (id + 1) + " idx=" + hex(2 * (id + 1)) + " tid=" + (4000 + id) + " prio=5 " + state);
+        int monitorPos = 0;
+        if (waitType != null && monitors.length > 0) {
+            log.line("    -- " + waitType + ": " + monitors[monitorPos++]);
+        }
+        int frames = Math.max(stackDepth, monitors.length + 1);
+        for (int i = 0; i < frames - 1; i++) {
+            String frame = nextFrame();
+            int paren = frame.indexOf('(');
+            log.line("    at " + frame.substring(0, paren).replace('.', '/') + "()V" + frame.substring(paren));
+            if (monitorPos < monitors.length) {
+                log.line("    ^-- " + ("Waiting for notification on".equals(waitType) ? "Lock released while waiting: "
+                        : "Holding lock: ") + monitors[monitorPos++]);
+            }
+        }
+        log.line("    at java/lang/Thread.run()V(Thread.java:619)");
+        log.line("    -- end of trace");
+        log.line("");
+    }
+
+    private String nextFrame() {
+        String pkg = PACKAGES[random.nextInt(PACKAGES.length)];
+        String className = "Class" + random.nextInt(50);
+        return (pkg + "." + className + "." + METHODS[random.nextInt(METHODS.length)] + "(" + className + ".java:"
+                + (10 + random.nextInt(500)) + ")");
+    }
+
+    private String nextMonitor() {
+        return (hex16(MONITOR_BASE + 0x18L * (monitorCounter++)));
+    }
+
+    private String nextJRockitMonitor() {
+        return ("java/lang/Object@" + hex(0x01000000L + 0x10L * (monitorCounter++)).toUpperCase().replace('X', 'x') + "[thin lock]");
+    }
+
+    private static String hex(long value) {
+        return ("0x" + Long.toHexString(value));
+    }
+
+    private static String hex16(long value) {
+        String digits = Long.toHexString(value);
+        StringBuffer result = new StringBuffer("0x");
+        for (int i = digits.length(); i < 16; i++) {
+            result.append('0');
+        }
+        return (result.append(digits).toString());
+    }
+
+    private static String twoDigits(int value) {
+        return (value < 10 ? "0" + value : String.valueOf(value));
+    }
+
+    private static String pad(String value, int width) {
+        StringBuffer result = new StringBuffer();
+        for (int i = value.length(); i < width; i++) {
+            result.append(' ');
+        }
+        return (result.append(value).toString());
+    }
+
+    /**
+     * writes the lines of a dump, with the wrapper prefix if needed.
+     */
+    private class LogWriter {
+        private final Writer out;
+        private final String prefix;
+
+        LogWriter(Writer out, int dump) {
+            this.out = out;
+            // the wrapper prefix has a fixed length of 42 characters.
+            prefix = format == WRAPPED ? "INFO   | jvm 1    | 2024/05/01 12:" + twoDigits(dump / 6 % 60) + ":"
+                    + twoDigits(dump % 6 * 10) + " | " : "";
+        }
+
+        void line(String line) throws IOException {
+            out.write(prefix);
+            out.write(line);
+            out.write('\n');
+        }
+    }
+}
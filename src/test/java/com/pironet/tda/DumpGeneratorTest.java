@@ -0,0 +1,108 @@
+/*
+ * DumpGeneratorTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.Monitor;
+import com.pironet.tda.model.ThreadDump;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test parsing of generated logs of all supported formats.
+ */
+public class DumpGeneratorTest extends TestCase {
+
+    public DumpGeneratorTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(DumpGeneratorTest.class);
+
+        return suite;
+    }
+
+    /**
+     * the parsers need to find all generated threads, blocked monitors, deadlocks and histograms.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        int[] formats = {DumpGenerator.SUN_JDK8, DumpGenerator.SUN_JDK11, DumpGenerator.JROCKIT, DumpGenerator.WRAPPED};
+        Class[] parsers = {SunJDKParser.class, SunJDKParser.class, BeaJDKParser.class, WrappedSunJDKParser.class};
+
+        for (int i = 0; i < formats.length; i++) {
+            DumpGenerator generator = new DumpGenerator(formats[i]);
+            generator.setThreadCount(500);
+            generator.setStackDepth(15);
+            generator.setLockChains(2, 4);
+            generator.setDeadlocks(2);
+            generator.setHistogramClasses(50);
+            generator.setDumpCount(3);
+            String log = generator.generate();
+            assertEquals("generated logs need to be reproducible", log, generator.generate());
+
+            DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(log.getBytes()),
+                    new HashMap(), false, 1);
+            assertEquals(parsers[i], parser.getClass());
+            try {
+                int dumps = 0;
+                ThreadDump dump;
+                while ((dump = parser.readNextDump()) != null) {
+                    dumps++;
+                    assertEquals(generator.getDumpThreadCount(), dump.getThreadCount());
+
+                    int blocking = 0;
+                    for (Iterator iter = dump.getMonitors().values().iterator(); iter.hasNext(); ) {
+                        Monitor monitor = (Monitor) iter.next();
+                        if (!monitor.getLockingThreads().isEmpty() && !monitor.getWaitingThreads().isEmpty()) {
+                            blocking++;
+                        }
+                    }
+                    // three blocking monitors per chain, two per deadlock.
+                    assertEquals(10, blocking);
+
+                    if (formats[i] != DumpGenerator.JROCKIT) {
+                        assertEquals(2, dump.getDeadlocks().size());
+                        assertEquals(50, dump.getClassHistogram().getEntries().size());
+                    }
+                }
+                assertEquals(3, dumps);
+            } finally {
+                parser.close();
+            }
+
+            // the tree nodes of deadlocked dumps can be build, too. Deadlocks not reported
+            // by the vm are found in the monitors, reported ones aren't added twice.
+            parser = DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(log.getBytes()),
+                    new HashMap(), false, 1);
+            try {
+                ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) parser.parseNext()).getUserObject();
+                assertNotNull(tdi.getBlockingMonitors());
+                assertEquals(2, tdi.getDeadlocks().getNodeCount());
+            } finally {
+                parser.close();
+            }
+        }
+    }
+}
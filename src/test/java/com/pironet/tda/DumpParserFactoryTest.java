@@ -21,6 +21,7 @@
  */
 package com.pironet.tda;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 
@@ -91,4 +92,22 @@ public class DumpParserFactoryTest extends TestCase {
 
         assertTrue(result instanceof com.pironet.tda.BeaJDKParser);
     }
+
+    /**
+     * Test of getDumpParserForLogfile method with a mapped file.
+     */
+    public void testGetDumpParserForMappedLogfile() throws Exception {
+        System.out.println("getDumpParserForMappedLogfile");
+
+        DumpParserFactory instance = DumpParserFactory.get();
+        File sunFile = new File(getClass().getClassLoader().getResource("test.log").toURI());
+        DumpParser result = instance.getDumpParserForLogfile(sunFile, null, false, 0);
+        assertTrue(result instanceof com.pironet.tda.SunJDKParser);
+        result.close();
+
+        File beaFile = new File(getClass().getClassLoader().getResource("jrockit_15_dump.txt").toURI());
+        result = instance.getDumpParserForLogfile(beaFile, null, false, 0);
+        assertTrue(result instanceof com.pironet.tda.BeaJDKParser);
+        result.close();
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * FlameGraphTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import junit.framework.*;
+
+/**
+ * test aggregating the stacks of several dumps.
+ */
+public class FlameGraphTest extends TestCase {
+
+    public FlameGraphTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(FlameGraphTest.class);
+
+        return suite;
+    }
+
+    /**
+     * common call paths are stored once, every distinct stack is one collapsed line.
+     */
+    public void testWriteCollapsed() throws Exception {
+        System.out.println("writeCollapsed");
+        FramePool pool = new FramePool();
+        FlameGraph graph = new FlameGraph("test");
+        for (int i = 0; i < 3; i++) {
+            graph.addThread(createThread(pool, new String[]{"Worker.work(Worker.java:20)", "Worker.run(Worker.java:10)"}));
+        }
+        graph.addThread(createThread(pool, new String[]{"Worker.idle(Worker.java:30)", "Worker.run(Worker.java:10)"}));
+        graph.addThread(createThread(pool, new String[]{"Worker.run(Worker.java:10)"}));
+        graph.addThread(createThread(pool, new String[0]));
+
+        assertEquals(5, graph.getSampleCount());
+        assertEquals(4, graph.getNodeCount());
+        FlameGraph.Node run = graph.getRoot().getChild(0);
+        assertEquals("com.example.Worker.run(Worker.java:10)", run.getName());
+        assertEquals(5, run.getCount());
+        assertEquals(1, run.getSelf());
+
+        StringWriter out = new StringWriter();
+        graph.writeCollapsed(out);
+        assertEquals("com.example.Worker.run(Worker.java:10) 1\n"
+                + "com.example.Worker.run(Worker.java:10);com.example.Worker.work(Worker.java:20) 3\n"
+                + "com.example.Worker.run(Worker.java:10);com.example.Worker.idle(Worker.java:30) 1\n", out.toString());
+    }
+
+    private static DumpThread createThread(FramePool pool, String[] frames) {
+        String[] qualified = new String[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            qualified[i] = "com.example." + frames[i];
+        }
+        return (DumpFixtures.createThread(pool, "worker", null, qualified));
+    }
+
+    /**
+     * the graph of the generated dumps contains every thread with a stack.
+     */
+    public void testCreateFlameGraph() throws Exception {
+        System.out.println("createFlameGraph");
+        Map dumpStore = new HashMap();
+        DumpParser parser = DumpFixtures.createParser(DumpFixtures.createGenerator(200, 3), dumpStore);
+        try {
+            DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("generated.log"));
+            List dumps = DumpFixtures.parseDumps(parser);
+            for (int i = 0; i < dumps.size(); i++) {
+                top.add((DefaultMutableTreeNode) dumps.get(i));
+            }
+            TreePath[] paths = new TreePath[top.getChildCount()];
+            int threads = 0;
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = new TreePath(((DefaultMutableTreeNode) top.getChildAt(i)).getPath());
+                ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) top.getChildAt(i)).getUserObject();
+                for (int j = 0; j < tdi.getDump().getThreads().size(); j++) {
+                    if (!((DumpThread) tdi.getDump().getThreads().get(j)).getFrames().isEmpty()) {
+                        threads++;
+                    }
+                }
+            }
+
+            DefaultMutableTreeNode root = new DefaultMutableTreeNode("flame");
+            parser.createFlameGraph(root, dumpStore, paths);
+            FlameGraph graph = (FlameGraph) ((DefaultMutableTreeNode) root.getChildAt(0)).getUserObject();
+            assertEquals(3, graph.getDumpCount());
+            assertEquals(threads, graph.getSampleCount());
+            assertTrue(graph.toString().startsWith("Flame Graph between "));
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * FrameIndexTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import junit.framework.*;
+
+/**
+ * test searching the stacks of all dumps.
+ */
+public class FrameIndexTest extends TestCase {
+
+    public FrameIndexTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(FrameIndexTest.class);
+
+        return suite;
+    }
+
+    public void testSearch() {
+        System.out.println("search");
+        FramePool pool = new FramePool();
+        FrameIndex index = new FrameIndex();
+        List second = new ArrayList();
+        second.add(createThread(pool, "worker-1", "com.acme.OrderDao.save(OrderDao.java:42)"));
+        second.add(createThread(pool, "worker-2", "com.acme.web.OrderServlet.doPost(OrderServlet.java:10)"));
+        index.addDump("Dump No. 2", 200, second);
+        List first = new ArrayList();
+        first.add(createThread(pool, "worker-1", "com.acme.OrderDao.save(OrderDao.java:42)"));
+        index.addDump("Dump No. 1", 100, first);
+
+        assertEquals(2, index.getDumpCount());
+        // the threads of the same stack share their frames and stack.
+        assertEquals(3, index.getFrameCount());
+        assertEquals(2, index.getStackCount());
+
+        List hits = index.search("com.acme.OrderDao.save");
+        assertEquals(2, hits.size());
+        assertEquals("Dump No. 1", ((FrameIndex.Hit) hits.get(0)).getDumpName());
+        assertEquals("Dump No. 2", ((FrameIndex.Hit) hits.get(1)).getDumpName());
+        assertEquals("\tat com.acme.OrderDao.save(OrderDao.java:42)", ((FrameIndex.Hit) hits.get(1)).getFrame().getLine());
+        assertEquals(2, index.search("com.acme.OrderDao").size());
+        assertEquals(2, index.search("com.acme").size());
+        assertEquals(1, index.search("com.acme.web").size());
+        assertEquals(3, index.search("com.acme.*").size());
+        assertEquals(2, index.search("com.acme.OrderDao.save(OrderDao.java:42)").size());
+        assertEquals(3, index.search("java.lang.Thread.run").size());
+        assertTrue(index.search("com.acme.Order").isEmpty());
+        assertTrue(((FrameIndex.Hit) index.search("com.acme.web.*").get(0)).getThread().getTitle().startsWith("\"worker-2\""));
+    }
+
+    private static DumpThread createThread(FramePool pool, String name, String frame) {
+        return (DumpFixtures.createThread(pool, name, null, new String[]{frame, "java.lang.Thread.run(Thread.java:748)"}));
+    }
+
+    /**
+     * the deadlocked threads are found in every generated dump, by package prefix.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        DumpGenerator generator = DumpFixtures.createGenerator(100, 3);
+        generator.setDeadlocks(1);
+        DumpParser parser = DumpFixtures.createParser(generator, new HashMap());
+        try {
+            DumpFixtures.parseDumps(parser);
+            FrameIndex index = ((AbstractDumpParser) parser).getFrameIndex();
+            assertEquals(3, index.getDumpCount());
+            List hits = index.search("com.example.*");
+            int deadlocked = 0;
+            for (int i = 0; i < hits.size(); i++) {
+                FrameIndex.Hit hit = (FrameIndex.Hit) hits.get(i);
+                if (hit.getThread().getHeaderLine().startsWith("\"deadlock-")) {
+                    deadlocked++;
+                }
+                if (i > 0) {
+                    assertTrue(((FrameIndex.Hit) hits.get(i - 1)).getLogLine() <= hit.getLogLine());
+                }
+            }
+            assertEquals(6, deadlocked);
+            int running = index.search("java.lang.Thread.run").size();
+            assertTrue(running >= 300);
+            assertEquals(running, index.search("java.lang.Thread").size());
+            assertEquals(running, index.search("java.lang.Thread.run(Thread.java:748)").size());
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * the dumps added later to a log file node, e.g. the dumps requested from a
+     * running vm, are searched together with the earlier ones.
+     */
+    public void testFurtherDumps() throws Exception {
+        System.out.println("furtherDumps");
+        Logfile logfile = new Logfile("Logfile");
+        HashMap store = new HashMap();
+        DumpGenerator generator = DumpFixtures.createGenerator(10, 1);
+        generator.setDeadlocks(1);
+        DumpParser first = DumpFixtures.createParser(generator, store);
+        try {
+            logfile.addParser(first);
+            assertEquals(1, DumpFixtures.parseDumps(first).size());
+        } finally {
+            first.close();
+        }
+
+        DumpParser second = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(DumpFixtures.createGenerator(10, 1).generate().getBytes()), store, false, 2);
+        try {
+            logfile.addParser(second);
+            assertEquals(1, DumpFixtures.parseDumps(second).size());
+        } finally {
+            second.close();
+        }
+
+        assertSame(first, logfile.getUsedParser());
+        assertSame(((AbstractDumpParser) first).getLogfileState(), ((AbstractDumpParser) second).getLogfileState());
+        FrameIndex index = ((AbstractDumpParser) logfile.getUsedParser()).getFrameIndex();
+        assertEquals(2, index.getDumpCount());
+        // only the first dump contains deadlocked threads.
+        List hits = index.search("com.example.*");
+        int deadlocked = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            FrameIndex.Hit hit = (FrameIndex.Hit) hits.get(i);
+            if (hit.getThread().getHeaderLine().startsWith("\"deadlock-")) {
+                assertEquals("Dump No. 1", hit.getDumpName());
+                deadlocked++;
+            }
+        }
+        assertEquals(2, deadlocked);
+    }
+}
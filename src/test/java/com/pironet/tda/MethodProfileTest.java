@@ -0,0 +1,106 @@
+/*
+ * MethodProfileTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+
+import java.util.List;
+import junit.framework.*;
+
+/**
+ * test counting the methods of the stacks of several dumps.
+ */
+public class MethodProfileTest extends TestCase {
+
+    public MethodProfileTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(MethodProfileTest.class);
+
+        return suite;
+    }
+
+    public void testGetMethod() {
+        System.out.println("getMethod");
+        assertEquals("java.lang.Thread.run", MethodProfile.getMethod("\tat java.lang.Thread.run(Thread.java:748)"));
+        assertEquals("java.lang.Thread.run", MethodProfile.getMethod("\tat java.base/java.lang.Thread.run(Thread.java:829)"));
+        assertEquals("com.example.Main.main", MethodProfile.getMethod("\tat app//com.example.Main.main(Main.java:5)"));
+        assertEquals("java.lang.Object.wait", MethodProfile.getMethod("    at java/lang/Object.wait(J)V(Native Method)"));
+        assertEquals("com.example.Main$$Lambda$1/0x0000000800060840.run",
+                MethodProfile.getMethod("\tat com.example.Main$$Lambda$1/0x0000000800060840.run(Unknown Source)"));
+    }
+
+    /**
+     * running threads are counted apart from waiting ones, recursive methods only once
+     * per thread.
+     */
+    public void testAddThread() {
+        System.out.println("addThread");
+        FramePool pool = new FramePool();
+        MethodProfile profile = new MethodProfile("test");
+        for (int i = 0; i < 2; i++) {
+            DumpThread thread = DumpFixtures.createThread(pool, "worker", "RUNNABLE", new String[]{"com.example.Parser.parse(Parser.java:20)",
+                    "com.example.Parser.parse(Parser.java:30)", "com.example.Worker.run(Worker.java:10)"});
+            profile.addThread(thread);
+        }
+        DumpThread waiting = DumpFixtures.createThread(pool, "worker", "WAITING (on object monitor)", new String[]{"java.lang.Object.wait(Native Method)",
+                "com.example.Worker.run(Worker.java:12)"});
+        profile.addThread(waiting);
+
+        assertEquals(3, profile.getSampleCount());
+        assertEquals(2, profile.getRunnableCount());
+        List methods = profile.getCounters(MethodProfile.METHOD);
+        assertEquals(3, methods.size());
+        MethodProfile.Counter parse = (MethodProfile.Counter) methods.get(0);
+        assertEquals("com.example.Parser.parse", parse.getName());
+        assertEquals(2, parse.getSelfRunnable());
+        assertEquals(2, parse.getTotalRunnable());
+        MethodProfile.Counter run = (MethodProfile.Counter) methods.get(1);
+        assertEquals("com.example.Worker.run", run.getName());
+        assertEquals(0, run.getSelfRunnable());
+        assertEquals(2, run.getTotalRunnable());
+        assertEquals(1, run.getTotalWaiting());
+
+        List packages = profile.getCounters(MethodProfile.PACKAGE);
+        assertEquals(2, packages.size());
+        MethodProfile.Counter example = (MethodProfile.Counter) packages.get(0);
+        assertEquals("com.example", example.getName());
+        assertEquals(3, example.getTotalRunnable() + example.getTotalWaiting());
+    }
+
+    /**
+     * without logged thread state the header line and the monitors tell the state.
+     */
+    public void testIsRunnable() {
+        System.out.println("isRunnable");
+        assertFalse(DumpFixtures.createThread(new FramePool(), "worker", "BLOCKED (on object monitor)", new String[0]).isRunnable());
+        assertTrue(new DumpThread("\"(Signal Handler)\" prio=5 id=0x100 tid=0xbf0 active, daemon").isRunnable());
+        assertFalse(new DumpThread("\"Main Thread\" prio=5 id=0x80 tid=0xf7c waiting").isRunnable());
+        assertFalse(new DumpThread("\"worker\" prio=5 tid=0x01 nid=0x01 in Object.wait() [0x01]").isRunnable());
+        DumpThread thread = new DumpThread("\"blocked\" id=1 idx=0x02 tid=4000 prio=5 alive");
+        thread.addLockEvent(new LockEvent(LockEvent.WAITING_TO_LOCK, "    -- Blocked trying to get lock: java/lang/Object@0x01",
+                "0x01", "java/lang/Object@0x01"));
+        assertFalse(thread.isRunnable());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MonitorMapTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import junit.framework.*;
+
+/**
+ * test the monitor map keyed by monitor addresses.
+ */
+public class MonitorMapTest extends TestCase {
+
+    public MonitorMapTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(MonitorMapTest.class);
+
+        return suite;
+    }
+
+    public void testParseAddress() {
+        System.out.println("parseAddress");
+        String key = "<0x00000000e1a2b3c4> (a java.lang.Object)";
+        assertEquals(0xe1a2b3c4L, MonitorMap.parseAddress(key, 0, key.length()));
+        key = "<0xfffffffffffffff0> (a java.lang.Object)";
+        assertEquals(0xfffffffffffffff0L, MonitorMap.parseAddress(key, 0, key.length()));
+        key = "<1a2b3c> (a  java.lang.Object)";
+        assertEquals(0x1a2b3cL, MonitorMap.parseAddress(key, 0, key.length()));
+        key = "<no object reference available>";
+        assertEquals(-1, MonitorMap.parseAddress(key, 0, key.length()));
+    }
+
+    /**
+     * the lines of one monitor end up in one entry, every thread only once per role.
+     */
+    public void testParseAndAddThread() {
+        System.out.println("parseAndAddThread");
+        MonitorMap mmap = new MonitorMap();
+        mmap.parseAndAddThread("\t- locked <0x00000000e1a2b3c4> (a java.lang.Object)", "t1", "t1");
+        mmap.parseAndAddThread("\t- locked <0x00000000e1a2b3c4> (a java.lang.Object)", "t1", "t1");
+        mmap.parseAndAddThread("\t- waiting to lock <0x00000000e1a2b3c4> (a java.lang.Object)", "t2", "t2");
+        mmap.parseAndAddThread("\t- waiting on <0x00000000e1a2b3c4> (a java.lang.Object)", "t3", "t3");
+        mmap.parseAndAddThread("\t- parking to wait for  <0x00000000e1a2b3d0> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)", "t1", "t1");
+        mmap.parseAndAddThread("\t- waiting to lock <no object reference available>", "t3", "t3");
+
+        assertEquals(3, mmap.size());
+        assertEquals(3, mmap.getThreadCount());
+        int monitor = mmap.indexOf("<0x00000000e1a2b3c4> (a java.lang.Object)");
+        assertEquals(0, monitor);
+        assertEquals(0xe1a2b3c4L, mmap.getAddress(monitor));
+        assertEquals("java.lang.Object", mmap.getClassName(monitor));
+        assertEquals(1, mmap.getThreads(monitor, MonitorMap.LOCK_THREAD_POS).length);
+        assertEquals("t2", mmap.getThreadTitle(mmap.getThreads(monitor, MonitorMap.WAIT_THREAD_POS)[0]));
+        assertTrue(mmap.hasThread(monitor, MonitorMap.SLEEP_THREAD_POS, 2));
+        assertFalse(mmap.hasThread(monitor, MonitorMap.SLEEP_THREAD_POS, 0));
+
+        assertEquals(1, mmap.indexOf("<0x00000000e1a2b3d0> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)"));
+        assertTrue(mmap.hasThread(1, MonitorMap.WAIT_THREAD_POS, 0));
+        assertEquals(-1, mmap.getAddress(2));
+        assertEquals(2, mmap.indexOf("<no object reference available>"));
+    }
+
+    /**
+     * monitors with a lot of threads are indexed.
+     */
+    public void testManyThreads() {
+        System.out.println("manyThreads");
+        MonitorMap mmap = new MonitorMap();
+        for (int i = 0; i < 100; i++) {
+            mmap.addWaitToMonitor("<0x10> (a java.lang.Object)", "t" + i, null);
+            mmap.addWaitToMonitor("<0x0000000000000010> (a java.lang.Object)", "t" + (i / 2), null);
+        }
+        assertEquals(1, mmap.size());
+        assertEquals(100, mmap.getThreads(0, MonitorMap.WAIT_THREAD_POS).length);
+        assertTrue(mmap.hasThread(0, MonitorMap.WAIT_THREAD_POS, 99));
+        assertFalse(mmap.hasThread(0, MonitorMap.LOCK_THREAD_POS, 99));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MonitorTimelineTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import junit.framework.*;
+
+/**
+ * test the contention of monitors over the dumps of a log file.
+ */
+public class MonitorTimelineTest extends TestCase {
+
+    public MonitorTimelineTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(MonitorTimelineTest.class);
+
+        return suite;
+    }
+
+    /**
+     * dumps added out of order are sorted by their log line, gaps end a run.
+     */
+    public void testRanking() {
+        System.out.println("ranking");
+        MonitorTimeline timeline = new MonitorTimeline();
+        // <0x10> is contended in dumps 1, 2, 3 and 5, <0x20> only in dumps 4 and 5.
+        timeline.addDump("Dump No. 3", 30, createMonitors("t2", 2, 0));
+        timeline.addDump("Dump No. 1", 10, createMonitors("t1", 1, 0));
+        timeline.addDump("Dump No. 2", 20, createMonitors("t1", 3, 1));
+        timeline.addDump("Dump No. 4", 40, createMonitors(null, 0, 4));
+        timeline.addDump("Dump No. 5", 50, createMonitors("t2", 1, 2));
+
+        assertEquals(5, timeline.getDumpCount());
+        assertEquals(2, timeline.getMonitorCount());
+        List ranking = timeline.getRanking();
+        MonitorTimeline.Monitor first = (MonitorTimeline.Monitor) ranking.get(0);
+        assertEquals("<0x10> (a java.lang.Object)", first.getName());
+        assertEquals(4, first.getDumpCount());
+        assertEquals(3, first.getLongestRun());
+        assertEquals(1, first.getOwnerChanges());
+        assertEquals(3, first.getMaxWaits());
+        assertEquals("t1", first.getOwner(0));
+        assertEquals("t2", first.getOwner(3));
+
+        MonitorTimeline.Monitor second = (MonitorTimeline.Monitor) ranking.get(1);
+        assertEquals("<0x0000000000000020> (a java.lang.Object)", second.getName());
+        assertEquals(2, second.getLongestRun());
+        assertEquals(4, second.getMaxWaits());
+
+        TreeCategory cat = timeline.createCategory();
+        assertEquals(2, cat.getNodeCount());
+        assertTrue(cat.getName().startsWith("Monitor Contention"));
+    }
+
+    /**
+     * the dumps of a parsed log file are added to the timeline of its parser.
+     */
+    public void testParsedDumps() throws Exception {
+        System.out.println("parsedDumps");
+        String log = createDump("worker-a", "worker-b") + createDump("worker-b", "worker-a");
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(log.getBytes()),
+                new HashMap(), false, 1);
+        try {
+            while (parser.hasMoreDumps()) {
+                parser.parseNext();
+            }
+            MonitorTimeline timeline = ((AbstractDumpParser) parser).getMonitorTimeline();
+            assertEquals(2, timeline.getDumpCount());
+            assertEquals(1, timeline.getMonitorCount());
+            MonitorTimeline.Monitor monitor = (MonitorTimeline.Monitor) timeline.getRanking().get(0);
+            assertEquals(2, monitor.getLongestRun());
+            assertEquals(1, monitor.getOwnerChanges());
+            assertEquals("worker-b", monitor.getOwner(1));
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static String createDump(String owner, String waiter) {
+        return ("2024-05-01 12:00:00\n"
+                + "Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.392-b08 mixed mode):\n\n"
+                + "\"" + owner + "\" #10 prio=5 os_prio=0 tid=0x00007f0000001010 nid=0x110 runnable [0x00007f0001000000]\n"
+                + "   java.lang.Thread.State: RUNNABLE\n"
+                + "\tat com.example.Worker.work(Worker.java:20)\n"
+                + "\t- locked <0x0000000700000010> (a java.lang.Object)\n"
+                + "\tat com.example.Worker.run(Worker.java:10)\n\n"
+                + "\"" + waiter + "\" #20 prio=5 os_prio=0 tid=0x00007f0000001020 nid=0x120 waiting for monitor entry [0x00007f0002000000]\n"
+                + "   java.lang.Thread.State: BLOCKED (on object monitor)\n"
+                + "\tat com.example.Worker.work(Worker.java:20)\n"
+                + "\t- waiting to lock <0x0000000700000010> (a java.lang.Object)\n"
+                + "\tat com.example.Worker.run(Worker.java:10)\n\n"
+                + "\"VM Periodic Task Thread\" os_prio=0 tid=0x00007f0000009000 nid=0x109 waiting on condition \n\n"
+                + "JNI global references: 10\n\n");
+    }
+
+    /**
+     * a monitor locked by the given owner, with two spellings of the address of another one.
+     */
+    private static MonitorMap createMonitors(String owner, int waits, int otherWaits) {
+        MonitorMap mmap = new MonitorMap();
+        if (owner != null) {
+            mmap.addLockToMonitor("<0x10> (a java.lang.Object)", owner, null);
+        }
+        for (int i = 0; i < waits; i++) {
+            mmap.addWaitToMonitor("<0x10> (a java.lang.Object)", "w" + i, null);
+        }
+        for (int i = 0; i < otherWaits; i++) {
+            mmap.addWaitToMonitor(i % 2 == 0 ? "<0x0000000000000020> (a java.lang.Object)" : "<0x20> (a java.lang.Object)", "o" + i, null);
+        }
+        mmap.addLockToMonitor("<0x30> (a java.lang.Object)", "t3", null);
+        return (mmap);
+    }
+}
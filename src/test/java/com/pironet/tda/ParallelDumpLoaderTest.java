@@ -0,0 +1,422 @@
+/*
+ * ParallelDumpLoaderTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test parallel parsing of log files from sun and jrockit vms.
+ */
+public class ParallelDumpLoaderTest extends TestCase {
+
+    public ParallelDumpLoaderTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(ParallelDumpLoaderTest.class);
+
+        return suite;
+    }
+
+    /**
+     * parallel parsing needs to give the same dumps as sequential parsing.
+     */
+    public void testParallelDumpLoad() throws Exception {
+        System.out.println("parallelDumpLoad");
+        String[] logs = {"test.log", "testwithhistogram.log", "hpdump.log", "sapdump.log", "visualvmremote.log", "urlthread.log"};
+
+        for (int i = 0; i < logs.length; i++) {
+            Vector streamDumps = new Vector();
+            Map streamStore = new HashMap();
+            DumpParser instance = null;
+            InputStream fis = null;
+            boolean streamHistograms = false;
+            try {
+                fis = getClass().getClassLoader().getResourceAsStream(logs[i]);
+                instance = DumpParserFactory.get().getDumpParserForLogfile(fis, streamStore, false, 1);
+                while (instance.hasMoreDumps()) {
+                    ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+                    streamDumps.add(tdi.getName() + " around " + tdi.getStartTime());
+                    streamHistograms |= instance.isFoundClassHistograms();
+                }
+            } finally {
+                if (instance != null) {
+                    instance.close();
+                }
+                if (fis != null) {
+                    fis.close();
+                }
+            }
+
+            File file = new File(getClass().getClassLoader().getResource(logs[i]).toURI());
+            ParallelDumpLoader loader = new ParallelDumpLoader(file, 1);
+            assertTrue(logs[i], loader.parse());
+            DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile(logs[i]));
+            Map parallelStore = new HashMap();
+            loader.addDumps(top, parallelStore);
+
+            Vector lines = readLines(file);
+            Vector parallelDumps = new Vector();
+            for (int j = 0; j < top.getChildCount(); j++) {
+                ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) top.getChildAt(j)).getUserObject();
+                parallelDumps.add(tdi.getName() + " around " + tdi.getStartTime());
+                // the log line needs to point to the dump header.
+                assertTrue(logs[i] + " " + tdi, ((String) lines.get(tdi.getLogLine() - 1)).indexOf("Full thread dump") >= 0);
+            }
+
+            // same dumps and time stamps.
+            assertEquals(logs[i], streamDumps, parallelDumps);
+            assertEquals(logs[i], streamStore.keySet(), parallelStore.keySet());
+            assertEquals(logs[i], streamHistograms, loader.isFoundClassHistograms());
+        }
+    }
+
+    private Vector readLines(File file) throws Exception {
+        Vector lines = new Vector();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return (lines);
+    }
+
+    /**
+     * reopening a log file from its index gives the same dumps, parsed on access.
+     */
+    public void testIndexReload() throws Exception {
+        System.out.println("indexReload");
+        File log = File.createTempFile("tda", ".log");
+        File index = File.createTempFile("tda", ".idx");
+        try {
+            copy(new File(getClass().getClassLoader().getResource("test.log").toURI()), log, false);
+
+            ParallelDumpLoader loader = new ParallelDumpLoader(log, 1);
+            assertTrue(loader.parse());
+            DefaultMutableTreeNode parsed = new DefaultMutableTreeNode(new Logfile("test.log"));
+            Map parsedStore = new HashMap();
+            loader.addDumps(parsed, parsedStore);
+            loader.saveIndex(index);
+
+            ParallelDumpLoader reloader = new ParallelDumpLoader(log, 1);
+            assertTrue(reloader.loadIndex(index));
+            DefaultMutableTreeNode reloaded = new DefaultMutableTreeNode(new Logfile("test.log"));
+            Map reloadedStore = new HashMap();
+            reloader.addDumps(reloaded, reloadedStore);
+
+            assertEquals(parsed.getChildCount(), reloaded.getChildCount());
+            assertTrue(reloadedStore.isEmpty());
+            for (int i = 0; i < parsed.getChildCount(); i++) {
+                LazyDumpNode node = (LazyDumpNode) reloaded.getChildAt(i);
+                assertEquals(parsed.getChildAt(i).toString(), node.toString());
+                assertFalse(node.isLoaded());
+                assertFalse(node.isLeaf());
+
+                DefaultMutableTreeNode parsedNode = (DefaultMutableTreeNode) parsed.getChildAt(i);
+                assertEquals(parsedNode.getChildCount(), node.getChildCount());
+                assertTrue(node.isLoaded());
+                for (int j = 0; j < parsedNode.getChildCount(); j++) {
+                    assertEquals(parsedNode.getChildAt(j).toString(), node.getChildAt(j).toString());
+                }
+            }
+            assertEquals(parsedStore.keySet(), reloadedStore.keySet());
+
+            // a changed log file needs to be parsed again.
+            FileWriter writer = new FileWriter(log, true);
+            writer.write("appended\n");
+            writer.close();
+            assertFalse(new ParallelDumpLoader(log, 1).loadIndex(index));
+        } finally {
+            log.delete();
+            index.delete();
+        }
+    }
+
+    /**
+     * a broken dump keeps its number with parallel parsing and when reopened from the
+     * index, like with sequential parsing, and the skipped dump is reported by its name.
+     */
+    public void testBrokenDump() throws Exception {
+        System.out.println("brokenDump");
+        String dump = "Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.0-b70 mixed mode):\n\n"
+                + "\"worker\" #20 prio=5 os_prio=0 tid=0x01 nid=0x01 waiting for monitor entry [0x02]\n"
+                + "   java.lang.Thread.State: BLOCKED (on object monitor)\n"
+                + "\tat a.B.run(B.java:1)\n"
+                + "%s"
+                + "\n\"VM Periodic Task Thread\" os_prio=0 tid=0x03 nid=0x03 waiting on condition\n\n";
+        String valid = String.format(dump, "\t- locked <0x04> (a a.B)\n");
+        File log = File.createTempFile("tda", ".log");
+        File index = File.createTempFile("tda", ".idx");
+        try {
+            FileWriter writer = new FileWriter(log);
+            writer.write(valid + String.format(dump, "\t- locked a.B@1f broken\n") + valid);
+            writer.close();
+
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(new FileInputStream(log), new HashMap(),
+                    false, 1);
+            Vector streamDumps = new Vector();
+            try {
+                while (instance.hasMoreDumps()) {
+                    streamDumps.add(((DefaultMutableTreeNode) instance.parseNext()).toString());
+                }
+                assertEquals(1, ((AbstractDumpParser) instance).getSkippedDumps().size());
+                assertTrue(((String) ((AbstractDumpParser) instance).getSkippedDumps().get(0)).startsWith("Dump No. 2: "));
+            } finally {
+                instance.close();
+            }
+            assertEquals(2, streamDumps.size());
+            assertTrue(((String) streamDumps.get(1)).startsWith("Dump No. 3"));
+
+            ParallelDumpLoader loader = new ParallelDumpLoader(log, 1);
+            assertTrue(loader.parse());
+            DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("broken.log"));
+            loader.addDumps(top, new HashMap());
+            Vector parallelDumps = new Vector();
+            for (int i = 0; i < top.getChildCount(); i++) {
+                parallelDumps.add(top.getChildAt(i).toString());
+            }
+            assertEquals(streamDumps, parallelDumps);
+            List skipped = ((AbstractDumpParser) loader.getUsedParser()).getSkippedDumps();
+            assertEquals(1, skipped.size());
+            assertTrue(((String) skipped.get(0)).startsWith("Dump No. 2: "));
+            loader.saveIndex(index);
+
+            ParallelDumpLoader reloader = new ParallelDumpLoader(log, 1);
+            assertTrue(reloader.loadIndex(index));
+            DefaultMutableTreeNode reloaded = new DefaultMutableTreeNode(new Logfile("broken.log"));
+            reloader.addDumps(reloaded, new HashMap());
+            Vector reloadedDumps = new Vector();
+            for (int i = 0; i < reloaded.getChildCount(); i++) {
+                reloadedDumps.add(reloaded.getChildAt(i).toString());
+            }
+            assertEquals(streamDumps, reloadedDumps);
+        } finally {
+            log.delete();
+            index.delete();
+        }
+    }
+
+    /**
+     * dumps appended to a followed log file continue the numbering of the parsed ones,
+     * an incomplete last dump is only parsed as soon as the file doesn't grow anymore.
+     */
+    public void testFollowLogfile() throws Exception {
+        System.out.println("followLogfile");
+        File log = File.createTempFile("tda", ".log");
+        try {
+            File testLog = new File(getClass().getClassLoader().getResource("test.log").toURI());
+            copy(testLog, log, false);
+
+            ParallelDumpLoader loader = new ParallelDumpLoader(log, 1);
+            assertTrue(loader.parse());
+            DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("test.log"));
+            Map store = new HashMap();
+            loader.addDumps(top, store);
+            int dumpCount = top.getChildCount();
+
+            LogfileFollower follower = new LogfileFollower(log, loader.getParsedLength(), dumpCount + 1, store,
+                    (SunJDKParser) loader.getUsedParser());
+            assertTrue(follower.poll().isEmpty());
+
+            copy(testLog, log, true);
+            List dumps = follower.poll();
+            // the last dump might still be written.
+            assertEquals(dumpCount - 1, dumps.size());
+            dumps.addAll(follower.poll());
+            assertEquals(dumpCount, dumps.size());
+            assertEquals(log.length(), follower.getOffset());
+            assertTrue(follower.poll().isEmpty());
+
+            Vector lines = readLines(log);
+            for (int i = 0; i < dumps.size(); i++) {
+                ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) dumps.get(i)).getUserObject();
+                ThreadDumpInfo parsed = (ThreadDumpInfo) ((DefaultMutableTreeNode) top.getChildAt(i)).getUserObject();
+                assertEquals("Dump No. " + (dumpCount + i + 1), tdi.getName());
+                assertEquals(parsed.getThreads().getNodeCount(), tdi.getThreads().getNodeCount());
+                assertTrue(tdi.toString(), ((String) lines.get(tdi.getLogLine() - 1)).indexOf("Full thread dump") >= 0);
+            }
+        } finally {
+            log.delete();
+        }
+    }
+
+    /**
+     * a started follower reports appended dumps in the background, including the
+     * last one once the file stopped growing.
+     */
+    public void testFollowLogfileStarted() throws Exception {
+        System.out.println("followLogfileStarted");
+        followStarted(false);
+    }
+
+    /**
+     * changes of other files in the directory of a followed log file don't keep the
+     * follower from completing the last dump.
+     */
+    public void testFollowLogfileBusyDirectory() throws Exception {
+        System.out.println("followLogfileBusyDirectory");
+        followStarted(true);
+    }
+
+    private void followStarted(boolean busyDirectory) throws Exception {
+        File dir = File.createTempFile("tda", ".dir");
+        dir.delete();
+        dir.mkdir();
+        File log = new File(dir, "follow.log");
+        File other = new File(dir, "other.log");
+        try {
+            File testLog = new File(getClass().getClassLoader().getResource("test.log").toURI());
+            copy(testLog, log, false);
+
+            ParallelDumpLoader loader = new ParallelDumpLoader(log, 1);
+            assertTrue(loader.parse());
+            DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("test.log"));
+            Map store = new HashMap();
+            loader.addDumps(top, store);
+            final int dumpCount = top.getChildCount();
+
+            LogfileFollower follower = new LogfileFollower(log, loader.getParsedLength(), dumpCount + 1, store,
+                    (SunJDKParser) loader.getUsedParser());
+            final List dumps = new Vector();
+            follower.start(new LogfileFollower.FollowListener() {
+                public void dumpsFound(LogfileFollower follower, List found) {
+                    synchronized (dumps) {
+                        dumps.addAll(found);
+                        dumps.notifyAll();
+                    }
+                }
+
+                public void followingFailed(LogfileFollower follower, java.io.IOException e) {
+                    fail(e.toString());
+                }
+            });
+            try {
+                assertTrue(follower.isRunning());
+                copy(testLog, log, true);
+                long end = System.currentTimeMillis() + 5 * LogfileFollower.POLL_INTERVAL;
+                synchronized (dumps) {
+                    while (dumps.size() < dumpCount && System.currentTimeMillis() < end) {
+                        if (busyDirectory) {
+                            FileWriter writer = new FileWriter(other, true);
+                            writer.write("other\n");
+                            writer.close();
+                        }
+                        dumps.wait(busyDirectory ? 20 : end - System.currentTimeMillis());
+                    }
+                }
+                assertEquals(dumpCount, dumps.size());
+                assertEquals(log.length(), follower.getOffset());
+            } finally {
+                follower.stop();
+            }
+            assertFalse(follower.isRunning());
+        } finally {
+            log.delete();
+            other.delete();
+            dir.delete();
+        }
+    }
+
+    private void copy(File from, File to, boolean append) throws Exception {
+        FileInputStream in = new FileInputStream(from);
+        FileOutputStream out = new FileOutputStream(to, append);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * jrockit logs are split at their dump headers as well and give the same dumps
+     * as sequential parsing.
+     */
+    public void testBeaDumpLoad() throws Exception {
+        System.out.println("beaDumpLoad");
+        File generated = File.createTempFile("tda", ".log");
+        try {
+            DumpGenerator generator = new DumpGenerator(DumpGenerator.JROCKIT);
+            generator.setThreadCount(50);
+            generator.setDumpCount(5);
+            FileWriter writer = new FileWriter(generated);
+            writer.write(generator.generate());
+            writer.close();
+
+            File[] logs = {new File(getClass().getClassLoader().getResource("jrockit_14_dump.txt").toURI()),
+                    new File(getClass().getClassLoader().getResource("jrockit_15_dump.txt").toURI()), generated};
+            int[] dumpCounts = {1, 2, 5};
+            for (int i = 0; i < logs.length; i++) {
+                Vector streamDumps = new Vector();
+                Map streamStore = new HashMap();
+                DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(new FileInputStream(logs[i]), streamStore, false, 1);
+                try {
+                    while (instance.hasMoreDumps()) {
+                        ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+                        streamDumps.add(tdi.getName() + " with " + tdi.getThreads());
+                    }
+                } finally {
+                    instance.close();
+                }
+
+                ParallelDumpLoader loader = new ParallelDumpLoader(logs[i], 1);
+                assertTrue(logs[i].getName(), loader.parse());
+                assertTrue(loader.getUsedParser() instanceof BeaJDKParser);
+                DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile(logs[i].getName()));
+                Map parallelStore = new HashMap();
+                loader.addDumps(top, parallelStore);
+
+                Vector lines = readLines(logs[i]);
+                Vector parallelDumps = new Vector();
+                for (int j = 0; j < top.getChildCount(); j++) {
+                    ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) top.getChildAt(j)).getUserObject();
+                    parallelDumps.add(tdi.getName() + " with " + tdi.getThreads());
+                    assertTrue(tdi.toString(), ((String) lines.get(tdi.getLogLine() - 1)).indexOf("===== FULL THREAD DUMP") >= 0);
+                }
+                assertEquals(dumpCounts[i], parallelDumps.size());
+                assertEquals(logs[i].getName(), streamDumps, parallelDumps);
+                assertEquals(logs[i].getName(), streamStore.keySet(), parallelStore.keySet());
+            }
+        } finally {
+            generated.delete();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * QueryTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.query.Match;
+import com.pironet.tda.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test querying the threads of all dumps.
+ */
+public class QueryTest extends TestCase {
+
+    public QueryTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(QueryTest.class);
+
+        return suite;
+    }
+
+    public void testParse() throws Exception {
+        System.out.println("parse");
+        assertNull(Query.parse("state = BLOCKED and stack contains \"jdbc\" and dump in last 10").getGroupBy());
+        assertEquals("pool", Query.parse("state = BLOCKED and stack contains \"jdbc\" and dump in last 10 group by pool").getGroupBy());
+        assertEquals("state", Query.parse("GROUP BY state").getGroupBy());
+        Query.parse("not (name matches \"^worker-[0-9]+$\" or depth >= 20) and frame != \"java.lang.Object.wait(Native Method)\"");
+
+        assertInvalid("colour = red", 0);
+        assertInvalid("state = ", 8);
+        assertInvalid("stack = jdbc", 6);
+        assertInvalid("depth > deep", 8);
+        assertInvalid("name in last 3", 5);
+        assertInvalid("name matches \"[\"", 13);
+        assertInvalid("(state = BLOCKED", 16);
+        assertInvalid("state = BLOCKED group by stack", 25);
+        assertInvalid("state = BLOCKED name = x", 16);
+        assertInvalid("name = \"worker", 7);
+    }
+
+    private static void assertInvalid(String query, int offset) {
+        try {
+            Query.parse(query);
+            fail(query + " is invalid");
+        } catch (ParseException ex) {
+            assertEquals(query, offset, ex.getErrorOffset());
+        }
+    }
+
+    public void testExecute() throws Exception {
+        System.out.println("execute");
+        DumpGenerator generator = new DumpGenerator(DumpGenerator.SUN_JDK8);
+        generator.setThreadCount(100);
+        generator.setDeadlocks(1);
+        generator.setDumpCount(5);
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(generator.generate().getBytes()), new HashMap(), false, 1);
+        try {
+            while (parser.hasMoreDumps()) {
+                parser.parseNext();
+            }
+            FrameIndex index = ((AbstractDumpParser) parser).getFrameIndex();
+            List dumps = index.getDumps();
+            assertEquals(5, dumps.size());
+
+            List matches = Query.parse("dump in last 2").execute(index);
+            assertEquals(((FrameIndex.Dump) dumps.get(3)).getThreads().size() + ((FrameIndex.Dump) dumps.get(4)).getThreads().size(),
+                    matches.size());
+            assertSame(dumps.get(3), ((Match) matches.get(0)).getDump());
+
+            Query query = Query.parse("state = blocked and name contains deadlock group by name");
+            Map groups = query.group(query.execute(index));
+            assertEquals(2, groups.size());
+            assertEquals(5, ((List) groups.get("deadlock-0-a")).size());
+
+            // the stack conditions use the frame index, the result is the same as checking every thread.
+            int expected = 0;
+            for (int i = 0; i < dumps.size(); i++) {
+                List threads = ((FrameIndex.Dump) dumps.get(i)).getThreads();
+                for (int j = 0; j < threads.size(); j++) {
+                    DumpThread thread = (DumpThread) threads.get(j);
+                    List frames = thread.getFrames();
+                    boolean found = false;
+                    for (int k = 0; k < frames.size(); k++) {
+                        found |= ((StackFrame) frames.get(k)).getLine().indexOf("com.example.dao") >= 0;
+                    }
+                    if (found && StateTransitions.getState(thread) != StateTransitions.RUNNABLE) {
+                        expected++;
+                    }
+                }
+            }
+            assertTrue(expected > 0);
+            assertEquals(expected, Query.parse("stack contains com.example.dao and state != RUNNABLE").execute(index).size());
+
+            query = Query.parse("group by pool");
+            matches = query.execute(index);
+            assertEquals("worker", query.group(matches).keySet().iterator().next());
+
+            DefaultMutableTreeNode root = new DefaultMutableTreeNode();
+            assertEquals(matches.size(), ((AbstractDumpParser) parser).createQueryResult(root, query));
+            DefaultMutableTreeNode queryNode = (DefaultMutableTreeNode) root.getChildAt(0);
+            assertTrue(queryNode.getUserObject().toString().startsWith("Query: group by pool ("));
+            assertTrue(((DefaultMutableTreeNode) queryNode.getChildAt(0)).getUserObject().toString().startsWith("worker ("));
+            assertEquals(0, ((AbstractDumpParser) parser).createQueryResult(root, Query.parse("depth > 1000")));
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * RuleEngineTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.rules.BrokenRule;
+import com.pironet.tda.rules.DefaultRules;
+import com.pironet.tda.rules.Finding;
+import com.pironet.tda.rules.RuleContext;
+import com.pironet.tda.rules.RuleEngine;
+import com.pironet.tda.rules.StackRule;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.*;
+
+/**
+ * test checking dumps with rules.
+ */
+public class RuleEngineTest extends TestCase {
+
+    public RuleEngineTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(RuleEngineTest.class);
+
+        return suite;
+    }
+
+    /**
+     * the checks of the dump overview are registered as services.
+     */
+    public void testServiceRules() {
+        System.out.println("serviceRules");
+        List rules = RuleEngine.getRules();
+        assertTrue(rules.size() >= 5);
+        assertTrue(rules.get(0) instanceof DefaultRules.WaitingThreads);
+        assertTrue(rules.get(4) instanceof DefaultRules.GarbageCollection);
+    }
+
+    public void testStackRule() {
+        System.out.println("stackRule");
+        FramePool pool = new FramePool();
+        ThreadDump dump = new ThreadDump("Dump No. 1", 1);
+        for (int i = 0; i < 4; i++) {
+            dump.addThread(createThread(pool, "RUNNABLE", "java.net.SocketInputStream.socketRead0(Native Method)"));
+        }
+        dump.addThread(createThread(pool, "WAITING (parking)", "com.example.Pool.getConnection(Pool.java:10)"));
+        ThreadDumpInfo tdi = new ThreadDumpInfo(dump.getName(), 1);
+        tdi.setDump(dump);
+        RuleContext context = new RuleContext(tdi);
+
+        List findings = new StackRule("sockets", "SocketInputStream\\.socketRead0", true, false, 3, Finding.CRITICAL).check(context);
+        assertEquals(1, findings.size());
+        assertEquals(Finding.CRITICAL, ((Finding) findings.get(0)).getSeverity());
+        assertTrue(((Finding) findings.get(0)).getMessage().indexOf(" 4 threads ") > 0);
+        assertTrue(new StackRule("sockets", "SocketInputStream\\.socketRead0", true, false, 4, Finding.CRITICAL).check(context).isEmpty());
+        assertTrue(new StackRule("sockets", "socketRead0", true, true, 0, Finding.INFO).check(context).isEmpty());
+        assertEquals(1, new StackRule("pool", "getConnection", false, true, 0, Finding.INFO).check(context).size());
+    }
+
+    private static DumpThread createThread(FramePool pool, String state, String frame) {
+        return (DumpFixtures.createThread(pool, "worker", state, new String[]{frame, "java.lang.Thread.run(Thread.java:748)"}));
+    }
+
+    /**
+     * rules which couldn't be loaded show up in the findings of every dump.
+     */
+    public void testBrokenRule() {
+        System.out.println("brokenRule");
+        List findings = new BrokenRule("sockets", "invalid threshold x").check(new RuleContext(new ThreadDumpInfo("Dump No. 1", 1)));
+        assertEquals(1, findings.size());
+        assertEquals("sockets", ((Finding) findings.get(0)).getRule());
+        assertEquals(Finding.INFO, ((Finding) findings.get(0)).getSeverity());
+        assertTrue(((Finding) findings.get(0)).getMessage().indexOf("invalid threshold x") > 0);
+    }
+
+    /**
+     * the findings are kept until a rule changes.
+     */
+    public void testCheck() {
+        System.out.println("check");
+        ThreadDumpInfo tdi = new ThreadDumpInfo("Dump No. 1", 1);
+        Map results = new HashMap();
+        assertTrue(RuleEngine.isOutdated(results));
+        assertTrue(RuleEngine.check(new RuleContext(tdi), results).isEmpty());
+        assertEquals(RuleEngine.getRules().size(), results.size());
+        assertFalse(RuleEngine.isOutdated(results));
+    }
+
+    /**
+     * the deadlocks of every generated dump are reported.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        DumpGenerator generator = DumpFixtures.createGenerator(100, 3);
+        generator.setDeadlocks(1);
+        DumpParser parser = DumpFixtures.createParser(generator, new HashMap());
+        try {
+            DumpFixtures.parseDumps(parser);
+            RuleFindings findings = ((AbstractDumpParser) parser).getRuleFindings();
+            assertEquals(3, findings.getDumpCount());
+            RuleFindings.RuleResult deadlocks = (RuleFindings.RuleResult) findings.getResults().get(0);
+            assertEquals("Deadlocks", deadlocks.getRule());
+            assertEquals(Finding.CRITICAL, deadlocks.getSeverity());
+            assertEquals(3, deadlocks.getDumpCount());
+            assertTrue(findings.createCategory().getName().startsWith("Rule Findings"));
+        } finally {
+            parser.close();
+        }
+    }
+}
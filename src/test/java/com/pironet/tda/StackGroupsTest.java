@@ -0,0 +1,133 @@
+/*
+ * StackGroupsTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.LockEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test grouping the threads of the dumps by their stacks.
+ */
+public class StackGroupsTest extends TestCase {
+
+    public StackGroupsTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(StackGroupsTest.class);
+
+        return suite;
+    }
+
+    /**
+     * threads waiting on different monitors of the same kind share their stack, the
+     * groups are tracked over the dumps.
+     */
+    public void testAddDump() {
+        System.out.println("addDump");
+        FramePool pool = new FramePool();
+        StackGroups groups = new StackGroups();
+
+        List threads = new ArrayList();
+        for (int i = 0; i < 3; i++) {
+            threads.add(createThread(pool, "pool-" + i, "0x0000000" + i, "com.example.Pool.take(Pool.java:10)"));
+        }
+        threads.add(createThread(pool, "main", "0x00000010", "com.example.Main.main(Main.java:5)"));
+        List dumpGroups = groups.addDump("Dump No. 1", 100, threads);
+        assertEquals(2, dumpGroups.size());
+        assertEquals(3, ((StackGroups.DumpGroup) dumpGroups.get(0)).getThreads().size());
+        assertEquals(1, ((StackGroups.DumpGroup) dumpGroups.get(1)).getThreads().size());
+
+        threads = new ArrayList();
+        threads.add(createThread(pool, "main", "0x00000020", "com.example.Main.main(Main.java:5)"));
+        threads.add(createThread(pool, "main-2", "0x00000030", "com.example.Main.main(Main.java:5)"));
+        dumpGroups = groups.addDump("Dump No. 2", 200, threads);
+        assertEquals(1, dumpGroups.size());
+
+        assertEquals(2, groups.size());
+        List result = groups.getGroups();
+        StackGroups.Group pool0 = (StackGroups.Group) result.get(0);
+        assertEquals(3, pool0.getMaxThreads());
+        assertEquals(1, pool0.getDumpCount());
+        assertEquals("at com.example.Pool.take(Pool.java:10)", pool0.getTopFrame());
+        StackGroups.Group main = ((StackGroups.DumpGroup) dumpGroups.get(0)).getGroup();
+        assertSame(main, result.get(1));
+        assertEquals(2, main.getDumpCount());
+        assertEquals(2, main.getMaxThreads());
+        assertEquals(2, groups.getModCount());
+    }
+
+    /**
+     * create a thread waiting on the monitor with the given address.
+     */
+    private static DumpThread createThread(FramePool pool, String name, String address, String frame) {
+        String monitor = "<" + address + "> (a java.lang.Object)";
+        return (DumpFixtures.createThread(pool, name, "WAITING (on object monitor)", new String[]{frame},
+                new LockEvent[]{new LockEvent(LockEvent.WAITING_ON, "\t- waiting on " + monitor, address, monitor)}));
+    }
+
+    /**
+     * every thread of the generated dumps ends up in one group of its dump.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        DumpGenerator generator = DumpFixtures.createGenerator(200, 2);
+        DumpParser parser = DumpFixtures.createParser(generator, new HashMap());
+        try {
+            int threads = 0;
+            List dumps = DumpFixtures.parseDumps(parser);
+            for (int d = 0; d < dumps.size(); d++) {
+                DefaultMutableTreeNode dump = (DefaultMutableTreeNode) dumps.get(d);
+                TreeCategory cat = (TreeCategory) ((DefaultMutableTreeNode) dump.getChildAt(1)).getUserObject();
+                assertTrue(cat.getName().startsWith("Stack Groups"));
+                for (int i = 0; i < cat.getNodeCount(); i++) {
+                    threads += cat.getNodeAt(i).getChildCount();
+                }
+            }
+            assertEquals(generator.getDumpThreadCount() * 2, threads);
+            StackGroups groups = ((AbstractDumpParser) parser).getStackGroups();
+            assertEquals(groups.size(), groups.createCategory().getNodeCount());
+
+            // the groups are saved with the session.
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(groups);
+            oos.close();
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+            StackGroups restored = (StackGroups) ois.readObject();
+            assertEquals(groups.size(), restored.size());
+            assertEquals(groups.size(), restored.createCategory().getNodeCount());
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * StateTransitionsTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.*;
+
+/**
+ * test the state transitions of threads between consecutive dumps.
+ */
+public class StateTransitionsTest extends TestCase {
+
+    public StateTransitionsTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(StateTransitionsTest.class);
+
+        return suite;
+    }
+
+    public void testGetState() {
+        System.out.println("getState");
+        FramePool pool = new FramePool();
+        assertEquals(StateTransitions.BLOCKED, StateTransitions.getState(createThread(pool, 1, "BLOCKED (on object monitor)")));
+        assertEquals(StateTransitions.TIMED_WAITING, StateTransitions.getState(createThread(pool, 1, "TIMED_WAITING (sleeping)")));
+        assertEquals(StateTransitions.WAITING, StateTransitions.getState(createThread(pool, 1, "WAITING (parking)")));
+        assertEquals(StateTransitions.RUNNABLE, StateTransitions.getState(createThread(pool, 1, "RUNNABLE")));
+        assertEquals(StateTransitions.TIMED_WAITING, StateTransitions.getState(
+                new DumpThread("\"worker\" id=1 idx=0x02 tid=4000 prio=5 alive, sleeping")));
+        assertEquals(StateTransitions.WAITING, StateTransitions.getState(
+                new DumpThread("\"worker\" prio=5 tid=0x01 nid=0x01 in Object.wait() [0x01]")));
+    }
+
+    /**
+     * a dump added between two others replaces the transition of its neighbours.
+     */
+    public void testAddDump() {
+        System.out.println("addDump");
+        FramePool pool = new FramePool();
+        StateTransitions transitions = new StateTransitions();
+        transitions.addDump("Dump No. 3", 300, createStates(pool, new String[]{"BLOCKED", "BLOCKED", "BLOCKED"}));
+        transitions.addDump("Dump No. 1", 100, createStates(pool, new String[]{"RUNNABLE", "RUNNABLE", "WAITING"}));
+        assertEquals(1, transitions.getTransitions().size());
+        transitions.addDump("Dump No. 2", 200, createStates(pool, new String[]{"RUNNABLE", "BLOCKED"}));
+
+        List result = transitions.getTransitions();
+        assertEquals(2, result.size());
+        StateTransitions.Transition first = (StateTransitions.Transition) result.get(0);
+        assertEquals("Dump No. 1", first.getFrom());
+        assertEquals("Dump No. 2", first.getTo());
+        assertEquals(1, first.getCount(StateTransitions.RUNNABLE, StateTransitions.RUNNABLE));
+        assertEquals(1, first.getCount(StateTransitions.RUNNABLE, StateTransitions.BLOCKED));
+        assertEquals(1, first.getCount(StateTransitions.WAITING, StateTransitions.ABSENT));
+        assertEquals(2, first.getChangedCount());
+        assertEquals("worker-1", first.getThreads(StateTransitions.RUNNABLE, StateTransitions.BLOCKED).get(0));
+        assertTrue(first.isContentionRising());
+
+        StateTransitions.Transition second = (StateTransitions.Transition) result.get(1);
+        assertEquals("Dump No. 2", second.getFrom());
+        assertEquals(1, second.getCount(StateTransitions.RUNNABLE, StateTransitions.BLOCKED));
+        assertEquals(1, second.getCount(StateTransitions.ABSENT, StateTransitions.BLOCKED));
+        assertEquals(2, second.getBlockedCount());
+        assertEquals(2, transitions.createCategory().getNodeCount());
+    }
+
+    /**
+     * threads sharing their key are matched by name and occurrence, so a state
+     * change doesn't make them look started and ended.
+     */
+    public void testCollidingKeys() {
+        System.out.println("collidingKeys");
+        FramePool pool = new FramePool();
+        StateTransitions transitions = new StateTransitions();
+        String[][] dumps = {{"RUNNABLE", "RUNNABLE", "WAITING"}, {"RUNNABLE", "BLOCKED", "WAITING"}};
+        for (int d = 0; d < dumps.length; d++) {
+            Map states = new HashMap();
+            for (int i = 0; i < dumps[d].length; i++) {
+                // the header tells the state as well, like in real dumps.
+                DumpThread thread = new DumpThread("\"worker-" + (i < 2 ? 1 : 2) + "\" #20 prio=5 os_prio=0 tid=0x01 nid=0x01 "
+                        + (dumps[d][i].equals("BLOCKED") ? "waiting for monitor entry" : "runnable"), pool);
+                thread.addLine("   java.lang.Thread.State: " + dumps[d][i]);
+                StateTransitions.addThread(states, "tid=0x01 nid=0x01", thread);
+            }
+            transitions.addDump("Dump No. " + (d + 1), (d + 1) * 100, states);
+        }
+
+        StateTransitions.Transition transition = (StateTransitions.Transition) transitions.getTransitions().get(0);
+        assertEquals(1, transition.getCount(StateTransitions.RUNNABLE, StateTransitions.RUNNABLE));
+        assertEquals(1, transition.getCount(StateTransitions.RUNNABLE, StateTransitions.BLOCKED));
+        assertEquals(1, transition.getCount(StateTransitions.WAITING, StateTransitions.WAITING));
+        assertEquals(1, transition.getChangedCount());
+    }
+
+    private static Map createStates(FramePool pool, String[] states) {
+        Map result = new HashMap();
+        for (int i = 0; i < states.length; i++) {
+            DumpThread thread = createThread(pool, i, states[i]);
+            StateTransitions.addThread(result, "tid=" + i, thread);
+        }
+        return (result);
+    }
+
+    private static DumpThread createThread(FramePool pool, int id, String state) {
+        DumpThread thread = new DumpThread("\"worker-" + id + "\" #20 prio=5 os_prio=0 tid=0x0" + id + " nid=0x0" + id + " runnable", pool);
+        thread.addLine("   java.lang.Thread.State: " + state);
+        thread.trimToSize();
+        return (thread);
+    }
+
+    /**
+     * the threads of the generated dumps keep their ids, so none of them is absent.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        DumpGenerator generator = new DumpGenerator(DumpGenerator.SUN_JDK8);
+        generator.setThreadCount(200);
+        generator.setDumpCount(3);
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(generator.generate().getBytes()), new HashMap(), false, 1);
+        try {
+            while (parser.hasMoreDumps()) {
+                parser.parseNext();
+            }
+            List result = ((AbstractDumpParser) parser).getStateTransitions().getTransitions();
+            assertEquals(2, result.size());
+            for (int i = 0; i < result.size(); i++) {
+                StateTransitions.Transition transition = (StateTransitions.Transition) result.get(i);
+                int threads = 0;
+                for (int from = 0; from <= StateTransitions.ABSENT; from++) {
+                    for (int to = 0; to <= StateTransitions.ABSENT; to++) {
+                        threads += transition.getCount(from, to);
+                    }
+                    assertEquals(0, transition.getCount(from, StateTransitions.ABSENT));
+                }
+                assertEquals(generator.getDumpThreadCount(), threads);
+            }
+        } finally {
+            parser.close();
+        }
+    }
+}
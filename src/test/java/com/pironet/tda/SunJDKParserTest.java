@@ -21,11 +21,19 @@
  */
 package com.pironet.tda;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+import com.pironet.tda.model.StackFrame;
+import com.pironet.tda.model.ThreadDump;
+import java.io.ByteArrayInputStream;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import junit.framework.*;
 import java.util.Map;
 import java.util.Vector;
@@ -261,4 +269,297 @@ public class SunJDKParserTest extends TestCase {
             }
         }
     }
+
+    /**
+     * read the dumps into the dump model only, no tree nodes should be created.
+     */
+    public void testReadNextDump() throws Exception {
+        System.out.println("readNextDump");
+        InputStream fis = null;
+        DumpParser instance = null;
+
+        try {
+            fis = getClass().getClassLoader().getResourceAsStream("test.log");
+            Map dumpMap = new HashMap();
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 1);
+
+            Vector dumps = new Vector();
+            ThreadDump dump;
+            while ((dump = instance.readNextDump()) != null) {
+                dumps.add(dump);
+            }
+
+            assertEquals(3, dumps.size());
+            dump = (ThreadDump) dumps.get(0);
+            assertEquals("Dump No. 1", dump.getName());
+            assertEquals("2007-11-06 10:30:41", dump.getStartTime());
+            assertEquals(88, dump.getThreadCount());
+            assertEquals(73, dump.getMonitors().size());
+            assertEquals(86, ((ThreadDump) dumps.get(1)).getThreadCount());
+
+            // thread store is only filled when building the tree.
+            assertTrue(dumpMap.isEmpty());
+        } finally {
+            if(instance != null) {
+                instance.close();
+            }
+            if(fis != null) {
+                fis.close();
+            }
+        }
+    }
+
+    /**
+     * stream the dumps to a listener, the parser shouldn't keep anything.
+     */
+    public void testParseWithListener() throws Exception {
+        System.out.println("parseWithListener");
+        InputStream fis = null;
+        DumpParser instance = null;
+
+        try {
+            fis = getClass().getClassLoader().getResourceAsStream("test.log");
+            Map dumpMap = new HashMap();
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 1);
+
+            final Vector threadCounts = new Vector();
+            final int[] frames = new int[1];
+            instance.parse(new DumpListenerAdapter() {
+                int threads = 0;
+
+                public void onDumpStart(ThreadDump dump) {
+                    threads = 0;
+                }
+
+                public void onThread(ThreadDump dump, DumpThread thread) {
+                    threads++;
+                }
+
+                public void onFrame(DumpThread thread, StackFrame frame) {
+                    frames[0]++;
+                }
+
+                public void onDumpEnd(ThreadDump dump) {
+                    assertEquals(0, dump.getThreadCount());
+                    threadCounts.add(new Integer(threads));
+                }
+            });
+
+            assertEquals(3, threadCounts.size());
+            assertEquals(new Integer(88), threadCounts.get(0));
+            assertEquals(new Integer(86), threadCounts.get(1));
+            assertTrue(frames[0] > 0);
+            assertTrue(dumpMap.isEmpty());
+        } finally {
+            if(instance != null) {
+                instance.close();
+            }
+            if(fis != null) {
+                fis.close();
+            }
+        }
+    }
+
+    /**
+     * the lines of streamed dumps aren't kept by the parser, every dump has its own
+     * pool, so the memory doesn't grow with the amount of dumps.
+     */
+    public void testParseWithListenerPool() throws Exception {
+        System.out.println("parseWithListenerPool");
+        DumpGenerator generator = new DumpGenerator(DumpGenerator.SUN_JDK8);
+        generator.setThreadCount(100);
+        generator.setDumpCount(40);
+        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(generator.generate().getBytes()), new HashMap(), false, 1);
+        try {
+            final Map pools = new IdentityHashMap();
+            instance.parse(new DumpListenerAdapter() {
+                public void onThread(ThreadDump dump, DumpThread thread) {
+                    pools.put(thread.getPool(), dump.getName());
+                }
+            });
+
+            assertEquals(40, pools.size());
+            assertEquals(0, ((AbstractDumpParser) instance).getFramePool().size());
+            int minSize = Integer.MAX_VALUE;
+            int maxSize = 0;
+            for (Iterator iter = pools.keySet().iterator(); iter.hasNext(); ) {
+                int size = ((FramePool) iter.next()).size();
+                minSize = Math.min(minSize, size);
+                maxSize = Math.max(maxSize, size);
+            }
+            assertTrue(minSize > 0);
+            assertTrue(maxSize + " lines in one dump", maxSize < 2 * minSize);
+        } finally {
+            instance.close();
+        }
+    }
+
+    /**
+     * a broken dump is reported to the listener and skipped, the parser doesn't
+     * display anything itself.
+     */
+    public void testSkippedDump() throws Exception {
+        System.out.println("skippedDump");
+        String dump = "Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.0-b70 mixed mode):\n\n"
+                + "\"worker\" #20 prio=5 os_prio=0 tid=0x01 nid=0x01 waiting for monitor entry [0x02]\n"
+                + "   java.lang.Thread.State: BLOCKED (on object monitor)\n"
+                + "\tat a.B.run(B.java:1)\n"
+                + "%s"
+                + "\n\"VM Periodic Task Thread\" os_prio=0 tid=0x03 nid=0x03 waiting on condition\n\n";
+        String log = String.format(dump, "\t- locked a.B@1f broken\n") + String.format(dump, "\t- locked <0x04> (a a.B)\n");
+
+        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(log.getBytes()), new HashMap(), false, 1);
+        try {
+            final Vector skipped = new Vector();
+            final Vector parsed = new Vector();
+            instance.parse(new DumpListenerAdapter() {
+                public void onDumpSkipped(ThreadDump dump, String message, String lastLine) {
+                    skipped.add(dump.getName() + ": " + lastLine);
+                }
+
+                public void onDumpEnd(ThreadDump dump) {
+                    parsed.add(dump.getName());
+                }
+            });
+            assertEquals(1, skipped.size());
+            assertEquals("Dump No. 1: \t- locked a.B@1f broken", skipped.get(0));
+            assertEquals(1, parsed.size());
+            assertEquals("Dump No. 2", parsed.get(0));
+        } finally {
+            instance.close();
+        }
+
+        instance = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream(log.getBytes()), new HashMap(), false, 1);
+        try {
+            ThreadDump result = instance.readNextDump();
+            assertEquals("Dump No. 2", result.getName());
+            assertEquals(1, ((AbstractDumpParser) instance).getSkippedDumps().size());
+            assertTrue(((String) ((AbstractDumpParser) instance).getSkippedDumps().get(0)).startsWith("Dump No. 1: "));
+        } finally {
+            instance.close();
+        }
+    }
+
+    /**
+     * the thread store keeps the parsed threads, the html is rendered on request.
+     */
+    public void testLazyContent() throws Exception {
+        System.out.println("lazyContent");
+        InputStream fis = null;
+        DumpParser instance = null;
+
+        try {
+            fis = getClass().getClassLoader().getResourceAsStream("test.log");
+            Map dumpMap = new HashMap();
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 1);
+            instance.parseNext();
+
+            Map threads = (Map) dumpMap.get("Dump No. 1");
+            assertEquals(88, threads.size());
+            DumpThread thread = null;
+            for (java.util.Iterator iter = threads.values().iterator(); thread == null && iter.hasNext(); ) {
+                DumpThread next = (DumpThread) iter.next();
+                if (!next.getLockEvents().isEmpty()) {
+                    thread = next;
+                }
+            }
+            assertNotNull(thread);
+
+            ThreadInfo ti = new ThreadInfo(thread.getTitle(), null, thread, thread.getLineCount(), null);
+            String content = ti.getContent();
+            assertTrue(content.startsWith("<body bgcolor=\"ffffff\"><pre>"));
+            assertTrue(content.indexOf("<a href=\"monitor://<") > 0);
+            // rendered content is cached.
+            assertSame(content, ThreadRenderer.render(thread));
+        } finally {
+            if(instance != null) {
+                instance.close();
+            }
+            if(fis != null) {
+                fis.close();
+            }
+        }
+    }
+
+    /**
+     * threads of consecutive dumps share their stack lines.
+     */
+    public void testFramePool() throws Exception {
+        System.out.println("framePool");
+        InputStream fis = null;
+        DumpParser instance = null;
+
+        try {
+            fis = getClass().getClassLoader().getResourceAsStream("test.log");
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, new HashMap(), false, 1);
+            ThreadDump first = instance.readNextDump();
+            ThreadDump second = instance.readNextDump();
+
+            DumpThread thread = (DumpThread) first.getThreads().get(first.getThreadCount() - 1);
+            DumpThread next = null;
+            for (int i = 0; i < second.getThreadCount(); i++) {
+                if (thread.getTitle().equals(((DumpThread) second.getThreads().get(i)).getTitle())) {
+                    next = (DumpThread) second.getThreads().get(i);
+                }
+            }
+            assertNotNull(next);
+            assertSame(thread.getTitle(), next.getTitle());
+            assertTrue(java.util.Arrays.equals(thread.getLineIds(), next.getLineIds()));
+            assertSame(thread.getFrames().get(0), next.getFrames().get(0));
+            assertTrue(((AbstractDumpParser) instance).getFramePool().size() < first.getThreadCount() * 10);
+        } finally {
+            if(instance != null) {
+                instance.close();
+            }
+            if(fis != null) {
+                fis.close();
+            }
+        }
+    }
+
+    /**
+     * parsing a memory mapped file must give the same dumps as parsing the stream.
+     */
+    public void testMappedDumpLoad() throws Exception {
+        System.out.println("MappedDumpLoad");
+        String[] logs = {"test.log", "testwithhistogram.log", "hpdump.log", "sapdump.log", "visualvmremote.log", "urlthread.log"};
+
+        for (int i = 0; i < logs.length; i++) {
+            Vector streamDumps = new Vector();
+            DumpParser instance = null;
+            InputStream fis = null;
+            try {
+                fis = getClass().getClassLoader().getResourceAsStream(logs[i]);
+                instance = DumpParserFactory.get().getDumpParserForLogfile(fis, new HashMap(), false, 0);
+                while (instance.hasMoreDumps()) {
+                    streamDumps.add(instance.parseNext().toString());
+                }
+            } finally {
+                if (instance != null) {
+                    instance.close();
+                }
+                if (fis != null) {
+                    fis.close();
+                }
+            }
+
+            Vector mappedDumps = new Vector();
+            File file = new File(getClass().getClassLoader().getResource(logs[i]).toURI());
+            instance = DumpParserFactory.get().getDumpParserForLogfile(file, new HashMap(), false, 0);
+            try {
+                assertTrue(instance instanceof SunJDKParser);
+                while (instance.hasMoreDumps()) {
+                    mappedDumps.add(instance.parseNext().toString());
+                }
+            } finally {
+                instance.close();
+            }
+
+            // same dump names, log lines and time stamps.
+            assertEquals(logs[i], streamDumps, mappedDumps);
+        }
+    }
 }
@@ -46,6 +46,8 @@ public class TdaSuite extends TestCase {
         TestSuite suite = new TestSuite("TdaSuite");
         suite.addTest(com.pironet.tda.DumpParserFactoryTest.suite());
         suite.addTest(com.pironet.tda.SunJDKParserTest.suite());
+        suite.addTest(com.pironet.tda.ParallelDumpLoaderTest.suite());
+        suite.addTest(com.pironet.tda.ThreadHeaderTest.suite());
         return suite;
     }
     
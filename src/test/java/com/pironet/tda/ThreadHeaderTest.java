@@ -0,0 +1,186 @@
+/*
+ * ThreadHeaderTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.model.ThreadHeader;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import junit.framework.*;
+
+/**
+ * test the tokenizer of sun jdk thread headers.
+ */
+public class ThreadHeaderTest extends TestCase {
+
+    public ThreadHeaderTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(ThreadHeaderTest.class);
+
+        return suite;
+    }
+
+    /**
+     * the tokens need to be the same as with the string based tokenizing used before.
+     */
+    public void testSameTokens() throws Exception {
+        System.out.println("sameTokens");
+        String[] logs = {"test.log", "testwithhistogram.log", "hpdump.log", "sapdump.log", "visualvmremote.log", "urlthread.log", "test64bit.log"};
+        ThreadHeader header = new ThreadHeader();
+        int checked = 0;
+
+        for (int i = 0; i < logs.length; i++) {
+            InputStream fis = null;
+            DumpParser instance = null;
+            try {
+                fis = getClass().getClassLoader().getResourceAsStream(logs[i]);
+                instance = DumpParserFactory.get().getDumpParserForLogfile(fis, new HashMap(), false, 1);
+                ThreadDump dump;
+                while ((dump = instance.readNextDump()) != null) {
+                    List threads = dump.getThreads();
+                    for (int j = 0; j < threads.size(); j++) {
+                        String title = ((DumpThread) threads.get(j)).getTitle();
+                        assertEquals(logs[i] + ": " + title, Arrays.asList(legacyTokens(title)),
+                                Arrays.asList(header.parse(title).toTokens()));
+                        checked++;
+                    }
+                }
+            } finally {
+                if (instance != null) {
+                    instance.close();
+                }
+                if (fis != null) {
+                    fis.close();
+                }
+            }
+        }
+        assertTrue(checked > 1000);
+    }
+
+    /**
+     * test the attributes of an extended header line.
+     */
+    public void testAttributes() {
+        System.out.println("attributes");
+        ThreadHeader header = new ThreadHeader().parse(
+                "\"Thread-1\" daemon prio=10 tid=0x0000002a nid=0x1f waiting on condition [0x4000..0x5000]");
+        assertTrue(header.isExtendedFormat());
+        assertEquals("Thread-1", header.getName());
+        assertTrue(header.isDaemon());
+        assertEquals(10, header.getPriority());
+        assertEquals(42, header.getTid());
+        assertEquals(31, header.getNid());
+        assertEquals("waiting on condition", header.getState());
+        assertEquals("[0x4000..0x5000]", header.getAddressRange());
+
+        header.parse("\"main\" prio=5 tid=0x00000001 nid=12 runnable");
+        assertFalse(header.isDaemon());
+        assertEquals(12, header.getNid());
+        assertEquals("runnable", header.getState());
+        assertNull(header.getAddressRange());
+    }
+
+    /**
+     * copy of the former string based tokenizer.
+     */
+    private String[] legacyTokens(String name) {
+        String[] tokens = null;
+
+        if (name.indexOf("prio") > 0) {
+            tokens = new String[7];
+
+            tokens[0] = name.substring(1, name.lastIndexOf('"'));
+            tokens[1] = name.indexOf("daemon") > 0 ? "Daemon" : "Task";
+
+            String strippedToken = name.substring(name.lastIndexOf('"') + 1);
+
+            if (strippedToken.indexOf("tid=") >= 0) {
+                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5, strippedToken.indexOf("tid=") - 1);
+            } else {
+                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5);
+            }
+
+            if ((strippedToken.indexOf("tid=") >= 0) && (strippedToken.indexOf("nid=") >= 0)) {
+                tokens[3] = String.valueOf(Long.parseLong(strippedToken.substring(strippedToken.indexOf("tid=") + 6,
+                        strippedToken.indexOf("nid=") - 1), 16));
+            } else if (strippedToken.indexOf("tid=") >= 0) {
+                tokens[3] = String.valueOf(Long.parseLong(strippedToken.substring(strippedToken.indexOf("tid=") + 6), 16));
+            }
+
+            // default for token 6 is:
+            tokens[6] = "<no address range>";
+
+            if ((strippedToken.indexOf("nid=") >= 0) && (strippedToken.indexOf(" ", strippedToken.indexOf("nid="))) >= 0) {
+                if (strippedToken.indexOf("nid=0x") > 0) { // is hexadecimal
+                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6,
+                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
+                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
+                } else { // is decimal
+                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 4,
+                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
+                    tokens[4] = nidToken;
+                }
+
+                if (strippedToken.indexOf('[') > 0) {
+                    if (strippedToken.indexOf("lwp_id=") > 0) {
+                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("lwp_id=")) + 1, strippedToken.indexOf('[',
+                                strippedToken.indexOf("lwp_id=")) - 1);
+                    } else {
+                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1, strippedToken.indexOf('[',
+                                strippedToken.indexOf("nid=")) - 1);
+                    }
+                    tokens[6] = strippedToken.substring(strippedToken.indexOf('['));
+                } else {
+                    tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1);
+                }
+            } else if (strippedToken.indexOf("nid=") >= 0) {
+                String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6);
+                // nid is at the end.
+                if (nidToken.indexOf("0x") > 0) { // is hexadecimal
+                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
+                } else {
+                    tokens[4] = nidToken;
+                }
+            }
+        } else {
+            tokens = new String[3];
+            tokens[0] = name.substring(1, name.lastIndexOf('"'));
+            if (name.indexOf("nid=") > 0) {
+                tokens[1] = name.substring(name.indexOf("nid=") + 4, name.indexOf("state=") - 1);
+                tokens[2] = name.substring(name.indexOf("state=") + 6);
+            } else if (name.indexOf("t@") > 0) {
+                tokens[1] = name.substring(name.indexOf("t@") + 2, name.indexOf("state=") - 1);
+                tokens[2] = name.substring(name.indexOf("state=") + 6);
+            } else {
+                tokens[1] = name.substring(name.indexOf("id=") + 3, name.indexOf(" in"));
+                tokens[2] = name.substring(name.indexOf(" in") + 3);
+            }
+        }
+
+        return (tokens);
+    }
+}
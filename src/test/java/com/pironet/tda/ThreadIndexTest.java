@@ -0,0 +1,168 @@
+/*
+ * ThreadIndexTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.StackFrame;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import junit.framework.*;
+
+/**
+ * test matching the threads of several dumps.
+ */
+public class ThreadIndexTest extends TestCase {
+
+    public ThreadIndexTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(ThreadIndexTest.class);
+
+        return suite;
+    }
+
+    /**
+     * threads are matched by their ids, even if state and name changed.
+     */
+    public void testAddDump() {
+        System.out.println("addDump");
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream("Full thread dump Java HotSpot(TM) 64-Bit Server VM:\n".getBytes()), new HashMap(), false, 1);
+        ThreadIndex index = new ThreadIndex((AbstractDumpParser) parser, 2);
+        Map threads = new HashMap();
+        threads.put("\"http-1 GET /a\" #10 prio=5 os_prio=0 tid=0x00007f0000001010 nid=0x110 runnable [0x00007f0001000000]", null);
+        threads.put("\"worker\" #20 prio=5 os_prio=0 tid=0x00007f0000001020 nid=0x120 waiting on condition [0x00007f0002000000]", null);
+        index.addDump(0, threads);
+        threads = new HashMap();
+        threads.put("\"http-1 GET /b\" #10 prio=5 os_prio=0 tid=0x00007f0000001010 nid=0x110 runnable [0x00007f0001000000]", null);
+        threads.put("\"worker\" #20 prio=5 os_prio=0 tid=0x00007f0000001020 nid=0x120 runnable [0x00007f0002000000]", null);
+        threads.put("\"worker-2\" #30 prio=5 os_prio=0 tid=0x00007f0000001030 nid=0x130 runnable [0x00007f0003000000]", null);
+        index.addDump(1, threads);
+
+        assertEquals(3, index.size());
+        for (int i = 0; i < index.size(); i++) {
+            if (index.getTitle(i, 1).startsWith("\"worker-2\"")) {
+                assertNull(index.getTitle(i, 0));
+                assertEquals(1, index.getOccurrence(i));
+            } else {
+                assertEquals(2, index.getOccurrence(i));
+            }
+        }
+    }
+
+    /**
+     * threads are stuck as long as their top frames don't change.
+     */
+    public void testStuckThreads() {
+        System.out.println("stuckThreads");
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(
+                new ByteArrayInputStream("Full thread dump Java HotSpot(TM) 64-Bit Server VM:\n".getBytes()), new HashMap(), false, 1);
+        String[] callers = {"com.example.Worker.run(Worker.java:10)", "com.example.Worker.run(Worker.java:12)",
+                "com.example.Worker.run(Worker.java:12)"};
+        for (int depth = 0; depth < 2; depth++) {
+            ThreadIndex index = new ThreadIndex((AbstractDumpParser) parser, 3);
+            index.setStackDepth(depth);
+            for (int i = 0; i < callers.length; i++) {
+                Map threads = new HashMap();
+                addThread(threads, "\"worker\" #20 prio=5 os_prio=0 tid=0x00007f0000001020 nid=0x120 runnable [0x00007f0002000000]",
+                        new String[]{"com.example.Worker.work(Worker.java:20)", callers[i]}, depth);
+                addThread(threads, "\"VM Thread\" os_prio=0 tid=0x00007f0000002000 nid=0x200 runnable ", new String[0], depth);
+                index.addDump(i, threads);
+            }
+
+            for (int t = 0; t < index.size(); t++) {
+                if (index.getTitle(t, 0).startsWith("\"worker\"")) {
+                    // the caller changed, only the top frame stayed the same.
+                    assertEquals(depth == 1 ? 3 : 2, index.getLongestRun(t));
+                } else {
+                    assertEquals(0, index.getLongestRun(t));
+                }
+            }
+        }
+    }
+
+    /**
+     * hashing other depths doesn't change the hash cached while parsing.
+     */
+    public void testStackHashDepths() {
+        System.out.println("stackHashDepths");
+        DumpThread thread = new DumpThread("\"worker\" prio=10 tid=0x01 nid=0x01 runnable");
+        thread.addFrame(new StackFrame("\tat a.B.run(B.java:1)"));
+        thread.addFrame(new StackFrame("\tat a.B.call(B.java:2)"));
+        thread.trimToSize();
+        thread.hashStack(1);
+        long top = thread.getStackHash(1);
+        long all = thread.getStackHash(0);
+        assertTrue(top != all);
+        assertEquals(top, thread.getStackHash(1));
+        assertEquals(all, thread.getStackHash(0));
+        assertEquals(top, thread.getStackHash(1));
+    }
+
+    private static void addThread(Map threads, String title, String[] frames, int depth) {
+        DumpThread thread = new DumpThread(title);
+        for (int i = 0; i < frames.length; i++) {
+            thread.addFrame(new StackFrame("\tat " + frames[i]));
+        }
+        thread.trimToSize();
+        thread.hashStack(depth);
+        threads.put(title, thread);
+    }
+
+    /**
+     * merging the generated dumps finds all threads, their states change from dump to dump.
+     */
+    public void testMergeDumps() throws Exception {
+        System.out.println("mergeDumps");
+        int[] formats = {DumpGenerator.SUN_JDK8, DumpGenerator.JROCKIT};
+        for (int i = 0; i < formats.length; i++) {
+            DumpGenerator generator = new DumpGenerator(formats[i]);
+            generator.setThreadCount(200);
+            generator.setDumpCount(3);
+            Map dumpStore = new HashMap();
+            DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(
+                    new ByteArrayInputStream(generator.generate().getBytes()), dumpStore, false, 1);
+            try {
+                DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile("generated.log"));
+                while (parser.hasMoreDumps()) {
+                    top.add((DefaultMutableTreeNode) parser.parseNext());
+                }
+                TreePath[] paths = new TreePath[top.getChildCount()];
+                for (int j = 0; j < paths.length; j++) {
+                    paths[j] = new TreePath(((DefaultMutableTreeNode) top.getChildAt(j)).getPath());
+                }
+                assertEquals(3, paths.length);
+
+                DefaultMutableTreeNode root = new DefaultMutableTreeNode("merge");
+                parser.mergeDumps(root, dumpStore, paths, 3, null);
+                Category merged = (Category) ((DefaultMutableTreeNode) root.getChildAt(0)).getUserObject();
+                assertEquals(generator.getDumpThreadCount(), merged.getNodeCount());
+            } finally {
+                parser.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ThreadPoolsTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.DumpThread;
+import com.pironet.tda.model.FramePool;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test grouping threads by their pools.
+ */
+public class ThreadPoolsTest extends TestCase {
+
+    public ThreadPoolsTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(ThreadPoolsTest.class);
+
+        return suite;
+    }
+
+    public void testGetPoolName() {
+        System.out.println("getPoolName");
+        assertEquals("http-nio-8080-exec", ThreadPools.getPoolName("http-nio-8080-exec-137"));
+        assertEquals("pool-12-thread", ThreadPools.getPoolName("pool-12-thread-4"));
+        assertEquals("ForkJoinPool.commonPool-worker", ThreadPools.getPoolName("ForkJoinPool.commonPool-worker-3"));
+        assertEquals("GC task thread", ThreadPools.getPoolName("GC task thread#0"));
+        assertNull(ThreadPools.getPoolName("main"));
+        assertNull(ThreadPools.getPoolName("GC task thread#0 (ParallelGC)"));
+        assertNull(ThreadPools.getPoolName("12"));
+    }
+
+    /**
+     * threads waiting for work are idle, regardless of their state.
+     */
+    public void testGetState() {
+        System.out.println("getState");
+        FramePool pool = new FramePool();
+        assertEquals(ThreadPools.IDLE, ThreadPools.getState(DumpFixtures.createThread(pool, "pool-1-thread-1", "WAITING (parking)", new String[]{
+                "sun.misc.Unsafe.park(Native Method)", "java.util.concurrent.LinkedBlockingQueue.take(LinkedBlockingQueue.java:442)",
+                "java.util.concurrent.ThreadPoolExecutor.getTask(ThreadPoolExecutor.java:1074)"})));
+        assertEquals(ThreadPools.RUNNABLE, ThreadPools.getState(DumpFixtures.createThread(pool, "pool-1-thread-2", "RUNNABLE", new String[]{
+                "java.net.SocketInputStream.socketRead0(Native Method)"})));
+        assertEquals(ThreadPools.WAITING, ThreadPools.getState(DumpFixtures.createThread(pool, "pool-1-thread-3", "TIMED_WAITING (sleeping)",
+                new String[]{"java.lang.Thread.sleep(Native Method)"})));
+    }
+
+    /**
+     * the saturation of a pool is tracked over the dumps in log file order.
+     */
+    public void testAddDump() {
+        System.out.println("addDump");
+        FramePool pool = new FramePool();
+        String[] idle = {"java.util.concurrent.ThreadPoolExecutor.getTask(ThreadPoolExecutor.java:1074)"};
+        String[] busy = {"com.example.Handler.handle(Handler.java:10)"};
+        ThreadPools pools = new ThreadPools();
+
+        Map dumpPools = new HashMap();
+        for (int i = 0; i < 4; i++) {
+            DumpThread thread = DumpFixtures.createThread(pool, "exec-" + i, "RUNNABLE", busy);
+            ThreadPools.addThread(dumpPools, thread, new ThreadInfo(thread.getTitle(), null, thread, 0, null));
+        }
+        pools.addDump("Dump No. 2", 200, dumpPools);
+
+        dumpPools = new HashMap();
+        for (int i = 0; i < 4; i++) {
+            DumpThread thread = DumpFixtures.createThread(pool, "exec-" + i, "WAITING (parking)", i < 1 ? busy : idle);
+            ThreadPools.addThread(dumpPools, thread, new ThreadInfo(thread.getTitle(), null, thread, 0, null));
+        }
+        DumpThread main = DumpFixtures.createThread(pool, "main", "RUNNABLE", busy);
+        ThreadPools.addThread(dumpPools, main, new ThreadInfo(main.getTitle(), null, main, 0, null));
+        List result = pools.addDump("Dump No. 1", 100, dumpPools);
+        assertEquals(1, result.size());
+        ThreadPools.DumpPool dumpPool = (ThreadPools.DumpPool) result.get(0);
+        assertEquals(3, dumpPool.getCount(ThreadPools.IDLE));
+        assertEquals(1, dumpPool.getCount(ThreadPools.WAITING));
+        assertEquals(25, dumpPool.getSaturation());
+
+        assertEquals(1, pools.size());
+        ThreadPools.Pool exec = (ThreadPools.Pool) pools.getPools().get(0);
+        assertEquals("exec", exec.getName());
+        assertEquals(2, exec.getDumpCount());
+        assertEquals(3, exec.getCount(0, ThreadPools.IDLE));
+        assertEquals(4, exec.getCount(1, ThreadPools.RUNNABLE));
+        assertEquals(100, exec.getMaxSaturation());
+        assertEquals(4, exec.getMaxSize());
+    }
+
+    /**
+     * the worker threads of the generated dumps form one pool per dump.
+     */
+    public void testGeneratedDumps() throws Exception {
+        System.out.println("generatedDumps");
+        DumpParser parser = DumpFixtures.createParser(DumpFixtures.createGenerator(200, 2), new HashMap());
+        try {
+            List dumps = DumpFixtures.parseDumps(parser);
+            for (int i = 0; i < dumps.size(); i++) {
+                DefaultMutableTreeNode dump = (DefaultMutableTreeNode) dumps.get(i);
+                TreeCategory cat = (TreeCategory) ((DefaultMutableTreeNode) dump.getChildAt(2)).getUserObject();
+                assertTrue(cat.getName().startsWith("Thread Pools"));
+                assertTrue(cat.getNodeAt(0).toString().startsWith("worker: 200 Threads"));
+            }
+            ThreadPools pools = ((AbstractDumpParser) parser).getThreadPools();
+            assertEquals(pools.size(), pools.createCategory().getNodeCount());
+            assertTrue(pools.createCategory().getName().endsWith("in 2 Dumps)"));
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * WaitForGraphTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.pironet.tda;
+
+import com.pironet.tda.model.Deadlock;
+import com.pironet.tda.model.ThreadDump;
+import com.pironet.tda.utils.IconFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import junit.framework.*;
+
+/**
+ * test the wait-for graph and the blocking forest derived from it.
+ */
+public class WaitForGraphTest extends TestCase {
+
+    public WaitForGraphTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite(WaitForGraphTest.class);
+
+        return suite;
+    }
+
+    /**
+     * a lock chain m3 -> m2 -> m1 with an uncontended monitor in between.
+     */
+    public void testChain() {
+        System.out.println("chain");
+        MonitorMap mmap = new MonitorMap();
+        mmap.addLockToMonitor("m1", "t1", null);
+        mmap.addWaitToMonitor("m1", "t2", null);
+        mmap.addWaitToMonitor("m1", "t4", null);
+        mmap.addLockToMonitor("free", "t1", null);
+        mmap.addLockToMonitor("m2", "t2", null);
+        mmap.addWaitToMonitor("m2", "t3", null);
+        mmap.addLockToMonitor("m3", "t3", null);
+        mmap.addWaitToMonitor("m3", "t5", null);
+
+        WaitForGraph graph = new WaitForGraph(mmap);
+        assertEquals(new HashSet(Arrays.asList(new String[]{"m1", "m2", "m3"})), new HashSet(graph.getMonitors()));
+        assertEquals(4, graph.getBlockedThreadCount());
+        assertEquals("t2", graph.getOwner("m2"));
+        assertEquals(new HashSet(Arrays.asList(new String[]{"t2", "t4"})), new HashSet(graph.getBlockedThreads("m1")));
+        assertEquals(Arrays.asList(new String[]{"m1"}), graph.getMonitorsWaitedFor("t2"));
+        assertTrue(graph.getMonitorsWaitedFor("t1").isEmpty());
+
+        assertNull(graph.getBlockingMonitor("m1"));
+        assertEquals("m1", graph.getBlockingMonitor("m2"));
+        assertEquals("m2", graph.getBlockingMonitor("m3"));
+        assertEquals(Arrays.asList(new String[]{"m2"}), graph.getBlockedMonitors("m1"));
+        assertTrue(graph.getBlockedMonitors("m3").isEmpty());
+    }
+
+    /**
+     * the owner loop of a deadlock stays open at the monitor closing it.
+     */
+    public void testDeadlock() {
+        System.out.println("deadlock");
+        MonitorMap mmap = new MonitorMap();
+        mmap.addLockToMonitor("m1", "t1", null);
+        mmap.addWaitToMonitor("m1", "t2", null);
+        mmap.addLockToMonitor("m2", "t2", null);
+        mmap.addWaitToMonitor("m2", "t3", null);
+        mmap.addLockToMonitor("m3", "t3", null);
+        mmap.addWaitToMonitor("m3", "t1", null);
+
+        WaitForGraph graph = new WaitForGraph(mmap);
+        String[] blocking = {"m3", "m1", "m2"};
+        int roots = 0;
+        for (int i = 0; i < blocking.length; i++) {
+            String monitor = "m" + (i + 1);
+            if (graph.getBlockingMonitor(monitor) == null) {
+                roots++;
+            } else {
+                assertEquals(blocking[i], graph.getBlockingMonitor(monitor));
+            }
+        }
+        assertEquals(1, roots);
+    }
+
+    /**
+     * every cycle is found once, chains leading into a cycle don't belong to it.
+     */
+    public void testCycles() {
+        System.out.println("cycles");
+        MonitorMap mmap = new MonitorMap();
+        for (int i = 0; i < 3; i++) {
+            mmap.addLockToMonitor("m" + i, "t" + i, null);
+            mmap.addWaitToMonitor("m" + i, "t" + ((i + 1) % 3), null);
+        }
+        mmap.addLockToMonitor("m3", "t3", null);
+        mmap.addWaitToMonitor("m3", "t4", null);
+        mmap.addWaitToMonitor("m0", "t3", null);
+        mmap.addLockToMonitor("m5", "t5", null);
+        mmap.addWaitToMonitor("m5", "t6", null);
+
+        List cycles = new WaitForGraph(mmap).getCycles();
+        assertEquals(1, cycles.size());
+        WaitForGraph.Cycle cycle = (WaitForGraph.Cycle) cycles.get(0);
+        assertEquals(new HashSet(Arrays.asList(new String[]{"t0", "t1", "t2"})), cycle.getThreads());
+        assertEquals(3, cycle.getEdgeCount());
+        for (int i = 0; i < cycle.getEdgeCount(); i++) {
+            // every thread waits for the next one
+            assertEquals(cycle.getOwner(i), cycle.getThread((i + 1) % 3));
+            int monitor = mmap.indexOf(cycle.getMonitor(i));
+            assertEquals(cycle.getOwner(i), mmap.getThreadTitle(mmap.getThreads(monitor, MonitorMap.LOCK_THREAD_POS)[0]));
+        }
+    }
+
+    /**
+     * the owners of the top level monitors are listed in the order of the dump.
+     */
+    public void testBlockingMonitorOrder() throws Exception {
+        System.out.println("blockingMonitorOrder");
+        String[] monitors = {"<0x0000000700000090>", "<0x0000000700000010>", "<0x00000007000000f0>",
+                "<0x0000000700000030>", "<0x0000000700000050>", "<0x00000007000000a0>"};
+        MonitorMap mmap = new MonitorMap();
+        for (int i = 0; i < monitors.length; i++) {
+            mmap.addLockToMonitor(monitors[i], "\"owner-" + i + "\" #" + i + " prio=5 tid=0x01 nid=0x01 runnable", null);
+            mmap.addWaitToMonitor(monitors[i], "\"waiter-" + i + "\" #" + i + " prio=5 tid=0x02 nid=0x02 blocked", null);
+        }
+
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(
+                "Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.392-b08 mixed mode):\n\n".getBytes()),
+                new HashMap(), false, 1);
+        try {
+            DefaultMutableTreeNode cat = new DefaultMutableTreeNode(new TreeCategory("Threads blocked by Monitors",
+                    IconFactory.THREADS_LOCKING, false));
+            new DumpTreeBuilder((AbstractDumpParser) parser).dumpBlockingMonitors(cat, mmap);
+            DefaultMutableTreeNode root = ((TreeCategory) cat.getUserObject()).getRootNode();
+            assertEquals(monitors.length, root.getChildCount());
+            for (int i = 0; i < monitors.length; i++) {
+                assertTrue(root.getChildAt(i).toString().startsWith("Thread - \"owner-" + i + "\""));
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * a deadlock of java.util.concurrent locks which the vm didn't report.
+     */
+    public void testConcurrentLockDeadlock() throws Exception {
+        System.out.println("concurrentLockDeadlock");
+        String log = "Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.392-b08 mixed mode):\n\n"
+                + parkedThread("worker-a", "10", "20") + parkedThread("worker-b", "20", "10")
+                + "\"VM Periodic Task Thread\" os_prio=0 tid=0x00007f0000009000 nid=0x109 waiting on condition \n\n"
+                + "JNI global references: 10\n\n";
+
+        DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(new ByteArrayInputStream(log.getBytes()),
+                new HashMap(), false, 1);
+        try {
+            ThreadDump dump = parser.readNextDump();
+            assertTrue(dump.getDeadlocks().isEmpty());
+            DumpTreeBuilder builder = new DumpTreeBuilder((AbstractDumpParser) parser);
+            List deadlocks = builder.findDeadlocks(dump, new WaitForGraph(builder.createMonitorMap(dump)));
+            assertEquals(1, deadlocks.size());
+            Deadlock deadlock = (Deadlock) deadlocks.get(0);
+            assertTrue(deadlock.isDetected());
+            assertTrue(deadlock.getLines().contains("\"worker-a\":"));
+            assertTrue(deadlock.getLines().contains("  which is held by \"worker-a\""));
+            assertTrue(deadlock.getLines().contains("  - parking to wait for <0x0000000700000010> (a java.util.concurrent.locks.ReentrantLock$NonfairSync),"));
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static String parkedThread(String name, String owned, String parked) {
+        return ("\"" + name + "\" #" + owned + " prio=5 os_prio=0 tid=0x00007f00000010" + owned + " nid=0x1" + owned
+                + " waiting on condition [0x00007f0001000000]\n"
+                + "   java.lang.Thread.State: WAITING (parking)\n"
+                + "\tat sun.misc.Unsafe.park(Native Method)\n"
+                + "\t- parking to wait for  <0x00000007000000" + parked + "> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)\n"
+                + "\tat java.util.concurrent.locks.ReentrantLock.lock(ReentrantLock.java:285)\n"
+                + "\tat com.example.Worker.run(Worker.java:10)\n\n"
+                + "   Locked ownable synchronizers:\n"
+                + "\t- <0x00000007000000" + owned + "> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)\n\n");
+    }
+}